@@ -0,0 +1,355 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs an ocean of snails and rocks split into bands of rows, one {@link BandServer} process per band, all on this
+ * machine and talking over loopback sockets.
+ *
+ * The coordinator keeps the tick barrier: for each of a tick's four colors it tells every band to step, waits for all
+ * of their reports, and hands each band what its two neighbors reported about it (the bands never talk to each other
+ * directly). Then it checks the answer: a one-process {@link RegionStepper} over the whole ocean, with the same seed,
+ * has to end up with everything in the same place.
+ *
+ * The band processes go away with the coordinator: {@link #close()} waits for them to quit (and kills any that
+ * don't), and so does anything going wrong on the way, from starting them to the last tick.
+ */
+public class BandCoordinator implements AutoCloseable {
+	/**
+	 * How long to wait for a band to call back, or to answer a message, before giving up on it (in milliseconds).
+	 */
+	static final int TIMEOUT = 60000;
+	/**
+	 * How often to check the bands are still running while waiting for them to call back (in milliseconds).
+	 */
+	private static final int POLL = 100;
+	/**
+	 * The band processes, by band.
+	 */
+	private final Process[] processes;
+	/**
+	 * The connection to each band, top to bottom (null until the band calls back).
+	 */
+	private final BandServer.Link[] bands;
+	/**
+	 * Where each band starts: band b owns rows starts[b] &lt;= y &lt; starts[b+1].
+	 */
+	private final int[] starts;
+	/**
+	 * Reused for writing messages.
+	 */
+	private final WireBuffer out = new WireBuffer();
+	/**
+	 * The reports of the color being stepped, one per band.
+	 */
+	private final ByteBuffer[] reports;
+
+	/**
+	 * Start the band processes and wait for them to say hello.
+	 * @param scenario - the ocean.
+	 * @param flags - the scenario's flags, to pass along to the bands.
+	 * @param numBands - how many bands (each at least a region tall).
+	 * @param regionSize - how big each band's regions are.
+	 * @param threads - how many threads each band steps with.
+	 * @throws IOException if a band can't be started or doesn't call back.
+	 */
+	public BandCoordinator(Scenario scenario, List<String> flags, int numBands, int regionSize, int threads)
+			throws IOException {
+		int regionRows = (scenario.height + regionSize - 1) / regionSize;
+		if (numBands < 1 || numBands > regionRows) {
+			throw new IllegalArgumentException("Can't split " + regionRows + " rows of regions into " + numBands + " bands");
+		}
+		// Bands start on region boundaries, so every band colors its regions the way one big world would.
+		this.starts = new int[numBands + 1];
+		for (int b=0; b<=numBands; b++) {
+			starts[b] = Math.min(scenario.height, regionRows * b / numBands * regionSize);
+		}
+		this.processes = new Process[numBands];
+		this.bands = new BandServer.Link[numBands];
+		this.reports = new ByteBuffer[numBands];
+
+		try {
+			start(flags);
+			for (int b=0; b<numBands; b++) {
+				out.clear();
+				out.putByte(BandServer.INIT);
+				out.putVarInt(starts[b]);
+				out.putVarInt(starts[b + 1]);
+				out.putVarInt(regionSize);
+				out.putVarInt(threads);
+				bands[b].send(out);
+			}
+		} catch (IOException | RuntimeException e) {
+			kill();
+			throw e;
+		}
+	}
+
+	/**
+	 * Start a process for each band, and wait for each to call back and say which band it is.
+	 * @param flags - the scenario's flags.
+	 * @throws IOException if a band can't be started, quits, or doesn't call back in time.
+	 */
+	private void start(List<String> flags) throws IOException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		try (ServerSocket server = new ServerSocket(0, bands.length, InetAddress.getLoopbackAddress())) {
+			for (int b=0; b<bands.length; b++) {
+				List<String> command = new ArrayList<>(Arrays.asList(java, "-cp", System.getProperty("java.class.path"),
+						BandServer.class.getName(), Integer.toString(server.getLocalPort()), Integer.toString(b)));
+				command.addAll(flags);
+				processes[b] = new ProcessBuilder(command).inheritIO().start();
+			}
+			// Wake up now and then to notice a band that quit instead of calling back.
+			server.setSoTimeout(POLL);
+			long giveUp = System.currentTimeMillis() + TIMEOUT;
+			for (int i=0; i<bands.length; i++) {
+				Socket socket = null;
+				while (socket == null) {
+					try {
+						socket = server.accept();
+					} catch (SocketTimeoutException e) {
+						for (int b=0; b<bands.length; b++) {
+							if (bands[b] == null && !processes[b].isAlive()) {
+								throw new IOException("Band " + b + " quit with " + processes[b].exitValue());
+							}
+						}
+						if (System.currentTimeMillis() > giveUp) {
+							throw new IOException("The bands didn't all call back in " + TIMEOUT + "ms");
+						}
+					}
+				}
+				socket.setSoTimeout(TIMEOUT);
+				BandServer.Link link = new BandServer.Link(socket);
+				int b = WireBuffer.getVarInt(link.receive(BandServer.HELLO));
+				bands[b] = link;
+			}
+		}
+	}
+
+	/**
+	 * Step the whole ocean once: four colors, each with a barrier and a round of messages.
+	 * @throws IOException if a band goes away.
+	 */
+	public void step() throws IOException {
+		try {
+			stepColors();
+		} catch (IOException | RuntimeException e) {
+			kill();
+			throw e;
+		}
+	}
+
+	/**
+	 * The body of {@link #step()}.
+	 * @throws IOException if a band goes away.
+	 */
+	private void stepColors() throws IOException {
+		for (int color=0; color<4; color++) {
+			out.clear();
+			out.putByte(BandServer.PHASE);
+			out.putByte(color);
+			for (BandServer.Link band : bands) {
+				band.send(out);
+			}
+			for (int b=0; b<bands.length; b++) {
+				// Keep a copy: the link reuses its buffer for the next message.
+				ByteBuffer msg = bands[b].receive(BandServer.REPORT);
+				reports[b] = ByteBuffer.wrap(Arrays.copyOfRange(msg.array(), msg.position(), msg.limit()));
+			}
+			for (int b=0; b<bands.length; b++) {
+				out.clear();
+				out.putByte(BandServer.DELIVER);
+				// What the band above said about its bottom edge, then what the band below said about its top edge.
+				relay(b > 0 ? reports[b - 1] : null, false);
+				relay(b + 1 < bands.length ? reports[b + 1] : null, true);
+				bands[b].send(out);
+			}
+		}
+	}
+
+	/**
+	 * Copy one part of a report into the message being written.
+	 * @param report - a band's report (just after its type), or null for no neighbor.
+	 * @param upward - true for the part about the band's top edge, false for its bottom edge.
+	 */
+	private void relay(ByteBuffer report, boolean upward) {
+		if (report == null) {
+			out.putVarInt(0);
+			return;
+		}
+		ByteBuffer in = report.duplicate();
+		int upLength = WireBuffer.getVarInt(in);
+		if (!upward) {
+			in.position(in.position() + upLength);
+		}
+		int length = upward ? upLength : WireBuffer.getVarInt(in);
+		out.putVarInt(length);
+		out.putBytes(in, length);
+	}
+
+	/**
+	 * Ask every band for what it owns.
+	 * @return the sum of each object's {@link StateEncoder#hash}, with the band's attributes.
+	 * @throws IOException if a band goes away.
+	 */
+	public long hash() throws IOException {
+		long hash = 0;
+		out.clear();
+		out.putByte(BandServer.DUMP);
+		try {
+			for (BandServer.Link band : bands) {
+				band.send(out);
+				ByteBuffer in = band.receive(BandServer.STATE);
+				for (int n = WireBuffer.getVarInt(in); n > 0; n--) {
+					int kind = WireBuffer.getVarInt(in);
+					int id = WireBuffer.getVarInt(in);
+					int x = WireBuffer.getVarInt(in);
+					int y = WireBuffer.getVarInt(in);
+					int attrs = WireBuffer.getVarInt(in);
+					hash += StateEncoder.hash(id, kind, attrs, x, y);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			kill();
+			throw e;
+		}
+		return hash;
+	}
+
+	/**
+	 * @return how many bytes have gone between the coordinator and the bands so far, both ways.
+	 */
+	public long bytesMoved() {
+		long sum = 0;
+		for (BandServer.Link band : bands) {
+			sum += band.bytesSent + band.bytesReceived;
+		}
+		return sum;
+	}
+
+	/**
+	 * Tell the bands to quit, and wait for them to.
+	 * @throws IOException if a band already went away (it's stopped anyway).
+	 */
+	@Override
+	public void close() throws IOException {
+		out.clear();
+		out.putByte(BandServer.BYE);
+		try {
+			for (BandServer.Link band : bands) {
+				band.send(out);
+			}
+		} finally {
+			kill();
+		}
+	}
+
+	/**
+	 * Hang up on every band and wait for its process to end, killing any that's still there after a while.
+	 * Safe to call more than once, and with bands that never started.
+	 */
+	private void kill() {
+		for (BandServer.Link band : bands) {
+			if (band != null) {
+				try {
+					band.close();
+				} catch (IOException e) {
+					// Hanging up anyway.
+				}
+			}
+		}
+		boolean interrupted = false;
+		for (Process process : processes) {
+			if (process == null) {
+				continue;
+			}
+			try {
+				if (!process.waitFor(5, TimeUnit.SECONDS)) {
+					process.destroyForcibly().waitFor();
+				}
+			} catch (InterruptedException e) {
+				process.destroyForcibly();
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Step the whole ocean in one process, the way the bands do, for comparison.
+	 * @return the same kind of hash as {@link #hash()}.
+	 */
+	static long runInOneProcess(Scenario scenario, int ticks, int regionSize) {
+		World world = new World(scenario.width, scenario.height, scenario.newRandom());
+		BandServer.populate(world, scenario, 0, scenario.height, 0);
+		RegionStepper stepper = new RegionStepper(world, regionSize, 1, 0, scenario.height, 0, true);
+		for (int t=0; t<ticks; t++) {
+			stepper.stepAll();
+		}
+		stepper.close();
+		long hash = 0;
+		for (WorldObject it : world.viewItems()) {
+			hash += StateEncoder.hash(it.id, it.getKind().ordinal(), BandServer.attrsOf(it), it.getX(), it.getY());
+		}
+		return hash;
+	}
+
+	/**
+	 * Run an ocean in several processes, time it, and check it against one process.
+	 * @param args - [bands [ticks [regionSize [threadsPerBand]]]], plus any scenario flags (see {@link Scenario}).
+	 * @throws IOException if a band fails.
+	 */
+	public static void main(String[] args) throws IOException {
+		List<String> flags = new ArrayList<>(Arrays.asList(
+				"--size=1000", "--snails=150000", "--rocks=100000", "--fallingRockRatio=0.5", "--seed=7"));
+		List<String> plain = new ArrayList<>();
+		for (String arg : args) {
+			(arg.startsWith("--") ? flags : plain).add(arg);
+		}
+		int numBands = plain.size() > 0 ? Integer.parseInt(plain.get(0)) : 3;
+		int ticks = plain.size() > 1 ? Integer.parseInt(plain.get(1)) : 100;
+		int regionSize = plain.size() > 2 ? Integer.parseInt(plain.get(2)) : 32;
+		int threads = plain.size() > 3 ? Integer.parseInt(plain.get(3)) : 1;
+		Scenario scenario = Scenario.parse(flags.toArray(new String[0]));
+
+		long start, hash;
+		double seconds;
+		try (BandCoordinator coordinator = new BandCoordinator(scenario, flags, numBands, regionSize, threads)) {
+			start = System.nanoTime();
+			for (int t=0; t<ticks; t++) {
+				coordinator.step();
+			}
+			seconds = (System.nanoTime() - start) / 1e9;
+			hash = coordinator.hash();
+			System.out.printf("%d bands: %d ticks in %.2fs (%.0f ticks/s), %.1f KB over the sockets per tick.%n",
+					numBands, ticks, seconds, ticks / seconds, coordinator.bytesMoved() / 1024.0 / ticks);
+		}
+
+		start = System.nanoTime();
+		long expected = runInOneProcess(scenario, ticks, regionSize);
+		seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("1 process: %d ticks in %.2fs (%.0f ticks/s).%n", ticks, seconds, ticks / seconds);
+		if (hash != expected) {
+			System.out.println("MISMATCH: the bands ended up somewhere else.");
+			System.exit(1);
+		}
+		System.out.println("Same result in both.");
+	}
+}
@@ -0,0 +1,498 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One process's share of an ocean too big for one JVM: a band of rows, stepped by a {@link RegionStepper}, for a
+ * {@link BandCoordinator} that runs the whole ocean tick by tick.
+ *
+ * The band's world also holds a copy of the row just above it and the row just below it (its ghost rows), which is all
+ * a snail or falling rock on the edge of the band ever looks at. Regions are colored the same way in every band, so
+ * while a color steps, the rows next to an edge only change on one side of it. After each color, every band tells the
+ * coordinator, for each neighbor:
+ * <ul>
+ * <li>its migrants: what swam out of the band into the neighbor's rows (the neighbor owns them from now on), and</li>
+ * <li>its edge: everything in the band's row next to the neighbor (the neighbor's ghost row, fresh).</li>
+ * </ul>
+ * The coordinator waits for every band, then hands each band what its neighbors said, all in one message per band per
+ * color. So every band sees exactly the cells it would have seen in one big world.
+ *
+ * The band fills itself in with {@link #populate}, which decides what is in each cell from the seed and the cell
+ * alone, so every band (and a one-process run) agrees about the starting ocean without sending it around.
+ */
+public class BandServer {
+	/**
+	 * Band to coordinator, once: which band I am.
+	 */
+	static final int HELLO = 1;
+	/**
+	 * Coordinator to band, once: which rows are yours, and how to step them.
+	 */
+	static final int INIT = 2;
+	/**
+	 * Coordinator to band: step a color.
+	 */
+	static final int PHASE = 3;
+	/**
+	 * Band to coordinator: my migrants and edges for each neighbor.
+	 */
+	static final int REPORT = 4;
+	/**
+	 * Coordinator to band: what the neighbors reported.
+	 */
+	static final int DELIVER = 5;
+	/**
+	 * Coordinator to band: send me everything you own.
+	 */
+	static final int DUMP = 6;
+	/**
+	 * Band to coordinator: everything I own.
+	 */
+	static final int STATE = 7;
+	/**
+	 * Coordinator to band: we're done.
+	 */
+	static final int BYE = 8;
+
+	/**
+	 * One end of a loopback connection, carrying messages that start with their length.
+	 */
+	static class Link {
+		final Socket socket;
+		final DataInputStream in;
+		final DataOutputStream out;
+		/**
+		 * The last message read (reused, so receiving doesn't make garbage once it's big enough).
+		 */
+		private byte[] inbox = new byte[256];
+		/**
+		 * How many bytes have gone each way, for measuring.
+		 */
+		long bytesSent, bytesReceived;
+
+		Link(Socket socket) throws IOException {
+			this.socket = socket;
+			socket.setTcpNoDelay(true);
+			this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+
+		/**
+		 * Send one message.
+		 * @param msg - the message.
+		 * @throws IOException if the connection is broken.
+		 */
+		void send(WireBuffer msg) throws IOException {
+			out.writeInt(msg.size());
+			msg.writeTo(out);
+			out.flush();
+			bytesSent += 4 + msg.size();
+		}
+
+		/**
+		 * Wait for one message.
+		 * @return the message, starting with its type (only good until the next receive).
+		 * @throws IOException if the connection is broken.
+		 */
+		ByteBuffer receive() throws IOException {
+			int length = in.readInt();
+			if (inbox.length < length) {
+				inbox = new byte[Math.max(length, inbox.length * 2)];
+			}
+			in.readFully(inbox, 0, length);
+			bytesReceived += 4 + length;
+			return ByteBuffer.wrap(inbox, 0, length);
+		}
+
+		/**
+		 * Wait for one message of a type.
+		 * @param type - what it should be (e.g. {@link #REPORT}).
+		 * @return the message, just after its type (only good until the next receive).
+		 * @throws IOException if the connection is broken, or the message isn't what we wanted.
+		 */
+		ByteBuffer receive(int type) throws IOException {
+			ByteBuffer msg = receive();
+			int got = msg.get();
+			if (got != type) {
+				throw new IOException("Expected message " + type + " but got " + got);
+			}
+			return msg;
+		}
+
+		void close() throws IOException {
+			socket.close();
+		}
+	}
+
+	/**
+	 * My world: my rows, plus a ghost row above and below (unless I'm at the top or bottom of the ocean).
+	 */
+	final World world;
+	/**
+	 * Which row of the ocean my world's row 0 is.
+	 */
+	final int top;
+	/**
+	 * The rows of my world that I own: firstRow &lt;= y &lt; endRow.
+	 */
+	final int firstRow, endRow;
+	/**
+	 * Steps my rows.
+	 */
+	final RegionStepper stepper;
+	/**
+	 * Copies of the neighbors' objects in my ghost row above, by id.
+	 */
+	private final Map<Integer, WorldObject> ghostsAbove = new HashMap<>();
+	/**
+	 * Copies of the neighbors' objects in my ghost row below, by id.
+	 */
+	private final Map<Integer, WorldObject> ghostsBelow = new HashMap<>();
+	/**
+	 * The ids of the migrants I sent up this color, and then of the ghosts to keep when the neighbor's edge comes in.
+	 */
+	private final Set<Integer> sentUp = new HashSet<>();
+	/**
+	 * The same, for the neighbor below.
+	 */
+	private final Set<Integer> sentDown = new HashSet<>();
+	/**
+	 * Reused for gathering migrants and edges.
+	 */
+	private final List<WorldObject> migrants = new ArrayList<>(), edge = new ArrayList<>();
+	/**
+	 * Reused for writing one neighbor's part of a report.
+	 */
+	private final WireBuffer part = new WireBuffer();
+
+	/**
+	 * Set up a band.
+	 * @param scenario - the ocean (its size, how full it is, and its seed).
+	 * @param y0 - the first row of the ocean I own.
+	 * @param y1 - one past the last row I own.
+	 * @param regionSize - how big the stepper's regions are (y0 has to be a multiple of it).
+	 * @param threads - how many threads step my regions.
+	 */
+	BandServer(Scenario scenario, int y0, int y1, int regionSize, int threads) {
+		int above = y0 > 0 ? 1 : 0;
+		int below = y1 < scenario.height ? 1 : 0;
+		this.top = y0 - above;
+		this.firstRow = above;
+		this.endRow = above + (y1 - y0);
+		this.world = new World(scenario.width, endRow + below, scenario.newRandom());
+		populate(world, scenario, top, y1 + below, top);
+		for (WorldObject it : world.viewItems()) {
+			if (it.getY() < firstRow) {
+				ghostsAbove.put(it.id, it);
+			} else if (it.getY() >= endRow) {
+				ghostsBelow.put(it.id, it);
+			}
+		}
+		this.stepper = new RegionStepper(world, regionSize, threads, firstRow, endRow, y0, true);
+	}
+
+	/**
+	 * Step one color, and tell the coordinator what the neighbors need to know.
+	 * @param color - which color (0 starts a tick).
+	 * @param report - where to write the {@link #REPORT}.
+	 */
+	void stepColor(int color, WireBuffer report) {
+		if (color == 0) {
+			stepper.prepare();
+		}
+		stepper.stepColor(color);
+		report.clear();
+		report.putByte(REPORT);
+		reportTo(firstRow > 0, firstRow - 1, firstRow, ghostsAbove, sentUp, report);
+		reportTo(endRow < world.getHeight(), endRow, endRow - 1, ghostsBelow, sentDown, report);
+	}
+
+	/**
+	 * Write what one neighbor needs (an empty part if there is no neighbor on that side).
+	 * @param exists - whether there's a neighbor.
+	 * @param ghostRow - my copy of the neighbor's row.
+	 * @param edgeRow - my row next to it.
+	 * @param ghosts - my copies of the neighbor's objects.
+	 * @param sent - where to remember the migrants' ids.
+	 * @param report - where to write it, as its length and then the part.
+	 */
+	private void reportTo(boolean exists, int ghostRow, int edgeRow, Map<Integer, WorldObject> ghosts,
+			Set<Integer> sent, WireBuffer report) {
+		part.clear();
+		if (exists) {
+			// Anything in the ghost row that isn't a ghost swam there this color.
+			migrants.clear();
+			for (int x=0; x<world.getWidth(); x++) {
+				for (WorldObject it = world.firstInCell(world.cellOf(x, ghostRow)); it != null; it = it.nextInCell) {
+					if (ghosts.get(it.id) != it) {
+						migrants.add(it);
+					}
+				}
+			}
+			putObjects(migrants, part);
+			for (WorldObject it : migrants) {
+				// It's theirs now; what's left here is just my copy of it.
+				ghosts.put(it.id, it);
+				sent.add(it.id);
+			}
+			edge.clear();
+			for (int x=0; x<world.getWidth(); x++) {
+				for (WorldObject it = world.firstInCell(world.cellOf(x, edgeRow)); it != null; it = it.nextInCell) {
+					edge.add(it);
+				}
+			}
+			putObjects(edge, part);
+		}
+		report.putVarInt(part.size());
+		report.putBytes(part);
+	}
+
+	/**
+	 * Write some objects: how many, then kind, id, x, the ocean's y and attributes for each.
+	 */
+	private void putObjects(List<WorldObject> objects, WireBuffer out) {
+		out.putVarInt(objects.size());
+		for (WorldObject it : objects) {
+			out.putVarInt(it.getKind().ordinal());
+			out.putVarInt(it.id);
+			out.putVarInt(it.getX());
+			out.putVarInt(top + it.getY());
+			out.putVarInt(attrsOf(it));
+		}
+	}
+
+	/**
+	 * Take in what the neighbors reported after a color (the parts the coordinator passed along).
+	 * @param color - which color was stepped (3 ends the tick).
+	 * @param deliver - the {@link #DELIVER}: the neighbor above's part, then the neighbor below's.
+	 */
+	void receive(int color, ByteBuffer deliver) {
+		applyPart(deliver, ghostsAbove, sentUp);
+		applyPart(deliver, ghostsBelow, sentDown);
+		if (color == 3) {
+			stepper.finish();
+		}
+	}
+
+	/**
+	 * Take in one neighbor's part: its migrants become mine, and its edge replaces my ghosts of it.
+	 * @param in - the part, after its length.
+	 * @param ghosts - my ghosts of that neighbor.
+	 * @param sent - the migrants I just sent it (ghosts it didn't know about yet when it wrote its edge); emptied.
+	 */
+	private void applyPart(ByteBuffer in, Map<Integer, WorldObject> ghosts, Set<Integer> sent) {
+		if (WireBuffer.getVarInt(in) == 0) {
+			return;
+		}
+		for (int n = WireBuffer.getVarInt(in); n > 0; n--) {
+			readObject(in, null);
+		}
+		for (int n = WireBuffer.getVarInt(in); n > 0; n--) {
+			sent.add(readObject(in, ghosts).id);
+		}
+		for (Iterator<WorldObject> it = ghosts.values().iterator(); it.hasNext(); ) {
+			WorldObject ghost = it.next();
+			if (!sent.contains(ghost.id)) {
+				world.remove(ghost);
+				it.remove();
+			}
+		}
+		sent.clear();
+	}
+
+	/**
+	 * Read one object written by {@link #putObjects}, and put it where it was reported (in my world's rows).
+	 * @param in - where to read.
+	 * @param ghosts - the ghosts to find it among (or add it to, if it's new), or null if it's a migrant I'll own.
+	 * @return the object.
+	 */
+	private WorldObject readObject(ByteBuffer in, Map<Integer, WorldObject> ghosts) {
+		Kind kind = Kind.ALL[WireBuffer.getVarInt(in)];
+		int id = WireBuffer.getVarInt(in);
+		int x = WireBuffer.getVarInt(in);
+		int y = WireBuffer.getVarInt(in) - top;
+		int attrs = WireBuffer.getVarInt(in);
+		WorldObject it = ghosts != null ? ghosts.get(id) : null;
+		if (it == null) {
+			it = make(world, kind);
+			it.id = id;
+			setAttrs(it, attrs);
+			it.setPosition(x, y);
+			world.register(it);
+			if (ghosts != null) {
+				ghosts.put(id, it);
+			}
+		} else {
+			setAttrs(it, attrs);
+			it.setPosition(x, y);
+		}
+		return it;
+	}
+
+	/**
+	 * Write everything I own, for the final tally.
+	 * @param out - where to write the {@link #STATE}.
+	 */
+	void dump(WireBuffer out) {
+		List<WorldObject> mine = new ArrayList<>();
+		for (WorldObject it : world.viewItems()) {
+			if (it.getY() >= firstRow && it.getY() < endRow) {
+				mine.add(it);
+			}
+		}
+		out.clear();
+		out.putByte(STATE);
+		putObjects(mine, out);
+	}
+
+	/**
+	 * Make an empty object of a kind that can live in a band (rocks and snails).
+	 */
+	static WorldObject make(World world, Kind kind) {
+		switch (kind) {
+		case ROCK:
+			return new Rock(world);
+		case FALLING_ROCK:
+			return new FallingRock(world);
+		case SNAIL:
+			return new Snail(world);
+		default:
+			throw new IllegalArgumentException("Bands only hold rocks and snails, not " + kind);
+		}
+	}
+
+	/**
+	 * @return what a band needs to know about an object besides where it is: a rock's look, or which way a snail is
+	 *         going and whether its eyes are open.
+	 */
+	static int attrsOf(WorldObject it) {
+		if (it instanceof Snail) {
+			Snail s = (Snail) it;
+			return (s.movingLeft ? 1 : 0) | (s.eyesOpen ? 2 : 0);
+		}
+		return StateEncoder.attrsOf(it);
+	}
+
+	/**
+	 * The opposite of {@link #attrsOf}.
+	 */
+	static void setAttrs(WorldObject it, int attrs) {
+		if (it instanceof Snail) {
+			((Snail) it).movingLeft = (attrs & 1) != 0;
+			((Snail) it).eyesOpen = (attrs & 2) != 0;
+		} else if (it instanceof Rock) {
+			((Rock) it).index = attrs;
+		}
+	}
+
+	/**
+	 * Fill some rows of the ocean. Each cell is decided by a hash of the seed and the cell, so any band can fill any
+	 * rows on its own and agree with everyone else: about scenario.rocks rocks and scenario.snails snails in all.
+	 * Each object's id is one more than its cell's number in the whole ocean.
+	 * @param world - where to put them.
+	 * @param scenario - the ocean.
+	 * @param fromRow - the first row of the ocean to fill.
+	 * @param toRow - one past the last.
+	 * @param top - which row of the ocean is the world's row 0.
+	 */
+	static void populate(World world, Scenario scenario, int fromRow, int toRow, int top) {
+		double cells = (double) scenario.width * scenario.height;
+		double rockChance = scenario.rocks / cells;
+		double snailChance = scenario.snails / cells;
+		long seed = scenario.seed != null ? scenario.seed : 0;
+		for (int y=fromRow; y<toRow; y++) {
+			for (int x=0; x<scenario.width; x++) {
+				int cell = y * scenario.width + x;
+				long h = mix(seed ^ mix(cell));
+				double roll = (h >>> 11) * 0x1.0p-53;
+				long more = mix(h);
+				WorldObject it;
+				if (roll < rockChance) {
+					boolean falling = (more >>> 11) * 0x1.0p-53 < scenario.fallingRockRatio;
+					it = make(world, falling ? Kind.FALLING_ROCK : Kind.ROCK);
+					setAttrs(it, (int) ((more & 0xFFFF) % 9));
+				} else if (roll < rockChance + snailChance) {
+					it = make(world, Kind.SNAIL);
+					setAttrs(it, (int) (more & 3));
+				} else {
+					continue;
+				}
+				it.id = cell + 1;
+				it.setPosition(x, y - top);
+				world.register(it);
+			}
+		}
+	}
+
+	/**
+	 * A SplitMix64 finish: scrambles every bit of a number into every other.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Run one band for a coordinator on this machine.
+	 * @param args - the coordinator's port, then which band this is, then the scenario's flags.
+	 * @throws IOException if the coordinator goes away.
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = Integer.parseInt(args[0]);
+		int band = Integer.parseInt(args[1]);
+		Scenario scenario = Scenario.parse(Arrays.copyOfRange(args, 2, args.length));
+		Link link = new Link(new Socket(InetAddress.getLoopbackAddress(), port));
+		WireBuffer out = new WireBuffer();
+		out.putByte(HELLO);
+		out.putVarInt(band);
+		link.send(out);
+
+		ByteBuffer init = link.receive(INIT);
+		int y0 = WireBuffer.getVarInt(init);
+		int y1 = WireBuffer.getVarInt(init);
+		int regionSize = WireBuffer.getVarInt(init);
+		int threads = WireBuffer.getVarInt(init);
+		BandServer me = new BandServer(scenario, y0, y1, regionSize, threads);
+
+		while (true) {
+			ByteBuffer msg = link.receive();
+			int type = msg.get();
+			if (type == PHASE) {
+				int color = msg.get();
+				me.stepColor(color, out);
+				link.send(out);
+				me.receive(color, link.receive(DELIVER));
+			} else if (type == DUMP) {
+				me.dump(out);
+				link.send(out);
+			} else if (type == BYE) {
+				break;
+			} else {
+				throw new IOException("Unexpected message " + type);
+			}
+		}
+		me.stepper.close();
+		link.close();
+	}
+}
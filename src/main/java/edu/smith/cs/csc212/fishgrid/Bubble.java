@@ -29,6 +29,11 @@ public class Bubble extends WorldObject {
 		g.fill(circle);
 	}
 
+	@Override
+	public Kind getKind() {
+		return Kind.BUBBLE;
+	}
+
 	@Override
 	public void step() {
 
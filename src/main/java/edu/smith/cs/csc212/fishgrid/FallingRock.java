@@ -32,14 +32,13 @@ public class FallingRock extends Rock {
 			new Color(72,60,50)
 	};
 	
-	int index;
-	
 	/**
 	 * Construct a Rock in our world.
 	 * @param world - the grid world.
 	 */
 	public FallingRock(World world) {
 		super(world);
+		// Picked a second time so seeded games keep the colors they always had.
 		this.index = rand.nextInt(9);
 	}
 
@@ -53,6 +52,11 @@ public class FallingRock extends Rock {
 		g.fill(rock);
 	}
 
+	@Override
+	public Kind getKind() {
+		return Kind.FALLING_ROCK;
+	}
+
 	@Override
 	public void step() {
 		this.moveDown();		
@@ -44,6 +44,11 @@ public class Fish extends WorldObject {
 	 */
 	boolean player = false;
 	
+	/**
+	 * Whether this fish is in its game's missing list (kept up to date by FishGame, so nobody has to search the list).
+	 */
+	boolean missing = false;
+	
 	/**
 	 * Called only on the Fish that is the player!
 	 */
@@ -161,6 +166,25 @@ public class Fish extends WorldObject {
 		}
 	}
 		
+	/**
+	 * Take one step toward the goal of a FlowField (picking randomly when there's a tie).
+	 * @param field - directions to somewhere, like the FishHome.
+	 * @return true if it moved!
+	 */
+	public boolean swimToward(FlowField field) {
+		int closer = field.downhill(getX(), getY()) & world.validMoves(this, Moves.CARDINAL);
+		int direction = Moves.pickUniform(closer, rand);
+		if (direction < 0) {
+			return false;
+		}
+		return move(direction);
+	}
+		
+	@Override
+	public Kind getKind() {
+		return Kind.FISH;
+	}
+
 	@Override
 	public void step() {
 		// Fish are controlled at a higher level; see FishGame.
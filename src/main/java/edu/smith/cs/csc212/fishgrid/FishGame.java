@@ -5,10 +5,11 @@
 
 package edu.smith.cs.csc212.fishgrid;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
-import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * This class manages our model of gameplay: missing and found fish, etc.
@@ -28,6 +29,26 @@ public class FishGame {
 	 * The home location.
 	 */
 	FishHome home;
+	/**
+	 * Which way is home from every cell? Kept up to date as rocks come and go.
+	 */
+	FlowField homeField;
+	/**
+	 * Plans the player's path when they click somewhere to go (see {@link #travelTo}).
+	 */
+	PathPlanner autopilot;
+	/**
+	 * Steps the snails and falling rocks on several threads, if {@link #stepInRegions} was called (null otherwise).
+	 */
+	RegionStepper regions;
+	/**
+	 * Writes every tick to disk, if {@link #journalTo} was called (null otherwise).
+	 */
+	Journal journal;
+	/**
+	 * Remembers the last few ticks, if {@link #keepRewind} was called (null otherwise).
+	 */
+	Rewind rewind;
 	/**
 	 * The heart location.
 	 */
@@ -58,15 +79,44 @@ public class FishGame {
 	 * Score!
 	 */
 	int score;
+	/**
+	 * How many times a fish was found, and how many times one got lost again (for the {@link Leaderboard}).
+	 */
+	int fishFound, fishLost;
+	/**
+	 * The seed this game's randomness came from, or null if it was handed a Random (for the {@link Leaderboard}).
+	 */
+	Long seed;
+	/**
+	 * When the game started (System.currentTimeMillis()).
+	 */
+	final long startedAt = System.currentTimeMillis();
+	
+	/**
+	 * Scratch lists that every step reuses (cleared before each use), so a step doesn't make garbage.
+	 */
+	private final List<WorldObject> overlap = new ArrayList<>();
+	/**
+	 * Set when a fish in {@link #missing} stops being missing, so the list needs a sweep.
+	 */
+	private boolean missingChanged;
 	
 	/**
 	 * Number of rocks!
 	 */
-	int NUM_ROCKS = 10;
+	int NUM_ROCKS;
 	/**
 	 * Number of snail!
 	 */
-	int NUM_SNAIL = 2;
+	int NUM_SNAIL;
+	/**
+	 * How many fish there are to bring home, in all.
+	 */
+	int totalFish;
+	/**
+	 * Everything about this game that isn't hard-coded.
+	 */
+	Scenario scenario;
 	
 	/**
 	 * Create a FishGame of a particular size.
@@ -74,36 +124,102 @@ public class FishGame {
 	 * @param h how tall is the grid?
 	 */
 	
-	Random rand = ThreadLocalRandom.current();
+	Random rand;
 	
 	public FishGame(int w, int h) {
-		world = new World(w, h);
+		this(w, h, new Random());
+	}
+	
+	/**
+	 * Create a FishGame whose randomness all comes from one place, so the same seed plays the same game.
+	 * @param w how wide is the grid?
+	 * @param h how tall is the grid?
+	 * @param rand where the game (and everything in it) gets randomness.
+	 */
+	public FishGame(int w, int h, Random rand) {
+		this(new Scenario(w, h), rand);
+	}
+	
+	/**
+	 * Create a FishGame from a scenario.
+	 * @param scenario the sizes, counts and chances to use.
+	 */
+	public FishGame(Scenario scenario) {
+		this(scenario, scenario.seed != null ? scenario.seed : new Random().nextLong());
+	}
+	
+	/**
+	 * Create a FishGame from a scenario and a seed (so the game knows its seed, even if the scenario had none).
+	 * @param scenario the sizes, counts and chances to use.
+	 * @param seed the seed for the game's randomness.
+	 */
+	private FishGame(Scenario scenario, long seed) {
+		this(scenario, new GameRandom(seed));
+		this.seed = seed;
+	}
+	
+	/**
+	 * Create a FishGame from a scenario, with randomness from a particular place.
+	 * @param scenario the sizes, counts and chances to use.
+	 * @param rand where the game (and everything in it) gets randomness.
+	 */
+	public FishGame(Scenario scenario, Random rand) {
+		this.rand = rand;
+		this.scenario = scenario;
+		if (scenario.level != null) {
+			// A handmade map instead of a random one.
+			adopt(Level.read(scenario.level, rand));
+			return;
+		}
+		this.NUM_ROCKS = scenario.rocks;
+		this.NUM_SNAIL = scenario.snails;
+		this.totalFish = scenario.fish;
+		world = new World(scenario.width, scenario.height, rand);
 		
 		missing = new ArrayList<Fish>();
 		found = new ArrayList<Fish>();
 		fishhome = new ArrayList<Fish>();
 		
+		// Make everything first, then put it all in at once (much faster than one at a time for big worlds).
+		List<WorldObject> everything = new ArrayList<>();
+		
 		// Add a home!
-		home = world.insertFishHome();
-		// Add a heart!
-		heart =  world.insertHeart();
-		// Add a bubble!
-		bubble = world.insertBubble();
+		home = new FishHome(world);
+		everything.add(home);
+		// Add hearts!
+		for (int i=0; i<scenario.hearts; i++) {
+			heart = new Heart(world);
+			everything.add(heart);
+		}
+		// Add bubbles!
+		for (int i=0; i<scenario.bubbles; i++) {
+			bubble = new Bubble(world);
+			everything.add(bubble);
+		}
 		
 		// Add rocks!
 		for (int i=0; i<NUM_ROCKS; i++) {
-			if (rand.nextDouble() < 0.5) {
-				world.insertRockRandomly();
+			if (rand.nextDouble() < scenario.fallingRockRatio) {
+				everything.add(new FallingRock(world));
 			}
 			else {
-				world.insertFallingRockRandomly();
+				everything.add(new Rock(world));
 			}
 		}
 		// Add snail!
 		for (int i=0; i<NUM_SNAIL; i++) {
-			world.insertSnailRandomly();
+			everything.add(new Snail(world));
 		}
 		
+		// Generate fish of all the colors but the first into the "missing" List (colors repeat if there are lots).
+		for (int i = 0; i < totalFish; i++) {
+			Fish friend = new Fish(i % (Fish.COLORS.length - 1) + 1, world);
+			friend.missing = true;
+			missing.add(friend);
+			everything.add(friend);
+		}
+		world.insertAllRandomly(everything);
+		
 		// Make the player out of the 0th fish color.
 		player = new Fish(0, world);
 		
@@ -112,11 +228,73 @@ public class FishGame {
 		player.markAsPlayer();
 		world.register(player);
 		
-		// Generate fish of all the colors but the first into the "missing" List.
-		for (int ft = 1; ft < Fish.COLORS.length; ft++) {
-			Fish friend = world.insertFishRandomly(ft);
-			missing.add(friend);
-		}		
+		// Measure the way home once; the field follows the rocks from now on.
+		homeField = new FlowField(world, home.getX(), home.getY());
+		world.addListener(homeField);
+	}
+	
+	/**
+	 * Play a world that is already filled in (e.g. loaded with {@link Level#load}), with the classic chances of
+	 * hearts and bubbles.
+	 * @param world the world, with its Random; see {@link #adopt} for what it needs.
+	 */
+	public FishGame(World world) {
+		this(new Scenario(world.getWidth(), world.getHeight()), world);
+	}
+	
+	/**
+	 * Wrap a game around a world that is already filled in (e.g. recovered by {@link Journal#recover}).
+	 * @param scenario the chances to use from now on (its counts are ignored).
+	 * @param world the world, with its Random; see {@link #adopt} for what it needs.
+	 */
+	FishGame(Scenario scenario, World world) {
+		this.rand = world.getRandom();
+		this.scenario = scenario;
+		adopt(world);
+	}
+	
+	/**
+	 * Take over a filled-in world. The first home is home, and the fish marked as the player is the player (if there
+	 * isn't one, the player starts at home). Every other fish is missing if it's marked missing, or else following
+	 * the player. Nobody is home yet.
+	 * @param world the world.
+	 * @throws IllegalArgumentException if there is no home.
+	 */
+	private void adopt(World world) {
+		this.world = world;
+		this.NUM_ROCKS = world.count(Kind.ROCK) + world.count(Kind.FALLING_ROCK);
+		this.NUM_SNAIL = world.count(Kind.SNAIL);
+		
+		missing = new ArrayList<Fish>();
+		found = new ArrayList<Fish>();
+		fishhome = new ArrayList<Fish>();
+		for (Fish f : world.viewKind(Kind.FISH, Fish.class)) {
+			if (f.player) {
+				player = f;
+			} else if (f.missing) {
+				missing.add(f);
+			} else {
+				found.add(f);
+			}
+		}
+		this.totalFish = missing.size() + found.size();
+		if (world.count(Kind.HOME) == 0) {
+			throw new IllegalArgumentException("A game needs a home.");
+		}
+		home = world.viewKind(Kind.HOME, FishHome.class).get(0);
+		if (player == null) {
+			player = new Fish(0, world);
+			player.setPosition(home.getX(), home.getY());
+			player.markAsPlayer();
+			world.register(player);
+		}
+		List<Heart> hearts = world.viewKind(Kind.HEART, Heart.class);
+		heart = hearts.isEmpty() ? null : hearts.get(hearts.size() - 1);
+		List<Bubble> bubbles = world.viewKind(Kind.BUBBLE, Bubble.class);
+		bubble = bubbles.isEmpty() ? null : bubbles.get(bubbles.size() - 1);
+		
+		homeField = new FlowField(world, home.getX(), home.getY());
+		world.addListener(homeField);
 	}
 	
 	/**
@@ -133,7 +311,7 @@ public class FishGame {
 	 */
 	public boolean gameOver() {
 		// Check if fish home is full.
-		if (fishhome.size()==Fish.COLORS.length-1) {
+		if (fishhome.size()==totalFish) {
 			return true;
 		}
 		else {
@@ -145,69 +323,25 @@ public class FishGame {
 	 * Update positions of everything (the user has just pressed a button).
 	 */
 	public void step() {
-		// Check if we want to insert a heart.
-		if (rand.nextDouble() < 0.02) {
+		// Registers and removes from here on are applied together at the end (see World.beginTick).
+		world.beginTick();
+		
+		// Check if we want to insert a heart (if there's room; long games fill the world up).
+		if (rand.nextDouble() < scenario.heartChance && world.hasUnusedSpace()) {
 			heart =  world.insertHeart();
 		}
 		// Check if we want to insert a Bubble.
-		if (rand.nextDouble() < 0.02) {
+		if (rand.nextDouble() < scenario.bubbleChance && world.hasUnusedSpace()) {
 			bubble =  world.insertBubble();
 		}
 		
 		// Keep track of how long the game has run.
 		this.stepsTaken += 1;
-				
-		// These are all the objects in the world in the same cell as the player.
-		List<WorldObject> overlap = this.player.findSameCell();
-		// The player is there, too, let's skip them.
-		overlap.remove(this.player);
 		
-		// If we find a fish, remove it from missing.
-		for (WorldObject wo : overlap) {
-			// It is missing if it's in our missing list.
-			if (missing.contains(wo)) {
-				if (!(wo instanceof Fish)) {
-					throw new AssertionError("wo must be a Fish since it was in missing!");
-				}
-				// Convince Java it's a Fish (we know it is!)
-				Fish justFound = (Fish) wo;
-				
-				// Remove from world.
-				
-				//justFound.remove();
-				found.add(justFound);
-				missing.remove(justFound);
-				// Earn 10 points when you find a fish!
-				// Earn extra 10 points when a fastScare fish is found!
-				// Earn extra 100 points when a fastScare fish is found!!
-				if (justFound.color == 6) {
-					score += 110;
-				}
-				else {
-					score += 10;
-				}
-				if (justFound.fastScare) {
-					score += 10;
-				} 
-			}
-			// If the player step on a heart.
-			if (wo instanceof Heart) {
-				score += 520;
-				world.remove(wo);
-			}
-			// If the player step on a bubble.
-			if (wo instanceof Bubble) {
-				world.remove(wo);
-			}
-			// If the player go back home.
-			if (wo instanceof FishHome) {
-				 fishhome.addAll(found);
-				 found.removeAll(found);
-				 for (WorldObject o : fishhome) {
-					 world.remove(o);
-				 }
-			}
-		}
+		// The player just moved: they get first pick of whatever is in their cell.
+		resolveCell(world.cellOf(player.getX(), player.getY()), true);
+		dropFromMissing();
+		
 		// A fish might get lost.
 		lostFish();
 		
@@ -217,25 +351,208 @@ public class FishGame {
 		// When fish get added to "found" they will follow the player around.
 		World.objectsFollow(player, found);
 		
+		// Everybody else has moved now: see who ended up together.
+		resolveOverlaps();
+		
 		// Step any world-objects that run themselves.
-		world.stepAll();
+		if (regions != null) {
+			regions.stepAll();
+		} else {
+			world.stepAll();
+		}
+		
+		// Now the item list (and anybody listening) catches up on what came and went.
+		world.commit();
+		if (rewind != null) {
+			rewind.tickCommitted();
+		}
+		// Last, since it throws if the journal has stopped.
+		if (journal != null) {
+			journal.tickCommitted();
+		}
+	}
+	
+	/**
+	 * Points for picking up a heart.
+	 */
+	static final int HEART_POINTS = 520;
+	/**
+	 * How likely a missing fish is to move each step: a fastScare one, and any other.
+	 */
+	static final double FAST_SCARE_WANDER = 0.8, WANDER = 0.3;
+	/**
+	 * How likely the last fish in line is to get lost each step (once the game is {@link #LOST_AFTER} steps old, and
+	 * more than one fish is following).
+	 */
+	static final double LOST_CHANCE = 0.1;
+	static final int LOST_AFTER = 20;
+	
+	/**
+	 * What happens when things meet, or get clicked on. Built once; every game shares it.
+	 * ({@link GameFork} plays the same rules on its own numbers, with the constants above.)
+	 */
+	static final Interactions RULES = new Interactions()
+			// The player picks up missing fish, hearts and bubbles, and brings everyone following them home.
+			.onPlayerMeets(Kind.FISH, (game, player, fish) -> game.findFish((Fish) fish))
+			.onPlayerMeets(Kind.HEART, (game, player, heart) -> {
+				game.score += HEART_POINTS;
+				game.world.remove(heart);
+			})
+			.onPlayerMeets(Kind.BUBBLE, (game, player, bubble) -> game.world.remove(bubble))
+			.onPlayerMeets(Kind.HOME, (game, player, home) -> game.bringFoundHome())
+			// Missing fish find their own way home, and eat hearts and bubbles they swim into.
+			.onMeet(Kind.FISH, Kind.HOME, (game, fish, home) -> game.fishGoesHome((Fish) fish))
+			.onMeet(Kind.FISH, Kind.HEART, FishGame::missingFishEats)
+			.onMeet(Kind.FISH, Kind.BUBBLE, FishGame::missingFishEats)
+			// Clicking destroys rocks that ruin the game, and pops bubbles.
+			.onClick(Kind.ROCK, (game, rock) -> game.world.remove(rock))
+			.onClick(Kind.FALLING_ROCK, (game, rock) -> game.world.remove(rock))
+			.onClick(Kind.BUBBLE, (game, bubble) -> game.world.remove(bubble));
+	
+	/**
+	 * Deal with everything that shares a cell once everybody has moved, looking only at the cells where things overlap
+	 * (see World.broadPhase). The player already had their turn at the start of the step, so they sit this one out.
+	 */
+	private void resolveOverlaps() {
+		int crowded = world.broadPhase();
+		for (int c=0; c<crowded; c++) {
+			resolveCell(world.crowdedCell(c), false);
+		}
+		dropFromMissing();
+	}
+	
+	/**
+	 * Sort out one cell with {@link #RULES}.
+	 * @param cell - the cell.
+	 * @param playerActs - false to leave the player out.
+	 */
+	private void resolveCell(int cell, boolean playerActs) {
+		// These are all the objects in the cell (things may be removed as we go, so copy them first).
+		world.cellInto(cell, overlap);
+		if (!playerActs) {
+			overlap.remove(player);
+		}
+		if (overlap.size() >= 2) {
+			RULES.resolve(this, overlap);
+		}
+	}
+	
+	/**
+	 * Squeeze the fish that were found or went home out of missing, if any were (one pass; removeAll would copy and
+	 * search).
+	 */
+	private void dropFromMissing() {
+		if (missingChanged) {
+			missingChanged = false;
+			int kept = 0;
+			for (int i=0; i<missing.size(); i++) {
+				Fish f = missing.get(i);
+				if (f.missing) {
+					missing.set(kept++, f);
+				}
+			}
+			while (missing.size() > kept) {
+				missing.remove(missing.size() - 1);
+			}
+		}
+	}
+	
+	/**
+	 * How many points is finding a fish worth?
+	 * @param fish - the fish.
+	 * @return 10, 100 more for a black fish, and 10 more for a fastScare fish.
+	 */
+	static int pointsFor(Fish fish) {
+		int points = fish.color == 6 ? 110 : 10;
+		if (fish.fastScare) {
+			points += 10;
+		}
+		return points;
+	}
+	
+	/**
+	 * The player found a fish: it's not missing anymore, and it follows the player now.
+	 * @param fish - a fish in the player's cell.
+	 */
+	private void findFish(Fish fish) {
+		if (!fish.missing) {
+			return;
+		}
+		fish.missing = false;
+		missingChanged = true;
+		found.add(fish);
+		fishFound++;
+		statusChanged(fish, Journal.FOUND);
+		// Earn 10 points when you find a fish!
+		// Earn extra 10 points when a fastScare fish is found!
+		// Earn extra 100 points when a black fish is found!!
+		score += pointsFor(fish);
+	}
+	
+	/**
+	 * The player is home: everybody following them is home too.
+	 */
+	private void bringFoundHome() {
+		for (int f=0; f<found.size(); f++) {
+			fishhome.add(found.get(f));
+			world.remove(found.get(f));
+			statusChanged(found.get(f), Journal.HOME);
+		}
+		found.clear();
+	}
+	
+	/**
+	 * A missing fish swam home by itself.
+	 * @param fish - a fish in the home's cell.
+	 */
+	private void fishGoesHome(Fish fish) {
+		if (!fish.missing) {
+			return;
+		}
+		fish.missing = false;
+		missingChanged = true;
+		fishhome.add(fish);
+		world.remove(fish);
+		statusChanged(fish, Journal.HOME);
+	}
+	
+	/**
+	 * A missing fish eats a heart or a bubble (fish following the player leave them for the player).
+	 * @param game - the game.
+	 * @param fish - the fish.
+	 * @param food - the heart or bubble.
+	 */
+	private static void missingFishEats(FishGame game, WorldObject fish, WorldObject food) {
+		// (A fish that got home on this very step still gets its snack.)
+		if (((Fish) fish).missing || fish.cell == WorldObject.NOT_REGISTERED) {
+			game.world.remove(food);
+		}
+	}
+	
+	/**
+	 * Tell the journal (if any) that a fish moved from one list to another.
+	 * @param fish - the fish.
+	 * @param status - the list it's in now: {@link Journal#MISSING}, {@link Journal#FOUND} or {@link Journal#HOME}.
+	 */
+	private void statusChanged(Fish fish, int status) {
+		if (journal != null) {
+			journal.fishStatus(fish, status);
+		}
+		if (rewind != null) {
+			rewind.fishStatus(fish);
+		}
 	}
 	
 	private void lostFish() {
-		if (found.size()>1 && this.stepsTaken>=20) {
-			if (rand.nextDouble() < 0.1) {
+		if (found.size()>1 && this.stepsTaken>=LOST_AFTER) {
+			if (rand.nextDouble() < LOST_CHANCE) {
+				found.get(found.size()-1).missing = true;
 				missing.add(found.get(found.size()-1));
+				statusChanged(found.get(found.size()-1), Journal.MISSING);
 				
 				// Deduct the point when the fish lost.
-				if (found.get(found.size()-1).color == 6) {
-					score -= 110;
-				}
-				else {
-					score -= 10;
-				}
-				if (found.get(found.size()-1).fastScare) {
-					score -= 10;
-				}
+				score -= pointsFor(found.get(found.size()-1));
+				fishLost++;
 				found.remove(found.size()-1);					
 			}			
 		}
@@ -243,46 +560,156 @@ public class FishGame {
 	
 	/**
 	 * Call moveRandomly() on all of the missing fish to make them seem alive.
+	 * (What they bump into is sorted out once they all have moved, in {@link #resolveOverlaps()}; except that a fish
+	 * at home goes in right away, so it's out of the way of the fish after it.)
 	 */
 	private void wanderMissingFish() {
-		
-		Random rand = ThreadLocalRandom.current();
-		List<WorldObject> overlapfish;
-		List<Fish> ff = new ArrayList<Fish>();
-
-		for (Fish lost : missing) {
+		for (int i=0; i<missing.size(); i++) {
+			Fish lost = missing.get(i);
 			// Check if the fish is fastScare.
 			if (lost.fastScare) {
-				if (rand.nextDouble() < 0.8) {
+				if (rand.nextDouble() < FAST_SCARE_WANDER) {
 					lost.moveRandomly();
 				}	
 			}
 			else {
-				if (rand.nextDouble() < 0.3) {
+				if (rand.nextDouble() < WANDER) {
 					lost.moveRandomly();
 				}
 			}
-			
-			// Check if the fish overlap with home, hearts, or bubbles.
-			overlapfish = lost.findSameCell();
-			overlapfish.remove(lost);
-			
-			for (WorldObject hf : overlapfish) {
-				if (hf instanceof FishHome) {
-					fishhome.add(lost);
-					// Store those we want to delete from missing.
-					ff.add(lost);
-					world.remove(lost);
+			if (lost.getX() == home.getX() && lost.getY() == home.getY()) {
+				resolveCell(world.cellOf(lost.getX(), lost.getY()), false);
+			}
+		}
+	}
+
+	/**
+	 * From now on, step the snails and falling rocks region by region on several threads (for huge oceans).
+	 * The same seed still plays the same game for any number of threads, but not the same game as without regions.
+	 * @param regionSize - how wide and tall each region is (at least 2).
+	 * @param threads - how many threads to use.
+	 */
+	public void stepInRegions(int regionSize, int threads) {
+		if (regions != null) {
+			regions.close();
+		}
+		regions = new RegionStepper(world, regionSize, threads);
+	}
+	
+	/**
+	 * From now on, write every tick to a journal in a directory, so the game can be recovered after a crash
+	 * (see {@link Journal}). Anything journaled there before is thrown away.
+	 * @param dir - the directory.
+	 * @param checkpointEvery - how many ticks between checkpoints.
+	 * @throws IOException if the directory can't be written.
+	 */
+	public void journalTo(Path dir, int checkpointEvery) throws IOException {
+		if (journal != null) {
+			journal.close();
+		}
+		journal = new Journal(this, dir, checkpointEvery);
+	}
+	
+	/**
+	 * From now on, remember the last few ticks, so the game can go back to them (see {@link #rewind}).
+	 * A game from a {@link Scenario} rolls the same dice again after going back; other games roll new ones.
+	 * @param ticks - how many ticks back it can go.
+	 */
+	public void keepRewind(int ticks) {
+		if (rewind != null) {
+			world.removeListener(rewind);
+		}
+		rewind = new Rewind(this, ticks);
+	}
+	
+	/**
+	 * Go back some ticks (steps and clicks), as if they never happened; the ones after are forgotten.
+	 * @param ticks - how many.
+	 * @return how many ticks it went back (0 if {@link #keepRewind} wasn't called, or it's as far back as it goes).
+	 */
+	public int rewind(int ticks) {
+		if (rewind == null) {
+			return 0;
+		}
+		int went = rewind.rewind(ticks);
+		if (went > 0) {
+			stopTraveling();
+			if (journal != null) {
+				// The journal saw everything move back; tell it about the lists too, in order.
+				for (Fish f : fishhome) {
+					journal.fishStatus(f, Journal.HOME);
 				}
-				if (hf instanceof Heart) {
-					world.remove(hf);
+				for (Fish f : missing) {
+					journal.fishStatus(f, Journal.MISSING);
 				}
-				if (hf instanceof Bubble) {
-					world.remove(hf);
+				for (Fish f : found) {
+					journal.fishStatus(f, Journal.FOUND);
 				}
-			}			
+				journal.tickCommitted();
+			}
 		}
-		missing.removeAll(ff);
+		return went;
+	}
+	
+	/**
+	 * Play one turn: the player tries to move, then the world takes a step.
+	 * @param action - a direction from {@link Moves}, or {@link PlayerController#SKIP} to stay put.
+	 * (With {@link PlayerController#WAIT} nothing happens at all.)
+	 * @return true if the player moved.
+	 */
+	public boolean play(int action) {
+		if (action == PlayerController.WAIT) {
+			return false;
+		}
+		boolean moved = action >= 0 && player.move(action);
+		step();
+		return moved;
+	}
+
+	/**
+	 * Start swimming the player toward a cell, one step per {@link #followPath()}.
+	 * @param x - the x-tile.
+	 * @param y - the y-tile.
+	 */
+	public void travelTo(int x, int y) {
+		if (autopilot == null) {
+			autopilot = new PathPlanner(world, player);
+			world.addListener(autopilot);
+		}
+		autopilot.setGoal(x, y);
+	}
+	
+	/**
+	 * Is the player swimming somewhere on their own?
+	 * @return true if there is a path to follow.
+	 */
+	public boolean isTraveling() {
+		return autopilot != null && autopilot.hasGoal();
+	}
+	
+	/**
+	 * Forget about where the player was swimming to.
+	 */
+	public void stopTraveling() {
+		if (autopilot != null) {
+			autopilot.clearGoal();
+		}
+	}
+	
+	/**
+	 * Move the player one step along their path (the plan is repaired first, if anything moved).
+	 * @return true if the player moved.
+	 */
+	public boolean followPath() {
+		if (!isTraveling()) {
+			return false;
+		}
+		int direction = autopilot.nextStep();
+		boolean moved = direction >= 0 && player.move(direction);
+		if (autopilot.arrived()) {
+			autopilot.clearGoal();
+		}
+		return moved;
 	}
 
 	/**
@@ -291,15 +718,19 @@ public class FishGame {
 	 * @param y - the y-tile.
 	 */
 	public void click(int x, int y) {
-		List<WorldObject> atPoint = world.find(x, y);
+		world.beginTick();
+		List<WorldObject> atPoint = world.findInto(x, y, overlap);
 
-		for (WorldObject it : atPoint) {
-			if (it instanceof Rock) {
-				world.remove(it);
-			}
-			else if (it instanceof Bubble) {
-				world.remove(it);
-			}
+		for (int i=0; i<atPoint.size(); i++) {
+			RULES.click(this, atPoint.get(i));
+		}
+		world.commit();
+		if (rewind != null) {
+			rewind.tickCommitted();
+		}
+		// Last, since it throws if the journal has stopped.
+		if (journal != null) {
+			journal.tickCommitted();
 		}
 	}	
 }
@@ -57,6 +57,11 @@ public class FishHome extends WorldObject {
 		scale.fillPolygon(house);
 	}
 
+	@Override
+	public Kind getKind() {
+		return Kind.HOME;
+	}
+
 	@Override
 	public void step() {
 		// Fish home doesn't move, does it?
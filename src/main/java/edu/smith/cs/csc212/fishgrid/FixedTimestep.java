@@ -0,0 +1,91 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+/**
+ * Turns the uneven time between frames into a whole number of equal-length game ticks.
+ *
+ * Time goes into an accumulator, and every full tick's worth comes out as one tick. A speed multiplier makes game time
+ * run faster than real time. If we ever owe more ticks than we're allowed to run in one frame, the extra time is
+ * thrown away instead of carried over, so a slow frame can't snowball into slower and slower frames.
+ */
+public class FixedTimestep {
+	/**
+	 * The slowest speed.
+	 */
+	public static final double MIN_SPEED = 1;
+	/**
+	 * The fastest speed.
+	 */
+	public static final double MAX_SPEED = 1000;
+
+	/**
+	 * How long one tick is, in seconds of game time.
+	 */
+	private final double tickSeconds;
+	/**
+	 * How many ticks one frame may run at normal speed (this grows with the speed).
+	 */
+	private final int maxTicksPerFrame;
+	/**
+	 * Game time we owe but haven't ticked yet.
+	 */
+	private double accumulator;
+	/**
+	 * How much faster than real time the game runs.
+	 */
+	private double speed = 1;
+
+	/**
+	 * Make a clock.
+	 * @param ticksPerSecond - how many ticks a second of game time has.
+	 * @param maxTicksPerFrame - how many ticks to allow per frame at normal speed before giving up on catching up.
+	 */
+	public FixedTimestep(double ticksPerSecond, int maxTicksPerFrame) {
+		this.tickSeconds = 1.0 / ticksPerSecond;
+		this.maxTicksPerFrame = maxTicksPerFrame;
+	}
+
+	/**
+	 * Let some real time pass.
+	 * @param seconds - real seconds since the last frame.
+	 * @return how many ticks to run now.
+	 */
+	public int advance(double seconds) {
+		accumulator += seconds * speed;
+		long owed = (long) (accumulator / tickSeconds);
+		long allowed = (long) Math.ceil(maxTicksPerFrame * speed);
+		if (owed > allowed) {
+			// We can't keep up; forget the rest rather than fall further behind.
+			accumulator = 0;
+			return (int) allowed;
+		}
+		accumulator -= owed * tickSeconds;
+		return (int) owed;
+	}
+
+	/**
+	 * Forget any time we owe (e.g. when a frame ran out of time before running all its ticks).
+	 */
+	public void dropBacklog() {
+		accumulator = 0;
+	}
+
+	/**
+	 * @return how much faster than real time the game runs.
+	 */
+	public double getSpeed() {
+		return speed;
+	}
+
+	/**
+	 * Change how much faster than real time the game runs.
+	 * @param speed - the new speed, kept between {@link #MIN_SPEED} and {@link #MAX_SPEED}.
+	 */
+	public void setSpeed(double speed) {
+		this.speed = Math.max(MIN_SPEED, Math.min(MAX_SPEED, speed));
+	}
+}
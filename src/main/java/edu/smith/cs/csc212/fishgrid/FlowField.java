@@ -0,0 +1,389 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.util.Arrays;
+
+/**
+ * A FlowField knows, for every cell of the World, how many steps it takes to swim to one goal cell (like the FishHome).
+ *
+ * It is computed once with a breadth-first search, and then kept up to date as Rocks are added, removed or fall,
+ * so any number of fish can ask "which way is home?" and get an answer right away.
+ *
+ * Only Rocks count as walls here. Snails move every step, so a fish should still check
+ * {@link World#canSwim} (or {@link World#validMoves}) before following the field.
+ */
+public class FlowField implements WorldListener {
+	/**
+	 * The distance of a cell we can't get to (or from).
+	 */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+	/**
+	 * The kinds of object that are walls (the same ones {@link #isWall} says yes to).
+	 */
+	private static final Kind[] WALL_KINDS = { Kind.ROCK, Kind.FALLING_ROCK };
+
+	/**
+	 * The world whose cells we measure.
+	 */
+	private World world;
+	/**
+	 * The size of the grid (x-tiles).
+	 */
+	private int width;
+	/**
+	 * The size of the grid (y-tiles).
+	 */
+	private int height;
+	/**
+	 * Where everybody is trying to get to.
+	 */
+	private int goal;
+	/**
+	 * Steps to the goal from each cell.
+	 */
+	private int[] dist;
+	/**
+	 * How many Rocks are in each cell (usually 0 or 1).
+	 */
+	private int[] walls;
+	/**
+	 * Reusable queue of cells for our searches.
+	 */
+	private int[] queue;
+	/**
+	 * Reusable queue of old distances, lined up with {@link #queue}.
+	 */
+	private int[] queueDist;
+	/**
+	 * Reusable heap of (distance, cell) pairs for {@link #addWall}, packed as distance &lt;&lt; 32 | cell.
+	 */
+	private long[] heap;
+	/**
+	 * How much of {@link #heap} is in use.
+	 */
+	private int heapSize;
+
+	/**
+	 * Build a field that leads to (goalX, goalY).
+	 * @param world - the world to measure; it should not be changed while this runs.
+	 * @param goalX - the goal (x).
+	 * @param goalY - the goal (y).
+	 */
+	public FlowField(World world, int goalX, int goalY) {
+		this.world = world;
+		this.width = world.getWidth();
+		this.height = world.getHeight();
+		this.goal = world.cellOf(goalX, goalY);
+		if (goal < 0) {
+			throw new IllegalArgumentException("The goal must be inside the world: " + goalX + "," + goalY);
+		}
+		this.dist = new int[width * height];
+		this.walls = new int[width * height];
+		this.queue = new int[width * height];
+		this.queueDist = new int[width * height];
+		this.heap = new long[width * height];
+		// Only rocks are walls, so only look at rocks.
+		for (Kind kind : WALL_KINDS) {
+			for (WorldObject it : world.viewKind(kind)) {
+				int cell = world.cellOf(it.getX(), it.getY());
+				if (cell >= 0) {
+					walls[cell]++;
+				}
+			}
+		}
+		recompute();
+	}
+
+	/**
+	 * Does this object stop fish from swimming through its cell (for the purposes of this field)?
+	 * @param it - any object.
+	 * @return true if it is a Rock (falling or not).
+	 */
+	private static boolean isWall(WorldObject it) {
+		return it instanceof Rock;
+	}
+
+	/**
+	 * Throw everything away and do the breadth-first search from scratch.
+	 */
+	public void recompute() {
+		Arrays.fill(dist, UNREACHABLE);
+		if (walls[goal] > 0) {
+			return;
+		}
+		dist[goal] = 0;
+		spreadFrom(goal);
+	}
+
+	/**
+	 * How many steps from (x,y) to the goal?
+	 * @param x - the tile-x.
+	 * @param y - the tile-y.
+	 * @return the number of steps, or {@link #UNREACHABLE}.
+	 */
+	public int distance(int x, int y) {
+		int cell = world.cellOf(x, y);
+		if (cell < 0) {
+			return UNREACHABLE;
+		}
+		return dist[cell];
+	}
+
+	/**
+	 * Which directions from (x,y) get one step closer to the goal?
+	 * @param x - the tile-x.
+	 * @param y - the tile-y.
+	 * @return a mask of {@link Moves#CARDINAL} directions (empty at the goal, or if there's no way there).
+	 */
+	public int downhill(int x, int y) {
+		int here = distance(x, y);
+		if (here == UNREACHABLE || here == 0) {
+			return 0;
+		}
+		int mask = 0;
+		for (int d=0; d<Moves.CARDINAL; d++) {
+			if (distance(x + Moves.DX[d], y + Moves.DY[d]) == here - 1) {
+				mask |= 1 << d;
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Which single direction should a fish at (x,y) take to get home?
+	 * @param x - the tile-x.
+	 * @param y - the tile-y.
+	 * @return a direction from {@link Moves}, or -1 if there's no step to take.
+	 */
+	public int nextStep(int x, int y) {
+		int mask = downhill(x, y);
+		if (mask == 0) {
+			return -1;
+		}
+		return Integer.numberOfTrailingZeros(mask);
+	}
+
+	@Override
+	public void objectAdded(WorldObject item) {
+		if (isWall(item)) {
+			addWall(world.cellOf(item.getX(), item.getY()));
+		}
+	}
+
+	@Override
+	public void objectRemoved(WorldObject item) {
+		if (isWall(item)) {
+			removeWall(world.cellOf(item.getX(), item.getY()));
+		}
+	}
+
+	@Override
+	public void objectMoved(WorldObject item, int fromX, int fromY) {
+		if (isWall(item)) {
+			addWall(world.cellOf(item.getX(), item.getY()));
+			removeWall(world.cellOf(fromX, fromY));
+		}
+	}
+
+	/**
+	 * A cell just became open: distances can only shrink, so spread the good news outward.
+	 * @param cell - the cell that lost a Rock.
+	 */
+	private void removeWall(int cell) {
+		if (cell < 0) {
+			return;
+		}
+		walls[cell]--;
+		if (walls[cell] > 0) {
+			return;
+		}
+		if (cell == goal) {
+			recompute();
+			return;
+		}
+		int best = UNREACHABLE;
+		int x = cell % width;
+		int y = cell / width;
+		for (int d=0; d<Moves.CARDINAL; d++) {
+			int n = world.cellOf(x + Moves.DX[d], y + Moves.DY[d]);
+			if (n >= 0 && dist[n] != UNREACHABLE && dist[n] + 1 < best) {
+				best = dist[n] + 1;
+			}
+		}
+		if (best == UNREACHABLE) {
+			// Still walled off from the goal.
+			return;
+		}
+		dist[cell] = best;
+		spreadFrom(cell);
+	}
+
+	/**
+	 * A cell just became a wall: everything whose shortest way home went through it has to find another way.
+	 * @param cell - the cell that gained a Rock.
+	 */
+	private void addWall(int cell) {
+		if (cell < 0) {
+			return;
+		}
+		walls[cell]++;
+		if (walls[cell] > 1 || dist[cell] == UNREACHABLE) {
+			return;
+		}
+		if (cell == goal) {
+			recompute();
+			return;
+		}
+
+		// Step 1: find every cell that only got home through this one, and forget its distance.
+		// The queue is in order of old distance, so when we check a cell for another way home,
+		// every cell one step closer has already been decided.
+		int head = 0;
+		int tail = 0;
+		queue[tail] = cell;
+		queueDist[tail++] = dist[cell];
+		dist[cell] = UNREACHABLE;
+		while (head < tail) {
+			int u = queue[head];
+			int du = queueDist[head++];
+			int ux = u % width;
+			int uy = u / width;
+			for (int d=0; d<Moves.CARDINAL; d++) {
+				int v = world.cellOf(ux + Moves.DX[d], uy + Moves.DY[d]);
+				if (v < 0 || dist[v] != du + 1 || hasSupport(v)) {
+					continue;
+				}
+				queue[tail] = v;
+				queueDist[tail++] = dist[v];
+				dist[v] = UNREACHABLE;
+			}
+		}
+
+		// Step 2: the forgotten cells (except the new wall) look at their neighbors that still know the way,
+		// and the closest ones spread outward first.
+		heapSize = 0;
+		for (int i=1; i<tail; i++) {
+			int v = queue[i];
+			int vx = v % width;
+			int vy = v / width;
+			int best = UNREACHABLE;
+			for (int d=0; d<Moves.CARDINAL; d++) {
+				int n = world.cellOf(vx + Moves.DX[d], vy + Moves.DY[d]);
+				if (n >= 0 && dist[n] != UNREACHABLE && dist[n] + 1 < best) {
+					best = dist[n] + 1;
+				}
+			}
+			if (best != UNREACHABLE) {
+				push(((long) best << 32) | v);
+			}
+		}
+		while (heapSize > 0) {
+			long next = pop();
+			int v = (int) next;
+			int dv = (int) (next >>> 32);
+			if (dist[v] <= dv) {
+				continue;
+			}
+			dist[v] = dv;
+			int vx = v % width;
+			int vy = v / width;
+			for (int d=0; d<Moves.CARDINAL; d++) {
+				int n = world.cellOf(vx + Moves.DX[d], vy + Moves.DY[d]);
+				if (n >= 0 && walls[n] == 0 && dist[n] > dv + 1) {
+					push(((long) (dv + 1) << 32) | n);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Put a (distance, cell) pair on the heap. A cell can be on it more than once; the extra copies are skipped when
+	 * they come off. The heap only grows until it's big enough for the worst wall so far.
+	 * @param entry - distance &lt;&lt; 32 | cell.
+	 */
+	private void push(long entry) {
+		if (heapSize == heap.length) {
+			heap = Arrays.copyOf(heap, heap.length * 2);
+		}
+		int i = heapSize++;
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (heap[parent] <= entry) {
+				break;
+			}
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = entry;
+	}
+
+	/**
+	 * Take the closest (distance, cell) pair off the heap.
+	 * @return distance &lt;&lt; 32 | cell.
+	 */
+	private long pop() {
+		long top = heap[0];
+		long last = heap[--heapSize];
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+				child++;
+			}
+			if (last <= heap[child]) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = last;
+		return top;
+	}
+
+	/**
+	 * Does this cell still have a neighbor exactly one step closer to the goal?
+	 * @param cell - a cell with a known distance.
+	 * @return true if its distance is still right.
+	 */
+	private boolean hasSupport(int cell) {
+		int x = cell % width;
+		int y = cell / width;
+		for (int d=0; d<Moves.CARDINAL; d++) {
+			int n = world.cellOf(x + Moves.DX[d], y + Moves.DY[d]);
+			if (n >= 0 && dist[n] != UNREACHABLE && dist[n] == dist[cell] - 1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Breadth-first search outward from a cell whose distance is already right,
+	 * lowering any neighbor distance that this improves.
+	 * @param start - the cell to spread from.
+	 */
+	private void spreadFrom(int start) {
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = start;
+		while (head < tail) {
+			int u = queue[head++];
+			int ux = u % width;
+			int uy = u / width;
+			for (int d=0; d<Moves.CARDINAL; d++) {
+				int v = world.cellOf(ux + Moves.DX[d], uy + Moves.DY[d]);
+				if (v >= 0 && walls[v] == 0 && dist[v] > dist[u] + 1) {
+					dist[v] = dist[u] + 1;
+					queue[tail++] = v;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,364 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Shares one FishGame's frames with many local spectators.
+ *
+ * The world is cut into square chunks, and each chunk has its own {@link StateEncoder}. Every tick, each chunk that
+ * somebody is watching is encoded once, into one read-only buffer that every interested spectator gets a view of
+ * (nothing is copied per spectator). A spectator only hears about the chunks that touch its viewport.
+ *
+ * Spectators read from a bounded queue. If one falls so far behind that its queue is full, its queue is emptied and it
+ * gets fresh keyframes on the next tick; if it keeps overflowing without reading anything, it is dropped.
+ * Either way, the tick never waits.
+ */
+public class FrameBroadcaster implements WorldListener {
+	/**
+	 * One chunk's frame for one tick. The same object goes to every spectator of that chunk.
+	 */
+	public static class ChunkFrame {
+		/**
+		 * Which chunk this describes.
+		 */
+		public final int chunk;
+		/**
+		 * The encoded frame; shared, so read it through {@link #data()}.
+		 */
+		private final ByteBuffer data;
+
+		ChunkFrame(int chunk, ByteBuffer data) {
+			this.chunk = chunk;
+			this.data = data;
+		}
+
+		/**
+		 * @return a view of the frame's bytes with its own position (the bytes themselves are shared).
+		 */
+		public ByteBuffer data() {
+			return data.duplicate();
+		}
+	}
+
+	/**
+	 * One spectator: its viewport and the frames it hasn't read yet.
+	 */
+	public class Subscriber {
+		/**
+		 * The chunks this spectator watches.
+		 */
+		final int cx0, cy0, cx1, cy1;
+		/**
+		 * Frames waiting to be read.
+		 */
+		final ArrayBlockingQueue<ChunkFrame> queue;
+		/**
+		 * Set when the queue overflowed; the next tick sends keyframes instead of deltas.
+		 */
+		boolean needsKeyframes = true;
+		/**
+		 * How many times the queue overflowed without the spectator reading anything in between.
+		 */
+		int strikes;
+		/**
+		 * Set whenever the spectator reads; cleared when its queue overflows.
+		 */
+		volatile boolean readSinceOverflow;
+		/**
+		 * Set once we gave up on this spectator (or it left).
+		 */
+		volatile boolean dropped;
+
+		Subscriber(int x, int y, int w, int h, int capacity) {
+			this.cx0 = Math.max(0, x / chunkSize);
+			this.cy0 = Math.max(0, y / chunkSize);
+			this.cx1 = Math.min(chunksWide - 1, (x + w - 1) / chunkSize);
+			this.cy1 = Math.min(chunksTall - 1, (y + h - 1) / chunkSize);
+			this.queue = new ArrayBlockingQueue<>(capacity);
+		}
+
+		/**
+		 * Take the next frame, if there is one. Keep one {@link StateDecoder} per {@link ChunkFrame#chunk}.
+		 * @return the frame, or null.
+		 */
+		public ChunkFrame poll() {
+			readSinceOverflow = true;
+			return queue.poll();
+		}
+
+		/**
+		 * @return true if this spectator was dropped for falling behind (or unsubscribed).
+		 */
+		public boolean isDropped() {
+			return dropped;
+		}
+
+		/**
+		 * Stop watching.
+		 */
+		public void unsubscribe() {
+			dropped = true;
+		}
+
+		/**
+		 * Hand over a frame without waiting.
+		 * @param frame - the frame.
+		 * @return false if the queue is full.
+		 */
+		boolean offer(ChunkFrame frame) {
+			return queue.offer(frame);
+		}
+	}
+
+	/**
+	 * The game we share.
+	 */
+	private final FishGame game;
+	/**
+	 * How wide and tall a chunk is.
+	 */
+	private final int chunkSize;
+	/**
+	 * How many chunks across.
+	 */
+	private final int chunksWide;
+	/**
+	 * How many chunks down.
+	 */
+	private final int chunksTall;
+	/**
+	 * One encoder per chunk.
+	 */
+	private final StateEncoder[] encoders;
+	/**
+	 * Who watches each chunk.
+	 */
+	private final List<List<Subscriber>> watchers = new ArrayList<>();
+	/**
+	 * Everyone watching.
+	 */
+	private final List<Subscriber> subscribers = new ArrayList<>();
+	/**
+	 * Spectators that showed up since the last tick (they may come from other threads).
+	 */
+	private final Queue<Subscriber> joining = new ConcurrentLinkedQueue<>();
+	/**
+	 * How many overflows without a read in between before a spectator is dropped.
+	 */
+	private final int maxStrikes;
+	/**
+	 * How many spectators have been dropped for falling behind.
+	 */
+	private int droppedCount;
+
+	/**
+	 * Start sharing a game.
+	 * @param game - the game.
+	 * @param chunkSize - how wide and tall each chunk is.
+	 * @param keyframeInterval - how often each chunk sends a keyframe anyway.
+	 * @param maxStrikes - how many overflows without a read in between before a spectator is dropped.
+	 */
+	public FrameBroadcaster(FishGame game, int chunkSize, int keyframeInterval, int maxStrikes) {
+		this.game = game;
+		this.chunkSize = chunkSize;
+		this.maxStrikes = maxStrikes;
+		World world = game.world;
+		this.chunksWide = (world.getWidth() + chunkSize - 1) / chunkSize;
+		this.chunksTall = (world.getHeight() + chunkSize - 1) / chunkSize;
+		this.encoders = new StateEncoder[chunksWide * chunksTall];
+		for (int cy=0; cy<chunksTall; cy++) {
+			for (int cx=0; cx<chunksWide; cx++) {
+				encoders[cy * chunksWide + cx] = new StateEncoder(game, keyframeInterval,
+						cx * chunkSize, cy * chunkSize, (cx + 1) * chunkSize, (cy + 1) * chunkSize);
+				watchers.add(new ArrayList<>());
+			}
+		}
+		for (WorldObject it : world.viewItems()) {
+			objectAdded(it);
+		}
+		world.addListener(this);
+	}
+
+	/**
+	 * Start watching a rectangle of the world; safe to call from any thread. Frames start with the next tick.
+	 * @param x - the viewport's left edge.
+	 * @param y - the viewport's top edge.
+	 * @param w - the viewport's width.
+	 * @param h - the viewport's height.
+	 * @param capacity - how many frames may wait unread before we call the spectator slow.
+	 * @return the spectator's handle.
+	 */
+	public Subscriber subscribe(int x, int y, int w, int h, int capacity) {
+		Subscriber s = new Subscriber(x, y, w, h, capacity);
+		joining.add(s);
+		return s;
+	}
+
+	/**
+	 * @return how many spectators are watching.
+	 */
+	public int subscriberCount() {
+		return subscribers.size();
+	}
+
+	/**
+	 * @return how many spectators were dropped for falling behind.
+	 */
+	public int droppedCount() {
+		return droppedCount;
+	}
+
+	/**
+	 * Which chunk is (x,y) in?
+	 * @return the chunk number, or -1 if off of the grid.
+	 */
+	private int chunkOf(int x, int y) {
+		if (game.world.cellOf(x, y) < 0) {
+			return -1;
+		}
+		return (y / chunkSize) * chunksWide + (x / chunkSize);
+	}
+
+	@Override
+	public void objectAdded(WorldObject item) {
+		int c = chunkOf(item.getX(), item.getY());
+		if (c >= 0) {
+			encoders[c].objectAdded(item);
+		}
+	}
+
+	@Override
+	public void objectRemoved(WorldObject item) {
+		int c = chunkOf(item.getX(), item.getY());
+		if (c >= 0) {
+			encoders[c].objectRemoved(item);
+		}
+	}
+
+	@Override
+	public void objectMoved(WorldObject item, int fromX, int fromY) {
+		int from = chunkOf(fromX, fromY);
+		int to = chunkOf(item.getX(), item.getY());
+		if (from >= 0 && from != to) {
+			// It left: the old chunk sees it as gone.
+			encoders[from].objectMoved(item, fromX, fromY);
+		}
+		if (to >= 0) {
+			encoders[to].objectMoved(item, fromX, fromY);
+		}
+	}
+
+	/**
+	 * Encode this tick and hand it to every spectator; call once after each {@link FishGame#step()}.
+	 */
+	public void publish() {
+		for (Subscriber s; (s = joining.poll()) != null; ) {
+			subscribers.add(s);
+			watchChunks(s);
+		}
+
+		// Encode each watched chunk once.
+		ChunkFrame[] frames = new ChunkFrame[encoders.length];
+		for (int c=0; c<encoders.length; c++) {
+			List<Subscriber> ws = watchers.get(c);
+			ws.removeIf(s -> s.dropped);
+			if (!ws.isEmpty()) {
+				frames[c] = new ChunkFrame(c, encoders[c].encodeFrame());
+			}
+		}
+
+		// Keyframes are only made if somebody needs one, and then only once per chunk.
+		ChunkFrame[] keyframes = new ChunkFrame[encoders.length];
+		for (Subscriber s : subscribers) {
+			if (s.dropped) {
+				continue;
+			}
+			boolean ok = true;
+			for (int cy=s.cy0; cy<=s.cy1 && ok; cy++) {
+				for (int cx=s.cx0; cx<=s.cx1 && ok; cx++) {
+					int c = cy * chunksWide + cx;
+					ChunkFrame f = frames[c];
+					if (s.needsKeyframes) {
+						if (keyframes[c] == null) {
+							keyframes[c] = new ChunkFrame(c, encoders[c].encodeKeyframe());
+						}
+						f = keyframes[c];
+					}
+					ok = s.offer(f);
+				}
+			}
+			if (ok) {
+				s.needsKeyframes = false;
+			} else {
+				// Too slow: throw away what it hasn't read, and start it over with keyframes (or give up).
+				s.queue.clear();
+				s.needsKeyframes = true;
+				s.strikes = s.readSinceOverflow ? 1 : s.strikes + 1;
+				s.readSinceOverflow = false;
+				if (s.strikes > maxStrikes) {
+					s.dropped = true;
+					droppedCount++;
+				}
+			}
+		}
+		subscribers.removeIf(s -> s.dropped);
+	}
+
+	/**
+	 * Add a spectator to the watcher list of every chunk in its viewport (dropped ones are cleaned out in publish).
+	 * @param s - the spectator.
+	 */
+	private void watchChunks(Subscriber s) {
+		for (int cy=s.cy0; cy<=s.cy1; cy++) {
+			for (int cx=s.cx0; cx<=s.cx1; cx++) {
+				watchers.get(cy * chunksWide + cx).add(s);
+			}
+		}
+	}
+
+	/**
+	 * A spectator's side: one decoder per chunk, fed from {@link Subscriber#poll()}.
+	 */
+	public static class View {
+		/**
+		 * A decoder for each chunk we have heard about.
+		 */
+		private final Map<Integer, StateDecoder> chunks = new HashMap<>();
+
+		/**
+		 * Apply a frame to its chunk's decoder.
+		 * @param frame - the frame.
+		 */
+		public void apply(ChunkFrame frame) {
+			StateDecoder d = chunks.get(frame.chunk);
+			if (d == null) {
+				d = new StateDecoder();
+				chunks.put(frame.chunk, d);
+			}
+			d.apply(frame.data());
+		}
+
+		/**
+		 * @return how many objects are in view, over all chunks.
+		 */
+		public int size() {
+			int total = 0;
+			for (StateDecoder d : chunks.values()) {
+				total += d.size();
+			}
+			return total;
+		}
+	}
+}
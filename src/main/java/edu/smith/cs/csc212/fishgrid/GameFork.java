@@ -0,0 +1,897 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A copy of a game that plays just like it, for looking ahead: {@link #fork()} makes another copy in a few
+ * allocations no matter how big the world is, and the two share everything until one of them changes it. A bot can
+ * fork thousands of these per turn to try out moves (see {@link SearchBot}).
+ *
+ * It doesn't copy the {@link World} and its objects; it keeps just what the rules look at, in numbers: what's in each
+ * cell (how many fish, and a bit each for home, heart, bubble, rock and snail), where every fish, snail and falling
+ * rock is, the three lists of fish, the player's trail, the score and the dice. The cells and positions are kept in
+ * {@link Ints}, which are split into chunks of 64 numbers; a write copies just the chunk it lands in (and the path to
+ * it), and only the first time since the last fork.
+ *
+ * Each fork rolls its own {@link GameRandom}. Made from a game that rolls a {@link GameRandom} (any game from a
+ * {@link Scenario}), a fork starts where the game's dice are, and {@link #play} then does exactly what
+ * {@link FishGame#play} would, roll for roll. It plays the game's rules (and their constants, like
+ * {@link FishGame#HEART_POINTS}) on its own numbers, in the same order; GameForkParityTest plays the two side by side
+ * to keep it that way.
+ *
+ * A fork isn't safe to use from two threads at once, but different forks are, even ones that share chunks: nothing
+ * shared is ever written. (Forking the same frozen fork from several threads at once is fine too.)
+ */
+public class GameFork {
+	/**
+	 * A fixed-length list of ints that forks in constant time: a tree of chunks, where each fork writes to its own
+	 * copies of the chunks it changes. Every chunk is stamped with the edit that made it; a chunk with our stamp is
+	 * ours to write, and anything else gets copied first.
+	 */
+	static final class Ints {
+		/**
+		 * A leaf holds 64 numbers; a branch holds 32 children.
+		 */
+		private static final int LEAF_BITS = 6, BRANCH_BITS = 5;
+		private static final int LEAF = 1 << LEAF_BITS, BRANCH = 1 << BRANCH_BITS;
+		/**
+		 * Where new edit stamps come from (0 is never handed out: it means "we own nothing").
+		 */
+		private static final AtomicLong EDITS = new AtomicLong();
+
+		/**
+		 * A chunk of the tree: a branch's kids are chunks, a leaf's values are the numbers. A missing kid is all zeros.
+		 */
+		private static final class Chunk {
+			final long edit;
+			final Object[] kids;
+			final int[] values;
+
+			Chunk(long edit, Object[] kids, int[] values) {
+				this.edit = edit;
+				this.kids = kids;
+				this.values = values;
+			}
+		}
+
+		/**
+		 * The top branch.
+		 */
+		private Chunk root;
+		/**
+		 * How many levels of branches there are above the leaves.
+		 */
+		private final int levels;
+		/**
+		 * Our stamp, or 0 if we haven't written since the last fork.
+		 */
+		private long edit;
+
+		/**
+		 * All zeros.
+		 * @param length - how many numbers.
+		 */
+		Ints(int length) {
+			int levels = 1;
+			for (long reach = (long) LEAF * BRANCH; reach < length; reach *= BRANCH) {
+				levels++;
+			}
+			this.levels = levels;
+			this.edit = EDITS.incrementAndGet();
+			this.root = new Chunk(edit, new Object[BRANCH], null);
+		}
+
+		private Ints(Ints from) {
+			this.root = from.root;
+			this.levels = from.levels;
+		}
+
+		/**
+		 * @return a list with the same numbers, sharing all of them until one side writes.
+		 */
+		Ints fork() {
+			// From now on, neither side owns anything.
+			edit = 0;
+			return new Ints(this);
+		}
+
+		int get(int i) {
+			Chunk at = root;
+			for (int level=levels; level>0; level--) {
+				at = (Chunk) at.kids[(i >>> (LEAF_BITS + BRANCH_BITS * (level - 1))) & (BRANCH - 1)];
+				if (at == null) {
+					return 0;
+				}
+			}
+			return at.values[i & (LEAF - 1)];
+		}
+
+		void set(int i, int value) {
+			if (get(i) == value) {
+				return;
+			}
+			if (edit == 0) {
+				edit = EDITS.incrementAndGet();
+			}
+			root = own(root);
+			Chunk at = root;
+			for (int level=levels; level>0; level--) {
+				int k = (i >>> (LEAF_BITS + BRANCH_BITS * (level - 1))) & (BRANCH - 1);
+				Chunk kid = (Chunk) at.kids[k];
+				if (kid == null) {
+					kid = level > 1 ? new Chunk(edit, new Object[BRANCH], null) : new Chunk(edit, null, new int[LEAF]);
+				} else {
+					kid = own(kid);
+				}
+				at.kids[k] = kid;
+				at = kid;
+			}
+			at.values[i & (LEAF - 1)] = value;
+		}
+
+		/**
+		 * @return the chunk itself if it's ours, or our own copy of it.
+		 */
+		private Chunk own(Chunk chunk) {
+			if (chunk.edit == edit) {
+				return chunk;
+			}
+			return new Chunk(edit, chunk.kids == null ? null : chunk.kids.clone(),
+					chunk.values == null ? null : chunk.values.clone());
+		}
+	}
+
+	/**
+	 * What's in a cell: how many fish (the player too) in the low bits, and a bit for each of the other kinds.
+	 */
+	static final int FISH_MASK = 0xFF, HOME = 1 << 8, HEART = 1 << 9, BUBBLE = 1 << 10, ROCK = 1 << 11,
+			SNAIL = 1 << 12;
+	/**
+	 * Who's swimming, for {@link #canSwim}: the player, another fish, or a snail or falling rock.
+	 */
+	private static final int PLAYER = 0, FISH = 1, OTHER = 2;
+	/**
+	 * Where a fish is, in {@link #status}.
+	 */
+	static final int MISSING = 0, FOUND = 1, GONE_HOME = 2;
+	/**
+	 * Snail flags: which way it's going, and whether its eyes are open.
+	 */
+	private static final int MOVING_LEFT = 1, EYES_OPEN = 2;
+
+	/**
+	 * Everything that never changes in a game, shared by every fork of it.
+	 */
+	private static final class Rules {
+		final int width, height;
+		final double heartChance, bubbleChance;
+		/**
+		 * The real fish, by number (for checking a fork against its game).
+		 */
+		final Fish[] fish;
+		/**
+		 * What each fish is worth (see {@link FishGame#pointsFor}), and whether it scares fast.
+		 */
+		final int[] points;
+		final boolean[] fastScare;
+		final int homeX, homeY;
+
+		Rules(FishGame game, Fish[] fish) {
+			this.width = game.world.getWidth();
+			this.height = game.world.getHeight();
+			this.heartChance = game.scenario.heartChance;
+			this.bubbleChance = game.scenario.bubbleChance;
+			this.fish = fish;
+			this.points = new int[fish.length];
+			this.fastScare = new boolean[fish.length];
+			for (int f=0; f<fish.length; f++) {
+				points[f] = FishGame.pointsFor(fish[f]);
+				fastScare[f] = fish[f].fastScare;
+			}
+			this.homeX = game.home.getX();
+			this.homeY = game.home.getY();
+		}
+	}
+
+	/**
+	 * The game's rules.
+	 */
+	private final Rules rules;
+	/**
+	 * What's in every cell (see {@link #FISH_MASK}), and how many cells in each row have anything.
+	 */
+	private final Ints grid, rowsUsed;
+	/**
+	 * How many cells have anything.
+	 */
+	private int used;
+	/**
+	 * Where each fish is and when it got there (x, y and arrival, by fish number), and where the player is.
+	 * (A cell lists the newest arrival first, and the player finds fish in that order.)
+	 */
+	private final Ints fishAt;
+	private int playerX, playerY;
+	/**
+	 * How many times a fish has moved (for the arrivals).
+	 */
+	private int arrivals;
+	/**
+	 * Each snail's x, y and flags, in the order the world steps them.
+	 */
+	private final Ints snails;
+	private final int numSnails;
+	/**
+	 * Each falling rock's x and y, in the order the world steps them.
+	 */
+	private final Ints falling;
+	private final int numFalling;
+	/**
+	 * The lists of fish (by number, in the game's order) and where each fish is; copied before the first write after a
+	 * fork.
+	 */
+	private int[] missing, found, home, status;
+	private int numMissing, numFound, numHome;
+	private boolean listsOwned;
+	/**
+	 * Where the player has been, newest first.
+	 */
+	private Rewind.Trail trail;
+	/**
+	 * The score, and how many steps have been taken.
+	 */
+	private int score, steps;
+	/**
+	 * This fork's dice.
+	 */
+	private final GameRandom dice;
+
+	/**
+	 * Copy a game as it is now (between steps).
+	 * @param game - the game.
+	 * @return a fork of it, with the game's dice if it rolls a {@link GameRandom} (and new ones otherwise).
+	 */
+	public static GameFork of(FishGame game) {
+		return new GameFork(game);
+	}
+
+	private GameFork(FishGame game) {
+		World world = game.world;
+		int cells = world.getWidth() * world.getHeight();
+		this.grid = new Ints(cells);
+		this.rowsUsed = new Ints(world.getHeight());
+
+		Fish[] fish = new Fish[game.missing.size() + game.found.size() + game.fishhome.size()];
+		this.status = new int[fish.length];
+		this.missing = new int[fish.length];
+		this.found = new int[fish.length];
+		this.home = new int[fish.length];
+		this.fishAt = new Ints(3 * fish.length);
+		for (Fish f : game.missing) {
+			missing[numMissing] = number(fish, f, MISSING);
+		}
+		for (Fish f : game.found) {
+			found[numFound] = number(fish, f, FOUND);
+		}
+		for (Fish f : game.fishhome) {
+			home[numHome] = number(fish, f, GONE_HOME);
+		}
+		this.listsOwned = true;
+		this.rules = new Rules(game, fish);
+
+		this.numSnails = world.viewKind(Kind.SNAIL).size();
+		this.snails = new Ints(3 * numSnails);
+		this.numFalling = world.viewKind(Kind.FALLING_ROCK).size();
+		this.falling = new Ints(2 * numFalling);
+		int snail = 0, rock = 0;
+		for (Kind kind : Kind.ALL) {
+			for (WorldObject it : world.viewKind(kind)) {
+				if (it.cell < 0) {
+					continue;
+				}
+				int bits;
+				switch (kind) {
+				case FISH: bits = 1; break;
+				case HOME: bits = HOME; break;
+				case HEART: bits = HEART; break;
+				case BUBBLE: bits = BUBBLE; break;
+				case SNAIL: bits = SNAIL; break;
+				default: bits = ROCK; break;
+				}
+				put(it.cell, grid.get(it.cell) + bits);
+				if (it instanceof Snail) {
+					Snail s = (Snail) it;
+					snails.set(3 * snail, s.getX());
+					snails.set(3 * snail + 1, s.getY());
+					snails.set(3 * snail++ + 2, (s.movingLeft ? MOVING_LEFT : 0) | (s.eyesOpen ? EYES_OPEN : 0));
+				} else if (kind == Kind.FALLING_ROCK) {
+					falling.set(2 * rock, it.getX());
+					falling.set(2 * rock++ + 1, it.getY());
+				}
+			}
+		}
+		List<WorldObject> inCell = new ArrayList<>();
+		for (int f=0; f<fish.length; f++) {
+			fishAt.set(3 * f, fish[f].getX());
+			fishAt.set(3 * f + 1, fish[f].getY());
+			if (fish[f].cell >= 0) {
+				// Older arrivals are further down their cell's list.
+				world.cellInto(fish[f].cell, inCell);
+				fishAt.set(3 * f + 2, -inCell.indexOf(fish[f]));
+			}
+		}
+		this.playerX = game.player.getX();
+		this.playerY = game.player.getY();
+		PositionHistory history = game.player.recentPositions;
+		for (int age=history.size()-1; age>=0; age--) {
+			trail = new Rewind.Trail(history.getX(age), history.getY(age), trail);
+		}
+		this.score = game.score;
+		this.steps = game.stepsTaken;
+		this.dice = new GameRandom();
+		if (game.rand instanceof GameRandom) {
+			dice.restore(((GameRandom) game.rand).save());
+		}
+	}
+
+	/**
+	 * Give a fish the next free number.
+	 */
+	private int number(Fish[] fish, Fish f, int where) {
+		int n = numMissing + numFound + numHome;
+		fish[n] = f;
+		status[n] = where;
+		if (where == MISSING) {
+			numMissing++;
+		} else if (where == FOUND) {
+			numFound++;
+		} else {
+			numHome++;
+		}
+		return n;
+	}
+
+	private GameFork(GameFork from, GameRandom dice) {
+		this.rules = from.rules;
+		this.grid = from.grid.fork();
+		this.rowsUsed = from.rowsUsed.fork();
+		this.used = from.used;
+		this.fishAt = from.fishAt.fork();
+		this.playerX = from.playerX;
+		this.playerY = from.playerY;
+		this.arrivals = from.arrivals;
+		this.snails = from.snails.fork();
+		this.numSnails = from.numSnails;
+		this.falling = from.falling.fork();
+		this.numFalling = from.numFalling;
+		this.missing = from.missing;
+		this.found = from.found;
+		this.home = from.home;
+		this.status = from.status;
+		this.numMissing = from.numMissing;
+		this.numFound = from.numFound;
+		this.numHome = from.numHome;
+		from.listsOwned = false;
+		this.trail = from.trail;
+		this.score = from.score;
+		this.steps = from.steps;
+		this.dice = dice;
+	}
+
+	/**
+	 * @return a copy of this game that rolls the same dice from here on (so it plays out the same, move for move).
+	 */
+	public GameFork fork() {
+		GameRandom same = new GameRandom(0);
+		same.restore(dice.save());
+		return new GameFork(this, same);
+	}
+
+	/**
+	 * @param seed - the copy's seed.
+	 * @return a copy of this game that rolls its own dice from here on.
+	 */
+	public GameFork fork(long seed) {
+		return new GameFork(this, new GameRandom(seed));
+	}
+
+	/**
+	 * Play one turn, just like {@link FishGame#play}.
+	 * @param action - a direction from {@link Moves}, or {@link PlayerController#SKIP} to stay put.
+	 * (With {@link PlayerController#WAIT} nothing happens at all.)
+	 * @return true if the player moved.
+	 */
+	public boolean play(int action) {
+		if (action == PlayerController.WAIT) {
+			return false;
+		}
+		boolean moved = false;
+		if (action >= 0) {
+			int x = playerX + Moves.DX[action];
+			int y = playerY + Moves.DY[action];
+			if (canSwim(PLAYER, x, y)) {
+				leave(playerX, playerY);
+				enter(x, y);
+				playerX = x;
+				playerY = y;
+				trail = new Rewind.Trail(x, y, trail);
+				if (trail.length > 2 * WorldObject.NUM_RECENT_POSITIONS) {
+					trail = Rewind.copy(trail, WorldObject.NUM_RECENT_POSITIONS);
+				}
+				moved = true;
+			}
+		}
+		step();
+		return moved;
+	}
+
+	/**
+	 * The world takes a step, in the same order as {@link FishGame#step}.
+	 */
+	private void step() {
+		if (dice.nextDouble() < rules.heartChance && used < rules.width * rules.height) {
+			int cell = pickUnusedCell();
+			put(cell, HEART);
+		}
+		if (dice.nextDouble() < rules.bubbleChance && used < rules.width * rules.height) {
+			int cell = pickUnusedCell();
+			put(cell, BUBBLE);
+		}
+		steps++;
+		playerOverlaps();
+		lostFish();
+		wanderMissingFish();
+		followPlayer();
+		missingFishOverlaps();
+		for (int r=0; r<numFalling; r++) {
+			int x = falling.get(2 * r);
+			int y = falling.get(2 * r + 1);
+			if (canSwim(OTHER, x, y + 1)) {
+				moveBit(ROCK, x, y, x, y + 1);
+				falling.set(2 * r + 1, y + 1);
+			}
+		}
+		for (int s=0; s<numSnails; s++) {
+			int x = snails.get(3 * s);
+			int y = snails.get(3 * s + 1);
+			int flags = snails.get(3 * s + 2) ^ EYES_OPEN;
+			int nx = (flags & MOVING_LEFT) != 0 ? x - 1 : x + 1;
+			if (canSwim(OTHER, nx, y)) {
+				moveBit(SNAIL, x, y, nx, y);
+				snails.set(3 * s, nx);
+			} else {
+				flags ^= MOVING_LEFT;
+			}
+			snails.set(3 * s + 2, flags);
+		}
+	}
+
+	/**
+	 * The player picks up missing fish, hearts and bubbles in their cell and brings everyone home (see
+	 * {@link FishGame#RULES}).
+	 */
+	private void playerOverlaps() {
+		boolean changed = false;
+		int cell = playerY * rules.width + playerX;
+		int here = grid.get(cell);
+		while ((here & FISH_MASK) > 1) {
+			// Find the newest arrival first, like the game does (there's almost never more than one).
+			int newest = -1;
+			for (int i=0; i<numMissing; i++) {
+				int f = missing[i];
+				if (status[f] == MISSING && fishX(f) == playerX && fishY(f) == playerY
+						&& (newest < 0 || fishAt.get(3 * f + 2) > fishAt.get(3 * newest + 2))) {
+					newest = f;
+				}
+			}
+			if (newest < 0) {
+				break;
+			}
+			ownLists();
+			status[newest] = FOUND;
+			found[numFound++] = newest;
+			score += rules.points[newest];
+			changed = true;
+		}
+		if ((here & HOME) != 0 && numFound > 0) {
+			ownLists();
+			for (int i=0; i<numFound; i++) {
+				int f = found[i];
+				home[numHome++] = f;
+				status[f] = GONE_HOME;
+				leave(fishX(f), fishY(f));
+			}
+			numFound = 0;
+		}
+		if ((here & HEART) != 0) {
+			score += FishGame.HEART_POINTS;
+			put(cell, grid.get(cell) & ~HEART);
+		}
+		if ((here & BUBBLE) != 0) {
+			put(cell, grid.get(cell) & ~BUBBLE);
+		}
+		if (changed) {
+			dropFromMissing();
+		}
+	}
+
+	/**
+	 * Once everybody has moved, missing fish swim home and eat what's in their cells (see {@link FishGame#RULES}).
+	 */
+	private void missingFishOverlaps() {
+		boolean changed = false;
+		for (int i=0; i<numMissing; i++) {
+			int f = missing[i];
+			// (Fish that went home while swimming around are still in the list.)
+			if (status[f] != MISSING || missingFishMeets(f)) {
+				changed = true;
+			}
+		}
+		if (changed) {
+			dropFromMissing();
+		}
+	}
+
+	/**
+	 * A missing fish goes home if it's there, and eats any heart or bubble in its cell.
+	 * @param f - the fish's number.
+	 * @return true if it went home.
+	 */
+	private boolean missingFishMeets(int f) {
+		int at = fishY(f) * rules.width + fishX(f);
+		int bits = grid.get(at);
+		boolean wentHome = (bits & HOME) != 0;
+		if (wentHome) {
+			ownLists();
+			status[f] = GONE_HOME;
+			home[numHome++] = f;
+			bits--;
+		}
+		put(at, bits & ~(HEART | BUBBLE));
+		return wentHome;
+	}
+
+	/**
+	 * Squeeze the fish that aren't missing anymore out of the missing list.
+	 */
+	private void dropFromMissing() {
+		int kept = 0;
+		for (int i=0; i<numMissing; i++) {
+			if (status[missing[i]] == MISSING) {
+				missing[kept++] = missing[i];
+			}
+		}
+		numMissing = kept;
+	}
+
+	/**
+	 * Sometimes the last fish in line gets lost (see FishGame.lostFish).
+	 */
+	private void lostFish() {
+		if (numFound > 1 && steps >= FishGame.LOST_AFTER && dice.nextDouble() < FishGame.LOST_CHANCE) {
+			ownLists();
+			int f = found[--numFound];
+			status[f] = MISSING;
+			missing[numMissing++] = f;
+			score -= rules.points[f];
+		}
+	}
+
+	/**
+	 * Missing fish swim around (see FishGame.wanderMissingFish).
+	 */
+	private void wanderMissingFish() {
+		for (int i=0; i<numMissing; i++) {
+			int f = missing[i];
+			if (dice.nextDouble() < (rules.fastScare[f] ? FishGame.FAST_SCARE_WANDER : FishGame.WANDER)) {
+				int x = fishX(f);
+				int y = fishY(f);
+				int open = 0;
+				for (int d=0; d<Moves.CARDINAL; d++) {
+					if (canSwim(FISH, x + Moves.DX[d], y + Moves.DY[d])) {
+						open |= 1 << d;
+					}
+				}
+				int d = Moves.pickUniform(open, dice);
+				if (d >= 0) {
+					moveFish(f, x + Moves.DX[d], y + Moves.DY[d]);
+				}
+			}
+			// A fish at home goes in right away, out of the way of the fish after it.
+			if (fishX(f) == rules.homeX && fishY(f) == rules.homeY) {
+				missingFishMeets(f);
+			}
+		}
+	}
+
+	/**
+	 * Found fish follow the player's trail (see {@link World#objectsFollow}).
+	 */
+	private void followPlayer() {
+		Rewind.Trail past = trail == null ? null : trail.older;
+		int length = trail == null ? 0 : Math.min(trail.length, WorldObject.NUM_RECENT_POSITIONS);
+		for (int i=0; i<numFound && i+1<length; i++, past = past.older) {
+			int f = found[i];
+			if (fishX(f) != past.x || fishY(f) != past.y) {
+				moveFish(f, past.x, past.y);
+			}
+		}
+	}
+
+	/**
+	 * Same as {@link World#canSwim}, from what's in the cell: rocks and snails block everyone, fish block every fish
+	 * but the player, and snails and falling rocks only go where nothing is.
+	 */
+	private boolean canSwim(int who, int x, int y) {
+		if (x < 0 || x >= rules.width || y < 0 || y >= rules.height) {
+			return false;
+		}
+		int bits = grid.get(y * rules.width + x);
+		if ((bits & (ROCK | SNAIL)) != 0) {
+			return false;
+		}
+		if (who == PLAYER) {
+			return true;
+		} else if (who == FISH) {
+			return (bits & FISH_MASK) == 0;
+		}
+		return bits == 0;
+	}
+
+	/**
+	 * Same as {@link World#pickUnusedCell}, roll for roll.
+	 */
+	private int pickUnusedCell() {
+		int size = rules.width * rules.height;
+		for (int tries=0; tries<World.MAX_RANDOM_TRIES; tries++) {
+			int cell = dice.nextInt(size);
+			if (grid.get(cell) == 0) {
+				return cell;
+			}
+		}
+		int which = dice.nextInt(size - used);
+		for (int y=0; y<rules.height; y++) {
+			int free = rules.width - rowsUsed.get(y);
+			if (which >= free) {
+				which -= free;
+				continue;
+			}
+			for (int x=0; x<rules.width; x++) {
+				if (grid.get(y * rules.width + x) == 0 && which-- == 0) {
+					return y * rules.width + x;
+				}
+			}
+		}
+		throw new AssertionError("used is wrong!");
+	}
+
+	/**
+	 * Change what's in a cell, keeping count of the cells that have anything.
+	 */
+	private void put(int cell, int bits) {
+		int before = grid.get(cell);
+		grid.set(cell, bits);
+		if ((before == 0) != (bits == 0)) {
+			int change = bits == 0 ? -1 : 1;
+			used += change;
+			int row = cell / rules.width;
+			rowsUsed.set(row, rowsUsed.get(row) + change);
+		}
+	}
+
+	/**
+	 * Move a fish (not the player) to another cell.
+	 */
+	private void moveFish(int f, int x, int y) {
+		leave(fishX(f), fishY(f));
+		enter(x, y);
+		fishAt.set(3 * f, x);
+		fishAt.set(3 * f + 1, y);
+		fishAt.set(3 * f + 2, ++arrivals);
+	}
+
+	/**
+	 * A fish leaves a cell.
+	 */
+	private void leave(int x, int y) {
+		put(y * rules.width + x, grid.get(y * rules.width + x) - 1);
+	}
+
+	/**
+	 * A fish comes into a cell.
+	 */
+	private void enter(int x, int y) {
+		put(y * rules.width + x, grid.get(y * rules.width + x) + 1);
+	}
+
+	private void moveBit(int bit, int x, int y, int nx, int ny) {
+		put(y * rules.width + x, grid.get(y * rules.width + x) & ~bit);
+		put(ny * rules.width + nx, grid.get(ny * rules.width + nx) | bit);
+	}
+
+	/**
+	 * Get our own copies of the lists, if we're sharing them.
+	 */
+	private void ownLists() {
+		if (!listsOwned) {
+			missing = missing.clone();
+			found = found.clone();
+			home = home.clone();
+			status = status.clone();
+			listsOwned = true;
+		}
+	}
+
+	/**
+	 * @param f - a fish's number.
+	 * @return where it is (x).
+	 */
+	int fishX(int f) {
+		return fishAt.get(3 * f);
+	}
+
+	/**
+	 * @param f - a fish's number.
+	 * @return where it is (y).
+	 */
+	int fishY(int f) {
+		return fishAt.get(3 * f + 1);
+	}
+
+	/**
+	 * @param f - a fish's number.
+	 * @return the real fish (in the game this was made from).
+	 */
+	Fish fish(int f) {
+		return rules.fish[f];
+	}
+
+	/**
+	 * @param f - a fish's number.
+	 * @return {@link #MISSING}, {@link #FOUND} or {@link #GONE_HOME}.
+	 */
+	int status(int f) {
+		return status[f];
+	}
+
+	/**
+	 * @param i - a place in the list.
+	 * @return the number of the i-th missing fish.
+	 */
+	int missing(int i) {
+		return missing[i];
+	}
+
+	/**
+	 * @param i - a place in the list.
+	 * @return the number of the i-th found fish.
+	 */
+	int found(int i) {
+		return found[i];
+	}
+
+	/**
+	 * @param i - a place in the list.
+	 * @return the number of the i-th fish to get home.
+	 */
+	int home(int i) {
+		return home[i];
+	}
+
+	/**
+	 * @param s - a snail's number.
+	 * @return where it is (x and y), and its flags (1 if it's going left, 2 if its eyes are open).
+	 */
+	int[] snail(int s) {
+		return new int[] {snails.get(3 * s), snails.get(3 * s + 1), snails.get(3 * s + 2)};
+	}
+
+	/**
+	 * @param r - a falling rock's number.
+	 * @return where it is (x and y).
+	 */
+	int[] fallingRock(int r) {
+		return new int[] {falling.get(2 * r), falling.get(2 * r + 1)};
+	}
+
+	/**
+	 * @param x - the x-tile.
+	 * @param y - the y-tile.
+	 * @return what's in the cell (see {@link #FISH_MASK}).
+	 */
+	int cell(int x, int y) {
+		return grid.get(y * rules.width + x);
+	}
+
+	/**
+	 * @return which ways the player can swim, as a mask of {@link Moves} directions.
+	 */
+	public int validMoves() {
+		int open = 0;
+		for (int d=0; d<Moves.CARDINAL; d++) {
+			if (canSwim(PLAYER, playerX + Moves.DX[d], playerY + Moves.DY[d])) {
+				open |= 1 << d;
+			}
+		}
+		return open;
+	}
+
+	/**
+	 * @return true if every fish is home.
+	 */
+	public boolean gameOver() {
+		return numHome == rules.fish.length;
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	public int getStepsTaken() {
+		return steps;
+	}
+
+	public int getPlayerX() {
+		return playerX;
+	}
+
+	public int getPlayerY() {
+		return playerY;
+	}
+
+	public int getHomeX() {
+		return rules.homeX;
+	}
+
+	public int getHomeY() {
+		return rules.homeY;
+	}
+
+	public int getWidth() {
+		return rules.width;
+	}
+
+	public int getHeight() {
+		return rules.height;
+	}
+
+	public int missingCount() {
+		return numMissing;
+	}
+
+	public int foundCount() {
+		return numFound;
+	}
+
+	public int homeCount() {
+		return numHome;
+	}
+
+	/**
+	 * @return how many fish there are in all.
+	 */
+	public int fishCount() {
+		return rules.fish.length;
+	}
+
+	public int snailCount() {
+		return numSnails;
+	}
+
+	public int fallingRockCount() {
+		return numFalling;
+	}
+
+	/**
+	 * @return this fork's dice (for checking it against a game: see {@link GameRandom#save}).
+	 */
+	GameRandom dice() {
+		return dice;
+	}
+}
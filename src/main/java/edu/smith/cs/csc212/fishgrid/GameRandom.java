@@ -0,0 +1,70 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.util.Random;
+
+/**
+ * A Random that can tell where it is in its sequence, and go back there (so a rewound game rolls the same dice again;
+ * see {@link Rewind}).
+ *
+ * It makes exactly the numbers a {@link java.util.Random} with the same seed makes (same formula), but keeps its
+ * state in a plain long we can read. It isn't meant to be shared between threads; nothing in a game does that.
+ * ({@link #nextGaussian()} keeps a spare number that isn't part of the state, but the game never asks for one.)
+ */
+public class GameRandom extends Random {
+	private static final long serialVersionUID = 1L;
+	/**
+	 * The multiplier, addend and mask of {@link java.util.Random}'s formula.
+	 */
+	private static final long MULTIPLIER = 0x5DEECE66DL, ADDEND = 0xBL, MASK = (1L << 48) - 1;
+	/**
+	 * Where we are in the sequence (set by {@link #setSeed}, which Random's constructor calls).
+	 */
+	private long state;
+
+	/**
+	 * A different sequence every time.
+	 */
+	public GameRandom() {
+		super();
+	}
+
+	/**
+	 * The same sequence as {@code new Random(seed)}.
+	 * @param seed - the seed.
+	 */
+	public GameRandom(long seed) {
+		super(seed);
+	}
+
+	@Override
+	public synchronized void setSeed(long seed) {
+		super.setSeed(seed);
+		state = (seed ^ MULTIPLIER) & MASK;
+	}
+
+	@Override
+	protected int next(int bits) {
+		state = (state * MULTIPLIER + ADDEND) & MASK;
+		return (int) (state >>> (48 - bits));
+	}
+
+	/**
+	 * @return where we are in the sequence now (for {@link #restore}).
+	 */
+	public long save() {
+		return state;
+	}
+
+	/**
+	 * Go back to a place in the sequence.
+	 * @param saved - what {@link #save()} said then.
+	 */
+	public void restore(long saved) {
+		state = saved;
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One FishGame hosted by a {@link SessionServer}, plus the inputs its players have sent but that haven't been played yet.
+ *
+ * A session is only ever stepped by one thread at a time: {@link #scheduled} is set while it waits for (or runs) a tick.
+ */
+public class GameSession {
+	/**
+	 * Something a player asked to do; each one is played in its own tick, like a key press in {@link Main}.
+	 */
+	static class Input {
+		/**
+		 * One of {@link Moves}, {@link PlayerController#SKIP}, {@link #CLICK} or {@link #WATCH}.
+		 */
+		final int action;
+		/**
+		 * Where a click landed (x).
+		 */
+		final int x;
+		/**
+		 * Where a click landed (y).
+		 */
+		final int y;
+		/**
+		 * Who gets told how the tick went.
+		 */
+		final SessionServer.Connection replyTo;
+
+		Input(int action, int x, int y, SessionServer.Connection replyTo) {
+			this.action = action;
+			this.x = x;
+			this.y = y;
+			this.replyTo = replyTo;
+		}
+	}
+
+	/**
+	 * The action of clicking on the grid (below {@link PlayerController}'s SKIP and WAIT, so it can't be mistaken for
+	 * either).
+	 */
+	static final int CLICK = -3;
+	/**
+	 * The action of starting to watch the game's frames (see {@link StateEncoder}); the game doesn't step.
+	 */
+	static final int WATCH = -4;
+
+	/**
+	 * What the server calls this session.
+	 */
+	final int id;
+	/**
+	 * The game itself; only touched by the thread running {@link #play(Input)}.
+	 */
+	final FishGame game;
+	/**
+	 * Inputs waiting for a tick, oldest first.
+	 */
+	final Queue<Input> pending = new ConcurrentLinkedQueue<>();
+	/**
+	 * True while this session is waiting for, or running, a tick.
+	 */
+	final AtomicBoolean scheduled = new AtomicBoolean(false);
+	/**
+	 * Set once the session is closed; later inputs are ignored.
+	 */
+	volatile boolean closed = false;
+	/**
+	 * Makes frames for watchers; created when the first one shows up.
+	 */
+	StateEncoder encoder;
+	/**
+	 * Who gets a frame after every tick.
+	 */
+	final List<SessionServer.Connection> watchers = new ArrayList<>();
+
+	/**
+	 * Host a new game.
+	 * @param id - what the server calls it.
+	 * @param game - the game.
+	 */
+	public GameSession(int id, FishGame game) {
+		this.id = id;
+		this.game = game;
+	}
+
+	/**
+	 * Play one input, then step the game once and send the frame to everyone watching.
+	 * @param in - the input, taken from {@link #pending}.
+	 * @return true if the game stepped (a WATCH doesn't step it).
+	 */
+	boolean play(Input in) {
+		if (in.action == WATCH) {
+			if (encoder == null) {
+				encoder = new StateEncoder(game, SessionServer.KEYFRAME_INTERVAL);
+			}
+			watchers.add(in.replyTo);
+			in.replyTo.sendFrame(id, encoder.encodeKeyframe());
+			return false;
+		}
+		if (in.action == CLICK) {
+			game.click(in.x, in.y);
+			game.play(PlayerController.SKIP);
+		} else {
+			game.play(in.action);
+		}
+
+		if (encoder != null) {
+			watchers.removeIf(c -> c.closed);
+			ByteBuffer frame = encoder.encodeFrame();
+			for (SessionServer.Connection c : watchers) {
+				c.sendFrame(id, frame);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Stop playing: inputs still waiting are dropped, and later ones are ignored.
+	 */
+	void close() {
+		closed = true;
+		pending.clear();
+	}
+
+	/**
+	 * Describe the game for a player.
+	 * @return "steps score missing home".
+	 */
+	String describe() {
+		return game.stepsTaken + " " + game.score + " " + game.missingFishLeft() + " " + game.fishhome.size();
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * A bot that always chases the closest missing fish, and heads home once nobody is missing.
+ *
+ * The closest fish comes from {@link World#nearest}, which only looks at cells near the player (up to {@link #NEAR}
+ * steps away). If nobody missing is that close, it heads for the closest fish on the game's missing list instead,
+ * which only has the fish still to find. The way home comes from the game's {@link FlowField}. So a turn never looks
+ * through every cell or item in the world.
+ */
+public class GreedyBot implements PlayerController {
+	/**
+	 * How many steps away from the player we look for missing fish each turn.
+	 */
+	static final int NEAR = 10;
+	/**
+	 * Where this bot gets its randomness (to break ties, or to get unstuck).
+	 */
+	final Random rand;
+	/**
+	 * Which objects are fish we still need to find.
+	 */
+	private final Predicate<WorldObject> isMissing = it -> it instanceof Fish && ((Fish) it).missing;
+
+	/**
+	 * Make a greedy bot.
+	 * @param rand - where to get randomness (seed it to replay a run).
+	 */
+	public GreedyBot(Random rand) {
+		this.rand = rand;
+	}
+
+	@Override
+	public int decide(FishGame game) {
+		Fish p = game.player;
+		World world = game.world;
+		WorldObject target = world.nearest(p.getX(), p.getY(), NEAR, isMissing);
+		if (target == null) {
+			target = farFish(game);
+		}
+		if (target == null) {
+			return swimHome(game);
+		}
+		return toward(game, target.getX(), target.getY());
+	}
+
+	/**
+	 * Nobody missing is near: pick the closest of the missing ones. (Picking again every turn, rather than sticking
+	 * with one, keeps us from pushing against the same rock forever.)
+	 * @param game - the game.
+	 * @return a missing fish, or null if there are none.
+	 */
+	private static Fish farFish(FishGame game) {
+		Fish p = game.player;
+		Fish best = null;
+		int bestDistance = Integer.MAX_VALUE;
+		for (int i=0; i<game.missing.size(); i++) {
+			Fish f = game.missing.get(i);
+			int distance = Math.abs(f.getX() - p.getX()) + Math.abs(f.getY() - p.getY());
+			if (f.missing && distance < bestDistance) {
+				best = f;
+				bestDistance = distance;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Take a step that gets closer to (x,y), or any open step if we're boxed in.
+	 * @param game - the game.
+	 * @param x - where to go (x).
+	 * @param y - where to go (y).
+	 * @return a direction, or {@link #SKIP} if every way is blocked.
+	 */
+	int toward(FishGame game, int x, int y) {
+		Fish p = game.player;
+		int open = game.world.validMoves(p, Moves.CARDINAL);
+		int closer = 0;
+		for (int d=0; d<Moves.CARDINAL; d++) {
+			int nx = p.getX() + Moves.DX[d];
+			int ny = p.getY() + Moves.DY[d];
+			if (Math.abs(x - nx) + Math.abs(y - ny) < Math.abs(x - p.getX()) + Math.abs(y - p.getY())) {
+				closer |= 1 << d;
+			}
+		}
+		int direction = Moves.pickUniform(open & closer, rand);
+		if (direction < 0) {
+			// A rock is in the way; wander a bit and try again next turn.
+			direction = Moves.pickUniform(open, rand);
+		}
+		return direction < 0 ? SKIP : direction;
+	}
+
+	/**
+	 * Take a step down the game's home field (or straight at home, if the field says home can't be reached).
+	 * @param game - the game.
+	 * @return a direction, or {@link #SKIP}.
+	 */
+	int swimHome(FishGame game) {
+		Fish p = game.player;
+		int closer = game.homeField.downhill(p.getX(), p.getY()) & game.world.validMoves(p, Moves.CARDINAL);
+		int direction = Moves.pickUniform(closer, rand);
+		if (direction < 0) {
+			return toward(game, game.home.getX(), game.home.getY());
+		}
+		return direction;
+	}
+
+	@Override
+	public String toString() {
+		return "Greedy bot";
+	}
+}
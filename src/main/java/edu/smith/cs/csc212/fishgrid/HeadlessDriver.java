@@ -0,0 +1,160 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Plays lots of games with a bot and no window, to put load on {@link FishGame#step()} and to see how each bot does.
+ */
+public class HeadlessDriver {
+	/**
+	 * Make a bot from its name.
+	 * @param name - "random", "greedy", "home" / "home:N" (go home when carrying N fish, 3 by default), or
+	 * "search" / "search:N" (look ahead with N tries a move, 600 by default).
+	 * @param rand - where the bot gets randomness.
+	 * @return the bot.
+	 */
+	static PlayerController bot(String name, Random rand) {
+		if (name.equals("random")) {
+			return new RandomBot(rand);
+		} else if (name.equals("greedy")) {
+			return new GreedyBot(rand);
+		} else if (name.equals("home")) {
+			return new ReturnHomeBot(3, rand);
+		} else if (name.startsWith("home:")) {
+			return new ReturnHomeBot(Integer.parseInt(name.substring(5)), rand);
+		} else if (name.equals("search")) {
+			return new SearchBot(rand);
+		} else if (name.startsWith("search:")) {
+			return new SearchBot(rand, Integer.parseInt(name.substring(7)), 30, Runtime.getRuntime().availableProcessors());
+		}
+		throw new IllegalArgumentException("Unknown bot: " + name);
+	}
+
+	/**
+	 * How many ticks to play before measuring allocations (so the JIT and every list have settled down).
+	 */
+	static final int ALLOC_WARMUP_TICKS = 20000;
+	/**
+	 * How many ticks to measure allocations over.
+	 */
+	static final int ALLOC_TICKS = 100000;
+
+	/**
+	 * Play ticks and count the bytes this thread allocates during them. Starting a new game (when one is won) isn't
+	 * counted: we only care about the steady-state tick.
+	 * @param scenario - what the games look like.
+	 * @param bot - who plays.
+	 * @param rand - where the games get randomness.
+	 * @param ticks - how many ticks to measure (after {@link #ALLOC_WARMUP_TICKS} that aren't).
+	 * @return how many bytes were allocated during the measured ticks.
+	 */
+	static long measureAllocations(Scenario scenario, PlayerController bot, Random rand, int ticks) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long me = Thread.currentThread().getId();
+		// Asking might itself allocate a little (it does on Java 8); measure that so we can take it back out.
+		long overhead = Long.MAX_VALUE;
+		for (int i=0; i<1000; i++) {
+			long a = threads.getThreadAllocatedBytes(me);
+			long b = threads.getThreadAllocatedBytes(me);
+			overhead = Math.min(overhead, b - a);
+		}
+
+		FishGame game = new FishGame(scenario, rand);
+		long allocated = 0;
+		for (int t=0; t<ALLOC_WARMUP_TICKS + ticks; t++) {
+			if (game.gameOver()) {
+				game = new FishGame(scenario, rand);
+			}
+			long before = threads.getThreadAllocatedBytes(me);
+			game.play(bot.decide(game));
+			long after = threads.getThreadAllocatedBytes(me);
+			if (t >= ALLOC_WARMUP_TICKS) {
+				allocated += after - before - overhead;
+			}
+		}
+		return allocated;
+	}
+
+	/**
+	 * Play games until they're won (or run out of steps), and report how it went.
+	 * With --alloc, instead report how many bytes {@link #ALLOC_TICKS} steady-state ticks allocate (the budget itself
+	 * is checked by AllocationBudgetTest). With --scores=FILE, every game is added to that {@link Leaderboard}.
+	 * @param args - [bot [games [maxSteps]]], plus any scenario flags (see {@link Scenario}).
+	 * @throws IOException if the leaderboard can't be read or written.
+	 */
+	public static void main(String[] args) throws IOException {
+		boolean alloc = false;
+		String scores = null;
+		List<String> flags = new ArrayList<>();
+		List<String> rest = new ArrayList<>();
+		for (String arg : args) {
+			if (arg.equals("--alloc")) {
+				alloc = true;
+			} else if (arg.startsWith("--scores=")) {
+				scores = arg.substring("--scores=".length());
+			} else if (arg.startsWith("--")) {
+				flags.add(arg);
+			} else {
+				rest.add(arg);
+			}
+		}
+		Scenario scenario = Scenario.parse(flags.toArray(new String[0]));
+		String name = rest.size() > 0 ? rest.get(0) : "home";
+		int games = rest.size() > 1 ? Integer.parseInt(rest.get(1)) : 1000;
+		int maxSteps = rest.size() > 2 ? Integer.parseInt(rest.get(2)) : 10000;
+
+		Random rand = scenario.newRandom();
+		PlayerController bot = bot(name, rand);
+		if (alloc) {
+			long allocated = measureAllocations(scenario, bot, rand, ALLOC_TICKS);
+			System.out.printf("%s: %d bytes allocated in %d ticks (%.2f per tick).%n",
+					bot, allocated, ALLOC_TICKS, (double) allocated / ALLOC_TICKS);
+			return;
+		}
+		Leaderboard board = scores != null ? new Leaderboard(Paths.get(scores)) : null;
+		long ticks = 0;
+		long decideNanos = 0;
+		long wins = 0;
+		long winSteps = 0;
+		long score = 0;
+		long start = System.nanoTime();
+		for (int g=0; g<games; g++) {
+			FishGame game = new FishGame(scenario, rand);
+			while (!game.gameOver() && game.stepsTaken < maxSteps) {
+				long before = System.nanoTime();
+				int action = bot.decide(game);
+				decideNanos += System.nanoTime() - before;
+				game.play(action);
+				ticks++;
+			}
+			if (game.gameOver()) {
+				wins++;
+				winSteps += game.stepsTaken;
+			}
+			score += game.score;
+			if (board != null) {
+				board.add(game);
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%s: won %d of %d games (%.0f steps per win, %.0f points per game).%n",
+				bot, wins, games, wins == 0 ? 0.0 : (double) winSteps / wins, (double) score / games);
+		System.out.printf("%d ticks in %.2fs: %.0f ticks/s, %.2f us per decision.%n",
+				ticks, seconds, ticks / seconds, decideNanos / 1e3 / ticks);
+		if (board != null) {
+			board.close();
+			System.out.printf("%s now has %d games; this bot's %.0f points per game beat %.0f%% of them.%n",
+					scores, board.size(), (double) score / games, board.percentBelow((int) (score / games)));
+		}
+	}
+}
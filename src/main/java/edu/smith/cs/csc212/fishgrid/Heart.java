@@ -29,6 +29,11 @@ public class Heart extends WorldObject {
 		drawHeart(scale, 10, 10, 16, 16);
 	}
 
+	@Override
+	public Kind getKind() {
+		return Kind.HEART;
+	}
+
 	@Override
 	public void step() {
 
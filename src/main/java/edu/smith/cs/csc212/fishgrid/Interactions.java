@@ -0,0 +1,157 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.util.List;
+
+/**
+ * The rules for what happens when two things share a cell, and when the player clicks on something.
+ *
+ * Every object has a role: the player is its own role, and everything else plays its {@link Kind}. The rules are a
+ * table indexed by (role of who acts, role of what it meets), built once, so sorting out a crowded cell is a couple of
+ * array lookups per pair instead of a chain of instanceof tests, however many kinds there are.
+ */
+public class Interactions {
+	/**
+	 * What happens when one object meets another.
+	 */
+	public interface Handler {
+		/**
+		 * @param game - the game it happens in.
+		 * @param actor - who acts (for fish, check that it is still missing).
+		 * @param other - what it met.
+		 */
+		void meet(FishGame game, WorldObject actor, WorldObject other);
+	}
+
+	/**
+	 * What happens when the player clicks on an object.
+	 */
+	public interface ClickHandler {
+		/**
+		 * @param game - the game it happens in.
+		 * @param it - what was clicked on.
+		 */
+		void clicked(FishGame game, WorldObject it);
+	}
+
+	/**
+	 * The player's role (it comes first, so the player gets first pick in a crowded cell).
+	 */
+	static final int PLAYER = 0;
+	/**
+	 * How many roles there are: the player, then one for each {@link Kind}.
+	 */
+	static final int ROLES = Kind.ALL.length + 1;
+
+	/**
+	 * What happens when [actor role][other role] meet (null: nothing).
+	 */
+	private final Handler[][] meetings = new Handler[ROLES][ROLES];
+	/**
+	 * Which roles have any meetings at all, so the others are skipped quickly.
+	 */
+	private final boolean[] acts = new boolean[ROLES];
+	/**
+	 * What happens when something of each kind is clicked on (null: nothing).
+	 */
+	private final ClickHandler[] clicks = new ClickHandler[Kind.ALL.length];
+
+	/**
+	 * @param it - any object.
+	 * @return its role: {@link #PLAYER}, or one more than its kind's ordinal.
+	 */
+	static int roleOf(WorldObject it) {
+		return it.isPlayer() ? PLAYER : 1 + it.getKind().ordinal();
+	}
+
+	/**
+	 * Say what happens when the player meets something of a kind.
+	 * @param other - the kind.
+	 * @param handler - what happens.
+	 * @return this, so rules can be chained.
+	 */
+	public Interactions onPlayerMeets(Kind other, Handler handler) {
+		return set(PLAYER, 1 + other.ordinal(), handler);
+	}
+
+	/**
+	 * Say what happens when something of one kind meets something of another (not the player).
+	 * @param actor - the kind that acts.
+	 * @param other - the kind it meets.
+	 * @param handler - what happens.
+	 * @return this, so rules can be chained.
+	 */
+	public Interactions onMeet(Kind actor, Kind other, Handler handler) {
+		return set(1 + actor.ordinal(), 1 + other.ordinal(), handler);
+	}
+
+	/**
+	 * Say what happens when something of a kind is clicked on.
+	 * @param kind - the kind.
+	 * @param handler - what happens.
+	 * @return this, so rules can be chained.
+	 */
+	public Interactions onClick(Kind kind, ClickHandler handler) {
+		clicks[kind.ordinal()] = handler;
+		return this;
+	}
+
+	private Interactions set(int actor, int other, Handler handler) {
+		meetings[actor][other] = handler;
+		acts[actor] = true;
+		return this;
+	}
+
+	/**
+	 * Sort out one crowded cell: everybody who acts meets everything else there, the player first.
+	 * Things that are removed along the way aren't met by anybody after that.
+	 * @param game - the game.
+	 * @param here - everything in the cell; it gets sorted by role.
+	 */
+	void resolve(FishGame game, List<WorldObject> here) {
+		// Sort by role (cells hold a handful of things, so insertion sort is plenty, and it makes no garbage).
+		for (int i=1; i<here.size(); i++) {
+			WorldObject it = here.get(i);
+			int role = roleOf(it);
+			int j = i - 1;
+			while (j >= 0 && roleOf(here.get(j)) > role) {
+				here.set(j + 1, here.get(j));
+				j--;
+			}
+			here.set(j + 1, it);
+		}
+		for (int a=0; a<here.size(); a++) {
+			WorldObject actor = here.get(a);
+			Handler[] row = meetings[roleOf(actor)];
+			if (!acts[roleOf(actor)] || actor.cell == WorldObject.NOT_REGISTERED) {
+				continue;
+			}
+			for (int b=0; b<here.size(); b++) {
+				WorldObject other = here.get(b);
+				if (b == a || other.cell == WorldObject.NOT_REGISTERED) {
+					continue;
+				}
+				Handler h = row[roleOf(other)];
+				if (h != null) {
+					h.meet(game, actor, other);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Click on one object.
+	 * @param game - the game.
+	 * @param it - what was clicked on.
+	 */
+	void click(FishGame game, WorldObject it) {
+		ClickHandler h = clicks[it.getKind().ordinal()];
+		if (h != null) {
+			h.clicked(game, it);
+		}
+	}
+}
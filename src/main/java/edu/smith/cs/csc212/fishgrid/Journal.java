@@ -0,0 +1,791 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * A write-ahead journal for a FishGame, so a long game survives a crash (see {@link FishGame#journalTo}).
+ *
+ * The journal listens to the world, and writes down each change as it happens, in a few bytes: an object was added (its
+ * kind, attributes and position), moved (how far), or removed; or a fish moved to another list (missing, found, or
+ * home). Snails turn around without moving, and the world tells us that too, so we write down just the ones that turned
+ * (a snail's attributes say which way it's going, as in {@link Level#attrsOf}). After every tick (and click), the
+ * game's thread closes these off as one record, with the score, steps and a checksum of every object (kept up to date
+ * as things change, like {@link StateEncoder}'s). Then it puts the record in a queue and goes back to playing; it never
+ * waits for the disk.
+ *
+ * A writer thread takes everything waiting in the queue at once, appends it to the journal, and forces it to disk
+ * with one sync for the whole group, so a fast game costs one sync per group, not per tick. The writer also applies
+ * every record to its own copy of the game (a {@link Replica}: just ids, kinds and positions), and every so many ticks
+ * writes that copy out as a checkpoint: the fish lists, plus a {@link StateEncoder} keyframe of the world. The game is
+ * never paused for a checkpoint, since the writer's copy is its own (there is nothing to copy, on write or otherwise);
+ * and once the checkpoint is safely on disk, the journal before it is deleted.
+ *
+ * {@link #recover} loads the checkpoint and replays the journal after it, up to the last record that was completely
+ * written (every record has a length and a CRC, so a torn write at the end is noticed and left out).
+ *
+ * If the writer fails, the next tick stops journaling and throws, rather than piling up records nobody will write.
+ *
+ * What isn't kept: whether snails' eyes are open, and where the game's Random was; a recovered game goes on with new
+ * randomness (from the seed, if the scenario had one).
+ *
+ * Files in the directory: {@code checkpoint.bin}, and {@code journal-<first record>.log}.
+ */
+public class Journal implements WorldListener {
+	/**
+	 * Fish status: in the missing list.
+	 */
+	static final int MISSING = 0;
+	/**
+	 * Fish status: following the player.
+	 */
+	static final int FOUND = 1;
+	/**
+	 * Fish status: home (and gone from the world).
+	 */
+	static final int HOME = 2;
+	/**
+	 * Record entry: a fish moved to another list (the others are {@link StateEncoder#SPAWN}, MOVE and REMOVE).
+	 */
+	private static final int STATUS = 3;
+	/**
+	 * Record entry: that's all for this record.
+	 */
+	private static final int END = 4;
+	/**
+	 * Record entry: an object's attributes changed (a snail turned around).
+	 */
+	private static final int ATTRS = 5;
+	/**
+	 * The checkpoint's file name.
+	 */
+	static final String CHECKPOINT = "checkpoint.bin";
+	/**
+	 * The first 8 bytes of a checkpoint ("FGJ1").
+	 */
+	private static final long MAGIC = 0x46474A31L;
+
+	/**
+	 * What a journal knows about a game, rebuilt one record at a time (by the writer thread, and by recovery).
+	 */
+	static class Replica {
+		/**
+		 * Every object in the world, by id.
+		 */
+		final Map<Integer, StateEncoder.Entity> world = new HashMap<>();
+		/**
+		 * The sum of every object's hash.
+		 */
+		long checksum;
+		/**
+		 * The last record applied.
+		 */
+		int frame;
+		/**
+		 * The score and steps as of the last record.
+		 */
+		int score, steps;
+		/**
+		 * The ids of the missing fish, in order.
+		 */
+		final List<Integer> missing = new ArrayList<>();
+		/**
+		 * The ids of the fish following the player, in order.
+		 */
+		final List<Integer> found = new ArrayList<>();
+		/**
+		 * The fish that are home (and so no longer in the world): id to attributes, in order.
+		 */
+		final Map<Integer, Integer> home = new LinkedHashMap<>();
+
+		/**
+		 * Start from a keyframe (of a checkpoint).
+		 * @param keyframe - the keyframe; its position moves past it.
+		 */
+		void load(ByteBuffer keyframe) {
+			StateDecoder decoder = new StateDecoder();
+			decoder.apply(keyframe);
+			for (StateEncoder.Entity e : decoder.view()) {
+				world.put(e.id, e);
+				checksum += e.hash();
+			}
+			frame = decoder.getFrame();
+			score = decoder.getScore();
+			steps = decoder.getSteps();
+		}
+
+		/**
+		 * Apply the next record.
+		 * @param in - the record (just after its number).
+		 * @param number - its number.
+		 * @throws IllegalStateException if it isn't the next record, or its checksum doesn't match.
+		 */
+		void apply(ByteBuffer in, int number) {
+			if (number != frame + 1) {
+				throw new IllegalStateException("Record " + number + " doesn't follow record " + frame);
+			}
+			score = WireBuffer.getSignedVarInt(in);
+			steps = WireBuffer.getVarInt(in);
+			for (int op = in.get(); op != END; op = in.get()) {
+				int id = WireBuffer.getVarInt(in);
+				if (op == StateEncoder.SPAWN) {
+					Kind kind = Kind.ALL[in.get()];
+					int attrs = WireBuffer.getVarInt(in);
+					StateEncoder.Entity e = new StateEncoder.Entity(id, kind, attrs,
+							WireBuffer.getVarInt(in), WireBuffer.getVarInt(in));
+					world.put(id, e);
+					checksum += e.hash();
+				} else if (op == StateEncoder.MOVE) {
+					StateEncoder.Entity e = world.get(id);
+					checksum -= e.hash();
+					e.x += WireBuffer.getSignedVarInt(in);
+					e.y += WireBuffer.getSignedVarInt(in);
+					checksum += e.hash();
+				} else if (op == StateEncoder.REMOVE) {
+					checksum -= world.remove(id).hash();
+				} else if (op == ATTRS) {
+					StateEncoder.Entity e = world.get(id);
+					checksum -= e.hash();
+					e.attrs = WireBuffer.getVarInt(in);
+					checksum += e.hash();
+				} else {
+					int status = in.get();
+					status(id, status, WireBuffer.getVarInt(in));
+				}
+			}
+			frame = number;
+			if (WireBuffer.getLong(in) != checksum) {
+				throw new IllegalStateException("Checksum mismatch at record " + number);
+			}
+		}
+
+		/**
+		 * A fish moved to another list.
+		 */
+		void status(int id, int status, int attrs) {
+			missing.remove((Integer) id);
+			found.remove((Integer) id);
+			home.remove(id);
+			if (status == MISSING) {
+				missing.add(id);
+			} else if (status == FOUND) {
+				found.add(id);
+			} else {
+				home.put(id, attrs);
+			}
+		}
+	}
+
+	/**
+	 * The game we write down.
+	 */
+	private final FishGame game;
+	/**
+	 * Where the files go.
+	 */
+	private final Path dir;
+	/**
+	 * How many records between checkpoints.
+	 */
+	private final int checkpointEvery;
+	/**
+	 * The changes since the last record.
+	 */
+	private final WireBuffer changes = new WireBuffer();
+	/**
+	 * The sum of every object's {@link StateEncoder#hash} (kept up to date as things change).
+	 */
+	private long checksum;
+	/**
+	 * The attributes we last wrote down for each snail (it may have turned around since).
+	 */
+	private final Map<Snail, Integer> snailAttrs = new IdentityHashMap<>();
+	/**
+	 * Reused to put a record together.
+	 */
+	private final WireBuffer record = new WireBuffer();
+	/**
+	 * Records the game's thread has made, waiting for the writer.
+	 */
+	private final LinkedBlockingQueue<ByteBuffer> queue = new LinkedBlockingQueue<>();
+	/**
+	 * How many records the game's thread has made (only it looks at this).
+	 */
+	private long made;
+	/**
+	 * How many records are safely on disk (guarded by this).
+	 */
+	private long durable;
+	/**
+	 * What went wrong on the writer thread, if anything (guarded by this).
+	 */
+	private IOException failure;
+	/**
+	 * Set when it's time for the writer to finish up.
+	 */
+	private volatile boolean closing;
+	/**
+	 * The writer thread.
+	 */
+	private final Thread writer;
+
+	// Everything below here belongs to the writer thread.
+
+	/**
+	 * The writer's copy of the game.
+	 */
+	private final Replica replica = new Replica();
+	/**
+	 * The journal file being appended to.
+	 */
+	private FileChannel segment;
+	/**
+	 * The number of the last record the game's thread made (records count up from 1).
+	 */
+	private int frame;
+	/**
+	 * The record number the last checkpoint is at (0 before the first one).
+	 */
+	private int checkpointFrame;
+	/**
+	 * Things about the game that never change, for the checkpoint: width, height, total fish.
+	 */
+	private final int width, height, totalFish;
+	/**
+	 * The scenario's chances, for the checkpoint.
+	 */
+	private final double heartChance, bubbleChance;
+	/**
+	 * The scenario's seed, for the checkpoint (null if it had none).
+	 */
+	private final Long seed;
+
+	/**
+	 * Start journaling a game (use {@link FishGame#journalTo}). Anything journaled in the directory before is
+	 * thrown away, and the whole game as it is now becomes the first record.
+	 * @param game - the game.
+	 * @param dir - where to write (made if it doesn't exist).
+	 * @param checkpointEvery - how many records between checkpoints (at least 1).
+	 * @throws IOException if the directory can't be written.
+	 */
+	Journal(FishGame game, Path dir, int checkpointEvery) throws IOException {
+		if (checkpointEvery < 1) {
+			throw new IllegalArgumentException("checkpointEvery must be at least 1");
+		}
+		this.game = game;
+		this.dir = dir;
+		this.checkpointEvery = checkpointEvery;
+		this.width = game.world.getWidth();
+		this.height = game.world.getHeight();
+		this.totalFish = game.totalFish;
+		this.heartChance = game.scenario.heartChance;
+		this.bubbleChance = game.scenario.bubbleChance;
+		this.seed = game.scenario.seed;
+		Files.createDirectories(dir);
+		Files.deleteIfExists(dir.resolve(CHECKPOINT));
+		for (Path old : segments(dir)) {
+			Files.delete(old);
+		}
+		this.segment = openSegment(1);
+
+		// The first record is the whole game: every object, and every fish's list, in order.
+		for (WorldObject it : game.world.viewItems()) {
+			objectAdded(it);
+		}
+		game.world.addListener(this);
+		for (Fish f : game.missing) {
+			fishStatus(f, MISSING);
+		}
+		for (Fish f : game.found) {
+			fishStatus(f, FOUND);
+		}
+		for (Fish f : game.fishhome) {
+			fishStatus(f, HOME);
+		}
+		tickCommitted();
+
+		this.writer = new Thread(this::writeLoop, "journal writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * A fish moved to another list (called by FishGame during a tick).
+	 * @param fish - the fish.
+	 * @param status - {@link #MISSING}, {@link #FOUND} or {@link #HOME}.
+	 */
+	void fishStatus(Fish fish, int status) {
+		changes.putByte(STATUS);
+		changes.putVarInt(fish.getId());
+		changes.putByte(status);
+		changes.putVarInt(Level.attrsOf(fish));
+	}
+
+	/**
+	 * The attributes we have written down for an object: the {@link Level#attrsOf} ones, except that for a snail they
+	 * are what it was last written down with (until {@link #objectChanged} hears it turned).
+	 * @param item - the object.
+	 * @return its attributes, as far as the journal knows.
+	 */
+	private int attrsOf(WorldObject item) {
+		Integer attrs = item instanceof Snail ? snailAttrs.get(item) : null;
+		return attrs != null ? attrs : Level.attrsOf(item);
+	}
+
+	@Override
+	public void objectAdded(WorldObject item) {
+		int attrs = Level.attrsOf(item);
+		if (item instanceof Snail) {
+			snailAttrs.put((Snail) item, attrs);
+		}
+		changes.putByte(StateEncoder.SPAWN);
+		changes.putVarInt(item.getId());
+		changes.putByte(item.getKind().ordinal());
+		changes.putVarInt(attrs);
+		changes.putVarInt(item.getX());
+		changes.putVarInt(item.getY());
+		checksum += StateEncoder.hash(item.getId(), item.getKind().ordinal(), attrs, item.getX(), item.getY());
+	}
+
+	@Override
+	public void objectRemoved(WorldObject item) {
+		changes.putByte(StateEncoder.REMOVE);
+		changes.putVarInt(item.getId());
+		checksum -= StateEncoder.hash(item.getId(), item.getKind().ordinal(), attrsOf(item), item.getX(), item.getY());
+		if (item instanceof Snail) {
+			snailAttrs.remove(item);
+		}
+	}
+
+	@Override
+	public void objectMoved(WorldObject item, int fromX, int fromY) {
+		changes.putByte(StateEncoder.MOVE);
+		changes.putVarInt(item.getId());
+		changes.putSignedVarInt(item.getX() - fromX);
+		changes.putSignedVarInt(item.getY() - fromY);
+		int kind = item.getKind().ordinal();
+		int attrs = attrsOf(item);
+		checksum += StateEncoder.hash(item.getId(), kind, attrs, item.getX(), item.getY())
+				- StateEncoder.hash(item.getId(), kind, attrs, fromX, fromY);
+	}
+
+	@Override
+	public void objectChanged(WorldObject item) {
+		if (!(item instanceof Snail)) {
+			return;
+		}
+		int was = snailAttrs.get(item);
+		int now = Level.attrsOf(item);
+		if (now != was) {
+			int kind = item.getKind().ordinal();
+			changes.putByte(ATTRS);
+			changes.putVarInt(item.getId());
+			changes.putVarInt(now);
+			checksum += StateEncoder.hash(item.getId(), kind, now, item.getX(), item.getY())
+					- StateEncoder.hash(item.getId(), kind, was, item.getX(), item.getY());
+			snailAttrs.put((Snail) item, now);
+		}
+	}
+
+	/**
+	 * A tick (or click) was committed: hand its record to the writer. This never waits for the disk.
+	 * @throws IllegalStateException if the writer has failed; the game stops journaling (and goes on without it).
+	 */
+	void tickCommitted() {
+		IOException failed;
+		synchronized (this) {
+			failed = failure;
+		}
+		if (failed != null) {
+			// Nobody is writing anymore: don't pile up records (or changes) for nothing.
+			game.world.removeListener(this);
+			if (game.journal == this) {
+				game.journal = null;
+			}
+			queue.clear();
+			changes.clear();
+			throw new IllegalStateException("The journal stopped: " + failed.getMessage(), failed);
+		}
+		record.clear();
+		record.putVarInt(++frame);
+		record.putSignedVarInt(game.score);
+		record.putVarInt(game.stepsTaken);
+		record.putBytes(changes);
+		record.putByte(END);
+		record.putLong(checksum);
+		changes.clear();
+		queue.add(record.toByteBuffer());
+		made++;
+	}
+
+	/**
+	 * Wait until everything the game has done so far is safely on disk (not for the game's thread; that's the point).
+	 * @throws IOException if the writer failed.
+	 */
+	public void sync() throws IOException {
+		long want = made;
+		synchronized (this) {
+			while (durable < want && failure == null) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while waiting for the journal", e);
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+
+	/**
+	 * @return how many records are safely on disk so far.
+	 */
+	public synchronized long durableRecords() {
+		return durable;
+	}
+
+	/**
+	 * Write down everything that's waiting, and stop journaling.
+	 * @throws IOException if the writer failed.
+	 */
+	public void close() throws IOException {
+		game.world.removeListener(this);
+		if (game.journal == this) {
+			game.journal = null;
+		}
+		closing = true;
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		segment.close();
+		synchronized (this) {
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+
+	/**
+	 * The writer thread: write whatever is waiting as one group, sync once, then catch the replica up and
+	 * checkpoint if it's time.
+	 */
+	private void writeLoop() {
+		List<ByteBuffer> group = new ArrayList<>();
+		CRC32 crc = new CRC32();
+		try {
+			while (true) {
+				ByteBuffer first = queue.poll(50, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					if (closing) {
+						return;
+					}
+					continue;
+				}
+				group.clear();
+				group.add(first);
+				queue.drainTo(group);
+
+				ByteBuffer[] parts = new ByteBuffer[2 * group.size()];
+				for (int i=0; i<group.size(); i++) {
+					parts[2 * i] = header(group.get(i), crc);
+					parts[2 * i + 1] = group.get(i).duplicate();
+				}
+				writeFully(segment, parts);
+				segment.force(false);
+				synchronized (this) {
+					durable += group.size();
+					notifyAll();
+				}
+
+				for (ByteBuffer r : group) {
+					ByteBuffer in = r.duplicate();
+					replica.apply(in, WireBuffer.getVarInt(in));
+				}
+				if (checkpointFrame == 0 || replica.frame - checkpointFrame >= checkpointEvery) {
+					checkpoint();
+				}
+			}
+		} catch (IOException e) {
+			fail(e);
+		} catch (InterruptedException e) {
+			fail(new IOException("Journal writer interrupted", e));
+		} catch (RuntimeException e) {
+			fail(new IOException("Journal writer crashed", e));
+		}
+	}
+
+	private synchronized void fail(IOException e) {
+		failure = e;
+		notifyAll();
+	}
+
+	/**
+	 * Write the replica out as the new checkpoint, then throw away the journal it covers.
+	 * @throws IOException if the disk says no.
+	 */
+	private void checkpoint() throws IOException {
+		WireBuffer out = new WireBuffer();
+		out.putLong(MAGIC);
+		out.putVarInt(width);
+		out.putVarInt(height);
+		out.putVarInt(totalFish);
+		out.putLong(Double.doubleToLongBits(heartChance));
+		out.putLong(Double.doubleToLongBits(bubbleChance));
+		out.putByte(seed != null ? 1 : 0);
+		out.putLong(seed != null ? seed : 0);
+		out.putVarInt(replica.missing.size());
+		for (int id : replica.missing) {
+			out.putVarInt(id);
+		}
+		out.putVarInt(replica.found.size());
+		for (int id : replica.found) {
+			out.putVarInt(id);
+		}
+		out.putVarInt(replica.home.size());
+		for (Map.Entry<Integer, Integer> e : replica.home.entrySet()) {
+			out.putVarInt(e.getKey());
+			out.putVarInt(e.getValue());
+		}
+		// The world, as a keyframe.
+		List<StateEncoder.Entity> entities = new ArrayList<>(replica.world.values());
+		entities.sort(Comparator.comparingInt(e -> e.id));
+		out.putByte(StateEncoder.KEYFRAME);
+		out.putVarInt(replica.frame);
+		StateEncoder.writeKeyframeBody(out, replica.score, replica.steps, entities);
+		out.putLong(replica.checksum);
+
+		ByteBuffer body = out.toByteBuffer();
+		Path temp = dir.resolve(CHECKPOINT + ".tmp");
+		try (FileChannel ch = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeFully(ch, new ByteBuffer[] { header(body, new CRC32()), body });
+			ch.force(true);
+		}
+		Files.move(temp, dir.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		syncDirectory(dir);
+		checkpointFrame = replica.frame;
+
+		// Everything in the journal so far is in the checkpoint now.
+		segment.close();
+		for (Path old : segments(dir)) {
+			Files.delete(old);
+		}
+		segment = openSegment(checkpointFrame + 1);
+	}
+
+	/**
+	 * Open a new journal file.
+	 * @param firstFrame - the number of the first record that will go in it.
+	 */
+	private FileChannel openSegment(int firstFrame) throws IOException {
+		FileChannel ch = FileChannel.open(dir.resolve(String.format("journal-%010d.log", firstFrame)),
+				StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		syncDirectory(dir);
+		return ch;
+	}
+
+	/**
+	 * @return every journal file in a directory, oldest first.
+	 */
+	private static List<Path> segments(Path dir) throws IOException {
+		List<Path> found = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "journal-*.log")) {
+			for (Path p : files) {
+				found.add(p);
+			}
+		}
+		// The numbers are zero-padded, so names sort the same as numbers.
+		found.sort(Comparator.comparing(p -> p.getFileName().toString()));
+		return found;
+	}
+
+	/**
+	 * Make a new file (or a rename) in a directory survive a crash. Not every system can; that's OK.
+	 */
+	private static void syncDirectory(Path dir) {
+		try (FileChannel d = FileChannel.open(dir, StandardOpenOption.READ)) {
+			d.force(true);
+		} catch (IOException e) {
+			// Some systems can't open a directory; the files themselves are still synced.
+		}
+	}
+
+	/**
+	 * @return the 8 bytes that go before a record on disk: its length and its CRC.
+	 */
+	private static ByteBuffer header(ByteBuffer body, CRC32 crc) {
+		crc.reset();
+		crc.update(body.duplicate());
+		ByteBuffer h = ByteBuffer.allocate(8);
+		h.putInt(body.remaining());
+		h.putInt((int) crc.getValue());
+		h.flip();
+		return h;
+	}
+
+	private static void writeFully(FileChannel ch, ByteBuffer[] parts) throws IOException {
+		while (parts[parts.length - 1].hasRemaining()) {
+			ch.write(parts);
+		}
+	}
+
+	/**
+	 * Read the next record of a file.
+	 * @param in - the file's bytes; its position moves past the record.
+	 * @return the record, or null if the rest of the file isn't a complete, undamaged record.
+	 */
+	private static ByteBuffer nextRecord(ByteBuffer in, CRC32 crc) {
+		if (in.remaining() < 8) {
+			return null;
+		}
+		int length = in.getInt();
+		int expected = in.getInt();
+		if (length < 0 || length > in.remaining()) {
+			return null;
+		}
+		ByteBuffer body = in.slice();
+		body.limit(length);
+		crc.reset();
+		crc.update(body.duplicate());
+		if ((int) crc.getValue() != expected) {
+			return null;
+		}
+		in.position(in.position() + length);
+		return body;
+	}
+
+	/**
+	 * Bring back a journaled game: its last checkpoint, plus every complete record after it. Nobody should be writing
+	 * to the directory (the game crashed, or its journal was closed); a writer in the middle of a checkpoint deletes
+	 * files out from under us.
+	 * @param dir - the directory the game was journaled to.
+	 * @return the game as of its last record on disk (not journaling), or null if there is no checkpoint.
+	 * @throws IOException if the checkpoint can't be read or is damaged.
+	 */
+	public static FishGame recover(Path dir) throws IOException {
+		Path file = dir.resolve(CHECKPOINT);
+		if (!Files.exists(file)) {
+			return null;
+		}
+		CRC32 crc = new CRC32();
+		ByteBuffer in = nextRecord(ByteBuffer.wrap(Files.readAllBytes(file)), crc);
+		if (in == null || WireBuffer.getLong(in) != MAGIC) {
+			throw new IOException("Damaged checkpoint: " + file);
+		}
+		Scenario scenario = new Scenario(WireBuffer.getVarInt(in), WireBuffer.getVarInt(in));
+		scenario.fish = WireBuffer.getVarInt(in);
+		scenario.heartChance = Double.longBitsToDouble(WireBuffer.getLong(in));
+		scenario.bubbleChance = Double.longBitsToDouble(WireBuffer.getLong(in));
+		boolean seeded = in.get() != 0;
+		long seed = WireBuffer.getLong(in);
+		scenario.seed = seeded ? seed : null;
+
+		Replica replica = new Replica();
+		for (int n = WireBuffer.getVarInt(in); n > 0; n--) {
+			replica.missing.add(WireBuffer.getVarInt(in));
+		}
+		for (int n = WireBuffer.getVarInt(in); n > 0; n--) {
+			replica.found.add(WireBuffer.getVarInt(in));
+		}
+		for (int n = WireBuffer.getVarInt(in); n > 0; n--) {
+			int id = WireBuffer.getVarInt(in);
+			replica.home.put(id, WireBuffer.getVarInt(in));
+		}
+		replica.load(in);
+
+		// Replay the journal after the checkpoint, up to the first record that isn't all there.
+		replay:
+		for (Path segment : segments(dir)) {
+			ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(segment));
+			for (ByteBuffer r; (r = nextRecord(records, crc)) != null; ) {
+				int number = WireBuffer.getVarInt(r);
+				if (number <= replica.frame) {
+					continue;
+				}
+				if (number != replica.frame + 1) {
+					break replay;
+				}
+				replica.apply(r, number);
+			}
+			if (records.hasRemaining()) {
+				// A torn write: nothing after it can be trusted.
+				break;
+			}
+		}
+		return rebuild(scenario, replica);
+	}
+
+	/**
+	 * Make a real game out of a replica.
+	 */
+	private static FishGame rebuild(Scenario scenario, Replica replica) {
+		long steps = replica.steps;
+		Random rand = scenario.seed != null ? new Random(scenario.seed ^ (steps * 0x9E3779B97F4A7C15L)) : new Random();
+		World world = new World(scenario.width, scenario.height, rand);
+		List<StateEncoder.Entity> entities = new ArrayList<>(replica.world.values());
+		entities.sort(Comparator.comparingInt(e -> e.id));
+		Map<Integer, Fish> fish = new HashMap<>();
+		for (StateEncoder.Entity e : entities) {
+			WorldObject it = StateEncoder.create(world, e.kind, e.attrs);
+			if (it instanceof Snail) {
+				// Same bit as Level.attrsOf.
+				((Snail) it).movingLeft = (e.attrs & 1) != 0;
+			}
+			it.id = e.id;
+			it.setPosition(e.x, e.y);
+			world.register(it);
+			if (it instanceof Fish) {
+				fish.put(e.id, (Fish) it);
+			}
+		}
+		for (int id : replica.missing) {
+			fish.get(id).missing = true;
+		}
+
+		FishGame game = new FishGame(scenario, world);
+		// Put the lists back in the order they were in.
+		game.missing.clear();
+		for (int id : replica.missing) {
+			game.missing.add(fish.get(id));
+		}
+		game.found.clear();
+		for (int id : replica.found) {
+			game.found.add(fish.get(id));
+		}
+		for (Map.Entry<Integer, Integer> e : replica.home.entrySet()) {
+			Fish f = (Fish) StateEncoder.create(world, Kind.FISH, e.getValue());
+			f.id = e.getKey();
+			game.fishhome.add(f);
+		}
+		game.totalFish = scenario.fish;
+		game.score = replica.score;
+		game.stepsTaken = replica.steps;
+		return game;
+	}
+}
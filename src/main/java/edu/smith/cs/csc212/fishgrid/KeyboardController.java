@@ -0,0 +1,50 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.awt.event.KeyEvent;
+
+import me.jjfoley.gfx.GFX;
+
+/**
+ * The person at the keyboard: WASD or the arrow keys move, space skips a turn.
+ */
+public class KeyboardController implements PlayerController {
+	/**
+	 * The window whose keys we read.
+	 */
+	private final GFX window;
+
+	/**
+	 * Read keys from a window.
+	 * @param window - the window (usually {@link Main}).
+	 */
+	public KeyboardController(GFX window) {
+		this.window = window;
+	}
+
+	@Override
+	public int decide(FishGame game) {
+		// Read every key, so a key nobody used doesn't stay pressed until the next frame.
+		boolean up = window.processKey(KeyEvent.VK_W) || window.processKey(KeyEvent.VK_UP);
+		boolean down = window.processKey(KeyEvent.VK_S) || window.processKey(KeyEvent.VK_DOWN);
+		boolean left = window.processKey(KeyEvent.VK_A) || window.processKey(KeyEvent.VK_LEFT);
+		boolean right = window.processKey(KeyEvent.VK_D) || window.processKey(KeyEvent.VK_RIGHT);
+		boolean skip = window.processKey(KeyEvent.VK_SPACE);
+		if (up) {
+			return Moves.UP;
+		} else if (down) {
+			return Moves.DOWN;
+		} else if (left) {
+			return Moves.LEFT;
+		} else if (right) {
+			return Moves.RIGHT;
+		} else if (skip) {
+			return SKIP;
+		}
+		return WAIT;
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+/**
+ * What sort of thing a WorldObject is, as a small number that can be used to index arrays or sent over the wire.
+ * The order here is part of the wire and file formats, so add new kinds at the end.
+ */
+public enum Kind {
+	FISH(Fish.class, false),
+	ROCK(Rock.class, false),
+	FALLING_ROCK(FallingRock.class, true),
+	SNAIL(Snail.class, true),
+	HOME(FishHome.class, false),
+	HEART(Heart.class, false),
+	BUBBLE(Bubble.class, false);
+	
+	/**
+	 * All kinds, by ordinal (values() makes a copy every time).
+	 */
+	static final Kind[] ALL = values();
+	
+	/**
+	 * The class every object of this kind is.
+	 */
+	final Class<? extends WorldObject> type;
+	/**
+	 * True if objects of this kind do something in {@link WorldObject#step()} (the rest are moved by FishGame, or never).
+	 */
+	final boolean stepsItself;
+	
+	Kind(Class<? extends WorldObject> type, boolean stepsItself) {
+		this.type = type;
+		this.stepsItself = stepsItself;
+	}
+}
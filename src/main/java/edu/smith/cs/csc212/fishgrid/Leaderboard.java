@@ -0,0 +1,614 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every finished game, kept in a file: the seed, score, steps, fish found and lost, and how long it took. Ask it for
+ * the best games, or where a score stands among all of them.
+ *
+ * The file is a 16-byte header and then one 48-byte record per game (see {@link Entry}), only ever appended to. The
+ * game's thread never writes it: {@link #add} puts the game in a queue, and a writer thread writes everything waiting
+ * at once, with one sync for the whole group (like {@link Journal}'s). A crash can lose the last few games, or leave
+ * half a record at the end, which the next {@link #Leaderboard(Path) open} cuts off.
+ *
+ * What's kept in memory is just an index: one long per game, the score and the record number, sorted by score. Opening
+ * the file builds it in one pass over a memory-mapped copy of the file (reading only the score of each record), and
+ * keeps the mapping to read the rest of a record when a query needs it. A million games is 8MB of index and a 48MB
+ * file. A game that's added just puts its key aside; the next question (or every {@link #MAX_RECENT} games) sorts
+ * the keys put aside and merges them in, in one pass, so adding lots of games at once doesn't shuffle the index for
+ * every one.
+ *
+ * Only one thread (the game's) should add and ask; the writer thread only writes.
+ */
+public class Leaderboard implements Closeable {
+	/**
+	 * The first four bytes of the file: "FSC1".
+	 */
+	static final int MAGIC = 0x31435346;
+	/**
+	 * The version of the format this code reads and writes.
+	 */
+	static final int VERSION = 1;
+	/**
+	 * How big the header is: magic, version, record size, then a zero.
+	 */
+	static final int HEADER = 16;
+	/**
+	 * How big each record is.
+	 */
+	static final int RECORD = 48;
+	/**
+	 * How many bytes of records are mapped at a time (a mapping has to be less than 2GB).
+	 */
+	private static final int WINDOW = RECORD << 22;
+	/**
+	 * How many keys can be put aside before they're merged into the index.
+	 */
+	static final int MAX_RECENT = 1 << 16;
+
+	/**
+	 * One finished game. In the file (little-endian): the seed (8 bytes), when it started (8, in ms since 1970), how
+	 * long it took (4, in ms), then 4 bytes each for the score, steps, times a fish was found, times a fish got lost,
+	 * fish brought home, fish in all, and flags (1 if the seed is known, 2 if the game was won).
+	 */
+	public static final class Entry {
+		/**
+		 * The seed, if {@link #seeded}.
+		 */
+		final long seed;
+		/**
+		 * Whether we know the seed (a game without one can't be played again).
+		 */
+		final boolean seeded;
+		/**
+		 * When the game started (ms since 1970).
+		 */
+		final long started;
+		/**
+		 * How long it took (ms).
+		 */
+		final int millis;
+		/**
+		 * The final score, and how many steps it took.
+		 */
+		final int score, steps;
+		/**
+		 * How many times a fish was found or got lost, how many fish got home, and how many there were in all.
+		 */
+		final int fishFound, fishLost, fishHome, totalFish;
+		/**
+		 * Whether every fish got home.
+		 */
+		final boolean won;
+
+		/**
+		 * Make an entry (see the fields for what each number is).
+		 */
+		Entry(long seed, boolean seeded, long started, int millis, int score, int steps, int fishFound, int fishLost,
+				int fishHome, int totalFish, boolean won) {
+			this.seed = seed;
+			this.seeded = seeded;
+			this.started = started;
+			this.millis = millis;
+			this.score = score;
+			this.steps = steps;
+			this.fishFound = fishFound;
+			this.fishLost = fishLost;
+			this.fishHome = fishHome;
+			this.totalFish = totalFish;
+			this.won = won;
+		}
+
+		/**
+		 * Sum up a game as it is now.
+		 * @param game - the game (usually finished).
+		 * @return its entry.
+		 */
+		public static Entry of(FishGame game) {
+			long millis = System.currentTimeMillis() - game.startedAt;
+			return new Entry(game.seed != null ? game.seed : 0, game.seed != null, game.startedAt,
+					(int) Math.min(Integer.MAX_VALUE, Math.max(0, millis)), game.score, game.stepsTaken, game.fishFound,
+					game.fishLost, game.fishhome.size(), game.totalFish, game.gameOver());
+		}
+
+		/**
+		 * Write this entry's record (little-endian, {@link #RECORD} bytes) at the buffer's position.
+		 * @param out - where to write it.
+		 */
+		void writeTo(ByteBuffer out) {
+			out.putLong(seed);
+			out.putLong(started);
+			out.putInt(millis);
+			out.putInt(score);
+			out.putInt(steps);
+			out.putInt(fishFound);
+			out.putInt(fishLost);
+			out.putInt(fishHome);
+			out.putInt(totalFish);
+			out.putInt((seeded ? 1 : 0) | (won ? 2 : 0));
+		}
+
+		/**
+		 * Read a record.
+		 * @param in - the records (little-endian).
+		 * @param at - where the record starts.
+		 * @return the entry.
+		 */
+		static Entry readFrom(ByteBuffer in, int at) {
+			int flags = in.getInt(at + 44);
+			return new Entry(in.getLong(at), (flags & 1) != 0, in.getLong(at + 8), in.getInt(at + 16),
+					in.getInt(at + 20), in.getInt(at + 24), in.getInt(at + 28), in.getInt(at + 32), in.getInt(at + 36),
+					in.getInt(at + 40), (flags & 2) != 0);
+		}
+
+		/**
+		 * @return the seed (only meaningful if {@link #isSeeded()}).
+		 */
+		public long getSeed() {
+			return seed;
+		}
+
+		/**
+		 * @return whether the seed is known.
+		 */
+		public boolean isSeeded() {
+			return seeded;
+		}
+
+		/**
+		 * @return the final score.
+		 */
+		public int getScore() {
+			return score;
+		}
+
+		/**
+		 * @return how many steps it took.
+		 */
+		public int getSteps() {
+			return steps;
+		}
+
+		@Override
+		public String toString() {
+			return score + " points in " + steps + " steps (" + (won ? "won" : "not won") + ", " + fishHome + "/"
+					+ totalFish + " fish home, found " + fishFound + ", lost " + fishLost + ", "
+					+ String.format("%.1f", millis / 1000.0) + "s" + (seeded ? ", seed " + seed : "") + ")";
+		}
+	}
+
+	/**
+	 * The file.
+	 */
+	private final FileChannel file;
+	/**
+	 * The records that were in the file when we opened it, mapped a window at a time.
+	 */
+	private final MappedByteBuffer[] windows;
+	/**
+	 * How many records were in the file when we opened it.
+	 */
+	private final int opened;
+	/**
+	 * Games added since then (record numbers from {@link #opened} up).
+	 */
+	private final List<Entry> added = new ArrayList<>();
+	/**
+	 * The index: every game's {@link #key}, smallest first.
+	 */
+	private long[] keys;
+	/**
+	 * How many keys are in the index.
+	 */
+	private int size;
+	/**
+	 * Keys of games added since the index was last merged (in no order).
+	 */
+	private long[] recent = new long[256];
+	/**
+	 * How many keys are put aside in {@link #recent}.
+	 */
+	private int numRecent;
+
+	/**
+	 * Games the game's thread has added, waiting for the writer.
+	 */
+	private final LinkedBlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+	/**
+	 * How many games have been added (only the game's thread looks at this).
+	 */
+	private long made;
+	/**
+	 * How many of those are safely on disk (guarded by this).
+	 */
+	private long durable;
+	/**
+	 * What went wrong on the writer thread, if anything (guarded by this).
+	 */
+	private IOException failure;
+	/**
+	 * Set when it's time for the writer to finish up.
+	 */
+	private volatile boolean closing;
+	/**
+	 * The writer thread.
+	 */
+	private final Thread writer;
+
+	/**
+	 * Open a leaderboard file (made if it isn't there), and index every game in it.
+	 * @param path - the file.
+	 * @throws IOException if the file can't be read or written, or isn't a leaderboard.
+	 */
+	public Leaderboard(Path path) throws IOException {
+		this.file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			if (file.size() < HEADER) {
+				// New (or so new the header never made it to disk).
+				ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+				header.putInt(MAGIC).putInt(VERSION).putInt(RECORD).putInt(0).flip();
+				file.truncate(0);
+				while (header.hasRemaining()) {
+					file.write(header, header.position());
+				}
+				file.force(false);
+			}
+			ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining()) {
+				if (file.read(header, header.position()) < 0) {
+					throw new IOException(path + " is too short to be a leaderboard.");
+				}
+			}
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != RECORD) {
+				throw new IOException(path + " isn't a leaderboard (or is from a newer version).");
+			}
+			long records = (file.size() - HEADER) / RECORD;
+			if (records > Integer.MAX_VALUE - 8) {
+				throw new IOException(path + " has too many games.");
+			}
+			if (file.size() != HEADER + records * RECORD) {
+				// Half a record at the end, from a crash while writing it: leave it out.
+				file.truncate(HEADER + records * RECORD);
+			}
+			this.opened = (int) records;
+
+			// One pass over the file, for the scores.
+			this.keys = new long[Math.max(16, opened + opened / 8)];
+			this.windows = new MappedByteBuffer[(int) ((records * RECORD + WINDOW - 1) / WINDOW)];
+			for (int w=0; w<windows.length; w++) {
+				long at = HEADER + (long) w * WINDOW;
+				int length = (int) Math.min(WINDOW, HEADER + records * RECORD - at);
+				MappedByteBuffer window = file.map(FileChannel.MapMode.READ_ONLY, at, length);
+				window.order(ByteOrder.LITTLE_ENDIAN);
+				int first = w * (WINDOW / RECORD);
+				for (int r=0; r<length; r+=RECORD) {
+					keys[size] = key(window.getInt(r + 20), first + r / RECORD);
+					size++;
+				}
+				windows[w] = window;
+			}
+			Arrays.sort(keys, 0, size);
+			file.position(file.size());
+		} catch (IOException | RuntimeException e) {
+			file.close();
+			throw e;
+		}
+
+		this.writer = new Thread(this::writeLoop, "leaderboard writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * What the index keeps for a game: its score in the top half, so keys sort by score, and its record number
+	 * (backwards, so of two equal scores the older game sorts higher).
+	 */
+	private static long key(int score, int record) {
+		return (long) score << 32 | (0xFFFFFFFFL - record);
+	}
+
+	/**
+	 * @return the record number in a {@link #key}.
+	 */
+	private static int recordOf(long key) {
+		return (int) (0xFFFFFFFFL - (key & 0xFFFFFFFFL));
+	}
+
+	/**
+	 * @return the score in a {@link #key}.
+	 */
+	private static int scoreOf(long key) {
+		return (int) (key >> 32);
+	}
+
+	/**
+	 * Add a finished game. This never waits for the disk.
+	 * @param game - the game.
+	 * @return its entry.
+	 * @throws IllegalStateException if the leaderboard is closed, or its writer has failed.
+	 */
+	public Entry add(FishGame game) {
+		Entry e = Entry.of(game);
+		add(e);
+		return e;
+	}
+
+	/**
+	 * Add a game. This never waits for the disk.
+	 * @param e - the game.
+	 * @throws IllegalStateException if the leaderboard is closed, or its writer has failed.
+	 */
+	public void add(Entry e) {
+		if (closing) {
+			throw new IllegalStateException("The leaderboard is closed.");
+		}
+		IOException failed;
+		synchronized (this) {
+			failed = failure;
+		}
+		if (failed != null) {
+			// Nobody is writing anymore: don't pile up games for nothing.
+			queue.clear();
+			throw new IllegalStateException("The leaderboard stopped: " + failed.getMessage(), failed);
+		}
+		if (numRecent == recent.length) {
+			if (recent.length < MAX_RECENT) {
+				recent = Arrays.copyOf(recent, recent.length * 2);
+			} else {
+				settle();
+			}
+		}
+		recent[numRecent++] = key(e.score, opened + added.size());
+		added.add(e);
+		queue.add(e);
+		made++;
+	}
+
+	/**
+	 * Merge the keys put aside into the index.
+	 */
+	private void settle() {
+		if (numRecent == 0) {
+			return;
+		}
+		Arrays.sort(recent, 0, numRecent);
+		if (size + numRecent > keys.length) {
+			keys = Arrays.copyOf(keys, Math.max(size + numRecent, keys.length * 2));
+		}
+		// Merge from the big end, so nothing is overwritten before it's moved.
+		int i = size - 1;
+		int j = numRecent - 1;
+		for (int to=size+numRecent-1; j>=0; to--) {
+			if (i >= 0 && keys[i] > recent[j]) {
+				keys[to] = keys[i--];
+			} else {
+				keys[to] = recent[j--];
+			}
+		}
+		size += numRecent;
+		numRecent = 0;
+	}
+
+	/**
+	 * @return how many games there are.
+	 */
+	public int size() {
+		return size + numRecent;
+	}
+
+	/**
+	 * Look up a game by when it was added.
+	 * @param record - 0 for the first game ever, up to {@link #size()} - 1.
+	 * @return the game.
+	 */
+	public Entry get(int record) {
+		if (record >= opened) {
+			return added.get(record - opened);
+		}
+		int perWindow = WINDOW / RECORD;
+		return Entry.readFrom(windows[record / perWindow], (record % perWindow) * RECORD);
+	}
+
+	/**
+	 * The best games (ties go to the older game).
+	 * @param k - how many.
+	 * @return up to k games, best first.
+	 */
+	public List<Entry> top(int k) {
+		settle();
+		List<Entry> best = new ArrayList<>();
+		for (int i=size-1; i>=0 && best.size()<k; i--) {
+			best.add(get(recordOf(keys[i])));
+		}
+		return best;
+	}
+
+	/**
+	 * What score a given share of the games are at or below.
+	 * @param percent - from 0 to 100 (50 is the median).
+	 * @return the lowest score that at least that many percent of the games scored at most.
+	 * @throws IllegalStateException if there are no games yet.
+	 */
+	public int scoreAtPercentile(double percent) {
+		settle();
+		if (size == 0) {
+			throw new IllegalStateException("No games yet.");
+		}
+		int rank = (int) Math.ceil(Math.max(0, Math.min(100, percent)) / 100.0 * size);
+		return scoreOf(keys[Math.max(1, rank) - 1]);
+	}
+
+	/**
+	 * Where a score stands.
+	 * @param score - the score.
+	 * @return what percent of the games scored less (0 if there are no games).
+	 */
+	public double percentBelow(int score) {
+		settle();
+		if (size == 0) {
+			return 0;
+		}
+		// The smallest key a game with this score could have is above every lower score's.
+		int at = Arrays.binarySearch(keys, 0, size, (long) score << 32);
+		if (at < 0) {
+			at = -at - 1;
+		}
+		return 100.0 * at / size;
+	}
+
+	/**
+	 * Wait until every game added so far is safely on disk (not for the game's thread; that's the point).
+	 * @throws IOException if the writer failed.
+	 */
+	public void sync() throws IOException {
+		long want = made;
+		synchronized (this) {
+			while (durable < want && failure == null) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while waiting for the leaderboard", e);
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+
+	/**
+	 * Write down every game that's waiting, and close the file.
+	 * @throws IOException if the writer failed.
+	 */
+	@Override
+	public void close() throws IOException {
+		closing = true;
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		file.close();
+		synchronized (this) {
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+
+	/**
+	 * The writer thread: write whatever is waiting as one group, and sync once.
+	 */
+	private void writeLoop() {
+		List<Entry> group = new ArrayList<>();
+		ByteBuffer out = ByteBuffer.allocateDirect(RECORD * 1024).order(ByteOrder.LITTLE_ENDIAN);
+		try {
+			while (true) {
+				Entry first = queue.poll(50, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					if (closing) {
+						return;
+					}
+					continue;
+				}
+				group.clear();
+				group.add(first);
+				queue.drainTo(group);
+				for (int i=0; i<group.size(); i++) {
+					group.get(i).writeTo(out);
+					if (!out.hasRemaining() || i == group.size() - 1) {
+						out.flip();
+						while (out.hasRemaining()) {
+							file.write(out);
+						}
+						out.clear();
+					}
+				}
+				file.force(false);
+				synchronized (this) {
+					durable += group.size();
+					notifyAll();
+				}
+			}
+		} catch (IOException e) {
+			fail(e);
+		} catch (InterruptedException e) {
+			fail(new IOException("Leaderboard writer interrupted", e));
+		} catch (RuntimeException e) {
+			fail(new IOException("Leaderboard writer crashed", e));
+		}
+	}
+
+	/**
+	 * The writer thread gave up: keep what went wrong for whoever asks next, and wake up anybody waiting.
+	 */
+	private synchronized void fail(IOException e) {
+		failure = e;
+		notifyAll();
+	}
+
+	/**
+	 * Print the best games and a few percentiles from a leaderboard file, or with --fill=N, first add N made-up games
+	 * to it and time opening it again.
+	 * @param args - [file] (fishgrid.scores by default), and maybe --fill=N.
+	 * @throws IOException if the file can't be read or written.
+	 */
+	public static void main(String[] args) throws IOException {
+		String name = "fishgrid.scores";
+		int fill = 0;
+		for (String arg : args) {
+			if (arg.startsWith("--fill=")) {
+				fill = Integer.parseInt(arg.substring("--fill=".length()));
+			} else {
+				name = arg;
+			}
+		}
+		Path path = Paths.get(name);
+		if (fill > 0) {
+			Random rand = new Random();
+			try (Leaderboard board = new Leaderboard(path)) {
+				for (int i=0; i<fill; i++) {
+					int steps = 50 + rand.nextInt(500);
+					board.add(new Entry(rand.nextLong(), true, System.currentTimeMillis(), steps * 100,
+							rand.nextInt(200) * 10 + 520 * rand.nextInt(4), steps, 20, rand.nextInt(5), 20, 20, true));
+				}
+			}
+		}
+		long start = System.nanoTime();
+		try (Leaderboard board = new Leaderboard(path)) {
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("%d games, indexed in %.3fs.%n", board.size(), seconds);
+			if (board.size() == 0) {
+				return;
+			}
+			int place = 1;
+			for (Entry e : board.top(10)) {
+				System.out.println(place++ + ". " + e);
+			}
+			for (double p : new double[] {10, 50, 90, 99}) {
+				System.out.printf("%.0fth percentile: %d points.%n", p, board.scoreAtPercentile(p));
+			}
+		}
+	}
+}
@@ -0,0 +1,318 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * A file format for handmade maps (levels), with a loader and a writer. Play one with {@code --level=file}.
+ *
+ * A level is a 64-byte header and then one 8-byte record per object, so the loader can memory-map the file and make
+ * each object straight from its record, registering it as it goes: there is no list of objects in between, and
+ * nothing is parsed but fixed-size numbers. The header says how many objects of each kind there are, so the world
+ * makes room for all of them before the first one comes in.
+ *
+ * Header (little-endian ints): "FLV1", version, width, height, then the number of kinds and how many objects of each
+ * kind (by {@link Kind} ordinal), then zeros up to 64 bytes.
+ *
+ * Record: the cell (y * width + x) as an int, the kind as a byte, the attributes as a byte (see {@link #attrsOf}),
+ * then two zero bytes.
+ *
+ * Every fish but the player starts out missing; if there's no player fish, the player starts at home.
+ */
+public class Level {
+	/**
+	 * The first four bytes of every level: "FLV1".
+	 */
+	static final int MAGIC = 0x31564C46;
+	/**
+	 * The version of the format this code reads and writes.
+	 */
+	static final int VERSION = 1;
+	/**
+	 * How big the header is.
+	 */
+	static final int HEADER = 64;
+	/**
+	 * How big each record is.
+	 */
+	static final int RECORD = 8;
+	/**
+	 * How many bytes of records the loader maps at a time (a mapping has to be less than 2GB).
+	 */
+	private static final int WINDOW = RECORD << 24;
+
+	/**
+	 * Writes a level one object at a time, so a huge level never has to be in memory at once.
+	 */
+	public static class Writer implements Closeable {
+		/**
+		 * The file.
+		 */
+		private final FileChannel out;
+		/**
+		 * Records waiting to be written.
+		 */
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+		/**
+		 * The size of the level.
+		 */
+		private final int width, height;
+		/**
+		 * How many objects of each kind have been added.
+		 */
+		private final int[] counts = new int[Kind.ALL.length];
+
+		/**
+		 * Start writing a level (any file that's there is replaced).
+		 * @param path - the file.
+		 * @param width - how wide the level is.
+		 * @param height - how tall.
+		 * @throws IOException if the file can't be written.
+		 */
+		public Writer(Path path, int width, int height) throws IOException {
+			if ((long) width * height > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("A level can have at most 2^31 cells, not " + width + "x" + height);
+			}
+			this.width = width;
+			this.height = height;
+			this.out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			// The header goes in last, once we know the counts.
+			out.position(HEADER);
+		}
+
+		/**
+		 * Add an object.
+		 * @param kind - what kind.
+		 * @param attrs - its attributes (see {@link Level#attrsOf}).
+		 * @param x - where it is (x).
+		 * @param y - where it is (y).
+		 * @throws IOException if the file can't be written.
+		 */
+		public void add(Kind kind, int attrs, int x, int y) throws IOException {
+			if (x < 0 || x >= width || y < 0 || y >= height) {
+				throw new IllegalArgumentException("(" + x + "," + y + ") is outside of the level.");
+			}
+			if (buffer.remaining() < RECORD) {
+				flush();
+			}
+			buffer.putInt(y * width + x);
+			buffer.put((byte) kind.ordinal());
+			buffer.put((byte) attrs);
+			buffer.putShort((short) 0);
+			counts[kind.ordinal()]++;
+		}
+
+		/**
+		 * Add an object just as it is now.
+		 * @param it - the object.
+		 * @throws IOException if the file can't be written.
+		 */
+		public void add(WorldObject it) throws IOException {
+			add(it.getKind(), attrsOf(it), it.getX(), it.getY());
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				out.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		/**
+		 * Write the header and close the file.
+		 * @throws IOException if the file can't be written.
+		 */
+		@Override
+		public void close() throws IOException {
+			flush();
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(width);
+			buffer.putInt(height);
+			buffer.putInt(counts.length);
+			for (int count : counts) {
+				buffer.putInt(count);
+			}
+			while (buffer.position() < HEADER) {
+				buffer.put((byte) 0);
+			}
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				out.write(buffer, buffer.position());
+				buffer.position(buffer.limit());
+			}
+			out.close();
+		}
+	}
+
+	/**
+	 * The attributes a level keeps for an object: a fish's color, fast-scare and player flags, a rock's color
+	 * (like {@link StateEncoder#attrsOf}), and which way a snail is going (1 for left).
+	 * @param it - the object.
+	 * @return a number from 0 to 255.
+	 */
+	static int attrsOf(WorldObject it) {
+		if (it instanceof Snail) {
+			return ((Snail) it).movingLeft ? 1 : 0;
+		}
+		return StateEncoder.attrsOf(it);
+	}
+
+	/**
+	 * Save everything in a world as a level.
+	 * @param world - the world.
+	 * @param path - the file.
+	 * @throws IOException if the file can't be written.
+	 */
+	public static void save(World world, Path path) throws IOException {
+		try (Writer out = new Writer(path, world.getWidth(), world.getHeight())) {
+			for (WorldObject it : world.viewItems()) {
+				out.add(it);
+			}
+		}
+	}
+
+	/**
+	 * Load a level into a new world.
+	 * @param path - the file.
+	 * @param rand - the world's randomness.
+	 * @return the world, with everything in the level registered.
+	 * @throws IOException if the file can't be read, or isn't a level.
+	 */
+	public static World load(Path path, Random rand) throws IOException {
+		try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (in.size() < HEADER) {
+				throw new IOException(path + " is too short to be a level.");
+			}
+			MappedByteBuffer header = in.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new IOException(path + " isn't a level (or is from a newer version).");
+			}
+			int width = header.getInt();
+			int height = header.getInt();
+			int kinds = header.getInt();
+			if (width < 1 || height < 1 || (long) width * height > Integer.MAX_VALUE || kinds > Kind.ALL.length) {
+				throw new IOException(path + " has a bad header.");
+			}
+			int[] counts = new int[Kind.ALL.length];
+			long total = 0;
+			for (int k=0; k<kinds; k++) {
+				counts[k] = header.getInt();
+				total += counts[k];
+			}
+			if (in.size() != HEADER + total * RECORD) {
+				throw new IOException(path + " should have " + total + " objects, but it's " + in.size() + " bytes.");
+			}
+
+			World world = new World(width, height, rand);
+			world.reserve(counts);
+			int cells = width * height;
+			for (long at = HEADER; at < in.size(); at += WINDOW) {
+				int length = (int) Math.min(WINDOW, in.size() - at);
+				MappedByteBuffer records = in.map(FileChannel.MapMode.READ_ONLY, at, length);
+				records.order(ByteOrder.LITTLE_ENDIAN);
+				for (int r=0; r<length; r+=RECORD) {
+					int cell = records.getInt(r);
+					int kind = records.get(r + 4);
+					if (cell < 0 || cell >= cells || kind < 0 || kind >= kinds) {
+						throw new IOException(path + " has a bad record at byte " + (at + r) + ".");
+					}
+					WorldObject it = create(world, Kind.ALL[kind], records.get(r + 5) & 0xFF);
+					it.setPosition(cell % width, cell / width);
+					world.register(it);
+				}
+			}
+			return world;
+		}
+	}
+
+	/**
+	 * Load a level for a game (see {@link Scenario#level}).
+	 * @param path - the file.
+	 * @param rand - the game's randomness.
+	 * @return the world.
+	 * @throws IllegalArgumentException if the level can't be read.
+	 */
+	static World read(String path, Random rand) {
+		try {
+			return load(Paths.get(path), rand);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Couldn't read level " + path, e);
+		}
+	}
+
+	/**
+	 * Make an object from its kind and level attributes (not registered yet).
+	 */
+	private static WorldObject create(World world, Kind kind, int attrs) {
+		WorldObject it = StateEncoder.create(world, kind, attrs);
+		if (kind == Kind.SNAIL) {
+			((Snail) it).movingLeft = (attrs & 1) != 0;
+		} else if (kind == Kind.FISH && !((Fish) it).player) {
+			((Fish) it).missing = true;
+		}
+		return it;
+	}
+
+	/**
+	 * Write a big made-up level, then time loading it.
+	 *
+	 * Ten million objects are well over a gigabyte of Java objects, and they all live, so the time mostly goes to the
+	 * garbage collector copying them around unless it has room: run with something like
+	 * {@code -Xms4g -Xmx4g -Xmn3g -XX:+UseParallelGC -XX:+AlwaysPreTouch}.
+	 * @param args - [objects [file]] (10 million objects in fishgrid.level by default).
+	 * @throws IOException if the file can't be written or read.
+	 */
+	public static void main(String[] args) throws IOException {
+		int objects = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+		Path path = Paths.get(args.length > 1 ? args[1] : "fishgrid.level");
+		// About half full: every other cell, roughly.
+		int size = (int) Math.ceil(Math.sqrt(objects * 2.0));
+		Random rand = new Random(7);
+		long start = System.nanoTime();
+		try (Writer out = new Writer(path, size, size)) {
+			out.add(Kind.HOME, 0, size / 2, size / 2);
+			for (int i=1; i<objects; i++) {
+				int cell = (int) ((long) i * size * size / objects);
+				int roll = rand.nextInt(100);
+				int x = cell % size;
+				int y = cell / size;
+				if (roll < 40) {
+					out.add(Kind.ROCK, rand.nextInt(9), x, y);
+				} else if (roll < 70) {
+					out.add(Kind.FALLING_ROCK, rand.nextInt(9), x, y);
+				} else if (roll < 95) {
+					out.add(Kind.SNAIL, rand.nextInt(2), x, y);
+				} else {
+					out.add(Kind.FISH, (rand.nextInt(Fish.COLORS.length - 1) + 1) << 2 | rand.nextInt(2) << 1, x, y);
+				}
+			}
+		}
+		System.out.printf("Wrote %d objects (%dx%d) in %.2fs.%n", objects, size, size, (System.nanoTime() - start) / 1e9);
+
+		for (int rep=0; rep<3; rep++) {
+			// Don't time cleaning up the last one.
+			System.gc();
+			start = System.nanoTime();
+			World world = load(path, new Random(7));
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("Loaded %d objects in %.2fs.%n", world.viewItems().size(), seconds);
+		}
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Puts load on a {@link SessionServer} from this machine: it opens some idle sessions (that never send anything)
+ * and some active ones (that send a random move as soon as their last one was played), then reports how long
+ * moves waited for their tick.
+ */
+public class LoadGenerator {
+	/**
+	 * The names of the moves we send.
+	 */
+	private static final String[] MOVES = {"UP", "DOWN", "LEFT", "RIGHT", "SKIP"};
+
+	/**
+	 * How many move latencies we keep for the report.
+	 */
+	private static final int SAMPLES = 1 << 20;
+
+	/**
+	 * Recent move latencies (nanoseconds), in a ring.
+	 */
+	private final long[] latencies = new long[SAMPLES];
+	/**
+	 * How many latencies were recorded in total.
+	 */
+	private final AtomicLong recorded = new AtomicLong();
+
+	/**
+	 * One client socket with a share of the sessions.
+	 */
+	private class Client implements Runnable {
+		final Socket socket;
+		final BufferedReader in;
+		final Writer out;
+		final Random rand = new Random();
+		/**
+		 * When each active session's outstanding move was sent.
+		 */
+		final Map<Integer, Long> sentAt = new HashMap<>();
+
+		Client(int port) throws IOException {
+			socket = new Socket(InetAddress.getLoopbackAddress(), port);
+			in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * Open sessions, and start moving the active ones.
+		 * @param idle - how many sessions to leave alone.
+		 * @param active - how many to keep busy.
+		 * @throws IOException if the server goes away.
+		 */
+		void open(int idle, int active) throws IOException {
+			for (int i=0; i<idle + active; i++) {
+				out.write("NEW\n");
+			}
+			out.flush();
+			for (int i=0; i<idle + active; i++) {
+				int id = Integer.parseInt(in.readLine().split(" ")[1]);
+				if (i >= idle) {
+					sentAt.put(id, 0L);
+				}
+			}
+			for (int id : sentAt.keySet()) {
+				sendMove(id);
+			}
+			out.flush();
+		}
+
+		void sendMove(int id) throws IOException {
+			sentAt.put(id, System.nanoTime());
+			out.write("MOVE " + id + " " + MOVES[rand.nextInt(MOVES.length)] + "\n");
+		}
+
+		@Override
+		public void run() {
+			try {
+				for (String line; (line = in.readLine()) != null; ) {
+					String[] parts = line.split(" ");
+					if (!parts[0].equals("TICK")) {
+						System.err.println(line);
+						continue;
+					}
+					int id = Integer.parseInt(parts[1]);
+					long waited = System.nanoTime() - sentAt.get(id);
+					latencies[(int) (recorded.getAndIncrement() % SAMPLES)] = waited;
+					sendMove(id);
+					if (!in.ready()) {
+						out.flush();
+					}
+				}
+			} catch (IOException e) {
+				// The server went away; we're done.
+			}
+		}
+	}
+
+	/**
+	 * Run a load test.
+	 * @param args - [port [idle [active [clients [seconds]]]]]; port 0 starts a server in this JVM.
+	 * @throws Exception if anything goes wrong.
+	 */
+	public static void main(String[] args) throws Exception {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+		int idle = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+		int active = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+		int clients = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+		int seconds = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+
+		SessionServer server = null;
+		if (port == 0) {
+			server = new SessionServer(0, Runtime.getRuntime().availableProcessors(), 50);
+			server.start();
+			port = server.getPort();
+		}
+
+		LoadGenerator load = new LoadGenerator();
+		for (int c=0; c<clients; c++) {
+			Client client = load.new Client(port);
+			client.open(idle / clients + (c < idle % clients ? 1 : 0), active / clients + (c < active % clients ? 1 : 0));
+			Thread t = new Thread(client, "LoadGenerator-" + c);
+			t.setDaemon(true);
+			t.start();
+		}
+
+		for (int s=1; s<=seconds; s++) {
+			long before = load.recorded.get();
+			Thread.sleep(1000);
+			System.out.println(load.report(before, load.recorded.get()));
+		}
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Summarize the latencies recorded in a window.
+	 * @param from - the count of moves when the window started.
+	 * @param to - the count of moves when it ended.
+	 * @return a line of text.
+	 */
+	private String report(long from, long to) {
+		from = Math.max(from, to - SAMPLES);
+		int n = (int) (to - from);
+		if (n == 0) {
+			return "no moves played";
+		}
+		long[] sorted = new long[n];
+		for (int i=0; i<n; i++) {
+			sorted[i] = latencies[(int) ((from + i) % SAMPLES)];
+		}
+		Arrays.sort(sorted);
+		return String.format("%d moves/s, latency p50 %.1f ms, p99 %.1f ms, max %.1f ms",
+				n, sorted[n / 2] / 1e6, sorted[(int) (n * 0.99)] / 1e6, sorted[n - 1] / 1e6);
+	}
+}
@@ -9,6 +9,11 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.event.KeyEvent;
 import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 import me.jjfoley.gfx.GFX;
 import me.jjfoley.gfx.IntPoint;
@@ -37,6 +42,22 @@ public class Main extends GFX {
 	 * There's a border to make it look pretty (the board is inset by this much).
 	 */
 	public static int BORDER = 5;
+	/**
+	 * How long (in seconds) the player waits between steps when swimming somewhere they clicked.
+	 */
+	public static double TRAVEL_STEP_SECONDS = 0.15;
+	/**
+	 * In real-time mode, how many times a second the world steps (at 1x speed).
+	 */
+	public static double TICKS_PER_SECOND = 4;
+	/**
+	 * In real-time mode, how much of a frame (in seconds) we may spend stepping before we give up on catching up.
+	 */
+	public static double TICK_BUDGET_SECONDS = 1.0 / 60.0;
+	/**
+	 * How many ticks back Backspace can go.
+	 */
+	public static int REWIND_TICKS = 600;
 	/**
 	 * This is where the game logic lives.
 	 */
@@ -49,19 +70,83 @@ public class Main extends GFX {
 	 * This is a rectangle representing the TOP_PART of the screen.
 	 */
 	Rectangle2D topRect;
+	/**
+	 * In click-to-move mode (toggle with M), clicking a cell sends the player there.
+	 */
+	boolean clickToMove = false;
+	/**
+	 * Time since the player last took a step on their own.
+	 */
+	double travelTimer = 0;
+	/**
+	 * In real-time mode (toggle with R), the world steps on its own, whether or not anyone presses anything.
+	 */
+	boolean realTime = false;
+	/**
+	 * Decides how many ticks each frame runs in real-time mode; ] and [ change its speed.
+	 */
+	FixedTimestep clock = new FixedTimestep(TICKS_PER_SECOND, 5);
+	/**
+	 * Reads WASD / arrows / space for the player.
+	 */
+	PlayerController keyboard = new KeyboardController(this);
+	/**
+	 * A bot playing for us (cycle through them with B), or null when the keyboard is in charge.
+	 */
+	PlayerController bot = null;
+	/**
+	 * Where the bots get their randomness.
+	 */
+	Random botRandom = new Random();
+
+	/**
+	 * The sizes, counts and chances each new game uses.
+	 */
+	Scenario scenario;
+	/**
+	 * Where finished games are kept (null if we're not keeping them).
+	 */
+	Leaderboard scores;
+	/**
+	 * The last game put on the leaderboard (a game that's won, taken back and won again only goes on once).
+	 */
+	FishGame recorded;
+	/**
+	 * What percent of the games before it the last recorded game beat (NaN if there weren't any).
+	 */
+	double betterThan = Double.NaN;
 
 	/**
 	 * Construct a new fish game.
 	 */
 	public Main() {
+		this(new Scenario());
+	}
+
+	/**
+	 * Construct a new fish game from a scenario.
+	 * @param scenario - the sizes, counts and chances to use.
+	 */
+	public Main(Scenario scenario) {
 		super(VISUAL_GRID_SIZE + BORDER * 2, VISUAL_GRID_SIZE + BORDER * 2 + TOP_PART);
-		game = new FishGame(LOGICAL_GRID_SIZE, LOGICAL_GRID_SIZE);
+		this.scenario = scenario;
+		game = newGame();
 		gameState.color = Color.WHITE;
 		gameState.setFont(TextBox.BOLD_FONT);
 		gameState.setFontSize(TOP_PART / 3.0);
 		topRect = new Rectangle2D.Double(0, 0, getWidth(), TOP_PART);
 	}
 
+	/**
+	 * Start a game of our scenario that can be rewound.
+	 * @return the game.
+	 */
+	private FishGame newGame() {
+		FishGame fresh = new FishGame(scenario);
+		fresh.keepRewind(REWIND_TICKS);
+		return fresh;
+	}
+
 	/**
 	 * How big is a tile?
 	 * @return this returns the tile width.
@@ -167,9 +252,18 @@ public class Main extends GFX {
 	public void update(double secondsSinceLastUpdate) {
 		// Handle game-over and restart.
 		if (game.gameOver()) {
-			this.gameState.setString("You win! Click anywhere start again!");
+			if (recorded != game) {
+				recordGame();
+			}
+			this.gameState.setString("You win!" + (!Double.isNaN(betterThan)
+					? String.format(" Better than %.0f%% of games!", betterThan) : "")
+					+ " Click anywhere start again!");
 			if (this.processClick() != null) {
-				this.game = new FishGame(LOGICAL_GRID_SIZE, LOGICAL_GRID_SIZE);
+				this.game = newGame();
+			}
+			// (Or take the last step back.)
+			if (this.processKey(KeyEvent.VK_BACK_SPACE)) {
+				this.game.rewind(1);
 			}
 			return;
 		}
@@ -178,46 +272,179 @@ public class Main extends GFX {
 		this.gameState.setString(
 				"Step #: " + game.stepsTaken + 
 				" ... Fish Left: " + game.missingFishLeft() +
-				" ... Score: "+ game.score);
+				" ... Score: "+ game.score +
+				(clickToMove ? " ... Click-to-move" : "") +
+				(realTime ? " ... x" + (int) clock.getSpeed() : "") +
+				(bot != null ? " ... " + bot : ""));
+
+		if (this.processKey(KeyEvent.VK_M)) {
+			clickToMove = !clickToMove;
+			this.game.stopTraveling();
+		}
+		if (this.processKey(KeyEvent.VK_R)) {
+			realTime = !realTime;
+			clock.dropBacklog();
+		}
+		if (this.processKey(KeyEvent.VK_CLOSE_BRACKET)) {
+			clock.setSpeed(clock.getSpeed() * 2);
+		}
+		if (this.processKey(KeyEvent.VK_OPEN_BRACKET)) {
+			clock.setSpeed(clock.getSpeed() / 2);
+		}
+		if (this.processKey(KeyEvent.VK_B)) {
+			bot = nextBot(bot);
+			this.game.stopTraveling();
+		}
+		if (this.processKey(KeyEvent.VK_BACK_SPACE)) {
+			// Go back a step (or a second's worth, in real time).
+			this.game.rewind(realTime ? (int) TICKS_PER_SECOND : 1);
+		}
 
-		// Read the state of the keyboard:
-		boolean up = this.processKey(KeyEvent.VK_W) || this.processKey(KeyEvent.VK_UP);
-		boolean down = this.processKey(KeyEvent.VK_S) || this.processKey(KeyEvent.VK_DOWN);
-		boolean left = this.processKey(KeyEvent.VK_A) || this.processKey(KeyEvent.VK_LEFT);
-		boolean right = this.processKey(KeyEvent.VK_D) || this.processKey(KeyEvent.VK_RIGHT);
-		boolean skip = this.processKey(KeyEvent.VK_SPACE);
+		// Ask the keyboard what the player wants:
+		int action = keyboard.decide(game);
+		if (action != PlayerController.WAIT) {
+			// Any key takes the controls back.
+			this.game.stopTraveling();
+			bot = null;
+		}
 
 		// Move the player if we can:
-		boolean moved = false;
-		if (up) {
-			moved = this.game.player.moveUp();
-		} else if (down) {
-			moved = this.game.player.moveDown();
-		} else if (left) {
-			moved = this.game.player.moveLeft();
-		} else if (right) {
-			moved = this.game.player.moveRight();
-		}
+		boolean moved = action >= 0 && this.game.player.move(action);
 		
 		IntPoint click = mouseToGame(this.processClick());
 		
+		if (realTime) {
+			if (click != null) {
+				this.game.click(click.x, click.y);
+				if (clickToMove) {
+					this.game.travelTo(click.x, click.y);
+				}
+			}
+			runTicks(secondsSinceLastUpdate);
+			return;
+		}
+		
 		// Only advance the game if the player presses something!
-		if (skip || moved || click != null) {
+		if (action == PlayerController.SKIP || moved || click != null) {
 			if (click != null) {
 				this.game.click(click.x, click.y);
+				if (clickToMove) {
+					this.game.travelTo(click.x, click.y);
+					travelTimer = 0;
+				}
 			}
 			// Update game logic!
 			this.game.step();
 			// Update message at the top!
+		} else if (bot != null || this.game.isTraveling()) {
+			// Let the bot (or the path) play, one step at a time.
+			travelTimer += secondsSinceLastUpdate;
+			if (travelTimer >= TRAVEL_STEP_SECONDS) {
+				travelTimer = 0;
+				autoStep();
+			}
+		}
+	}
+
+	/**
+	 * One tick with nobody at the keys: the bot (or the click-to-move path) moves the player, then the world steps.
+	 */
+	private void autoStep() {
+		if (bot != null) {
+			this.game.play(bot.decide(game));
+		} else {
+			this.game.followPath();
+			this.game.step();
+		}
+	}
+
+	/**
+	 * Which bot comes after this one when B is pressed?
+	 * @param current - the bot playing now, or null for none.
+	 * @return the next bot, or null to hand control back to the keyboard.
+	 */
+	private PlayerController nextBot(PlayerController current) {
+		if (current == null) {
+			return new RandomBot(botRandom);
+		} else if (current instanceof SearchBot) {
+			return null;
+		} else if (current instanceof ReturnHomeBot) {
+			return new SearchBot(botRandom);
+		} else if (current instanceof GreedyBot) {
+			return new ReturnHomeBot(3, botRandom);
+		}
+		return new GreedyBot(botRandom);
+	}
+
+	/**
+	 * Put the game that just ended on the leaderboard (if we're keeping one), and see how it did against the games
+	 * before it.
+	 */
+	private void recordGame() {
+		recorded = game;
+		betterThan = Double.NaN;
+		if (scores == null) {
+			return;
+		}
+		try {
+			if (scores.size() > 0) {
+				betterThan = scores.percentBelow(game.score);
+			}
+			scores.add(game);
+		} catch (IllegalStateException e) {
+			System.err.println("Not keeping scores: " + e.getMessage());
+			scores = null;
+		}
+	}
+
+	/**
+	 * Real-time mode: step the world as many times as the clock says, but stop if the frame runs out of time.
+	 * @param secondsSinceLastUpdate - real time since the last frame.
+	 */
+	private void runTicks(double secondsSinceLastUpdate) {
+		int ticks = clock.advance(secondsSinceLastUpdate);
+		long deadline = System.nanoTime() + (long) (TICK_BUDGET_SECONDS * 1e9);
+		for (int i=0; i<ticks && !game.gameOver(); i++) {
+			autoStep();
+			if (System.nanoTime() > deadline) {
+				clock.dropBacklog();
+				break;
+			}
 		}
 	}
 
 	/**
 	 * Create and start the game!
-	 * @param args - not run from the command line so no args are used.
+	 * @param args - scenario flags, like --size=20 or --scenario=file.properties (see {@link Scenario}).
 	 */
 	public static void main(String[] args) {
-		Main game = new Main();
+		// Finished games go in fishgrid.scores, unless --scores says somewhere else (or --scores= for nowhere).
+		String scores = "fishgrid.scores";
+		List<String> flags = new ArrayList<>();
+		for (String arg : args) {
+			if (arg.startsWith("--scores=")) {
+				scores = arg.substring("--scores=".length());
+			} else {
+				flags.add(arg);
+			}
+		}
+		Main game = new Main(Scenario.parse(flags.toArray(new String[0])));
+		if (!scores.isEmpty()) {
+			try {
+				Leaderboard board = new Leaderboard(Paths.get(scores));
+				game.scores = board;
+				// Closing the window ends the program: write down the games still waiting first.
+				Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+					try {
+						board.close();
+					} catch (IOException e) {
+						System.err.println("Scores weren't all saved: " + e.getMessage());
+					}
+				}, "leaderboard close"));
+			} catch (IOException e) {
+				System.err.println("Not keeping scores: " + e.getMessage());
+			}
+		}
 		game.start();
 	}
 
@@ -0,0 +1,111 @@
+/* 
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.util.Random;
+
+/**
+ * Directions a WorldObject can step in, and helpers for picking one out of a bit-mask of open directions.
+ * 
+ * A mask has bit d set when direction d is open; see {@link World#validMoves}.
+ */
+public final class Moves {
+	/**
+	 * Step toward y-1.
+	 */
+	public static final int UP = 0;
+	/**
+	 * Step toward y+1.
+	 */
+	public static final int DOWN = 1;
+	/**
+	 * Step toward x+1.
+	 */
+	public static final int RIGHT = 2;
+	/**
+	 * Step toward x-1.
+	 */
+	public static final int LEFT = 3;
+	/**
+	 * The diagonal steps come after the four normal ones.
+	 */
+	public static final int UP_RIGHT = 4;
+	public static final int UP_LEFT = 5;
+	public static final int DOWN_RIGHT = 6;
+	public static final int DOWN_LEFT = 7;
+	
+	/**
+	 * How many directions to consider for up/down/left/right movement.
+	 */
+	public static final int CARDINAL = 4;
+	/**
+	 * How many directions to consider when diagonal steps are allowed.
+	 */
+	public static final int ALL = 8;
+	
+	/**
+	 * How x changes for each direction.
+	 */
+	static final int[] DX = {0, 0, 1, -1, 1, -1, 1, -1};
+	/**
+	 * How y changes for each direction.
+	 */
+	static final int[] DY = {-1, 1, 0, 0, -1, -1, 1, 1};
+	
+	private Moves() {
+		// Just static helpers.
+	}
+	
+	/**
+	 * Pick one of the open directions, all equally likely.
+	 * @param mask - the open directions.
+	 * @param rand - where to get randomness.
+	 * @return a direction, or -1 if the mask is empty.
+	 */
+	public static int pickUniform(int mask, Random rand) {
+		int count = Integer.bitCount(mask);
+		if (count == 0) {
+			return -1;
+		}
+		// Clear the lowest set bit "which" times, then the lowest one left is our pick.
+		for (int which = rand.nextInt(count); which > 0; which--) {
+			mask &= mask - 1;
+		}
+		return Integer.numberOfTrailingZeros(mask);
+	}
+	
+	/**
+	 * Pick one of the open directions, in proportion to its weight.
+	 * @param mask - the open directions.
+	 * @param weights - how much to like each direction (index = direction).
+	 * @param rand - where to get randomness.
+	 * @return a direction, or -1 if no open direction has a positive weight.
+	 */
+	public static int pickWeighted(int mask, double[] weights, Random rand) {
+		double total = 0;
+		for (int d=0; d<weights.length; d++) {
+			if ((mask & (1 << d)) != 0 && weights[d] > 0) {
+				total += weights[d];
+			}
+		}
+		if (total <= 0) {
+			return -1;
+		}
+		double r = rand.nextDouble() * total;
+		int last = -1;
+		for (int d=0; d<weights.length; d++) {
+			if ((mask & (1 << d)) != 0 && weights[d] > 0) {
+				last = d;
+				r -= weights[d];
+				if (r < 0) {
+					return d;
+				}
+			}
+		}
+		// Rounding can leave a sliver at the end; it belongs to the last choice.
+		return last;
+	}
+}
@@ -0,0 +1,458 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+/**
+ * Plans a path for one WorldObject (usually the player) to a goal cell, using {@link World#canSwim} to decide
+ * which cells are open.
+ *
+ * This is D* Lite (Koenig &amp; Likhachev, 2002): it searches backward from the goal, and when Snails or Rocks move,
+ * or the traveler itself moves, it only repairs the part of the search those changes touched
+ * instead of planning again from scratch.
+ */
+public class PathPlanner implements WorldListener {
+	/**
+	 * A distance that means "can't get there". Small enough that adding to it won't overflow.
+	 */
+	private static final int INF = Integer.MAX_VALUE / 4;
+
+	/**
+	 * The world we plan in.
+	 */
+	private World world;
+	/**
+	 * Who is going to swim the path?
+	 */
+	private WorldObject traveler;
+	/**
+	 * The size of the grid (x-tiles).
+	 */
+	private int width;
+	/**
+	 * Where we are going (a cell number), or -1 if we are not going anywhere.
+	 */
+	private int goal = -1;
+	/**
+	 * Where the traveler was when we last repaired the plan.
+	 */
+	private int last;
+	/**
+	 * The D* Lite key modifier: how far the traveler has moved since we started.
+	 */
+	private int km;
+
+	/**
+	 * Our best known distance to the goal from each cell.
+	 */
+	private int[] g;
+	/**
+	 * One-step lookahead distance to the goal from each cell.
+	 */
+	private int[] rhs;
+	/**
+	 * The g and rhs entries are only real if their stamp matches {@link #epoch}; this lets a new goal skip clearing them.
+	 */
+	private int[] stamp;
+	/**
+	 * Which plan we are on.
+	 */
+	private int epoch;
+
+	/**
+	 * A binary heap of cells, ordered by (key1, key2).
+	 */
+	private int[] heap;
+	/**
+	 * How many cells are in the heap.
+	 */
+	private int heapSize;
+	/**
+	 * Where each cell is in the heap, or -1 (only real if the stamp matches).
+	 */
+	private int[] heapIndex;
+	/**
+	 * First part of each cell's heap key.
+	 */
+	private int[] key1;
+	/**
+	 * Second part of each cell's heap key.
+	 */
+	private int[] key2;
+
+	/**
+	 * Cells whose contents changed since the last repair.
+	 */
+	private int[] changed;
+	/**
+	 * How many entries of {@link #changed} are used.
+	 */
+	private int numChanged;
+	/**
+	 * Whether a cell is already listed in {@link #changed}.
+	 */
+	private boolean[] isChanged;
+
+	/**
+	 * Make a planner for one traveler. It starts without a goal.
+	 * @param world - the world to plan in.
+	 * @param traveler - the object that will follow the plan.
+	 */
+	public PathPlanner(World world, WorldObject traveler) {
+		this.world = world;
+		this.traveler = traveler;
+		this.width = world.getWidth();
+		int size = world.getWidth() * world.getHeight();
+		this.g = new int[size];
+		this.rhs = new int[size];
+		this.stamp = new int[size];
+		this.heap = new int[size];
+		this.heapIndex = new int[size];
+		this.key1 = new int[size];
+		this.key2 = new int[size];
+		this.changed = new int[size];
+		this.isChanged = new boolean[size];
+	}
+
+	/**
+	 * Start planning toward a new goal.
+	 * @param x - the goal (x).
+	 * @param y - the goal (y).
+	 * @return false if (x,y) isn't in the world.
+	 */
+	public boolean setGoal(int x, int y) {
+		int cell = world.cellOf(x, y);
+		if (cell < 0) {
+			return false;
+		}
+		epoch++;
+		heapSize = 0;
+		clearChanged();
+		km = 0;
+		goal = cell;
+		last = here();
+		touch(goal);
+		rhs[goal] = 0;
+		push(goal);
+		computeShortestPath();
+		return true;
+	}
+
+	/**
+	 * Forget the goal; we stop listening for changes that matter.
+	 */
+	public void clearGoal() {
+		goal = -1;
+		heapSize = 0;
+		clearChanged();
+	}
+
+	/**
+	 * @return true if we have somewhere to go.
+	 */
+	public boolean hasGoal() {
+		return goal >= 0;
+	}
+
+	/**
+	 * @return true if the traveler is standing on the goal.
+	 */
+	public boolean arrived() {
+		return goal >= 0 && here() == goal;
+	}
+
+	/**
+	 * Repair the plan for everything that moved since last time, then pick the best step.
+	 * @return a direction from {@link Moves}, or -1 if we're there or there's no way there right now.
+	 */
+	public int nextStep() {
+		if (goal < 0) {
+			return -1;
+		}
+		int start = here();
+		if (start < 0 || start == goal) {
+			return -1;
+		}
+		if (start != last || numChanged > 0) {
+			km += heuristic(last, start);
+			last = start;
+			for (int i=0; i<numChanged; i++) {
+				int cell = changed[i];
+				isChanged[cell] = false;
+				// Only the cell's neighbors pay to swim into it, and only if we ever found a way on from it;
+				// changes out where the search never reached don't matter.
+				if (gOf(cell) < INF) {
+					updateNeighbors(cell);
+				}
+			}
+			numChanged = 0;
+			computeShortestPath();
+		}
+
+		int best = -1;
+		int bestCost = INF;
+		int sx = start % width;
+		int sy = start / width;
+		for (int d=0; d<Moves.CARDINAL; d++) {
+			int n = world.cellOf(sx + Moves.DX[d], sy + Moves.DY[d]);
+			if (n >= 0 && isOpen(n)) {
+				int cost = 1 + gOf(n);
+				if (cost < bestCost) {
+					bestCost = cost;
+					best = d;
+				}
+			}
+		}
+		return best;
+	}
+
+	@Override
+	public void objectAdded(WorldObject item) {
+		noteChange(item.getX(), item.getY(), item);
+	}
+
+	@Override
+	public void objectRemoved(WorldObject item) {
+		noteChange(item.getX(), item.getY(), item);
+	}
+
+	@Override
+	public void objectMoved(WorldObject item, int fromX, int fromY) {
+		noteChange(fromX, fromY, item);
+		noteChange(item.getX(), item.getY(), item);
+	}
+
+	/**
+	 * Remember that a cell's contents changed so the next repair looks at it.
+	 * @param x - the tile-x.
+	 * @param y - the tile-y.
+	 * @param who - what changed; the traveler's own moves are handled separately.
+	 */
+	private void noteChange(int x, int y, WorldObject who) {
+		if (goal < 0 || who == traveler) {
+			return;
+		}
+		int cell = world.cellOf(x, y);
+		if (cell >= 0 && !isChanged[cell]) {
+			isChanged[cell] = true;
+			changed[numChanged++] = cell;
+		}
+	}
+
+	/**
+	 * Empty the list of changed cells.
+	 */
+	private void clearChanged() {
+		for (int i=0; i<numChanged; i++) {
+			isChanged[changed[i]] = false;
+		}
+		numChanged = 0;
+	}
+
+	/**
+	 * @return the traveler's cell.
+	 */
+	private int here() {
+		return world.cellOf(traveler.getX(), traveler.getY());
+	}
+
+	/**
+	 * Can the traveler swim into this cell?
+	 * @param cell - any cell in the world.
+	 * @return true if so.
+	 */
+	private boolean isOpen(int cell) {
+		return world.canSwim(traveler, cell % width, cell / width);
+	}
+
+	/**
+	 * Manhattan distance: never more than the real number of steps.
+	 * @param a - one cell.
+	 * @param b - another cell.
+	 * @return |dx| + |dy|.
+	 */
+	private int heuristic(int a, int b) {
+		return Math.abs(a % width - b % width) + Math.abs(a / width - b / width);
+	}
+
+	/**
+	 * Make sure a cell's entries belong to this plan.
+	 * @param cell - the cell.
+	 */
+	private void touch(int cell) {
+		if (stamp[cell] != epoch) {
+			stamp[cell] = epoch;
+			g[cell] = INF;
+			rhs[cell] = INF;
+			heapIndex[cell] = -1;
+		}
+	}
+
+	/**
+	 * @param cell - the cell.
+	 * @return g for this plan.
+	 */
+	private int gOf(int cell) {
+		return stamp[cell] == epoch ? g[cell] : INF;
+	}
+
+	/**
+	 * D* Lite's UpdateVertex: recompute rhs from the neighbors, and (re)queue the cell if it is inconsistent.
+	 * @param u - the cell.
+	 */
+	private void updateVertex(int u) {
+		touch(u);
+		if (u != goal) {
+			int best = INF;
+			int ux = u % width;
+			int uy = u / width;
+			for (int d=0; d<Moves.CARDINAL; d++) {
+				int n = world.cellOf(ux + Moves.DX[d], uy + Moves.DY[d]);
+				if (n >= 0 && isOpen(n)) {
+					int cost = Math.min(INF, 1 + gOf(n));
+					if (cost < best) {
+						best = cost;
+					}
+				}
+			}
+			rhs[u] = best;
+		}
+		if (heapIndex[u] >= 0) {
+			removeFromHeap(u);
+		}
+		if (g[u] != rhs[u]) {
+			push(u);
+		}
+	}
+
+	/**
+	 * D* Lite's ComputeShortestPath: settle cells until the traveler's cell is consistent.
+	 */
+	private void computeShortestPath() {
+		int start = here();
+		if (start < 0) {
+			return;
+		}
+		touch(start);
+		while (heapSize > 0) {
+			int u = heap[0];
+			int startK1 = Math.min(g[start], rhs[start]) + heuristic(start, start) + km;
+			int startK2 = Math.min(g[start], rhs[start]);
+			if (!less(key1[u], key2[u], startK1, startK2) && rhs[start] == g[start]) {
+				break;
+			}
+			int oldK1 = key1[u];
+			int oldK2 = key2[u];
+			int newK2 = Math.min(g[u], rhs[u]);
+			int newK1 = newK2 + heuristic(start, u) + km;
+			if (less(oldK1, oldK2, newK1, newK2)) {
+				// The key got stale because the traveler moved; requeue it with the right one.
+				removeFromHeap(u);
+				push(u);
+			} else if (g[u] > rhs[u]) {
+				g[u] = rhs[u];
+				removeFromHeap(u);
+				updateNeighbors(u);
+			} else {
+				g[u] = INF;
+				updateVertex(u);
+				updateNeighbors(u);
+			}
+		}
+	}
+
+	/**
+	 * Update every neighbor of a cell whose g just changed.
+	 * @param u - the cell.
+	 */
+	private void updateNeighbors(int u) {
+		int ux = u % width;
+		int uy = u / width;
+		for (int d=0; d<Moves.CARDINAL; d++) {
+			int n = world.cellOf(ux + Moves.DX[d], uy + Moves.DY[d]);
+			if (n >= 0) {
+				updateVertex(n);
+			}
+		}
+	}
+
+	/**
+	 * Compare two keys.
+	 * @return true if (a1,a2) comes before (b1,b2).
+	 */
+	private static boolean less(int a1, int a2, int b1, int b2) {
+		return a1 < b1 || (a1 == b1 && a2 < b2);
+	}
+
+	/**
+	 * Put a cell into the heap with its current key.
+	 * @param cell - a touched cell that isn't in the heap.
+	 */
+	private void push(int cell) {
+		int start = here();
+		key2[cell] = Math.min(g[cell], rhs[cell]);
+		key1[cell] = key2[cell] + (start < 0 ? 0 : heuristic(start, cell)) + km;
+		heap[heapSize] = cell;
+		heapIndex[cell] = heapSize;
+		heapSize++;
+		siftUp(heapSize - 1);
+	}
+
+	/**
+	 * Take a cell out of the heap, wherever it is.
+	 * @param cell - a cell that is in the heap.
+	 */
+	private void removeFromHeap(int cell) {
+		int i = heapIndex[cell];
+		heapIndex[cell] = -1;
+		heapSize--;
+		if (i == heapSize) {
+			return;
+		}
+		int moved = heap[heapSize];
+		heap[i] = moved;
+		heapIndex[moved] = i;
+		siftUp(i);
+		siftDown(heapIndex[moved]);
+	}
+
+	private void siftUp(int i) {
+		int cell = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			int p = heap[parent];
+			if (!less(key1[cell], key2[cell], key1[p], key2[p])) {
+				break;
+			}
+			heap[i] = p;
+			heapIndex[p] = i;
+			i = parent;
+		}
+		heap[i] = cell;
+		heapIndex[cell] = i;
+	}
+
+	private void siftDown(int i) {
+		int cell = heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && less(key1[heap[child + 1]], key2[heap[child + 1]], key1[heap[child]], key2[heap[child]])) {
+				child++;
+			}
+			int c = heap[child];
+			if (!less(key1[c], key2[c], key1[cell], key2[cell])) {
+				break;
+			}
+			heap[i] = c;
+			heapIndex[c] = i;
+			i = child;
+		}
+		heap[i] = cell;
+		heapIndex[cell] = i;
+	}
+}
@@ -0,0 +1,31 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+/**
+ * Something that decides what the player does next: a person at the keyboard, or a bot.
+ *
+ * {@link Main} asks one every frame (the keyboard) or every tick (a bot), and {@link HeadlessDriver} asks a bot every
+ * tick with no window at all. Bots should decide quickly: use the World's spatial queries (like
+ * {@link World#nearest}) instead of looking through every item.
+ */
+public interface PlayerController {
+	/**
+	 * Stay put, but let the world take a step (like pressing space).
+	 */
+	int SKIP = -1;
+	/**
+	 * Do nothing at all; the world doesn't step either.
+	 */
+	int WAIT = -2;
+
+	/**
+	 * What should the player do now?
+	 * @param game - the game being played.
+	 * @return a direction from {@link Moves}, {@link #SKIP} or {@link #WAIT}.
+	 */
+	int decide(FishGame game);
+}
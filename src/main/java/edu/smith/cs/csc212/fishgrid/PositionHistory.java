@@ -0,0 +1,136 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+/**
+ * The last few places a WorldObject has been, newest first, kept in a ring of ints.
+ *
+ * It replaces a {@code Deque<IntPoint>}, which made a new IntPoint (and a list node) on every single move. The ring
+ * starts small and doubles until it holds {@link WorldObject#NUM_RECENT_POSITIONS}; after that, adding a position
+ * just overwrites the oldest one. Most things (rocks, homes) only ever have the one position they were put at, so
+ * that one is kept in two ints and the ring isn't made until the second.
+ */
+public class PositionHistory {
+	/**
+	 * x and y of each position, side by side.
+	 */
+	private int[] ring;
+	/**
+	 * The first position, until there's a {@link #ring}.
+	 */
+	private int firstX, firstY;
+	/**
+	 * Where the newest position is (as a position number, not an index into {@link #ring}).
+	 */
+	private int newest = -1;
+	/**
+	 * How many positions we have.
+	 */
+	private int size;
+	/**
+	 * How many positions were ever added (so someone watching can tell what's new; see {@link Rewind}).
+	 */
+	private long added;
+
+	/**
+	 * Remember a new position (forgetting the oldest one, if we're full).
+	 * @param x - the x-tile.
+	 * @param y - the y-tile.
+	 */
+	public void add(int x, int y) {
+		added++;
+		if (ring == null) {
+			if (size == 0) {
+				firstX = x;
+				firstY = y;
+				newest = 0;
+				size = 1;
+				return;
+			}
+			grow(Math.min(2, WorldObject.NUM_RECENT_POSITIONS));
+		}
+		int capacity = ring.length / 2;
+		if (size == capacity && capacity < WorldObject.NUM_RECENT_POSITIONS) {
+			grow(Math.min(capacity * 2, WorldObject.NUM_RECENT_POSITIONS));
+			capacity = ring.length / 2;
+		}
+		newest = (newest + 1) % capacity;
+		ring[2 * newest] = x;
+		ring[2 * newest + 1] = y;
+		if (size < capacity) {
+			size++;
+		}
+	}
+
+	/**
+	 * Make room for more positions, keeping the ones we have in order.
+	 * @param capacity - how many positions to have room for.
+	 */
+	private void grow(int capacity) {
+		int[] bigger = new int[2 * capacity];
+		// Copy oldest first, so the newest ends up at position size-1.
+		for (int i=0; i<size; i++) {
+			bigger[2 * i] = getX(size - 1 - i);
+			bigger[2 * i + 1] = getY(size - 1 - i);
+		}
+		ring = bigger;
+		newest = size - 1;
+	}
+
+	/**
+	 * @return how many positions were ever added, including the ones we forgot.
+	 */
+	public long totalAdded() {
+		return added;
+	}
+
+	/**
+	 * @return how many positions we remember.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Which ring slot holds a position?
+	 * @param age - 0 for the newest position, 1 for the one before, and so on.
+	 * @return the slot.
+	 */
+	private int slot(int age) {
+		if (age < 0 || age >= size) {
+			throw new IndexOutOfBoundsException("Only " + size + " positions, asked for " + age);
+		}
+		if (ring == null) {
+			return 0;
+		}
+		int capacity = ring.length / 2;
+		return (newest - age + capacity) % capacity;
+	}
+
+	/**
+	 * @param age - 0 for the newest position, 1 for the one before, and so on.
+	 * @return the x-tile of that position.
+	 */
+	public int getX(int age) {
+		if (ring == null) {
+			slot(age);
+			return firstX;
+		}
+		return ring[2 * slot(age)];
+	}
+
+	/**
+	 * @param age - 0 for the newest position, 1 for the one before, and so on.
+	 * @return the y-tile of that position.
+	 */
+	public int getY(int age) {
+		if (ring == null) {
+			slot(age);
+			return firstY;
+		}
+		return ring[2 * slot(age) + 1];
+	}
+}
@@ -0,0 +1,37 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.util.Random;
+
+/**
+ * A bot that swims in a random open direction every turn.
+ */
+public class RandomBot implements PlayerController {
+	/**
+	 * Where this bot gets its randomness.
+	 */
+	private final Random rand;
+
+	/**
+	 * Make a random bot.
+	 * @param rand - where to get randomness (seed it to replay a run).
+	 */
+	public RandomBot(Random rand) {
+		this.rand = rand;
+	}
+
+	@Override
+	public int decide(FishGame game) {
+		int direction = Moves.pickUniform(game.world.validMoves(game.player, Moves.CARDINAL), rand);
+		return direction < 0 ? SKIP : direction;
+	}
+
+	@Override
+	public String toString() {
+		return "Random bot";
+	}
+}
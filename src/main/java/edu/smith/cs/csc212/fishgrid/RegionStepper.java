@@ -0,0 +1,588 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Steps the objects that run themselves (see {@link World#stepAll()}) on several threads, for very big oceans.
+ *
+ * The grid is cut into square regions. At the start of a tick, every object that runs itself is put in the bucket of
+ * the region it stands in (a counting sort, split between the threads, that keeps the world's order within each
+ * bucket, so objects are visited in about the order they sit in memory). Then each region steps its bucket.
+ *
+ * An object only ever looks at (and swims into) the cells right next to it, so a region touches its own cells plus a
+ * ring of one cell around them: its halo. The regions are colored like a checkerboard with four colors, so two regions
+ * of the same color never share a cell, even counting halos; each tick runs the four colors one after the other, and
+ * all the regions of one color at once. While a region runs, its neighbors are idle, so the halo can be read and
+ * written in place; there is nothing to copy back and forth. An object that swims into another region is just linked
+ * into the new cell; it was bucketed by where it started, so it isn't stepped twice.
+ *
+ * What several regions share is kept on the side by each region and applied at the end of the tick, one region at a
+ * time, in order: the world's counts of used cells, the broad-phase list, and the events for {@link WorldListener}s
+ * (which run on one thread, so a world with busy listeners won't speed up as much). So the game comes out the same
+ * however many threads there are (though not the same as {@link World#stepAll()}, which steps in a different order).
+ *
+ * Objects that step themselves must only move themselves, and must not use the world's Random (snails and falling
+ * rocks don't). Objects off of the grid are stepped on one thread, after the regions.
+ *
+ * A stepper can also own just a band of a world's rows (the rest is a copy of its neighbors' edges, kept up to date by
+ * {@link BandServer}); then it steps one color at a time, with {@link #prepare()}, {@link #stepColor(int)} and
+ * {@link #finish()}, so the neighbors can trade edges in between.
+ */
+public class RegionStepper {
+	/**
+	 * What one region keeps on the side while it steps.
+	 */
+	static class Region {
+		/**
+		 * Where this region is in the stepper's list of regions (and which bucket of movers is its).
+		 */
+		final int number;
+		/**
+		 * The region's cells: x0 &lt;= x &lt; x1, y0 &lt;= y &lt; y1.
+		 */
+		final int x0, y0, x1, y1;
+		/**
+		 * How many more cells are used in each row of the region and its halo (index 0 is the row above it).
+		 */
+		final int[] usedChange;
+		/**
+		 * Cells that gained a second object (for {@link World#broadPhase()}).
+		 */
+		int[] crowded = new int[16];
+		/**
+		 * How many entries of {@link #crowded} are used.
+		 */
+		int numCrowded;
+		/**
+		 * What moved, for the listeners.
+		 */
+		WorldObject[] moved = new WorldObject[16];
+		/**
+		 * Where each thing in {@link #moved} came from: x and y side by side.
+		 */
+		int[] movedFrom = new int[32];
+		/**
+		 * How many entries of {@link #moved} are used.
+		 */
+		int numMoved;
+		/**
+		 * What changed without moving (see {@link World#changed}), for the listeners.
+		 */
+		WorldObject[] changed = new WorldObject[16];
+		/**
+		 * How many entries of {@link #changed} are used.
+		 */
+		int numChanged;
+
+		Region(int number, int x0, int y0, int x1, int y1) {
+			this.number = number;
+			this.x0 = x0;
+			this.y0 = y0;
+			this.x1 = x1;
+			this.y1 = y1;
+			this.usedChange = new int[y1 - y0 + 2];
+		}
+
+		/**
+		 * A cell in a row was filled (+1) or emptied (-1).
+		 */
+		void used(int row, int change) {
+			usedChange[row - y0 + 1] += change;
+		}
+
+		/**
+		 * A cell gained a second object.
+		 */
+		void crowded(int cell) {
+			if (numCrowded == crowded.length) {
+				crowded = Arrays.copyOf(crowded, numCrowded * 2);
+			}
+			crowded[numCrowded++] = cell;
+		}
+
+		/**
+		 * Something moved.
+		 */
+		void moved(WorldObject item, int fromX, int fromY) {
+			if (numMoved == moved.length) {
+				moved = Arrays.copyOf(moved, numMoved * 2);
+				movedFrom = Arrays.copyOf(movedFrom, numMoved * 4);
+			}
+			movedFrom[2 * numMoved] = fromX;
+			movedFrom[2 * numMoved + 1] = fromY;
+			moved[numMoved++] = item;
+		}
+
+		/**
+		 * Something changed without moving.
+		 */
+		void changed(WorldObject item) {
+			if (numChanged == changed.length) {
+				changed = Arrays.copyOf(changed, numChanged * 2);
+			}
+			changed[numChanged++] = item;
+		}
+
+		/**
+		 * Apply everything kept on the side to the world, and start over.
+		 */
+		void flush(World world) {
+			for (int i=0; i<usedChange.length; i++) {
+				if (usedChange[i] != 0) {
+					world.addUsed(y0 - 1 + i, usedChange[i]);
+					usedChange[i] = 0;
+				}
+			}
+			for (int i=0; i<numCrowded; i++) {
+				world.addCrowded(crowded[i]);
+			}
+			numCrowded = 0;
+			for (int i=0; i<numMoved; i++) {
+				world.fireMoved(moved[i], movedFrom[2 * i], movedFrom[2 * i + 1]);
+				moved[i] = null;
+			}
+			numMoved = 0;
+			for (int i=0; i<numChanged; i++) {
+				world.fireChanged(changed[i]);
+				changed[i] = null;
+			}
+			numChanged = 0;
+		}
+	}
+
+	/**
+	 * The world we step.
+	 */
+	private final World world;
+	/**
+	 * Every region, row by row.
+	 */
+	private final Region[] regions;
+	/**
+	 * The regions of each of the four colors.
+	 */
+	private final Region[][] colors = new Region[4][];
+	/**
+	 * How many regions across.
+	 */
+	private final int wide;
+	/**
+	 * How wide and tall each region is.
+	 */
+	private final int regionSize;
+	/**
+	 * The rows this stepper owns: firstRow &lt;= y &lt; endRow (movers outside them are left alone).
+	 */
+	private final int firstRow, endRow;
+	/**
+	 * Whether each region steps its movers by kind and then id, instead of the world's order (which depends on the
+	 * order things were added in, and so on how the world was split up).
+	 */
+	private final boolean canonical;
+	/**
+	 * The order {@link #canonical} regions step in.
+	 */
+	static final Comparator<WorldObject> KIND_THEN_ID = (a, b) -> {
+		int byKind = Integer.compare(a.getKind().ordinal(), b.getKind().ordinal());
+		return byKind != 0 ? byKind : Integer.compare(a.id, b.id);
+	};
+	/**
+	 * The world's lists of the kinds that run themselves (they stay up to date).
+	 */
+	private final List<List<WorldObject>> movers = new ArrayList<>();
+	/**
+	 * How many movers come before each list of {@link #movers}, this tick.
+	 */
+	private final int[] moverBase;
+	/**
+	 * How many movers there are this tick.
+	 */
+	private int numMovers;
+	/**
+	 * Which bucket each mover goes in: a region's number, {@link #offGrid()}, or {@link #skipped()}.
+	 */
+	private int[] bucketOf = new int[0];
+	/**
+	 * The movers sorted by bucket: bucket b is {@code sorted[bucketStart[b]]} up to {@code sorted[bucketStart[b+1]]}.
+	 */
+	private WorldObject[] sorted = new WorldObject[0];
+	/**
+	 * Where each bucket starts in {@link #sorted}.
+	 */
+	private final int[] bucketStart;
+	/**
+	 * For each thread, how many of its movers go in each bucket (then, where it writes the next one).
+	 */
+	private final int[][] counts;
+	/**
+	 * Runs the regions (null if there's only one thread).
+	 */
+	private final ExecutorService pool;
+	/**
+	 * One task per thread, each doing its part of the current {@link #stage}.
+	 */
+	private final List<Callable<Void>> workers = new ArrayList<>();
+	/**
+	 * What the workers are doing: {@link #COUNT}, {@link #PLACE} or {@link #STEP}.
+	 */
+	private int stage;
+	/**
+	 * Stage: count how many of a thread's share of the movers go in each bucket.
+	 */
+	private static final int COUNT = 0;
+	/**
+	 * Stage: put a thread's share of the movers in their buckets.
+	 */
+	private static final int PLACE = 1;
+	/**
+	 * Stage: take regions of the current color and step them, until there are none left.
+	 */
+	private static final int STEP = 2;
+	/**
+	 * The color being stepped.
+	 */
+	private Region[] phase;
+	/**
+	 * The next region of {@link #phase} that nobody has taken.
+	 */
+	private final AtomicInteger nextRegion = new AtomicInteger();
+
+	/**
+	 * Get ready to step a world in regions.
+	 * @param world - the world.
+	 * @param regionSize - how wide and tall each region is (at least 2, so that regions of a color never share a halo).
+	 * @param threads - how many threads step regions (1 steps them on the caller's thread).
+	 */
+	public RegionStepper(World world, int regionSize, int threads) {
+		this(world, regionSize, threads, 0, world.getHeight(), 0, false);
+	}
+
+	/**
+	 * Get ready to step a band of a world's rows in regions.
+	 * @param world - the world.
+	 * @param regionSize - how wide and tall each region is (at least 2).
+	 * @param threads - how many threads step regions.
+	 * @param firstRow - the first row this stepper owns.
+	 * @param endRow - one past the last row it owns.
+	 * @param globalFirstRow - which row of the whole ocean firstRow is (a multiple of regionSize, so regions and their
+	 *        colors line up with every other band's).
+	 * @param canonical - step each region's movers by kind and then id (see {@link #KIND_THEN_ID}).
+	 */
+	RegionStepper(World world, int regionSize, int threads, int firstRow, int endRow, int globalFirstRow,
+			boolean canonical) {
+		if (regionSize < 2) {
+			throw new IllegalArgumentException("Regions must be at least 2 cells across, not " + regionSize);
+		}
+		if (globalFirstRow % regionSize != 0) {
+			throw new IllegalArgumentException("A band has to start on a row of regions, not at row " + globalFirstRow);
+		}
+		this.world = world;
+		this.regionSize = regionSize;
+		this.firstRow = firstRow;
+		this.endRow = endRow;
+		this.canonical = canonical;
+		this.wide = (world.getWidth() + regionSize - 1) / regionSize;
+		int tall = (endRow - firstRow + regionSize - 1) / regionSize;
+		this.regions = new Region[wide * tall];
+		List<List<Region>> byColor = new ArrayList<>();
+		for (int c=0; c<4; c++) {
+			byColor.add(new ArrayList<>());
+		}
+		for (int ry=0; ry<tall; ry++) {
+			for (int rx=0; rx<wide; rx++) {
+				Region r = new Region(ry * wide + rx, rx * regionSize, firstRow + ry * regionSize,
+						Math.min(world.getWidth(), (rx + 1) * regionSize), Math.min(endRow, firstRow + (ry + 1) * regionSize));
+				regions[r.number] = r;
+				int globalRy = globalFirstRow / regionSize + ry;
+				byColor.get((rx & 1) | ((globalRy & 1) << 1)).add(r);
+			}
+		}
+		for (int c=0; c<4; c++) {
+			colors[c] = byColor.get(c).toArray(new Region[0]);
+		}
+		for (Kind kind : Kind.ALL) {
+			if (kind.stepsItself) {
+				movers.add(world.viewKind(kind));
+			}
+		}
+		this.moverBase = new int[movers.size()];
+		// Two more buckets than regions: one for movers off of the grid, one for movers removed this tick.
+		this.bucketStart = new int[regions.length + 3];
+		threads = Math.max(1, threads);
+		this.counts = new int[threads][regions.length + 2];
+		this.pool = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+		for (int t=0; t<threads; t++) {
+			final int me = t;
+			workers.add(() -> {
+				work(me);
+				return null;
+			});
+		}
+	}
+
+	/**
+	 * @return the bucket of movers that are off of the grid.
+	 */
+	private int offGrid() {
+		return regions.length;
+	}
+
+	/**
+	 * @return the bucket of movers that were removed earlier this tick, or that are in rows we don't own (they aren't
+	 *         stepped).
+	 */
+	private int skipped() {
+		return regions.length + 1;
+	}
+
+	/**
+	 * Step everything that runs itself, once, like {@link World#stepAll()}.
+	 */
+	public void stepAll() {
+		prepare();
+		for (int c=0; c<4; c++) {
+			stepColor(c);
+		}
+		finish();
+	}
+
+	/**
+	 * Start a tick: sort the movers into buckets by where they stand now.
+	 */
+	void prepare() {
+		numMovers = 0;
+		for (int k=0; k<movers.size(); k++) {
+			moverBase[k] = numMovers;
+			numMovers += movers.get(k).size();
+		}
+		if (sorted.length < numMovers) {
+			sorted = new WorldObject[numMovers + numMovers / 4];
+			bucketOf = new int[sorted.length];
+		}
+		
+		// Sort the movers into buckets: count, add up where each thread writes, then place.
+		runStage(COUNT);
+		int at = 0;
+		for (int b=0; b<=skipped(); b++) {
+			bucketStart[b] = at;
+			for (int t=0; t<counts.length; t++) {
+				int n = counts[t][b];
+				counts[t][b] = at;
+				at += n;
+			}
+		}
+		bucketStart[skipped() + 1] = at;
+		runStage(PLACE);
+	}
+
+	/**
+	 * Step every region of one color (each tick steps colors 0 to 3, in order).
+	 * @param color - which color.
+	 */
+	void stepColor(int color) {
+		phase = colors[color];
+		nextRegion.set(0);
+		runStage(STEP);
+	}
+
+	/**
+	 * End a tick: now that only one thread is looking, put together what the regions kept on the side.
+	 */
+	void finish() {
+		for (Region r : regions) {
+			r.flush(world);
+		}
+		for (int i=bucketStart[offGrid()]; i<bucketStart[offGrid() + 1]; i++) {
+			sorted[i].step();
+		}
+	}
+
+	/**
+	 * Run a stage on every thread, and wait for them.
+	 * @param stage - {@link #COUNT}, {@link #PLACE} or {@link #STEP}.
+	 */
+	private void runStage(int stage) {
+		this.stage = stage;
+		if (pool == null) {
+			work(0);
+			return;
+		}
+		try {
+			for (Future<Void> f : pool.invokeAll(workers)) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while stepping", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A region crashed while stepping", e.getCause());
+		}
+	}
+
+	/**
+	 * One thread's part of the current {@link #stage}.
+	 * @param me - which thread.
+	 */
+	private void work(int me) {
+		if (stage == STEP) {
+			for (int i; (i = nextRegion.getAndIncrement()) < phase.length; ) {
+				step(phase[i]);
+			}
+			return;
+		}
+		// Each thread sorts its own share of the movers, taken in order, so the buckets come out in the world's order.
+		int from = (int) ((long) numMovers * me / counts.length);
+		int to = (int) ((long) numMovers * (me + 1) / counts.length);
+		int[] mine = counts[me];
+		if (stage == COUNT) {
+			Arrays.fill(mine, 0);
+		}
+		int k = 0;
+		while (k + 1 < movers.size() && moverBase[k + 1] <= from) {
+			k++;
+		}
+		List<WorldObject> list = movers.get(k);
+		for (int i=from; i<to; i++) {
+			while (i - moverBase[k] >= list.size()) {
+				list = movers.get(++k);
+			}
+			if (stage == COUNT) {
+				int b = bucketFor(list.get(i - moverBase[k]));
+				bucketOf[i] = b;
+				mine[b]++;
+			} else {
+				sorted[mine[bucketOf[i]]++] = list.get(i - moverBase[k]);
+			}
+		}
+	}
+
+	/**
+	 * Which bucket does a mover go in?
+	 * @param it - the mover.
+	 * @return the number of the region it stands in, {@link #offGrid()} or {@link #skipped()}.
+	 */
+	private int bucketFor(WorldObject it) {
+		if (it.pending == WorldObject.REMOVING) {
+			return skipped();
+		}
+		if (world.cellOf(it.getX(), it.getY()) < 0) {
+			return offGrid();
+		}
+		if (it.getY() < firstRow || it.getY() >= endRow) {
+			return skipped();
+		}
+		return ((it.getY() - firstRow) / regionSize) * wide + it.getX() / regionSize;
+	}
+
+	/**
+	 * Step one region's bucket of movers.
+	 * @param r - the region.
+	 */
+	private void step(Region r) {
+		if (canonical) {
+			Arrays.sort(sorted, bucketStart[r.number], bucketStart[r.number + 1], KIND_THEN_ID);
+		}
+		for (int i=bucketStart[r.number]; i<bucketStart[r.number + 1]; i++) {
+			WorldObject it = sorted[i];
+			it.steppingIn = r;
+			it.step();
+			it.steppingIn = null;
+		}
+	}
+
+	/**
+	 * Stop the threads.
+	 */
+	public void close() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Time stepping a big world of snails and falling rocks, and check that every thread count gets the same result.
+	 * (A whole FishGame would spend most of its time in its FlowField, which hears about every falling rock on one
+	 * thread; this measures just the stepping.)
+	 * @param args - [ticks [maxThreads [regionSize]]], plus any scenario flags (see {@link Scenario}).
+	 */
+	public static void main(String[] args) {
+		// A big, crowded ocean unless the flags say otherwise (later flags win).
+		List<String> flags = new ArrayList<>(Arrays.asList(
+				"--size=2000", "--snails=1000000", "--rocks=500000", "--fallingRockRatio=0.5", "--seed=7"));
+		List<String> plain = new ArrayList<>();
+		for (String arg : args) {
+			(arg.startsWith("--") ? flags : plain).add(arg);
+		}
+		int ticks = plain.size() > 0 ? Integer.parseInt(plain.get(0)) : 100;
+		int maxThreads = plain.size() > 1 ? Integer.parseInt(plain.get(1)) : Runtime.getRuntime().availableProcessors();
+		int regionSize = plain.size() > 2 ? Integer.parseInt(plain.get(2)) : 64;
+		Scenario scenario = Scenario.parse(flags.toArray(new String[0]));
+
+		long serial = run(scenario, ticks, 0, regionSize);
+		Long expected = null;
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			long hash = run(scenario, ticks, threads, regionSize);
+			if (expected != null && hash != expected) {
+				System.out.println("MISMATCH: " + threads + " threads ended up somewhere else.");
+				System.exit(1);
+			}
+			expected = hash;
+		}
+		System.out.printf("Same result on 1 to %d threads (serial stepAll: %s).%n",
+				maxThreads, serial == expected ? "same" : "different order, different result");
+	}
+
+	/**
+	 * Fill a new world with a scenario's rocks and snails (no game around it, so no listeners), and step it for a while.
+	 * @param threads - 0 for plain {@link World#stepAll()}.
+	 * @return a hash of where everything ended up.
+	 */
+	private static long run(Scenario scenario, int ticks, int threads, int regionSize) {
+		Random rand = scenario.newRandom();
+		World world = new World(scenario.width, scenario.height, rand);
+		List<WorldObject> everything = new ArrayList<>();
+		for (int i=0; i<scenario.rocks; i++) {
+			everything.add(rand.nextDouble() < scenario.fallingRockRatio ? new FallingRock(world) : new Rock(world));
+		}
+		for (int i=0; i<scenario.snails; i++) {
+			everything.add(new Snail(world));
+		}
+		world.insertAllRandomly(everything);
+		RegionStepper stepper = threads > 0 ? new RegionStepper(world, regionSize, threads) : null;
+		long movers = world.count(Kind.SNAIL) + world.count(Kind.FALLING_ROCK);
+		long start = System.nanoTime();
+		for (int t=0; t<ticks; t++) {
+			if (stepper != null) {
+				stepper.stepAll();
+			} else {
+				world.stepAll();
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		if (stepper != null) {
+			stepper.close();
+		}
+		long hash = 0;
+		for (WorldObject it : world.viewItems()) {
+			hash += StateEncoder.hash(it.getId(), it.getKind().ordinal(), 0, it.getX(), it.getY());
+		}
+		System.out.printf("%s: %d movers x %d ticks in %.2fs: %.1f M steps/s.%n",
+				threads > 0 ? threads + " threads" : "serial", movers, ticks, seconds, movers * ticks / seconds / 1e6);
+		return hash;
+	}
+}
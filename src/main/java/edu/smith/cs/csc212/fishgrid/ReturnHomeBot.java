@@ -0,0 +1,41 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.util.Random;
+
+/**
+ * A greedy bot that heads home as soon as it has a few fish following it, before it can lose them.
+ */
+public class ReturnHomeBot extends GreedyBot {
+	/**
+	 * Go home once this many fish are following.
+	 */
+	private final int carry;
+
+	/**
+	 * Make a bot that goes home when it carries enough fish.
+	 * @param carry - how many fish to collect before going home.
+	 * @param rand - where to get randomness (seed it to replay a run).
+	 */
+	public ReturnHomeBot(int carry, Random rand) {
+		super(rand);
+		this.carry = carry;
+	}
+
+	@Override
+	public int decide(FishGame game) {
+		if (game.found.size() >= carry) {
+			return swimHome(game);
+		}
+		return super.decide(game);
+	}
+
+	@Override
+	public String toString() {
+		return "Return-home bot (" + carry + ")";
+	}
+}
@@ -0,0 +1,636 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Remembers the last few ticks of a game, so it can go back to any of them (see {@link FishGame#rewind}).
+ *
+ * Copying the world every tick would cost as much as the world is big. Instead, what we know about each object lives
+ * in a persistent tree: a trie of 32-wide nodes, by id, whose leaves never change. A tick that changes a few objects
+ * copies just the nodes on the way to them; everything else is shared with the tick before. So a snapshot costs as
+ * much as what changed, and is just the root of the tree (plus the score, the lists of fish, the dice and the
+ * player's trail, which are shared the same way until they change).
+ *
+ * Going back picks a root from a ring of the last few, and then walks it next to the root we have now, skipping
+ * every branch the two share: only the objects that are different get put back.
+ *
+ * Most changes come from the world's events (as a {@link WorldListener}): a snail blinks as it moves, and tells the
+ * world when it turns around instead, so we only look at the snails that did something. The game tells us when a
+ * fish changes lists.
+ *
+ * Everything comes back as it was, down to the order of the world's lists (the order things step in) and the dice, so
+ * playing the same moves again plays the same game. The one thing that isn't kept is the order of things that share
+ * a cell, which only matters if the player lands on two missing fish at once (which one is found first).
+ */
+public class Rewind implements WorldListener {
+	/**
+	 * How many bits of an id each level of the trie uses (so 32 children per node).
+	 */
+	private static final int BITS = 5;
+	/**
+	 * The children of a node.
+	 */
+	private static final int WIDTH = 1 << BITS;
+	/**
+	 * The bits of an id that pick a child.
+	 */
+	private static final int MASK = WIDTH - 1;
+
+	/**
+	 * What we know about an object as of some tick. Never changes once made (a change makes a new one).
+	 */
+	static final class Saved {
+		/**
+		 * The object (the same one comes back, if it's put back into the world).
+		 */
+		final WorldObject it;
+		/**
+		 * Where it was.
+		 */
+		final int x, y;
+		/**
+		 * Where it was in the world's item list, and in the list of its kind.
+		 */
+		final int listIndex, kindIndex;
+		/**
+		 * Anything else about it that changes (see {@link Rewind#flagsOf}).
+		 */
+		final int flags;
+
+		Saved(WorldObject it) {
+			this.it = it;
+			this.x = it.getX();
+			this.y = it.getY();
+			this.listIndex = it.listIndex;
+			this.kindIndex = it.kindIndex;
+			this.flags = flagsOf(it);
+		}
+	}
+
+	/**
+	 * A node of the trie: 32 children, which are Nodes, or {@link Saved} leaves at the bottom.
+	 */
+	static final class Node {
+		/**
+		 * Which tick made this node; only that tick may change it (before that tick's snapshot is taken).
+		 */
+		final long edit;
+		/**
+		 * The children (null for none).
+		 */
+		final Object[] kids;
+
+		Node(long edit, Object[] kids) {
+			this.edit = edit;
+			this.kids = kids;
+		}
+	}
+
+	/**
+	 * Where the player has been, newest first. Ticks share all but the positions added since.
+	 */
+	static final class Trail {
+		/**
+		 * One position.
+		 */
+		final int x, y;
+		/**
+		 * The one before, or null.
+		 */
+		final Trail older;
+		/**
+		 * How many positions from here back.
+		 */
+		final int length;
+
+		Trail(int x, int y, Trail older) {
+			this.x = x;
+			this.y = y;
+			this.older = older;
+			this.length = older == null ? 1 : older.length + 1;
+		}
+	}
+
+	/**
+	 * Everything about one tick of the game.
+	 */
+	static final class Snapshot {
+		/**
+		 * The trie, and how far its root's children are shifted.
+		 */
+		final Node root;
+		final int shift;
+		/**
+		 * The score and steps, and how many fish were found and lost so far.
+		 */
+		final int score, steps, fishFound, fishLost;
+		/**
+		 * The next id the world hands out.
+		 */
+		final int nextId;
+		/**
+		 * Where the dice were (if they can be rewound).
+		 */
+		final long dice;
+		/**
+		 * The three lists of fish, in order.
+		 */
+		final Fish[] missing, found, home;
+		/**
+		 * The game's newest heart and bubble.
+		 */
+		final Heart heart;
+		final Bubble bubble;
+		/**
+		 * Where the player had been.
+		 */
+		final Trail trail;
+
+		Snapshot(Rewind r) {
+			this.root = r.root;
+			this.shift = r.shift;
+			this.score = r.game.score;
+			this.steps = r.game.stepsTaken;
+			this.fishFound = r.game.fishFound;
+			this.fishLost = r.game.fishLost;
+			this.nextId = r.world.getNextId();
+			this.dice = r.dice != null ? r.dice.save() : 0;
+			this.missing = r.missing;
+			this.found = r.found;
+			this.home = r.home;
+			this.heart = r.game.heart;
+			this.bubble = r.game.bubble;
+			this.trail = r.trail;
+		}
+	}
+
+	/**
+	 * The game.
+	 */
+	private final FishGame game;
+	/**
+	 * Its world.
+	 */
+	private final World world;
+	/**
+	 * The world's item list (a view that keeps up).
+	 */
+	private final List<WorldObject> items;
+	/**
+	 * The game's dice, if they can be rewound (null if it's a plain Random; then a rewound game rolls new ones).
+	 */
+	private final GameRandom dice;
+	/**
+	 * The last few snapshots, oldest to {@link #newest} (around the ring).
+	 */
+	private final Snapshot[] ring;
+	/**
+	 * Where the newest snapshot is in {@link #ring}.
+	 */
+	private int newest;
+	/**
+	 * How many snapshots are in the ring.
+	 */
+	private int kept;
+	/**
+	 * The trie as of now, and how far its root's children are shifted.
+	 */
+	private Node root;
+	private int shift;
+	/**
+	 * Which tick we're on; nodes made this tick can be changed in place.
+	 */
+	private long edit = 1;
+	/**
+	 * The player's trail as of now.
+	 */
+	private Trail trail;
+	/**
+	 * How many positions the player's {@link PositionHistory} had ever had, as of {@link #trail}.
+	 */
+	private long trailSeen;
+	/**
+	 * The lists of fish as of the last snapshot (shared by every snapshot since they last changed).
+	 */
+	private Fish[] missing, found, home;
+	/**
+	 * Set when a fish changes lists, so the next snapshot copies them.
+	 */
+	private boolean listsChanged;
+	/**
+	 * True while we put a snapshot back (we make those changes ourselves, so we don't listen to them).
+	 */
+	private boolean restoring;
+	/**
+	 * The ids that differ between two tries (scratch for {@link #restore}).
+	 */
+	private int[] changed = new int[64];
+	private int numChanged;
+	/**
+	 * Objects that other objects' removal shuffled in the lists (scratch for {@link #restore}).
+	 */
+	private WorldObject[] shuffled = new WorldObject[16];
+	private int numShuffled;
+
+	/**
+	 * Start remembering a game (the first snapshot is the game as it is now).
+	 * @param game - the game (between ticks).
+	 * @param ticks - how many ticks back it can go.
+	 */
+	Rewind(FishGame game, int ticks) {
+		if (ticks < 1) {
+			throw new IllegalArgumentException("Can't keep " + ticks + " ticks");
+		}
+		this.game = game;
+		this.world = game.world;
+		this.items = world.viewItems();
+		this.dice = world.getRandom() instanceof GameRandom ? (GameRandom) world.getRandom() : null;
+		this.ring = new Snapshot[ticks + 1];
+		this.root = new Node(edit, new Object[WIDTH]);
+		for (int i=0; i<items.size(); i++) {
+			save(items.get(i));
+		}
+		PositionHistory history = game.player.recentPositions;
+		for (int age=history.size() - 1; age >= 0; age--) {
+			trail = new Trail(history.getX(age), history.getY(age), trail);
+		}
+		trailSeen = history.totalAdded();
+		copyLists();
+		world.addListener(this);
+		ring[0] = new Snapshot(this);
+		kept = 1;
+		edit++;
+	}
+
+	/**
+	 * The flags we keep for an object: which way a snail is going (1 for left) and whether its eyes are open (2), or
+	 * whether a fish is missing (1).
+	 * @param it - the object.
+	 * @return the flags.
+	 */
+	static int flagsOf(WorldObject it) {
+		if (it instanceof Snail) {
+			Snail snail = (Snail) it;
+			return (snail.movingLeft ? 1 : 0) | (snail.eyesOpen ? 2 : 0);
+		}
+		if (it instanceof Fish) {
+			return ((Fish) it).missing ? 1 : 0;
+		}
+		return 0;
+	}
+
+	/**
+	 * Put an object's flags back.
+	 * @param it - the object.
+	 * @param flags - what {@link #flagsOf} said.
+	 */
+	private static void setFlags(WorldObject it, int flags) {
+		if (it instanceof Snail) {
+			((Snail) it).movingLeft = (flags & 1) != 0;
+			((Snail) it).eyesOpen = (flags & 2) != 0;
+		} else if (it instanceof Fish) {
+			((Fish) it).missing = (flags & 1) != 0;
+		}
+	}
+
+	/**
+	 * @return how many ticks back we can go right now.
+	 */
+	public int available() {
+		return kept - 1;
+	}
+
+	/**
+	 * Remember an object as it is now.
+	 */
+	private void save(WorldObject it) {
+		put(it.id, new Saved(it));
+	}
+
+	/**
+	 * Change one leaf of the trie as of now, copying the nodes on the way to it (unless this tick already did).
+	 * @param id - the object's id.
+	 * @param value - what we know about it, or null if it's not in the world.
+	 */
+	private void put(int id, Saved value) {
+		while (((long) id >>> (shift + BITS)) != 0) {
+			// Too small for this id: add a level on top.
+			Object[] kids = new Object[WIDTH];
+			kids[0] = root;
+			root = new Node(edit, kids);
+			shift += BITS;
+		}
+		root = own(root);
+		Node node = root;
+		for (int s=shift; s>0; s-=BITS) {
+			int i = (id >>> s) & MASK;
+			Node child = (Node) node.kids[i];
+			child = child == null ? new Node(edit, new Object[WIDTH]) : own(child);
+			node.kids[i] = child;
+			node = child;
+		}
+		node.kids[id & MASK] = value;
+	}
+
+	/**
+	 * @return the node itself if this tick made it, or else a copy this tick can change.
+	 */
+	private Node own(Node node) {
+		return node.edit == edit ? node : new Node(edit, node.kids.clone());
+	}
+
+	/**
+	 * Look up an object in a trie.
+	 * @param root - the trie.
+	 * @param shift - how far its root's children are shifted.
+	 * @param id - the object's id.
+	 * @return what the trie knows about it, or null if it wasn't in the world.
+	 */
+	private static Saved get(Node root, int shift, int id) {
+		if (((long) id >>> (shift + BITS)) != 0) {
+			return null;
+		}
+		Node node = root;
+		for (int s=shift; s>0 && node != null; s-=BITS) {
+			node = (Node) node.kids[(id >>> s) & MASK];
+		}
+		return node == null ? null : (Saved) node.kids[id & MASK];
+	}
+
+	@Override
+	public void objectAdded(WorldObject item) {
+		if (!restoring) {
+			save(item);
+		}
+	}
+
+	@Override
+	public void objectMoved(WorldObject item, int fromX, int fromY) {
+		if (!restoring) {
+			save(item);
+		}
+	}
+
+	@Override
+	public void objectChanged(WorldObject item) {
+		if (!restoring) {
+			save(item);
+		}
+	}
+
+	@Override
+	public void objectRemoved(WorldObject item) {
+		if (restoring) {
+			return;
+		}
+		Saved was = get(root, shift, item.id);
+		put(item.id, null);
+		// The world filled its place in the lists with the last one of each; they have new places now.
+		if (was.listIndex < items.size()) {
+			save(items.get(was.listIndex));
+		}
+		List<WorldObject> sameKind = world.viewKind(item.getKind());
+		if (was.kindIndex < sameKind.size()) {
+			save(sameKind.get(was.kindIndex));
+		}
+	}
+
+	/**
+	 * A fish changed lists (see {@link FishGame#statusChanged}).
+	 * @param fish - the fish.
+	 */
+	void fishStatus(Fish fish) {
+		listsChanged = true;
+		if (fish.listIndex >= 0) {
+			save(fish);
+		}
+	}
+
+	/**
+	 * A tick (or click) was committed: take its snapshot.
+	 */
+	void tickCommitted() {
+		// Whatever the player added to their trail since.
+		PositionHistory history = game.player.recentPositions;
+		int fresh = (int) Math.min(history.totalAdded() - trailSeen, history.size());
+		for (int age=fresh - 1; age >= 0; age--) {
+			trail = new Trail(history.getX(age), history.getY(age), trail);
+		}
+		trailSeen = history.totalAdded();
+		if (trail != null && trail.length > 2 * WorldObject.NUM_RECENT_POSITIONS) {
+			// Only the newest few matter; start a new trail so the old end can be forgotten.
+			trail = copy(trail, WorldObject.NUM_RECENT_POSITIONS);
+		}
+		if (listsChanged) {
+			copyLists();
+		}
+
+		newest = (newest + 1) % ring.length;
+		ring[newest] = new Snapshot(this);
+		kept = Math.min(kept + 1, ring.length);
+		// Everything made so far belongs to a snapshot now.
+		edit++;
+	}
+
+	/**
+	 * @return the newest positions of a trail, as a new trail.
+	 */
+	static Trail copy(Trail from, int length) {
+		if (length == 0 || from == null) {
+			return null;
+		}
+		return new Trail(from.x, from.y, copy(from.older, length - 1));
+	}
+
+	/**
+	 * Remember the lists of fish as they are now.
+	 */
+	private void copyLists() {
+		missing = game.missing.toArray(new Fish[0]);
+		found = game.found.toArray(new Fish[0]);
+		home = game.fishhome.toArray(new Fish[0]);
+		listsChanged = false;
+	}
+
+	/**
+	 * Go back some ticks (forgetting the ones after).
+	 * @param ticks - how many.
+	 * @return how many we went back (no more than {@link #available()}).
+	 */
+	int rewind(int ticks) {
+		ticks = Math.min(ticks, available());
+		if (ticks <= 0) {
+			return 0;
+		}
+		int target = (newest - ticks + ring.length) % ring.length;
+		restore(ring[target]);
+		for (int i=0; i<ticks; i++) {
+			ring[newest] = null;
+			newest = (newest - 1 + ring.length) % ring.length;
+		}
+		kept -= ticks;
+		return ticks;
+	}
+
+	/**
+	 * Make the game what it was at a snapshot.
+	 * @param then - the snapshot.
+	 */
+	private void restore(Snapshot then) {
+		restoring = true;
+		numChanged = 0;
+		diff(root, shift, then.root, then.shift);
+
+		// Take out whatever wasn't there then (the last ones in the lists fill their places).
+		numShuffled = 0;
+		for (int c=0; c<numChanged; c++) {
+			Saved now = get(root, shift, changed[c]);
+			if (now != null && get(then.root, then.shift, changed[c]) == null) {
+				shuffled(items.get(items.size() - 1));
+				List<WorldObject> sameKind = world.viewKind(now.it.getKind());
+				shuffled(sameKind.get(sameKind.size() - 1));
+				world.remove(now.it);
+			}
+		}
+		// Put everything else where it was, and back in, if it was gone.
+		for (int c=0; c<numChanged; c++) {
+			Saved was = get(then.root, then.shift, changed[c]);
+			if (was == null) {
+				continue;
+			}
+			WorldObject it = was.it;
+			if (it.getX() != was.x || it.getY() != was.y) {
+				it.setPosition(was.x, was.y);
+			}
+			if (flagsOf(it) != was.flags) {
+				setFlags(it, was.flags);
+				// So the journal hears that a snail is going the other way again (we don't listen while restoring).
+				world.changed(it);
+			}
+			if (get(root, shift, changed[c]) == null) {
+				world.register(it);
+			}
+		}
+		// And in the same order in the lists, since that's the order things step in.
+		for (int c=0; c<numChanged; c++) {
+			Saved was = get(then.root, then.shift, changed[c]);
+			if (was != null) {
+				world.putInLists(was.it, was.listIndex, was.kindIndex);
+			}
+		}
+		for (int s=0; s<numShuffled; s++) {
+			WorldObject it = shuffled[s];
+			shuffled[s] = null;
+			if (it.listIndex >= 0) {
+				Saved was = get(then.root, then.shift, it.id);
+				world.putInLists(it, was.listIndex, was.kindIndex);
+			}
+		}
+
+		game.score = then.score;
+		game.stepsTaken = then.steps;
+		game.fishFound = then.fishFound;
+		game.fishLost = then.fishLost;
+		world.setNextId(then.nextId);
+		if (dice != null) {
+			dice.restore(then.dice);
+		}
+		game.missing.clear();
+		game.missing.addAll(Arrays.asList(then.missing));
+		game.found.clear();
+		game.found.addAll(Arrays.asList(then.found));
+		game.fishhome.clear();
+		game.fishhome.addAll(Arrays.asList(then.home));
+		game.heart = then.heart;
+		game.bubble = then.bubble;
+
+		// The player's trail (putting things back added to it, so start over).
+		PositionHistory history = new PositionHistory();
+		int length = then.trail == null ? 0 : Math.min(then.trail.length, WorldObject.NUM_RECENT_POSITIONS);
+		int[] xy = new int[2 * length];
+		Trail t = then.trail;
+		for (int i=0; i<length; i++, t = t.older) {
+			xy[2 * i] = t.x;
+			xy[2 * i + 1] = t.y;
+		}
+		for (int i=length - 1; i >= 0; i--) {
+			history.add(xy[2 * i], xy[2 * i + 1]);
+		}
+		game.player.recentPositions = history;
+		trail = then.trail;
+		trailSeen = history.totalAdded();
+
+		missing = then.missing;
+		found = then.found;
+		home = then.home;
+		listsChanged = false;
+		root = then.root;
+		shift = then.shift;
+		// Nothing of the snapshot's may change from here on.
+		edit++;
+		restoring = false;
+	}
+
+	/**
+	 * Remember an object whose place in the lists is about to change.
+	 */
+	private void shuffled(WorldObject it) {
+		if (numShuffled == shuffled.length) {
+			shuffled = Arrays.copyOf(shuffled, numShuffled * 2);
+		}
+		shuffled[numShuffled++] = it;
+	}
+
+	/**
+	 * Find every id whose leaf is different in two tries (into {@link #changed}), skipping every branch they share.
+	 */
+	private void diff(Node a, int aShift, Node b, int bShift) {
+		// Give the smaller one levels on top, so they line up.
+		while (aShift < bShift) {
+			a = above(a);
+			aShift += BITS;
+		}
+		while (bShift < aShift) {
+			b = above(b);
+			bShift += BITS;
+		}
+		diff(a, b, aShift, 0);
+	}
+
+	/**
+	 * @return a node (that nobody will change) with just this one as its first child.
+	 */
+	private static Node above(Node node) {
+		Object[] kids = new Object[WIDTH];
+		kids[0] = node;
+		return new Node(0, kids);
+	}
+
+	private void diff(Node a, Node b, int shift, int base) {
+		if (a == b) {
+			return;
+		}
+		for (int i=0; i<WIDTH; i++) {
+			Object x = a == null ? null : a.kids[i];
+			Object y = b == null ? null : b.kids[i];
+			if (x == y) {
+				continue;
+			}
+			int id = base | (i << shift);
+			if (shift > 0) {
+				diff((Node) x, (Node) y, shift - BITS, id);
+			} else {
+				if (numChanged == changed.length) {
+					changed = Arrays.copyOf(changed, numChanged * 2);
+				}
+				changed[numChanged++] = id;
+			}
+		}
+	}
+}
@@ -53,6 +53,11 @@ public class Rock extends WorldObject {
 		g.fill(rock);
 	}
 
+	@Override
+	public Kind getKind() {
+		return Kind.ROCK;
+	}
+
 	@Override
 	public void step() {
 		// Rocks don't actually *do* anything.		
@@ -0,0 +1,223 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Everything about a FishGame that used to be hard-coded: how big the grid is, how many of each thing there is,
+ * and how likely things are to show up. The defaults are the classic 10x10 game.
+ *
+ * A scenario can come from a properties file, from command-line flags like {@code --width=1000}, or both
+ * ({@code --scenario=file.properties} is read first, and the other flags win).
+ */
+public class Scenario {
+	/**
+	 * How wide the grid is.
+	 */
+	int width = Main.LOGICAL_GRID_SIZE;
+	/**
+	 * How tall the grid is.
+	 */
+	int height = Main.LOGICAL_GRID_SIZE;
+	/**
+	 * How many rocks (of both sorts) to start with.
+	 */
+	int rocks = 10;
+	/**
+	 * How many of the rocks fall (the rest stay put).
+	 */
+	double fallingRockRatio = 0.5;
+	/**
+	 * How many snails.
+	 */
+	int snails = 2;
+	/**
+	 * How many fish are missing at the start (their colors repeat if there are more fish than colors).
+	 */
+	int fish = Fish.COLORS.length - 1;
+	/**
+	 * How many hearts to start with.
+	 */
+	int hearts = 1;
+	/**
+	 * How many bubbles to start with.
+	 */
+	int bubbles = 1;
+	/**
+	 * The chance that a new heart shows up each step.
+	 */
+	double heartChance = 0.02;
+	/**
+	 * The chance that a new bubble shows up each step.
+	 */
+	double bubbleChance = 0.02;
+	/**
+	 * The seed for the game's randomness, or null for a different game every time.
+	 */
+	Long seed = null;
+	/**
+	 * A handmade map to play instead of a random one (see {@link Level}), or null; then the counts above are ignored.
+	 */
+	String level = null;
+
+	/**
+	 * The classic game.
+	 */
+	public Scenario() {
+	}
+
+	/**
+	 * The classic game, on a different size of grid.
+	 * @param width - how wide.
+	 * @param height - how tall.
+	 */
+	public Scenario(int width, int height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * @return a Random for a game of this scenario (seeded, if we have a seed; a {@link GameRandom}, so it can be rewound).
+	 */
+	public Random newRandom() {
+		return seed == null ? new GameRandom() : new GameRandom(seed);
+	}
+
+	/**
+	 * Set one setting by name.
+	 * @param key - e.g. "rocks" (or "size" for both width and height).
+	 * @param value - the value, as text.
+	 * @throws IllegalArgumentException if the key is unknown or the value doesn't make sense.
+	 */
+	public void set(String key, String value) {
+		value = value.trim();
+		switch (key) {
+		case "size":
+			width = height = Integer.parseInt(value);
+			break;
+		case "width":
+			width = Integer.parseInt(value);
+			break;
+		case "height":
+			height = Integer.parseInt(value);
+			break;
+		case "rocks":
+			rocks = Integer.parseInt(value);
+			break;
+		case "fallingRockRatio":
+			fallingRockRatio = Double.parseDouble(value);
+			break;
+		case "snails":
+			snails = Integer.parseInt(value);
+			break;
+		case "fish":
+			fish = Integer.parseInt(value);
+			break;
+		case "hearts":
+			hearts = Integer.parseInt(value);
+			break;
+		case "bubbles":
+			bubbles = Integer.parseInt(value);
+			break;
+		case "heartChance":
+			heartChance = Double.parseDouble(value);
+			break;
+		case "bubbleChance":
+			bubbleChance = Double.parseDouble(value);
+			break;
+		case "seed":
+			seed = Long.parseLong(value);
+			break;
+		case "level":
+			level = value;
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown scenario setting: " + key);
+		}
+		if (width < 1 || height < 1) {
+			throw new IllegalArgumentException("The grid must be at least 1x1.");
+		}
+	}
+
+	/**
+	 * Copy every setting found in some properties.
+	 * @param props - e.g. loaded from a file.
+	 */
+	public void setAll(Properties props) {
+		for (String key : props.stringPropertyNames()) {
+			set(key, props.getProperty(key));
+		}
+	}
+
+	/**
+	 * Read a scenario file (a Java properties file, like "rocks = 5000").
+	 * @param path - the file.
+	 * @return the scenario (defaults for anything the file doesn't mention).
+	 * @throws IOException if the file can't be read.
+	 */
+	public static Scenario load(String path) throws IOException {
+		Properties props = new Properties();
+		try (Reader in = new FileReader(path)) {
+			props.load(in);
+		}
+		Scenario s = new Scenario();
+		s.setAll(props);
+		return s;
+	}
+
+	/**
+	 * Build a scenario from command-line flags; arguments that don't start with "--" are left for the caller.
+	 * @param args - e.g. {"--scenario=big.properties", "--rocks=100"}.
+	 * @return the scenario.
+	 * @throws IllegalArgumentException if a flag is unknown or the file can't be read.
+	 */
+	public static Scenario parse(String[] args) {
+		Scenario s = new Scenario();
+		for (String arg : args) {
+			if (arg.startsWith("--scenario=")) {
+				try {
+					s = load(arg.substring("--scenario=".length()));
+				} catch (IOException e) {
+					throw new IllegalArgumentException("Couldn't read " + arg, e);
+				}
+			}
+		}
+		for (String arg : args) {
+			if (!arg.startsWith("--") || arg.startsWith("--scenario=")) {
+				continue;
+			}
+			int eq = arg.indexOf('=');
+			if (eq < 0) {
+				throw new IllegalArgumentException("Expected --key=value, got " + arg);
+			}
+			s.set(arg.substring(2, eq), arg.substring(eq + 1));
+		}
+		return s;
+	}
+
+	@Override
+	public String toString() {
+		return width + "x" + height + " with " + rocks + " rocks (" + fallingRockRatio + " falling), " + snails
+				+ " snails, " + fish + " fish, " + hearts + " hearts, " + bubbles + " bubbles";
+	}
+
+	/**
+	 * Build a game from flags and say how long it took (handy for checking huge scenarios).
+	 * @param args - scenario flags.
+	 */
+	public static void main(String[] args) {
+		Scenario s = parse(args);
+		long start = System.nanoTime();
+		FishGame game = new FishGame(s);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%s: %d objects in %.3fs.%n", s, game.world.viewItems().size(), seconds);
+	}
+}
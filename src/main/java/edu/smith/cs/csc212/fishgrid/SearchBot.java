@@ -0,0 +1,352 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bot that looks ahead before every move: it tries moves out on {@link GameFork}s of the game and plays the one
+ * that worked out best (Monte Carlo tree search, with UCT to pick which moves to try next).
+ *
+ * Every try starts at the top of a tree of moves, walks down it picking promising moves (and sometimes untried ones),
+ * adds one new move at the bottom, then plays on from there for a while with a quick chasing policy, and credits
+ * every move on the way down with how well that went: fish found and brought home, winning, and a little for points
+ * (hearts are worth so much that a bot going by points alone would hunt hearts forever and never finish), counting
+ * what happens sooner for more. Each node keeps a fork of the game after its move, so a try only plays the moves below the tree.
+ *
+ * With more than one thread, each thread grows its own tree from its own fork of the game (with its own dice), and the
+ * first moves' visits are added up at the end.
+ */
+public class SearchBot implements PlayerController {
+	/**
+	 * The moves we try: the four directions, then staying put.
+	 */
+	private static final int MOVES = Moves.CARDINAL + 1;
+	/**
+	 * What a try earns for each fish found (and still following), each fish brought home, winning, and each point.
+	 */
+	static final double FOUND_BONUS = 100, HOME_BONUS = 300, WIN_BONUS = 3000, POINT_BONUS = 0.1;
+	/**
+	 * What a try loses for each step between the player and home at the end, for each fish following (so a try that
+	 * got closer to home counts for something even if it didn't get there).
+	 */
+	static final double AWAY_PENALTY = 2;
+	/**
+	 * How much each turn of a try counts, compared to the turn before.
+	 */
+	static final double DISCOUNT = 0.95;
+	/**
+	 * How many fish to carry before the quick policy heads home (like {@link ReturnHomeBot}).
+	 */
+	static final int CARRY = 3;
+	/**
+	 * How much to favor moves we haven't tried much (times the spread of what tries have been worth).
+	 */
+	static final double EXPLORE = 0.7;
+
+	/**
+	 * Where this bot gets its randomness (each try gets its own dice from here).
+	 */
+	final Random rand;
+	/**
+	 * How many tries per move (split between the threads), and how many turns each try plays past the tree.
+	 */
+	final int playouts, horizon;
+	/**
+	 * Runs the trees, if there's more than one thread (null otherwise).
+	 */
+	private final ExecutorService pool;
+	/**
+	 * How many trees to grow.
+	 */
+	private final int threads;
+
+	/**
+	 * One move in the tree, and the game after it.
+	 */
+	private static final class Node {
+		/**
+		 * The game after this move (never played: forks are made from it).
+		 */
+		final GameFork state;
+		/**
+		 * The moves after this one, tried so far.
+		 */
+		final Node[] kids = new Node[MOVES];
+		/**
+		 * Which moves can be made from here (bits for the directions; staying put always can).
+		 */
+		final int open;
+		/**
+		 * How many tries went through here, and what they were worth in all.
+		 */
+		int visits;
+		double total;
+
+		Node(GameFork state) {
+			this.state = state;
+			this.open = state.validMoves() | 1 << Moves.CARDINAL;
+		}
+	}
+
+	/**
+	 * Make a search bot that thinks with every core.
+	 * @param rand - where to get randomness (seed it to replay a run, with one thread).
+	 */
+	public SearchBot(Random rand) {
+		this(rand, 600, 30, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Make a search bot.
+	 * @param rand - where to get randomness.
+	 * @param playouts - how many tries per move.
+	 * @param horizon - how many turns each try plays past the tree.
+	 * @param threads - how many trees to grow at once.
+	 */
+	public SearchBot(Random rand, int playouts, int horizon, int threads) {
+		this.rand = rand;
+		this.playouts = playouts;
+		this.horizon = horizon;
+		this.threads = Math.max(1, Math.min(threads, playouts));
+		if (this.threads > 1) {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(this.threads, this.threads, 1, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<>(), r -> {
+						Thread t = new Thread(r, "search");
+						// Don't keep the program alive just for a bot.
+						t.setDaemon(true);
+						return t;
+					});
+			// A bot that's been swapped out doesn't keep idle threads around.
+			pool.allowCoreThreadTimeOut(true);
+			this.pool = pool;
+		} else {
+			this.pool = null;
+		}
+	}
+
+	@Override
+	public int decide(FishGame game) {
+		GameFork now = GameFork.of(game);
+		if (now.gameOver()) {
+			return SKIP;
+		}
+		List<Callable<int[]>> trees = new ArrayList<>();
+		for (int t=0; t<threads; t++) {
+			GameFork start = now.fork(rand.nextLong());
+			Random dice = new Random(rand.nextLong());
+			int tries = playouts / threads + (t < playouts % threads ? 1 : 0);
+			trees.add(() -> grow(start, game.homeField, dice, tries));
+		}
+		int[] visits = new int[MOVES];
+		try {
+			if (pool == null) {
+				add(visits, trees.get(0).call());
+			} else {
+				for (Future<int[]> f : pool.invokeAll(trees)) {
+					add(visits, f.get());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return SKIP;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Search failed", e.getCause());
+		} catch (Exception e) {
+			throw new IllegalStateException("Search failed", e);
+		}
+		int best = Moves.CARDINAL;
+		for (int m=0; m<MOVES; m++) {
+			if (visits[m] > visits[best]) {
+				best = m;
+			}
+		}
+		return best == Moves.CARDINAL ? SKIP : best;
+	}
+
+	private static void add(int[] into, int[] visits) {
+		for (int m=0; m<MOVES; m++) {
+			into[m] += visits[m];
+		}
+	}
+
+	/**
+	 * Grow one tree.
+	 * @param start - the game now.
+	 * @param homeField - the way home (from the game; only read).
+	 * @param dice - this tree's randomness.
+	 * @param tries - how many tries.
+	 * @return how many tries went through each first move.
+	 */
+	private int[] grow(GameFork start, FlowField homeField, Random dice, int tries) {
+		Node root = new Node(start);
+		double[] spread = {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+		List<Node> path = new ArrayList<>();
+		for (int t=0; t<tries; t++) {
+			path.clear();
+			Node node = root;
+			path.add(node);
+			while (!node.state.gameOver()) {
+				int m = pick(node, spread, dice);
+				if (node.kids[m] == null) {
+					GameFork next = node.state.fork(dice.nextLong());
+					next.play(m == Moves.CARDINAL ? SKIP : m);
+					node.kids[m] = new Node(next);
+					path.add(node.kids[m]);
+					break;
+				}
+				node = node.kids[m];
+				path.add(node);
+			}
+			double worth = tryOut(path, homeField, dice);
+			spread[0] = Math.min(spread[0], worth);
+			spread[1] = Math.max(spread[1], worth);
+			for (int i=0; i<path.size(); i++) {
+				path.get(i).visits++;
+				path.get(i).total += worth;
+			}
+		}
+		int[] visits = new int[MOVES];
+		for (int m=0; m<MOVES; m++) {
+			if (root.kids[m] != null) {
+				visits[m] = root.kids[m].visits;
+			}
+		}
+		return visits;
+	}
+
+	/**
+	 * Pick a move from a node: any move not tried yet, or else the one with the best UCT score.
+	 */
+	private int pick(Node node, double[] spread, Random dice) {
+		int untried = 0;
+		for (int m=0; m<MOVES; m++) {
+			if ((node.open & 1 << m) != 0 && node.kids[m] == null) {
+				untried |= 1 << m;
+			}
+		}
+		if (untried != 0) {
+			return Moves.pickUniform(untried, dice);
+		}
+		double scale = EXPLORE * Math.max(1, spread[1] - spread[0]);
+		double log = Math.log(node.visits);
+		int best = -1;
+		double bestScore = 0;
+		for (int m=0; m<MOVES; m++) {
+			Node kid = node.kids[m];
+			if (kid == null) {
+				continue;
+			}
+			double score = kid.total / kid.visits + scale * Math.sqrt(log / kid.visits);
+			if (best < 0 || score > bestScore) {
+				best = m;
+				bestScore = score;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Add up what a try earned, turn by turn: down the path, then playing on past it with {@link #quickMove}. Each turn
+	 * counts a little less than the one before, so the same fish home sooner is worth more.
+	 * @param path - the nodes the try went through (from the root).
+	 * @param homeField - the way home.
+	 * @param dice - where to get randomness.
+	 * @return what it was worth.
+	 */
+	private double tryOut(List<Node> path, FlowField homeField, Random dice) {
+		double worth = 0;
+		double weight = 1;
+		double was = value(path.get(0).state, homeField);
+		for (int i=1; i<path.size(); i++) {
+			double now = value(path.get(i).state, homeField);
+			worth += weight * (now - was);
+			weight *= DISCOUNT;
+			was = now;
+		}
+		GameFork game = path.get(path.size() - 1).state.fork(dice.nextLong());
+		for (int t=0; t<horizon && !game.gameOver(); t++) {
+			game.play(quickMove(game, homeField, dice));
+			double now = value(game, homeField);
+			worth += weight * (now - was);
+			weight *= DISCOUNT;
+			was = now;
+		}
+		return worth;
+	}
+
+	/**
+	 * A move without looking ahead: mostly toward the closest missing fish (or down the home field when nobody's
+	 * missing, or we're carrying {@link #CARRY} fish), sometimes anywhere.
+	 * @param game - the game.
+	 * @param homeField - the way home.
+	 * @param dice - where to get randomness.
+	 * @return a direction, or {@link #SKIP}.
+	 */
+	private static int quickMove(GameFork game, FlowField homeField, Random dice) {
+		int open = game.validMoves();
+		int px = game.getPlayerX();
+		int py = game.getPlayerY();
+		int tx = game.getHomeX();
+		int ty = game.getHomeY();
+		int closest = Integer.MAX_VALUE;
+		for (int i=0; i<game.missingCount() && game.foundCount() < CARRY; i++) {
+			int f = game.missing(i);
+			int distance = Math.abs(game.fishX(f) - px) + Math.abs(game.fishY(f) - py);
+			if (distance < closest) {
+				closest = distance;
+				tx = game.fishX(f);
+				ty = game.fishY(f);
+			}
+		}
+		int closer = 0;
+		if (closest == Integer.MAX_VALUE) {
+			closer = homeField.downhill(px, py);
+		}
+		if (closer == 0) {
+			for (int d=0; d<Moves.CARDINAL; d++) {
+				int nx = px + Moves.DX[d];
+				int ny = py + Moves.DY[d];
+				if (Math.abs(tx - nx) + Math.abs(ty - ny) < Math.abs(tx - px) + Math.abs(ty - py)) {
+					closer |= 1 << d;
+				}
+			}
+		}
+		int d = dice.nextInt(4) == 0 ? -1 : Moves.pickUniform(open & closer, dice);
+		if (d < 0) {
+			d = Moves.pickUniform(open, dice);
+		}
+		return d < 0 ? SKIP : d;
+	}
+
+	/**
+	 * How good a game looks: fish found and home, a win, a little for points, and a little less for every step the
+	 * fish following us are from home.
+	 */
+	private static double value(GameFork game, FlowField homeField) {
+		int away = homeField.distance(game.getPlayerX(), game.getPlayerY());
+		if (away == FlowField.UNREACHABLE) {
+			away = Math.abs(game.getPlayerX() - game.getHomeX()) + Math.abs(game.getPlayerY() - game.getHomeY());
+		}
+		double value = FOUND_BONUS * game.foundCount() + HOME_BONUS * game.homeCount() + POINT_BONUS * game.getScore()
+				- AWAY_PENALTY * away * game.foundCount();
+		return game.gameOver() ? value + WIN_BONUS : value;
+	}
+
+	@Override
+	public String toString() {
+		return "Search bot";
+	}
+}
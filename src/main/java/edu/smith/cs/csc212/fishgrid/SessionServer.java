@@ -0,0 +1,442 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hosts many independent FishGames ({@link GameSession}s) in one JVM, for clients on this machine.
+ *
+ * Clients talk over a loopback socket, one text command per line:
+ * <ul>
+ * <li>{@code NEW} - answered with {@code NEW <id>}.</li>
+ * <li>{@code MOVE <id> UP|DOWN|LEFT|RIGHT|SKIP} or {@code CLICK <id> <x> <y>} - queued, and answered after the
+ * tick that plays it with {@code TICK <id> <steps> <score> <missing> <home>}.</li>
+ * <li>{@code WATCH <id>} - answered with a keyframe, and then a delta frame before every later {@code TICK}.
+ * Frames are binary: a line {@code FRAME <id> <length>} followed by that many bytes (see {@link StateEncoder}).</li>
+ * <li>{@code CLOSE <id>} - answered with {@code CLOSED <id>}; only the client that made a session can close it.</li>
+ * </ul>
+ * Anything else gets {@code ERR <why>}. A client that goes away closes every session it made.
+ *
+ * One thread handles all the sockets. A clock fires every {@link #tickMillis} and hands each session that has input
+ * waiting to a fixed pool of worker threads as one small task, so idle sessions cost nothing but memory.
+ */
+public class SessionServer {
+	/**
+	 * How wide and tall new games are.
+	 */
+	public static int GRID_SIZE = 10;
+	/**
+	 * How many frames between keyframes for watchers.
+	 */
+	public static int KEYFRAME_INTERVAL = 100;
+
+	/**
+	 * One client socket, and the lines waiting to be written to it.
+	 */
+	class Connection {
+		final SocketChannel channel;
+		final ByteBuffer in = ByteBuffer.allocate(4096);
+		final Queue<ByteBuffer> out = new ConcurrentLinkedQueue<>();
+		volatile boolean closed = false;
+		/**
+		 * The sessions this client made (only the socket thread touches this).
+		 */
+		final Set<Integer> owned = new HashSet<>();
+
+		Connection(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		/**
+		 * Send a line; safe to call from any thread.
+		 * @param line - the text, without the newline.
+		 */
+		synchronized void send(String line) {
+			out.add(ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8)));
+			writable.add(this);
+			selector.wakeup();
+		}
+
+		/**
+		 * Send a binary frame; safe to call from any thread. The frame's bytes are shared, not copied.
+		 * @param id - the session it describes.
+		 * @param frame - the frame.
+		 */
+		synchronized void sendFrame(int id, ByteBuffer frame) {
+			out.add(ByteBuffer.wrap(("FRAME " + id + " " + frame.remaining() + "\n").getBytes(StandardCharsets.UTF_8)));
+			out.add(frame.duplicate());
+			writable.add(this);
+			selector.wakeup();
+		}
+	}
+
+	/**
+	 * How often the clock ticks the sessions with input waiting.
+	 */
+	private final long tickMillis;
+	/**
+	 * Every open session, by id.
+	 */
+	private final Map<Integer, GameSession> sessions = new ConcurrentHashMap<>();
+	/**
+	 * Sessions with input waiting that the clock hasn't handed out yet.
+	 */
+	private final Queue<GameSession> ready = new ConcurrentLinkedQueue<>();
+	/**
+	 * Connections with lines waiting to be written.
+	 */
+	private final Queue<Connection> writable = new ConcurrentLinkedQueue<>();
+	/**
+	 * Where new session ids come from.
+	 */
+	private final AtomicInteger nextId = new AtomicInteger(1);
+	/**
+	 * The bounded pool that steps games.
+	 */
+	private final ExecutorService workers;
+	/**
+	 * The clock.
+	 */
+	private final ScheduledExecutorService clock = Executors.newSingleThreadScheduledExecutor();
+	/**
+	 * Watches every socket.
+	 */
+	private final Selector selector;
+	/**
+	 * Accepts new clients.
+	 */
+	private final ServerSocketChannel server;
+	/**
+	 * Cleared to stop the socket thread.
+	 */
+	private volatile boolean running = true;
+
+	/**
+	 * Open a server on the loopback address.
+	 * @param port - the port (0 picks a free one; see {@link #getPort()}).
+	 * @param threads - how many worker threads step games.
+	 * @param tickMillis - how often to tick.
+	 * @throws IOException if the socket can't be opened.
+	 */
+	public SessionServer(int port, int threads, long tickMillis) throws IOException {
+		this.tickMillis = tickMillis;
+		this.workers = Executors.newFixedThreadPool(threads);
+		this.selector = Selector.open();
+		this.server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/**
+	 * @return the port clients should connect to.
+	 */
+	public int getPort() {
+		return server.socket().getLocalPort();
+	}
+
+	/**
+	 * @return how many sessions are open.
+	 */
+	public int sessionCount() {
+		return sessions.size();
+	}
+
+	/**
+	 * Start the clock and the socket thread.
+	 */
+	public void start() {
+		clock.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+		Thread io = new Thread(this::serve, "SessionServer-io");
+		io.setDaemon(true);
+		io.start();
+	}
+
+	/**
+	 * Stop ticking and close every socket.
+	 */
+	public void stop() {
+		running = false;
+		clock.shutdownNow();
+		workers.shutdownNow();
+		selector.wakeup();
+	}
+
+	/**
+	 * Hand every session with input waiting to the workers.
+	 */
+	private void tick() {
+		// Only the sessions that were ready when the tick started; ones that re-queue themselves wait for the next tick.
+		for (int n = ready.size(); n > 0; n--) {
+			GameSession s = ready.poll();
+			if (s == null) {
+				break;
+			}
+			workers.execute(() -> play(s));
+		}
+	}
+
+	/**
+	 * Play one tick of a session (on a worker thread).
+	 * @param s - the session.
+	 */
+	private void play(GameSession s) {
+		GameSession.Input in = s.pending.poll();
+		if (in != null && !s.closed) {
+			try {
+				if (s.play(in)) {
+					in.replyTo.send("TICK " + s.id + " " + s.describe());
+				}
+			} catch (RuntimeException e) {
+				in.replyTo.send("ERR " + s.id + " " + e);
+			}
+		}
+		s.scheduled.set(false);
+		if (!s.pending.isEmpty() && !s.closed) {
+			schedule(s);
+		}
+	}
+
+	/**
+	 * Make sure a session with input waiting will get a tick.
+	 * @param s - the session.
+	 */
+	private void schedule(GameSession s) {
+		if (s.scheduled.compareAndSet(false, true)) {
+			ready.add(s);
+		}
+	}
+
+	/**
+	 * The socket thread: accept, read commands, and write answers.
+	 */
+	private void serve() {
+		try {
+			while (running) {
+				selector.select();
+				for (Connection c; (c = writable.poll()) != null; ) {
+					SelectionKey key = c.channel.keyFor(selector);
+					if (key != null && key.isValid()) {
+						key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+					}
+				}
+				for (SelectionKey key : selector.selectedKeys()) {
+					try {
+						if (!key.isValid()) {
+							continue;
+						}
+						if (key.isAcceptable()) {
+							SocketChannel ch = server.accept();
+							if (ch != null) {
+								ch.configureBlocking(false);
+								ch.register(selector, SelectionKey.OP_READ, new Connection(ch));
+							}
+							continue;
+						}
+						Connection c = (Connection) key.attachment();
+						if (key.isReadable()) {
+							read(c);
+						}
+						if (key.isValid() && key.isWritable()) {
+							write(key, c);
+						}
+					} catch (IOException e) {
+						if (key.attachment() != null) {
+							drop((Connection) key.attachment());
+						}
+						key.cancel();
+						key.channel().close();
+					}
+				}
+				selector.selectedKeys().clear();
+			}
+			selector.close();
+			server.close();
+		} catch (IOException e) {
+			throw new IllegalStateException("Session server stopped", e);
+		}
+	}
+
+	/**
+	 * A client went away: close every session it made, so their games don't stay around for nobody.
+	 * @param c - the client.
+	 */
+	private void drop(Connection c) {
+		c.closed = true;
+		for (int id : c.owned) {
+			GameSession s = sessions.remove(id);
+			if (s != null) {
+				s.close();
+			}
+		}
+		c.owned.clear();
+	}
+
+	/**
+	 * Read what a client sent, and handle every complete line.
+	 * @param c - the client.
+	 * @throws IOException if the socket broke (or was closed).
+	 */
+	private void read(Connection c) throws IOException {
+		if (c.channel.read(c.in) < 0) {
+			throw new IOException("closed");
+		}
+		c.in.flip();
+		int start = c.in.position();
+		for (int i = start; i < c.in.limit(); i++) {
+			if (c.in.get(i) == '\n') {
+				byte[] line = new byte[i - start];
+				c.in.get(line);
+				c.in.get();
+				handle(c, new String(line, StandardCharsets.UTF_8).trim());
+				start = i + 1;
+			}
+		}
+		c.in.compact();
+		if (!c.in.hasRemaining()) {
+			throw new IOException("line too long");
+		}
+	}
+
+	/**
+	 * Write as much as the socket will take.
+	 * @param key - the client's key.
+	 * @param c - the client.
+	 * @throws IOException if the socket broke.
+	 */
+	private void write(SelectionKey key, Connection c) throws IOException {
+		for (ByteBuffer b; (b = c.out.peek()) != null; ) {
+			c.channel.write(b);
+			if (b.hasRemaining()) {
+				return;
+			}
+			c.out.poll();
+		}
+		key.interestOps(SelectionKey.OP_READ);
+		if (!c.out.isEmpty()) {
+			// Something was added while we were finishing up.
+			writable.add(c);
+		}
+	}
+
+	/**
+	 * Handle one command line.
+	 * @param c - who sent it.
+	 * @param line - the command.
+	 */
+	private void handle(Connection c, String line) {
+		String[] parts = line.split(" ");
+		try {
+			switch (parts[0]) {
+			case "NEW": {
+				int id = nextId.getAndIncrement();
+				sessions.put(id, new GameSession(id, new FishGame(GRID_SIZE, GRID_SIZE)));
+				c.owned.add(id);
+				c.send("NEW " + id);
+				return;
+			}
+			case "MOVE":
+				queue(c, parts[1], new GameSession.Input(parseAction(parts[2]), 0, 0, c));
+				return;
+			case "WATCH":
+				queue(c, parts[1], new GameSession.Input(GameSession.WATCH, 0, 0, c));
+				return;
+			case "CLICK":
+				queue(c, parts[1], new GameSession.Input(GameSession.CLICK, Integer.parseInt(parts[2]), Integer.parseInt(parts[3]), c));
+				return;
+			case "CLOSE": {
+				int id = Integer.parseInt(parts[1]);
+				if (!c.owned.remove(id)) {
+					c.send("ERR not your session " + parts[1]);
+					return;
+				}
+				GameSession s = sessions.remove(id);
+				if (s != null) {
+					s.close();
+				}
+				c.send("CLOSED " + parts[1]);
+				return;
+			}
+			default:
+				c.send("ERR unknown command: " + parts[0]);
+			}
+		} catch (RuntimeException e) {
+			c.send("ERR bad command: " + line);
+		}
+	}
+
+	/**
+	 * Queue an input for a session.
+	 * @param c - who sent it.
+	 * @param id - the session id (as text).
+	 * @param in - the input.
+	 */
+	private void queue(Connection c, String id, GameSession.Input in) {
+		GameSession s = sessions.get(Integer.parseInt(id));
+		if (s == null) {
+			c.send("ERR no session " + id);
+			return;
+		}
+		s.pending.add(in);
+		schedule(s);
+	}
+
+	/**
+	 * Turn a direction name into one of {@link Moves} (or {@link PlayerController#SKIP}).
+	 * @param name - UP, DOWN, LEFT, RIGHT or SKIP.
+	 * @return the action.
+	 */
+	static int parseAction(String name) {
+		switch (name) {
+		case "UP":
+			return Moves.UP;
+		case "DOWN":
+			return Moves.DOWN;
+		case "LEFT":
+			return Moves.LEFT;
+		case "RIGHT":
+			return Moves.RIGHT;
+		case "SKIP":
+			return PlayerController.SKIP;
+		default:
+			throw new IllegalArgumentException(name);
+		}
+	}
+
+	/**
+	 * Run a server until the JVM is stopped.
+	 * @param args - [port [threads [tickMillis]]].
+	 * @throws IOException if the socket can't be opened.
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 7212;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		long tickMillis = args.length > 2 ? Long.parseLong(args[2]) : 50;
+		SessionServer s = new SessionServer(port, threads, tickMillis);
+		s.start();
+		System.out.println("FishGrid sessions on port " + s.getPort());
+	}
+}
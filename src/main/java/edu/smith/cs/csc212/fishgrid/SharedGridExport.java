@@ -0,0 +1,501 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Publishes a FishGame into a memory-mapped file every tick, so other processes on this machine (a trainer, a viewer)
+ * can read it straight out of memory, with no messages and no parsing.
+ *
+ * The file is little-endian and laid out as:
+ * <pre>
+ *   0  int   MAGIC
+ *   4  int   VERSION
+ *   8  long  generation (odd while a frame is being written)
+ *  16  int   width,  20 int height
+ *  24  int   steps,  28 int score
+ *  32  int   player x, 36 int player y
+ *  40  int   how many fish records follow the grid
+ *  44  ...   unused (0)
+ *  64  byte  one per cell, row by row, same bits as a {@link VectorEnv} observation
+ *  ..  then one 16-byte record per fish: int id, int x, int y, byte status, byte color, byte fastScare, byte 0
+ * </pre>
+ *
+ * Readers use the generation like a seqlock: read it, read what they need, read it again; if it was odd or changed,
+ * a frame was written in the middle, so try again (see {@link Reader}).
+ *
+ * The Java memory model says nothing about another process reading the same memory, so the ordering comes from CPU
+ * fences: the writer puts a store fence after making the generation odd and before making it even again, and the
+ * reader puts a load fence after its first read of the generation and before its second. Java 8's public API has no
+ * fences, but its sun.misc.Unsafe has storeFence and loadFence (Java 9 and later still have them), which we look up
+ * by reflection. On a JVM without them we fall back to a volatile write and read, which only works because HotSpot
+ * turns those into full fences on x86 and ARM; it isn't something the language promises.
+ *
+ * Only the cells that something entered or left since the last frame are rewritten; we hear about them from the
+ * World, so a frame never walks the whole grid.
+ */
+public class SharedGridExport implements WorldListener {
+	/**
+	 * The first int of the file: "FGRD".
+	 */
+	public static final int MAGIC = 0x44524746;
+	/**
+	 * Which layout this is.
+	 */
+	public static final int VERSION = 1;
+	/**
+	 * Where the generation lives.
+	 */
+	static final int GENERATION = 8;
+	/**
+	 * Where the grid starts.
+	 */
+	static final int GRID = 64;
+	/**
+	 * How big a fish record is.
+	 */
+	static final int FISH_RECORD = 16;
+	/**
+	 * Fish status: still out there.
+	 */
+	public static final int MISSING = 0;
+	/**
+	 * Fish status: following the player.
+	 */
+	public static final int FOUND = 1;
+	/**
+	 * Fish status: made it home.
+	 */
+	public static final int HOME = 2;
+
+	/**
+	 * The game we publish.
+	 */
+	private final FishGame game;
+	/**
+	 * The file's memory.
+	 */
+	private final MappedByteBuffer map;
+	/**
+	 * Where the fish records start.
+	 */
+	private final int fishStart;
+	/**
+	 * How many fish records there is room for.
+	 */
+	private final int fishCapacity;
+	/**
+	 * The last generation we wrote (always even between frames).
+	 */
+	long generation;
+	/**
+	 * Cells that changed since the last frame.
+	 */
+	private final int[] dirty;
+	/**
+	 * How many entries of {@link #dirty} are used.
+	 */
+	private int numDirty;
+	/**
+	 * Which cells are already in {@link #dirty}.
+	 */
+	private final boolean[] isDirty;
+	/**
+	 * Unsafe.storeFence and Unsafe.loadFence, bound to the Unsafe; null if this JVM doesn't have them.
+	 */
+	private static final MethodHandle STORE_FENCE, LOAD_FENCE;
+	static {
+		MethodHandle store = null;
+		MethodHandle load = null;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			Object unsafe = theUnsafe.get(null);
+			MethodType none = MethodType.methodType(void.class);
+			store = MethodHandles.lookup().findVirtual(unsafeClass, "storeFence", none).bindTo(unsafe);
+			load = MethodHandles.lookup().findVirtual(unsafeClass, "loadFence", none).bindTo(unsafe);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			store = null;
+			load = null;
+		}
+		STORE_FENCE = store;
+		LOAD_FENCE = load;
+	}
+	/**
+	 * Written and read for its ordering only, by {@link #storeFence} and {@link #loadFence} when there is no Unsafe.
+	 */
+	private static volatile int fallbackFence;
+
+	/**
+	 * No store before this may be seen after any store after it (by other threads or processes).
+	 */
+	static void storeFence() {
+		if (STORE_FENCE == null) {
+			fallbackFence = fallbackFence + 1;
+			return;
+		}
+		try {
+			STORE_FENCE.invokeExact();
+		} catch (Throwable e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * No load before this may read newer memory than any load after it.
+	 */
+	static void loadFence() {
+		if (LOAD_FENCE == null) {
+			fallbackFence = fallbackFence + 1;
+			return;
+		}
+		try {
+			LOAD_FENCE.invokeExact();
+		} catch (Throwable e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Map a file and write the first frame; after this, call {@link #publish()} after every step.
+	 * @param game - the game.
+	 * @param path - the file (it is created, or resized, to fit).
+	 * @throws IOException if the file can't be mapped.
+	 */
+	public SharedGridExport(FishGame game, String path) throws IOException {
+		this.game = game;
+		World world = game.world;
+		int cells = world.getWidth() * world.getHeight();
+		this.fishStart = GRID + ((cells + 15) & ~15);
+		this.fishCapacity = game.missing.size() + game.found.size() + game.fishhome.size();
+		int size = fishStart + fishCapacity * FISH_RECORD;
+		try (RandomAccessFile file = new RandomAccessFile(path, "rw")) {
+			file.setLength(size);
+			this.map = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+		map.order(ByteOrder.LITTLE_ENDIAN);
+		this.dirty = new int[cells];
+		this.isDirty = new boolean[cells];
+
+		map.putLong(GENERATION, 1);
+		map.putInt(0, MAGIC);
+		map.putInt(4, VERSION);
+		map.putInt(16, world.getWidth());
+		map.putInt(20, world.getHeight());
+		map.putInt(40, fishCapacity);
+		for (int cell=0; cell<cells; cell++) {
+			markDirty(cell);
+		}
+		generation = 0;
+		publish();
+		world.addListener(this);
+	}
+
+	/**
+	 * Stop listening to the world (the file keeps its last frame).
+	 */
+	public void close() {
+		game.world.removeListener(this);
+	}
+
+	@Override
+	public void objectAdded(WorldObject item) {
+		markDirty(game.world.cellOf(item.getX(), item.getY()));
+	}
+
+	@Override
+	public void objectRemoved(WorldObject item) {
+		markDirty(game.world.cellOf(item.getX(), item.getY()));
+	}
+
+	@Override
+	public void objectMoved(WorldObject item, int fromX, int fromY) {
+		markDirty(game.world.cellOf(fromX, fromY));
+		markDirty(game.world.cellOf(item.getX(), item.getY()));
+	}
+
+	/**
+	 * Remember to rewrite a cell in the next frame.
+	 * @param cell - the cell number, or -1 (off the grid) to do nothing.
+	 */
+	private void markDirty(int cell) {
+		if (cell >= 0 && !isDirty[cell]) {
+			isDirty[cell] = true;
+			dirty[numDirty++] = cell;
+		}
+	}
+
+	/**
+	 * Write a new frame: the cells that changed, the player, the score and every fish.
+	 */
+	public void publish() {
+		// Odd: a frame is being written.
+		map.putLong(GENERATION, ++generation);
+		storeFence();
+
+		for (int i=0; i<numDirty; i++) {
+			int cell = dirty[i];
+			isDirty[cell] = false;
+			map.put(GRID + cell, (byte) VectorEnv.cellBits(game.world, cell));
+		}
+		numDirty = 0;
+		map.putInt(24, game.stepsTaken);
+		map.putInt(28, game.score);
+		map.putInt(32, game.player.getX());
+		map.putInt(36, game.player.getY());
+		int at = fishStart;
+		at = writeFish(at, game.missing, MISSING);
+		at = writeFish(at, game.found, FOUND);
+		writeFish(at, game.fishhome, HOME);
+
+		// Even again: the frame is complete.
+		storeFence();
+		map.putLong(GENERATION, ++generation);
+	}
+
+	/**
+	 * Write a record for each fish in a list.
+	 * @param at - where the first record goes.
+	 * @param fish - the fish.
+	 * @param status - {@link #MISSING}, {@link #FOUND} or {@link #HOME}.
+	 * @return where the next record goes.
+	 */
+	private int writeFish(int at, List<Fish> fish, int status) {
+		for (Fish f : fish) {
+			if (at >= fishStart + fishCapacity * FISH_RECORD) {
+				break;
+			}
+			map.putInt(at, f.getId());
+			map.putInt(at + 4, f.getX());
+			map.putInt(at + 8, f.getY());
+			map.put(at + 12, (byte) status);
+			map.put(at + 13, (byte) f.color);
+			map.put(at + 14, (byte) (f.fastScare ? 1 : 0));
+			map.put(at + 15, (byte) 0);
+			at += FISH_RECORD;
+		}
+		return at;
+	}
+
+	/**
+	 * The other end: maps the file read-only and copies out consistent frames.
+	 */
+	public static class Reader {
+		/**
+		 * The file's memory.
+		 */
+		private final MappedByteBuffer map;
+		/**
+		 * How wide the grid is.
+		 */
+		public final int width;
+		/**
+		 * How tall the grid is.
+		 */
+		public final int height;
+		/**
+		 * The player's x, as of the last {@link #read}.
+		 */
+		public int playerX;
+		/**
+		 * The player's y, as of the last {@link #read}.
+		 */
+		public int playerY;
+		/**
+		 * The steps, as of the last {@link #read}.
+		 */
+		public int steps;
+		/**
+		 * The score, as of the last {@link #read}.
+		 */
+		public int score;
+		/**
+		 * How many fish records there are.
+		 */
+		public final int fishCount;
+		/**
+		 * Each fish's id, as of the last {@link #read}.
+		 */
+		public final int[] fishId;
+		/**
+		 * Each fish's x, as of the last {@link #read}.
+		 */
+		public final int[] fishX;
+		/**
+		 * Each fish's y, as of the last {@link #read}.
+		 */
+		public final int[] fishY;
+		/**
+		 * Each fish's status ({@link #MISSING}, {@link #FOUND} or {@link #HOME}), as of the last {@link #read}.
+		 */
+		public final int[] fishStatus;
+		/**
+		 * Each fish's color, as of the last {@link #read}.
+		 */
+		public final int[] fishColor;
+		/**
+		 * Whether each fish scares easily, as of the last {@link #read}.
+		 */
+		public final boolean[] fishFastScare;
+		/**
+		 * Where the fish records start.
+		 */
+		private final int fishStart;
+		/**
+		 * The fish records copied out by a try at {@link #read}, kept until we know the frame was whole.
+		 */
+		private final byte[] records;
+		/**
+		 * {@link #records}, for reading ints out of.
+		 */
+		private final ByteBuffer recordView;
+
+		/**
+		 * Map a file written by a {@link SharedGridExport}.
+		 * @param path - the file.
+		 * @throws IOException if it can't be mapped, or isn't one of ours.
+		 */
+		public Reader(String path) throws IOException {
+			try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+				this.map = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+			}
+			map.order(ByteOrder.LITTLE_ENDIAN);
+			if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+				throw new IOException("Not a fish grid export: " + path);
+			}
+			this.width = map.getInt(16);
+			this.height = map.getInt(20);
+			this.fishCount = map.getInt(40);
+			this.fishStart = GRID + ((width * height + 15) & ~15);
+			if (fishStart + (long) fishCount * FISH_RECORD > map.capacity()) {
+				throw new IOException("Fish grid export is cut short: " + path);
+			}
+			this.fishId = new int[fishCount];
+			this.fishX = new int[fishCount];
+			this.fishY = new int[fishCount];
+			this.fishStatus = new int[fishCount];
+			this.fishColor = new int[fishCount];
+			this.fishFastScare = new boolean[fishCount];
+			this.records = new byte[fishCount * FISH_RECORD];
+			this.recordView = ByteBuffer.wrap(records).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		/**
+		 * Copy out one consistent frame, waiting out any frame being written: the cells go in grid, and the player,
+		 * steps, score and fish go in this Reader's fields.
+		 * @param grid - where the cells go (width * height bytes).
+		 * @return the frame's generation.
+		 */
+		public long read(byte[] grid) {
+			while (true) {
+				long before = map.getLong(GENERATION);
+				if ((before & 1) != 0) {
+					Thread.yield();
+					continue;
+				}
+				loadFence();
+				for (int cell=0; cell<grid.length; cell++) {
+					grid[cell] = map.get(GRID + cell);
+				}
+				int px = map.getInt(32);
+				int py = map.getInt(36);
+				int st = map.getInt(24);
+				int sc = map.getInt(28);
+				for (int i=0; i<records.length; i++) {
+					records[i] = map.get(fishStart + i);
+				}
+				loadFence();
+				if (map.getLong(GENERATION) == before) {
+					playerX = px;
+					playerY = py;
+					steps = st;
+					score = sc;
+					for (int i=0; i<fishCount; i++) {
+						int at = i * FISH_RECORD;
+						fishId[i] = recordView.getInt(at);
+						fishX[i] = recordView.getInt(at + 4);
+						fishY[i] = recordView.getInt(at + 8);
+						fishStatus[i] = records[at + 12];
+						fishColor[i] = records[at + 13];
+						fishFastScare[i] = records[at + 14] != 0;
+					}
+					return before;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Either play a game with a bot and export it, or read an export from another process and check every frame.
+	 * @param args - "write path [ticks [size]]" or "read path [seconds]".
+	 * @throws IOException if the file can't be mapped.
+	 */
+	public static void main(String[] args) throws IOException {
+		String path = args.length > 1 ? args[1] : "fishgrid.map";
+		if (args.length > 0 && args[0].equals("read")) {
+			double seconds = args.length > 2 ? Double.parseDouble(args[2]) : 5;
+			Reader reader = new Reader(path);
+			byte[] grid = new byte[reader.width * reader.height];
+			long frames = 0;
+			long bad = 0;
+			long last = -1;
+			long end = System.nanoTime() + (long) (seconds * 1e9);
+			while (System.nanoTime() < end) {
+				long gen = reader.read(grid);
+				if (gen == last) {
+					continue;
+				}
+				last = gen;
+				frames++;
+				// In a consistent frame, the player's cell says so, and so does every fish's that isn't home.
+				boolean ok = (grid[reader.playerY * reader.width + reader.playerX] & VectorEnv.PLAYER) != 0;
+				for (int i=0; i<reader.fishCount; i++) {
+					if (reader.fishStatus[i] != HOME
+							&& (grid[reader.fishY[i] * reader.width + reader.fishX[i]] & 1 << Kind.FISH.ordinal()) == 0) {
+						ok = false;
+					}
+				}
+				if (!ok) {
+					bad++;
+				}
+			}
+			System.out.printf("Read %d frames, %d inconsistent.%n", frames, bad);
+			return;
+		}
+		int ticks = args.length > 2 ? Integer.parseInt(args[2]) : 1000000;
+		int size = args.length > 3 ? Integer.parseInt(args[3]) : Main.LOGICAL_GRID_SIZE;
+		Random rand = new Random();
+		PlayerController bot = new GreedyBot(rand);
+		FishGame game = new FishGame(size, size, rand);
+		SharedGridExport export = new SharedGridExport(game, path);
+		long publishNanos = 0;
+		for (int t=0; t<ticks; t++) {
+			if (game.gameOver()) {
+				export.close();
+				game = new FishGame(size, size, rand);
+				export = new SharedGridExport(game, path);
+			}
+			game.play(bot.decide(game));
+			long start = System.nanoTime();
+			export.publish();
+			publishNanos += System.nanoTime() - start;
+		}
+		System.out.printf("Published %d frames, %.2f us each.%n", ticks, publishNanos / 1e3 / ticks);
+	}
+}
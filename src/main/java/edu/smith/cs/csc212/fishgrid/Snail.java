@@ -100,10 +100,22 @@ public class Snail extends WorldObject {
 		g.draw(shell3);
 	}
 
+	/**
+	 * What kind of object this is.
+	 * @return {@link Kind#SNAIL}.
+	 */
+	@Override
+	public Kind getKind() {
+		return Kind.SNAIL;
+	}
+
 	/**
 	 * Move the snail left until it hits an obstacle. 
 	 * Then move it right until it hits an obstacle.
 	 * Alternate eyes open/closed as it moves.
+	 * 
+	 * Every step either moves (which the world's listeners hear about) or turns around (which we tell them about),
+	 * so they also hear about every blink without looking at every snail.
 	 */
 	@Override
 	public void step() {
@@ -111,10 +123,12 @@ public class Snail extends WorldObject {
 		if (movingLeft) {
 			if (!moveLeft()) {
 				movingLeft = false;
+				world.changed(this);
 			}
 		} else {
 			if (!moveRight()) {
 				movingLeft = true;
+				world.changed(this);
 			}
 		}
 	}
@@ -0,0 +1,64 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Puts spectator load on a {@link FrameBroadcaster}: lots of local subscribers with random viewports, a few of which
+ * never read (so they should be dropped), while every reader decodes and checks every frame it gets.
+ */
+public class SpectatorLoad {
+	/**
+	 * Run the load.
+	 * @param args - [subscribers [ticks [worldSize [chunkSize]]]].
+	 */
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int size = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+		int chunk = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+
+		Random rand = new Random();
+		FishGame game = new FishGame(size, size);
+		FrameBroadcaster broadcaster = new FrameBroadcaster(game, chunk, 100, 3);
+		List<FrameBroadcaster.Subscriber> readers = new ArrayList<>();
+		List<FrameBroadcaster.View> views = new ArrayList<>();
+		int stalled = 0;
+		for (int i=0; i<count; i++) {
+			int w = 1 + rand.nextInt(Math.min(size, 40));
+			int h = 1 + rand.nextInt(Math.min(size, 40));
+			FrameBroadcaster.Subscriber s = broadcaster.subscribe(rand.nextInt(size - w + 1), rand.nextInt(size - h + 1), w, h, 64);
+			if (i % 100 == 99) {
+				// This one never reads.
+				stalled++;
+				continue;
+			}
+			readers.add(s);
+			views.add(new FrameBroadcaster.View());
+		}
+
+		long publishNanos = 0;
+		long frames = 0;
+		for (int t=0; t<ticks; t++) {
+			game.player.moveRandomly();
+			game.step();
+			long start = System.nanoTime();
+			broadcaster.publish();
+			publishNanos += System.nanoTime() - start;
+			for (int i=0; i<readers.size(); i++) {
+				for (FrameBroadcaster.ChunkFrame f; (f = readers.get(i).poll()) != null; ) {
+					views.get(i).apply(f);
+					frames++;
+				}
+			}
+		}
+		System.out.printf("%d subscribers (%d stalled, %d dropped): %.1f us per publish, %d frames decoded and checked.%n",
+				count, stalled, broadcaster.droppedCount(), publishNanos / 1e3 / ticks, frames);
+	}
+}
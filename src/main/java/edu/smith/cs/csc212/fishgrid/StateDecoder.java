@@ -0,0 +1,175 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The viewer's end of a {@link StateEncoder} stream: rebuilds the objects, score and steps from frames,
+ * and checks each frame's checksum so we know we really are in sync.
+ */
+public class StateDecoder {
+	/**
+	 * What we know about every object, by id.
+	 */
+	private final Map<Integer, StateEncoder.Entity> entities = new HashMap<>();
+	/**
+	 * The checksum of {@link #entities}.
+	 */
+	private long checksum;
+	/**
+	 * The last frame we applied (0 until we have seen a keyframe).
+	 */
+	private int frame;
+	/**
+	 * The score as of the last frame.
+	 */
+	private int score;
+	/**
+	 * The steps as of the last frame.
+	 */
+	private int steps;
+
+	/**
+	 * Apply the next frame.
+	 * @param in - the frame; its position is moved past it.
+	 * @throws IllegalStateException if the frame doesn't follow the last one or the checksum doesn't match;
+	 * the viewer should wait for (or ask for) a keyframe.
+	 */
+	public void apply(ByteBuffer in) {
+		int type = in.get();
+		int number = WireBuffer.getVarInt(in);
+		if (type == StateEncoder.KEYFRAME) {
+			readKeyframe(in);
+		} else if (type == StateEncoder.DELTA) {
+			if (frame == 0 || number != frame + 1) {
+				throw new IllegalStateException("Frame " + number + " doesn't follow frame " + frame);
+			}
+			readDelta(in);
+		} else {
+			throw new IllegalStateException("Unknown frame type " + type);
+		}
+		frame = number;
+		long expected = WireBuffer.getLong(in);
+		if (expected != checksum) {
+			frame = 0;
+			throw new IllegalStateException("Checksum mismatch at frame " + number);
+		}
+	}
+
+	/**
+	 * Forget everything and read the whole world: score, steps, then every object.
+	 * @param in - the keyframe, just past its type and number.
+	 */
+	private void readKeyframe(ByteBuffer in) {
+		entities.clear();
+		checksum = 0;
+		score = WireBuffer.getSignedVarInt(in);
+		steps = WireBuffer.getVarInt(in);
+		int count = WireBuffer.getVarInt(in);
+		int id = 0;
+		for (int i=0; i<count; i++) {
+			id += WireBuffer.getVarInt(in);
+			spawn(id, in);
+		}
+	}
+
+	/**
+	 * Read what changed since the last frame: score and steps, then every object that spawned, moved or was removed.
+	 * @param in - the delta, just past its type and number.
+	 */
+	private void readDelta(ByteBuffer in) {
+		score += WireBuffer.getSignedVarInt(in);
+		steps += WireBuffer.getSignedVarInt(in);
+		int count = WireBuffer.getVarInt(in);
+		int id = 0;
+		for (int i=0; i<count; i++) {
+			id += WireBuffer.getVarInt(in);
+			int op = in.get();
+			if (op == StateEncoder.SPAWN) {
+				spawn(id, in);
+			} else if (op == StateEncoder.REMOVE) {
+				StateEncoder.Entity e = entities.remove(id);
+				if (e == null) {
+					throw new IllegalStateException("Removing unknown object " + id);
+				}
+				checksum -= e.hash();
+			} else if (op == StateEncoder.MOVE) {
+				StateEncoder.Entity e = entities.get(id);
+				if (e == null) {
+					throw new IllegalStateException("Moving unknown object " + id);
+				}
+				checksum -= e.hash();
+				e.x += WireBuffer.getSignedVarInt(in);
+				e.y += WireBuffer.getSignedVarInt(in);
+				checksum += e.hash();
+			} else {
+				throw new IllegalStateException("Unknown record " + op);
+			}
+		}
+	}
+
+	/**
+	 * Read one new object (kind, attributes and position) and count it in the checksum.
+	 * @param id - its id.
+	 * @param in - the frame, just past the id (and record type, in a delta).
+	 */
+	private void spawn(int id, ByteBuffer in) {
+		Kind kind = Kind.ALL[in.get()];
+		int attrs = WireBuffer.getVarInt(in);
+		int x = WireBuffer.getVarInt(in);
+		int y = WireBuffer.getVarInt(in);
+		StateEncoder.Entity e = new StateEncoder.Entity(id, kind, attrs, x, y);
+		entities.put(id, e);
+		checksum += e.hash();
+	}
+
+	/**
+	 * @return true once a keyframe has been applied (and nothing has gone wrong since).
+	 */
+	public boolean inSync() {
+		return frame > 0;
+	}
+
+	/**
+	 * @return the last frame applied.
+	 */
+	public int getFrame() {
+		return frame;
+	}
+
+	/**
+	 * @return the score as of the last frame.
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * @return the steps as of the last frame.
+	 */
+	public int getSteps() {
+		return steps;
+	}
+
+	/**
+	 * @return how many objects are in view.
+	 */
+	public int size() {
+		return entities.size();
+	}
+
+	/**
+	 * @return every object in view (don't change them).
+	 */
+	Collection<StateEncoder.Entity> view() {
+		return Collections.unmodifiableCollection(entities.values());
+	}
+}
@@ -0,0 +1,450 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Turns a FishGame into a stream of binary frames for remote viewers (see {@link StateDecoder} for the other end).
+ *
+ * A keyframe lists every object; after that, each tick's delta frame only lists the objects that were added,
+ * removed or moved, so a viewer's bandwidth follows how much changed rather than how big the world is.
+ *
+ * Every frame starts with its type, frame number, score and steps, and ends with a checksum of the whole state it
+ * describes, so the viewer can prove it is in sync. The checksum is a sum of per-object hashes, kept up to date as
+ * objects change, so it never costs a walk over the world.
+ *
+ * All ids are varints, written in increasing order as the gap from the previous id. Moves are written as the change in
+ * x and y, which is almost always a single byte each.
+ *
+ * An encoder can also be limited to a rectangle of the world (see {@link FrameBroadcaster}); then objects that swim
+ * out of it are removed, and objects that swim in are spawned.
+ */
+public class StateEncoder implements WorldListener {
+	/**
+	 * Frame type: the full state.
+	 */
+	public static final int KEYFRAME = 1;
+	/**
+	 * Frame type: just the changes since the previous frame.
+	 */
+	public static final int DELTA = 2;
+	/**
+	 * Delta record: a new object.
+	 */
+	static final int SPAWN = 0;
+	/**
+	 * Delta record: an object changed position.
+	 */
+	static final int MOVE = 1;
+	/**
+	 * Delta record: an object is gone.
+	 */
+	static final int REMOVE = 2;
+
+	/**
+	 * What a viewer knows about one object.
+	 */
+	static class Entity {
+		final int id;
+		final Kind kind;
+		int attrs;
+		int x;
+		int y;
+
+		Entity(int id, Kind kind, int attrs, int x, int y) {
+			this.id = id;
+			this.kind = kind;
+			this.attrs = attrs;
+			this.x = x;
+			this.y = y;
+		}
+
+		long hash() {
+			return StateEncoder.hash(id, kind.ordinal(), attrs, x, y);
+		}
+	}
+
+	/**
+	 * The game we describe.
+	 */
+	private final FishGame game;
+	/**
+	 * Send a keyframe every this many frames (so viewers that lost track can catch up).
+	 */
+	private final int keyframeInterval;
+	/**
+	 * Every object in the world right now, by id.
+	 */
+	private final Map<Integer, WorldObject> live = new HashMap<>();
+	/**
+	 * What viewers were told as of the last frame, by id (in id order, for keyframes).
+	 */
+	private final TreeMap<Integer, Entity> sent = new TreeMap<>();
+	/**
+	 * Ids of objects that changed since the last frame.
+	 */
+	private int[] dirty = new int[64];
+	/**
+	 * How many entries of {@link #dirty} are used.
+	 */
+	private int numDirty;
+	/**
+	 * The checksum of {@link #sent}.
+	 */
+	private long checksum;
+	/**
+	 * The score as of the last frame.
+	 */
+	private int sentScore;
+	/**
+	 * The steps as of the last frame.
+	 */
+	private int sentSteps;
+	/**
+	 * How many frames we have made.
+	 */
+	private int frame;
+	/**
+	 * Reused to build frames.
+	 */
+	private final WireBuffer out = new WireBuffer();
+	/**
+	 * The part of the world we describe: x0 &lt;= x &lt; x1, y0 &lt;= y &lt; y1.
+	 */
+	private final int x0, y0, x1, y1;
+
+	/**
+	 * Start describing a game.
+	 * @param game - the game.
+	 * @param keyframeInterval - how often to send the full state anyway (at least 1).
+	 */
+	public StateEncoder(FishGame game, int keyframeInterval) {
+		this(game, keyframeInterval, 0, 0, game.world.getWidth(), game.world.getHeight());
+		for (WorldObject it : game.world.viewItems()) {
+			objectAdded(it);
+		}
+		game.world.addListener(this);
+	}
+
+	/**
+	 * Start describing part of a game. This doesn't listen to the world; whoever makes it passes along the changes.
+	 * @param game - the game.
+	 * @param keyframeInterval - how often to send the full state anyway (at least 1).
+	 * @param x0 - the left edge of the part.
+	 * @param y0 - the top edge of the part.
+	 * @param x1 - one past the right edge.
+	 * @param y1 - one past the bottom edge.
+	 */
+	StateEncoder(FishGame game, int keyframeInterval, int x0, int y0, int x1, int y1) {
+		if (keyframeInterval < 1) {
+			throw new IllegalArgumentException("keyframeInterval must be at least 1");
+		}
+		this.game = game;
+		this.keyframeInterval = keyframeInterval;
+		this.x0 = x0;
+		this.y0 = y0;
+		this.x1 = x1;
+		this.y1 = y1;
+	}
+
+	/**
+	 * Is this object in the part of the world we describe?
+	 * @param it - the object.
+	 * @return true if so.
+	 */
+	private boolean inside(WorldObject it) {
+		return it.getX() >= x0 && it.getX() < x1 && it.getY() >= y0 && it.getY() < y1;
+	}
+
+	/**
+	 * Stop listening to the game.
+	 */
+	public void close() {
+		game.world.removeListener(this);
+	}
+
+	/**
+	 * @return how many frames we have made.
+	 */
+	public int getFrame() {
+		return frame;
+	}
+
+	@Override
+	public void objectAdded(WorldObject item) {
+		if (inside(item)) {
+			live.put(item.getId(), item);
+			markDirty(item.getId());
+		}
+	}
+
+	@Override
+	public void objectRemoved(WorldObject item) {
+		if (live.remove(item.getId()) != null) {
+			markDirty(item.getId());
+		}
+	}
+
+	@Override
+	public void objectMoved(WorldObject item, int fromX, int fromY) {
+		if (inside(item)) {
+			live.put(item.getId(), item);
+			markDirty(item.getId());
+		} else if (live.remove(item.getId()) != null) {
+			markDirty(item.getId());
+		}
+	}
+
+	/**
+	 * Remember that an object needs to be looked at when we make the next frame.
+	 * @param id - the object's id.
+	 */
+	private void markDirty(int id) {
+		if (numDirty == dirty.length) {
+			// Lots of changes to the same few objects: squash the duplicates before growing.
+			Arrays.sort(dirty, 0, numDirty);
+			numDirty = dedupe(dirty, numDirty);
+			if (numDirty > dirty.length / 2) {
+				dirty = Arrays.copyOf(dirty, dirty.length * 2);
+			}
+		}
+		dirty[numDirty++] = id;
+	}
+
+	/**
+	 * Squash repeats out of a sorted array.
+	 * @param ids - sorted ids.
+	 * @param n - how many are used.
+	 * @return how many are left.
+	 */
+	private static int dedupe(int[] ids, int n) {
+		int kept = 0;
+		for (int i=0; i<n; i++) {
+			if (kept == 0 || ids[kept - 1] != ids[i]) {
+				ids[kept++] = ids[i];
+			}
+		}
+		return kept;
+	}
+
+	/**
+	 * Make the frame for the tick that just finished: a delta, or a keyframe if it's time for one.
+	 * @return the frame (read-only).
+	 */
+	public ByteBuffer encodeFrame() {
+		boolean keyframe = frame % keyframeInterval == 0;
+		frame++;
+		out.clear();
+		out.putByte(keyframe ? KEYFRAME : DELTA);
+		out.putVarInt(frame);
+		if (keyframe) {
+			applyChanges(null);
+			sentScore = game.score;
+			sentSteps = game.stepsTaken;
+			writeKeyframeBody();
+		} else {
+			out.putSignedVarInt(game.score - sentScore);
+			out.putSignedVarInt(game.stepsTaken - sentSteps);
+			sentScore = game.score;
+			sentSteps = game.stepsTaken;
+			applyChanges(out);
+		}
+		out.putLong(checksum);
+		return out.toByteBuffer();
+	}
+
+	/**
+	 * Make a keyframe of what viewers know as of the last frame; a viewer that joins now starts from this.
+	 * @return the frame (read-only).
+	 */
+	public ByteBuffer encodeKeyframe() {
+		out.clear();
+		out.putByte(KEYFRAME);
+		out.putVarInt(frame);
+		writeKeyframeBody();
+		out.putLong(checksum);
+		return out.toByteBuffer();
+	}
+
+	/**
+	 * Write the score, steps and every object we've told viewers about.
+	 */
+	private void writeKeyframeBody() {
+		writeKeyframeBody(out, sentScore, sentSteps, sent.values());
+	}
+
+	/**
+	 * Write the body of a keyframe (everything but its type, number and checksum).
+	 * @param out - where to write.
+	 * @param score - the score.
+	 * @param steps - the steps.
+	 * @param entities - every object, in increasing id order.
+	 */
+	static void writeKeyframeBody(WireBuffer out, int score, int steps, Collection<Entity> entities) {
+		out.putSignedVarInt(score);
+		out.putVarInt(steps);
+		out.putVarInt(entities.size());
+		int lastId = 0;
+		for (Entity e : entities) {
+			out.putVarInt(e.id - lastId);
+			lastId = e.id;
+			out.putByte(e.kind.ordinal());
+			out.putVarInt(e.attrs);
+			out.putVarInt(e.x);
+			out.putVarInt(e.y);
+		}
+	}
+
+	/**
+	 * Bring {@link #sent} up to date with the world, writing a delta record for each change.
+	 * @param records - where to write the records, or null to just update.
+	 */
+	private void applyChanges(WireBuffer records) {
+		Arrays.sort(dirty, 0, numDirty);
+		numDirty = dedupe(dirty, numDirty);
+
+		// Count the records first, since the count comes before them.
+		int count = 0;
+		for (int i=0; i<numDirty; i++) {
+			if (changeOf(dirty[i]) >= 0) {
+				count++;
+			}
+		}
+		if (records != null) {
+			records.putVarInt(count);
+		}
+
+		int lastId = 0;
+		for (int i=0; i<numDirty; i++) {
+			int id = dirty[i];
+			int op = changeOf(id);
+			if (op < 0) {
+				continue;
+			}
+			if (records != null) {
+				records.putVarInt(id - lastId);
+				records.putByte(op);
+			}
+			lastId = id;
+			WorldObject now = live.get(id);
+			Entity before = sent.get(id);
+			if (op == SPAWN) {
+				Entity e = new Entity(id, now.getKind(), attrsOf(now), now.getX(), now.getY());
+				sent.put(id, e);
+				checksum += e.hash();
+				if (records != null) {
+					records.putByte(e.kind.ordinal());
+					records.putVarInt(e.attrs);
+					records.putVarInt(e.x);
+					records.putVarInt(e.y);
+				}
+			} else if (op == REMOVE) {
+				sent.remove(id);
+				checksum -= before.hash();
+			} else {
+				checksum -= before.hash();
+				if (records != null) {
+					records.putSignedVarInt(now.getX() - before.x);
+					records.putSignedVarInt(now.getY() - before.y);
+				}
+				before.x = now.getX();
+				before.y = now.getY();
+				checksum += before.hash();
+			}
+		}
+		numDirty = 0;
+	}
+
+	/**
+	 * What record (if any) does an object that changed need?
+	 * @param id - the object's id.
+	 * @return SPAWN, MOVE, REMOVE, or -1 for nothing (e.g. it came and went within one tick).
+	 */
+	private int changeOf(int id) {
+		WorldObject now = live.get(id);
+		Entity before = sent.get(id);
+		if (now == null) {
+			return before == null ? -1 : REMOVE;
+		}
+		if (before == null) {
+			return SPAWN;
+		}
+		if (before.x == now.getX() && before.y == now.getY()) {
+			return -1;
+		}
+		return MOVE;
+	}
+
+	/**
+	 * The parts of an object's look that don't change: fish color, fast-scare and player flags, rock color.
+	 * @param it - the object.
+	 * @return a small number.
+	 */
+	static int attrsOf(WorldObject it) {
+		if (it instanceof Fish) {
+			Fish f = (Fish) it;
+			return (f.color << 2) | (f.fastScare ? 2 : 0) | (f.player ? 1 : 0);
+		}
+		if (it instanceof Rock) {
+			return ((Rock) it).index;
+		}
+		return 0;
+	}
+
+	/**
+	 * Make an object that {@link #attrsOf} would describe this way (the opposite of attrsOf; it isn't registered).
+	 * @param world - the world it will live in.
+	 * @param kind - what kind of object.
+	 * @param attrs - its attributes.
+	 * @return the new object.
+	 */
+	static WorldObject create(World world, Kind kind, int attrs) {
+		switch (kind) {
+		case FISH:
+			Fish f = new Fish(attrs >> 2, world);
+			f.fastScare = (attrs & 2) != 0;
+			if ((attrs & 1) != 0) {
+				f.markAsPlayer();
+			}
+			return f;
+		case ROCK:
+			Rock r = new Rock(world);
+			r.index = attrs;
+			return r;
+		case FALLING_ROCK:
+			FallingRock fr = new FallingRock(world);
+			fr.index = attrs;
+			return fr;
+		case SNAIL:
+			return new Snail(world);
+		case HOME:
+			return new FishHome(world);
+		case HEART:
+			return new Heart(world);
+		case BUBBLE:
+			return new Bubble(world);
+		default:
+			throw new IllegalArgumentException("Unknown kind " + kind);
+		}
+	}
+
+	/**
+	 * Hash one object's state for the checksum (a SplitMix64 finish over its fields).
+	 * @return a well-mixed 64-bit number.
+	 */
+	static long hash(int id, int kind, int attrs, int x, int y) {
+		long z = ((long) id << 32) ^ ((long) kind << 56) ^ ((long) attrs << 40) ^ ((long) x << 20) ^ y;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Watches one game on a {@link SessionServer} over loopback while playing it randomly, and checks that the
+ * {@link StateDecoder} stays in sync: every frame's checksum must match, and the score and steps in every
+ * {@code TICK} line must match what the frames said.
+ */
+public class StreamClient {
+	/**
+	 * The names of the moves we send.
+	 */
+	private static final String[] MOVES = {"UP", "DOWN", "LEFT", "RIGHT", "SKIP"};
+
+	/**
+	 * Read one line of text from the server.
+	 * @param in - the socket's input.
+	 * @return the line, without the newline.
+	 * @throws IOException if the server goes away.
+	 */
+	private static String readLine(DataInputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		for (int b = in.read(); b != '\n'; b = in.read()) {
+			if (b < 0) {
+				throw new IOException("Server closed the connection");
+			}
+			line.write(b);
+		}
+		return new String(line.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Play and watch a game.
+	 * @param args - [port [ticks]]; port 0 starts a server in this JVM.
+	 * @throws Exception if anything goes wrong, including losing sync.
+	 */
+	public static void main(String[] args) throws Exception {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+		int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		SessionServer server = null;
+		if (port == 0) {
+			server = new SessionServer(0, 2, 5);
+			server.start();
+			port = server.getPort();
+		}
+
+		Random rand = new Random();
+		StateDecoder view = new StateDecoder();
+		long frameBytes = 0;
+		int frames = 0;
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			DataInputStream in = new DataInputStream(socket.getInputStream());
+			OutputStream out = socket.getOutputStream();
+			out.write("NEW\n".getBytes(StandardCharsets.UTF_8));
+			out.flush();
+			String id = readLine(in).split(" ")[1];
+			out.write(("WATCH " + id + "\n").getBytes(StandardCharsets.UTF_8));
+
+			for (int t=0; t<ticks; t++) {
+				out.write(("MOVE " + id + " " + MOVES[rand.nextInt(MOVES.length)] + "\n").getBytes(StandardCharsets.UTF_8));
+				out.flush();
+				while (true) {
+					String[] line = readLine(in).split(" ");
+					if (line[0].equals("FRAME")) {
+						byte[] frame = new byte[Integer.parseInt(line[2])];
+						in.readFully(frame);
+						view.apply(ByteBuffer.wrap(frame));
+						frameBytes += frame.length;
+						frames++;
+					} else if (line[0].equals("TICK")) {
+						int steps = Integer.parseInt(line[2]);
+						int score = Integer.parseInt(line[3]);
+						if (steps != view.getSteps() || score != view.getScore()) {
+							throw new IllegalStateException("Out of sync at tick " + t + ": server says " + steps + "/" + score
+									+ " but frames say " + view.getSteps() + "/" + view.getScore());
+						}
+						break;
+					} else {
+						throw new IllegalStateException(String.join(" ", line));
+					}
+				}
+			}
+		} finally {
+			if (server != null) {
+				server.stop();
+			}
+		}
+		System.out.printf("In sync after %d frames: %d objects in view, %.1f bytes/frame on average.%n",
+				frames, view.size(), frameBytes / (double) frames);
+	}
+}
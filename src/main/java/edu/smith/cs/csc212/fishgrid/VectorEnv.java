@@ -0,0 +1,292 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Many FishGames stepped together, for training agents: one call steps every game, and the results land in arrays
+ * that are made once and overwritten on every call.
+ *
+ * An observation is one byte per cell, row by row: bit k is set if something of {@link Kind} k is there, and
+ * {@link #PLAYER} is set where the player is (the player doesn't also set the FISH bit). A reward is how much the
+ * score changed. A game is done when it is won or has run for maxSteps; a done game starts over right away with the
+ * next seed in its sequence, so its observation is already the first one of the new game.
+ *
+ * The games are split into one slice per thread, and each slice is stepped by one thread, so no game is ever touched
+ * by two threads at once.
+ */
+public class VectorEnv {
+	/**
+	 * Observation bit for the player's cell.
+	 */
+	public static final int PLAYER = 1 << 7;
+
+	/**
+	 * How many games we run.
+	 */
+	private final int numEnvs;
+	/**
+	 * What each game looks like (its seed is ignored; {@link #reset} gives the seeds).
+	 */
+	private final Scenario scenario;
+	/**
+	 * How wide each game's grid is.
+	 */
+	private final int width;
+	/**
+	 * How tall each game's grid is.
+	 */
+	private final int height;
+	/**
+	 * A game that runs this long is done, won or not.
+	 */
+	private final int maxSteps;
+	/**
+	 * The games.
+	 */
+	private final FishGame[] games;
+	/**
+	 * The seed each game will start over with next.
+	 */
+	private final long[] nextSeed;
+	/**
+	 * One byte per cell per game (game i starts at i * width * height).
+	 */
+	private final byte[] observations;
+	/**
+	 * How much each game's score changed in the last step.
+	 */
+	private final int[] rewards;
+	/**
+	 * Which games ended in the last step (and have started over).
+	 */
+	private final boolean[] dones;
+	/**
+	 * The actions for the step being run.
+	 */
+	private int[] actions;
+	/**
+	 * Threads for stepping slices of games (null when we run on the caller's thread).
+	 */
+	private final ExecutorService pool;
+	/**
+	 * One task per slice of games.
+	 */
+	private final List<Callable<Void>> slices = new ArrayList<>();
+
+	/**
+	 * Make the games; call {@link #reset(long[])} before stepping.
+	 * @param numEnvs - how many games.
+	 * @param width - how wide each grid is.
+	 * @param height - how tall each grid is.
+	 * @param maxSteps - how long a game may run before it is done anyway.
+	 * @param threads - how many threads step the games (1 steps them on the caller's thread).
+	 */
+	public VectorEnv(int numEnvs, int width, int height, int maxSteps, int threads) {
+		this(numEnvs, new Scenario(width, height), maxSteps, threads);
+	}
+
+	/**
+	 * Make the games from a scenario; call {@link #reset(long[])} before stepping.
+	 * @param numEnvs - how many games.
+	 * @param scenario - what each game looks like.
+	 * @param maxSteps - how long a game may run before it is done anyway.
+	 * @param threads - how many threads step the games (1 steps them on the caller's thread).
+	 */
+	public VectorEnv(int numEnvs, Scenario scenario, int maxSteps, int threads) {
+		this.numEnvs = numEnvs;
+		this.scenario = scenario;
+		this.width = scenario.width;
+		this.height = scenario.height;
+		this.maxSteps = maxSteps;
+		this.games = new FishGame[numEnvs];
+		this.nextSeed = new long[numEnvs];
+		this.observations = new byte[numEnvs * width * height];
+		this.rewards = new int[numEnvs];
+		this.dones = new boolean[numEnvs];
+		threads = Math.max(1, Math.min(threads, numEnvs));
+		this.pool = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+		for (int t=0; t<threads; t++) {
+			final int from = (int) ((long) numEnvs * t / threads);
+			final int to = (int) ((long) numEnvs * (t + 1) / threads);
+			slices.add(() -> {
+				stepRange(from, to);
+				return null;
+			});
+		}
+	}
+
+	/**
+	 * Start every game over.
+	 * @param seeds - one seed per game; the same seeds (and actions) always play out the same way.
+	 */
+	public void reset(long[] seeds) {
+		if (seeds.length != numEnvs) {
+			throw new IllegalArgumentException("Need " + numEnvs + " seeds, got " + seeds.length);
+		}
+		for (int i=0; i<numEnvs; i++) {
+			nextSeed[i] = seeds[i];
+			startOver(i);
+			rewards[i] = 0;
+			dones[i] = false;
+		}
+	}
+
+	/**
+	 * Step every game once, then read {@link #getObservations()}, {@link #getRewards()} and {@link #getDones()}.
+	 * @param actions - one per game: a direction from {@link Moves}, or {@link PlayerController#SKIP}.
+	 */
+	public void step(int[] actions) {
+		if (actions.length != numEnvs) {
+			throw new IllegalArgumentException("Need " + numEnvs + " actions, got " + actions.length);
+		}
+		this.actions = actions;
+		if (pool == null) {
+			stepRange(0, numEnvs);
+			return;
+		}
+		try {
+			for (java.util.concurrent.Future<Void> f : pool.invokeAll(slices)) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while stepping", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A game crashed while stepping", e.getCause());
+		}
+	}
+
+	/**
+	 * Step games from (inclusive) to (exclusive); only one thread ever runs a given range.
+	 */
+	private void stepRange(int from, int to) {
+		for (int i=from; i<to; i++) {
+			FishGame game = games[i];
+			int before = game.score;
+			game.play(actions[i] == PlayerController.WAIT ? PlayerController.SKIP : actions[i]);
+			rewards[i] = game.score - before;
+			dones[i] = game.gameOver() || game.stepsTaken >= maxSteps;
+			if (dones[i]) {
+				startOver(i);
+			} else {
+				observe(i);
+			}
+		}
+	}
+
+	/**
+	 * Give game i a new game, with the next seed in its sequence.
+	 */
+	private void startOver(int i) {
+		long seed = nextSeed[i];
+		// Any fixed step works; this one spreads consecutive seeds far apart.
+		nextSeed[i] = seed * 6364136223846793005L + 1442695040888963407L;
+		games[i] = new FishGame(scenario, new Random(seed));
+		observe(i);
+	}
+
+	/**
+	 * Write game i's grid into {@link #observations}.
+	 */
+	private void observe(int i) {
+		World world = games[i].world;
+		int base = i * width * height;
+		for (int cell=0; cell<width * height; cell++) {
+			observations[base + cell] = (byte) cellBits(world, cell);
+		}
+	}
+
+	/**
+	 * What's in one cell, as an observation byte: bit k for {@link Kind} k, or {@link #PLAYER} for the player.
+	 * @param world - the world.
+	 * @param cell - the cell number.
+	 * @return the bits (fits in a byte).
+	 */
+	static int cellBits(World world, int cell) {
+		int bits = 0;
+		for (WorldObject it = world.firstInCell(cell); it != null; it = it.nextInCell) {
+			bits |= it.isPlayer() ? PLAYER : 1 << it.getKind().ordinal();
+		}
+		return bits;
+	}
+
+	/**
+	 * @return one byte per cell per game, overwritten by every step (game i starts at i * width * height).
+	 */
+	public byte[] getObservations() {
+		return observations;
+	}
+
+	/**
+	 * @return how much each game's score changed in the last step, overwritten by every step.
+	 */
+	public int[] getRewards() {
+		return rewards;
+	}
+
+	/**
+	 * @return which games ended in the last step (they have already started over), overwritten by every step.
+	 */
+	public boolean[] getDones() {
+		return dones;
+	}
+
+	/**
+	 * Stop the threads.
+	 */
+	public void close() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Measure how many game steps a second we can run with random actions.
+	 * @param args - [envs [steps [threads [size]]]].
+	 */
+	public static void main(String[] args) {
+		int envs = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+		int steps = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		int size = args.length > 3 ? Integer.parseInt(args[3]) : Main.LOGICAL_GRID_SIZE;
+
+		VectorEnv env = new VectorEnv(envs, size, size, 1000, threads);
+		long[] seeds = new long[envs];
+		for (int i=0; i<envs; i++) {
+			seeds[i] = i;
+		}
+		env.reset(seeds);
+		Random rand = new Random(0);
+		int[] actions = new int[envs];
+		long episodes = 0;
+		long reward = 0;
+		long start = System.nanoTime();
+		for (int t=0; t<steps; t++) {
+			for (int i=0; i<envs; i++) {
+				actions[i] = rand.nextInt(Moves.CARDINAL);
+			}
+			env.step(actions);
+			for (int i=0; i<envs; i++) {
+				reward += env.getRewards()[i];
+				if (env.getDones()[i]) {
+					episodes++;
+				}
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		env.close();
+		System.out.printf("%d envs x %d steps on %d threads: %.0f env steps/s (%d episodes, %d reward).%n",
+				envs, steps, threads, (double) envs * steps / seconds, episodes, reward);
+	}
+}
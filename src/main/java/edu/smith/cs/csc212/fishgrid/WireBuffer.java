@@ -0,0 +1,208 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A growable array of bytes for building binary messages, plus the matching readers.
+ *
+ * Numbers are written as varints: 7 bits per byte, low bits first, with the high bit set on every byte but the last.
+ * Signed numbers are zig-zag encoded first so that small negative numbers stay small.
+ */
+public class WireBuffer {
+	/**
+	 * The bytes (only the first {@link #size} are used).
+	 */
+	private byte[] data;
+	/**
+	 * How many bytes have been written.
+	 */
+	private int size;
+
+	/**
+	 * Start with room for a few bytes.
+	 */
+	public WireBuffer() {
+		this.data = new byte[256];
+	}
+
+	/**
+	 * Forget everything written, but keep the memory.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @return how many bytes have been written.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Make sure there's room for more bytes.
+	 * @param more - how many.
+	 */
+	private void reserve(int more) {
+		if (size + more > data.length) {
+			data = Arrays.copyOf(data, Math.max(data.length * 2, size + more));
+		}
+	}
+
+	/**
+	 * Write one byte.
+	 * @param b - the byte (only the low 8 bits are kept).
+	 */
+	public void putByte(int b) {
+		reserve(1);
+		data[size++] = (byte) b;
+	}
+
+	/**
+	 * Write a number that is never negative.
+	 * @param value - treated as unsigned.
+	 */
+	public void putVarInt(int value) {
+		reserve(5);
+		while ((value & ~0x7F) != 0) {
+			data[size++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		data[size++] = (byte) value;
+	}
+
+	/**
+	 * Write a number that might be negative.
+	 * @param value - any int.
+	 */
+	public void putSignedVarInt(int value) {
+		putVarInt((value << 1) ^ (value >> 31));
+	}
+
+	/**
+	 * Write a long that is never negative.
+	 * @param value - treated as unsigned.
+	 */
+	public void putVarLong(long value) {
+		reserve(10);
+		while ((value & ~0x7FL) != 0) {
+			data[size++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		data[size++] = (byte) value;
+	}
+
+	/**
+	 * Write a long as exactly 8 bytes (for hashes, which varints would only make longer).
+	 * @param value - any long.
+	 */
+	public void putLong(long value) {
+		reserve(8);
+		for (int i=0; i<8; i++) {
+			data[size++] = (byte) (value >>> (8 * i));
+		}
+	}
+
+	/**
+	 * Copy bytes straight from another message (e.g. to pass part of it along).
+	 * @param in - where to read from; its position moves past the bytes.
+	 * @param length - how many bytes.
+	 */
+	public void putBytes(ByteBuffer in, int length) {
+		reserve(length);
+		in.get(data, size, length);
+		size += length;
+	}
+
+	/**
+	 * Copy everything another buffer has written onto the end of this one.
+	 * @param other - the other buffer (it doesn't change).
+	 */
+	public void putBytes(WireBuffer other) {
+		reserve(other.size);
+		System.arraycopy(other.data, 0, data, size, other.size);
+		size += other.size;
+	}
+
+	/**
+	 * Write what has been written to a stream, without copying it first.
+	 * @param out - where to.
+	 * @throws IOException if the stream can't be written.
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		out.write(data, 0, size);
+	}
+
+	/**
+	 * Copy what has been written into a new, read-only buffer.
+	 * @return the bytes, ready to read or send.
+	 */
+	public ByteBuffer toByteBuffer() {
+		return ByteBuffer.wrap(Arrays.copyOf(data, size)).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Read a number written by {@link #putVarInt}.
+	 * @param in - where to read from.
+	 * @return the number.
+	 */
+	public static int getVarInt(ByteBuffer in) {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			byte b = in.get();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalStateException("Malformed varint");
+	}
+
+	/**
+	 * Read a number written by {@link #putSignedVarInt}.
+	 * @param in - where to read from.
+	 * @return the number.
+	 */
+	public static int getSignedVarInt(ByteBuffer in) {
+		int raw = getVarInt(in);
+		return (raw >>> 1) ^ -(raw & 1);
+	}
+
+	/**
+	 * Read a long written by {@link #putVarLong}.
+	 * @param in - where to read from.
+	 * @return the number.
+	 */
+	public static long getVarLong(ByteBuffer in) {
+		long value = 0;
+		for (int shift = 0; shift < 70; shift += 7) {
+			byte b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalStateException("Malformed varint");
+	}
+
+	/**
+	 * Read a long written by {@link #putLong}.
+	 * @param in - where to read from.
+	 * @return the number.
+	 */
+	public static long getLong(ByteBuffer in) {
+		long value = 0;
+		for (int i=0; i<8; i++) {
+			value |= (long) (in.get() & 0xFF) << (8 * i);
+		}
+		return value;
+	}
+}
@@ -6,7 +6,8 @@
 package edu.smith.cs.csc212.fishgrid;
 
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 import me.jjfoley.gfx.IntPoint;
 
@@ -26,12 +27,88 @@ public class World {
 	private int height;
 	/**
 	 * A list of objects in the world (Fish, Snail, Rock, etc.).
+	 * Each one knows its place in it ({@link WorldObject#listIndex}), so removing is a swap with the last one.
 	 */
-	private List<WorldObject> items;
+	private ArrayList<WorldObject> items;
+	/**
+	 * The same objects as {@link #items}, split up by {@link Kind} (each knows its place: {@link WorldObject#kindIndex}).
+	 */
+	private final List<ArrayList<WorldObject>> byKind = new ArrayList<>();
+	/**
+	 * Read-only views of {@link #byKind}, made once so handing them out costs nothing.
+	 */
+	private final List<List<WorldObject>> kindViews = new ArrayList<>();
+	/**
+	 * The handle table: which object holds each slot (null for a free slot).
+	 */
+	private WorldObject[] slots = new WorldObject[64];
+	/**
+	 * How many times each slot has been given back; part of every handle, so an old handle never finds a new object.
+	 * A slot that has used up every generation (wrapped round to -1) is retired rather than used again.
+	 */
+	int[] generations = new int[64];
+	/**
+	 * How many slots have ever been used.
+	 */
+	private int numSlots;
+	/**
+	 * Slots that were given back and can be used again (a stack).
+	 */
+	private int[] freeSlots = new int[64];
+	/**
+	 * How many entries of {@link #freeSlots} are used.
+	 */
+	private int numFree;
+	/**
+	 * Each cell of the grid keeps the head of a little linked list of the objects standing in it.
+	 * The list continues through {@link WorldObject#nextInCell}, so looking at a cell never scans every item.
+	 */
+	private WorldObject[] cells;
+	/**
+	 * How many cells have at least one object in them.
+	 */
+	private int usedCells;
+	/**
+	 * How many cells in each row have at least one object in them.
+	 */
+	private int[] usedInRow;
+	/**
+	 * Cells that may have more than one object in them (see {@link #broadPhase()}); some may have emptied out since.
+	 */
+	private int[] crowded = new int[64];
+	/**
+	 * How many entries of {@link #crowded} are used.
+	 */
+	private int numCrowded;
+	/**
+	 * Which cells are in {@link #crowded}, so none is listed twice.
+	 */
+	private boolean[] inCrowded;
+	/**
+	 * Everybody who wants to hear about changes (see {@link WorldListener}).
+	 */
+	private List<WorldListener> listeners = new ArrayList<>();
+	/**
+	 * True between {@link #beginTick()} and {@link #commit()}: registers and removes wait for the commit.
+	 */
+	private boolean deferring;
+	/**
+	 * Objects registered since {@link #beginTick()}.
+	 */
+	private List<WorldObject> spawning = new ArrayList<>();
+	/**
+	 * Objects removed since {@link #beginTick()}.
+	 */
+	private List<WorldObject> removing = new ArrayList<>();
+	/**
+	 * The id that the next new object gets (see {@link WorldObject#getId()}).
+	 */
+	private int nextId = 1;
 	/**
 	 * A reference to a random object, so we can randomize placement of objects in this world.
+	 * Everything in this world shares it, so one seed replays the whole game.
 	 */
-	private Random rand = ThreadLocalRandom.current();
+	private Random rand;
 
 	/**
 	 * Create a new world of a given width and height.
@@ -39,9 +116,268 @@ public class World {
 	 * @param h - height of the world.
 	 */
 	public World(int w, int h) {
+		this(w, h, new Random());
+	}
+
+	/**
+	 * Create a new world of a given width and height, with its own source of randomness.
+	 * @param w - width of the world.
+	 * @param h - height of the world.
+	 * @param rand - where everything in this world gets randomness (seed it to replay a game).
+	 */
+	public World(int w, int h, Random rand) {
+		this.rand = rand;
 		items = new ArrayList<>();
+		for (int k=0; k<Kind.ALL.length; k++) {
+			byKind.add(new ArrayList<>());
+			kindViews.add(Collections.unmodifiableList(byKind.get(k)));
+		}
 		width = w;
 		height = h;
+		cells = new WorldObject[w * h];
+		usedInRow = new int[h];
+		inCrowded = new boolean[w * h];
+	}
+	
+	/**
+	 * Which cell of the grid is (x,y)?
+	 * @param x - the tile-x.
+	 * @param y - the tile-y.
+	 * @return the cell number, or -1 if (x,y) is off of the grid.
+	 */
+	int cellOf(int x, int y) {
+		if (x < 0 || x >= width || y < 0 || y >= height) {
+			return -1;
+		}
+		return y * width + x;
+	}
+	
+	/**
+	 * The first object standing in a cell; follow {@link WorldObject#nextInCell} for the rest.
+	 * @param cell - a cell number from {@link #cellOf}.
+	 * @return the object, or null if the cell is empty.
+	 */
+	WorldObject firstInCell(int cell) {
+		return cells[cell];
+	}
+	
+	/**
+	 * Copy everything standing in a cell into a list.
+	 * @param cell - a cell number from {@link #cellOf}.
+	 * @param found - cleared, then filled with the objects.
+	 */
+	void cellInto(int cell, List<WorldObject> found) {
+		found.clear();
+		for (WorldObject it = cells[cell]; it != null; it = it.nextInCell) {
+			found.add(it);
+		}
+	}
+	
+	/**
+	 * Find every cell where things overlap. The cells are remembered as objects arrive in them, so this
+	 * only costs as much as the number of crowded cells (cells that emptied out are dropped here).
+	 * @return how many cells have two or more objects in them; read them with {@link #crowdedCell}.
+	 */
+	int broadPhase() {
+		int kept = 0;
+		for (int i=0; i<numCrowded; i++) {
+			int cell = crowded[i];
+			if (cells[cell] != null && cells[cell].nextInCell != null) {
+				crowded[kept++] = cell;
+			} else {
+				inCrowded[cell] = false;
+			}
+		}
+		numCrowded = kept;
+		return kept;
+	}
+	
+	/**
+	 * One of the cells found by the last {@link #broadPhase()}.
+	 * @param i - which one (0 up to what broadPhase returned).
+	 * @return a cell number; walk it with {@link #firstInCell}. Things may have left it since.
+	 */
+	int crowdedCell(int i) {
+		return crowded[i];
+	}
+	
+	/**
+	 * Put an item into the linked list of the cell it stands in.
+	 * @param item - a registered WorldObject.
+	 */
+	private void link(WorldObject item) {
+		int cell = cellOf(item.getX(), item.getY());
+		if (cell < 0) {
+			// Registered, but somewhere we will never look.
+			item.cell = WorldObject.OFF_GRID;
+			return;
+		}
+		item.cell = cell;
+		item.nextInCell = cells[cell];
+		if (cells[cell] == null) {
+			countUsed(item, cell, +1);
+		} else if (!inCrowded[cell]) {
+			// Somebody's already here: the next broad phase should look at this cell.
+			inCrowded[cell] = true;
+			if (item.steppingIn != null) {
+				item.steppingIn.crowded(cell);
+			} else {
+				addCrowded(cell);
+			}
+		}
+		cells[cell] = item;
+	}
+	
+	/**
+	 * A cell was filled (+1) or emptied (-1): keep {@link #usedCells} and {@link #usedInRow} up to date.
+	 * @param item - who filled or emptied it.
+	 * @param cell - the cell.
+	 * @param change - +1 or -1.
+	 */
+	private void countUsed(WorldObject item, int cell, int change) {
+		if (item.steppingIn != null) {
+			// Other regions share these counts; the stepper adds them up when everyone is done.
+			item.steppingIn.used(cell / width, change);
+			return;
+		}
+		usedCells += change;
+		usedInRow[cell / width] += change;
+	}
+	
+	/**
+	 * Add up counts that a {@link RegionStepper} region kept on the side.
+	 * @param row - a row.
+	 * @param change - how many more of its cells are used.
+	 */
+	void addUsed(int row, int change) {
+		usedCells += change;
+		usedInRow[row] += change;
+	}
+	
+	/**
+	 * Put a cell on the list for the next {@link #broadPhase()} (the caller has set {@link #inCrowded} already).
+	 * @param cell - the cell.
+	 */
+	void addCrowded(int cell) {
+		if (numCrowded == crowded.length) {
+			crowded = Arrays.copyOf(crowded, numCrowded * 2);
+		}
+		crowded[numCrowded++] = cell;
+	}
+	
+	/**
+	 * Take an item back out of the linked list of the cell it was last put in.
+	 * @param item - a registered WorldObject.
+	 */
+	private void unlink(WorldObject item) {
+		int cell = item.cell;
+		item.cell = WorldObject.NOT_REGISTERED;
+		if (cell < 0) {
+			return;
+		}
+		if (cells[cell] == item) {
+			cells[cell] = item.nextInCell;
+			if (cells[cell] == null) {
+				countUsed(item, cell, -1);
+			}
+		} else {
+			WorldObject before = cells[cell];
+			while (before != null && before.nextInCell != item) {
+				before = before.nextInCell;
+			}
+			if (before != null) {
+				before.nextInCell = item.nextInCell;
+			}
+		}
+		item.nextInCell = null;
+	}
+	
+	/**
+	 * WorldObject calls this after its x or y changes, so the cell lists stay correct.
+	 * @param item - the object that moved.
+	 * @param fromX - where it was (x).
+	 * @param fromY - where it was (y).
+	 */
+	void moved(WorldObject item, int fromX, int fromY) {
+		if (item.cell == WorldObject.NOT_REGISTERED) {
+			// Not in this world (yet), e.g. the player is placed before it is registered.
+			return;
+		}
+		if (fromX == item.getX() && fromY == item.getY()) {
+			return;
+		}
+		unlink(item);
+		link(item);
+		if (item.pending == WorldObject.SPAWNING) {
+			// Listeners will hear about it (where it ends up) at the commit.
+			return;
+		}
+		if (item.steppingIn != null) {
+			// Listeners aren't made for many threads; they hear about it when the stepper is done.
+			if (!listeners.isEmpty()) {
+				item.steppingIn.moved(item, fromX, fromY);
+			}
+			return;
+		}
+		fireMoved(item, fromX, fromY);
+	}
+	
+	/**
+	 * Objects call this when something about them other than their position changes, so listeners that keep their
+	 * own copy hear about it without looking at every object every tick.
+	 * @param item - the object that changed.
+	 */
+	void changed(WorldObject item) {
+		if (item.cell == WorldObject.NOT_REGISTERED || item.pending == WorldObject.SPAWNING) {
+			// Listeners will hear about it as it is when it's added.
+			return;
+		}
+		if (item.steppingIn != null) {
+			// As with moves: the listeners hear about it when the stepper is done.
+			if (!listeners.isEmpty()) {
+				item.steppingIn.changed(item);
+			}
+			return;
+		}
+		fireChanged(item);
+	}
+	
+	/**
+	 * Tell every listener that something changed.
+	 * @param item - the object that changed.
+	 */
+	void fireChanged(WorldObject item) {
+		for (int i=0; i<listeners.size(); i++) {
+			listeners.get(i).objectChanged(item);
+		}
+	}
+	
+	/**
+	 * Tell every listener that something moved.
+	 * @param item - the object that moved.
+	 * @param fromX - where it was (x).
+	 * @param fromY - where it was (y).
+	 */
+	void fireMoved(WorldObject item, int fromX, int fromY) {
+		for (int i=0; i<listeners.size(); i++) {
+			listeners.get(i).objectMoved(item, fromX, fromY);
+		}
+	}
+	
+	/**
+	 * Start telling a listener about every register, remove, and move in this world.
+	 * @param listener - who to tell.
+	 */
+	public void addListener(WorldListener listener) {
+		listeners.add(listener);
+	}
+	
+	/**
+	 * Stop telling a listener about changes.
+	 * @param listener - who to stop telling.
+	 */
+	public void removeListener(WorldListener listener) {
+		listeners.remove(listener);
 	}
 
 	/**
@@ -52,20 +388,84 @@ public class World {
 	 */
 	public List<WorldObject> find(int x, int y) {
 		List<WorldObject> found = new ArrayList<>();
+		findInto(x, y, found);
 		
-		// Check out every object in the world to find the ones at a particular point.
-		for (WorldObject w : this.items) {
-			// But only the ones that match are "found".
-			if (x == w.getX() && y == w.getY()) {
+		// Give back the list, even if empty.
+		return found;
+	}
+	
+	/**
+	 * What is under this point? Like {@link #find}, but fills a list you already have, so nothing new is made.
+	 * @param x - the tile-x.
+	 * @param y - the tile-y.
+	 * @param found - cleared, then filled with the objects.
+	 * @return the same list.
+	 */
+	public <L extends List<? super WorldObject>> L findInto(int x, int y, L found) {
+		found.clear();
+		
+		// Only the objects linked into this cell can be "found".
+		int cell = cellOf(x, y);
+		if (cell >= 0) {
+			for (WorldObject w = cells[cell]; w != null; w = w.nextInCell) {
 				found.add(w);
 			}
 		}
-		
-		// Give back the list, even if empty.
 		return found;
 	}
 	
 	
+	/**
+	 * Find the closest object that passes a test, counting distance in up/down/left/right steps.
+	 * We look outward from (x,y) one ring of cells at a time, so close objects are found without looking far.
+	 * @param x - where to look from (x).
+	 * @param y - where to look from (y).
+	 * @param maxDistance - how many steps away to look, at most.
+	 * @param test - which objects count.
+	 * @return the closest one (ties go to whichever we see first), or null if none is that close.
+	 */
+	public WorldObject nearest(int x, int y, int maxDistance, Predicate<? super WorldObject> test) {
+		// Nothing on the grid is further than this.
+		int far = Math.max(x, width - 1 - x) + Math.max(y, height - 1 - y);
+		maxDistance = Math.min(maxDistance, far);
+		for (int d=0; d<=maxDistance; d++) {
+			// The cells exactly d steps away make a diamond; walk it a column at a time.
+			int dxMin = Math.max(-d, -x);
+			int dxMax = Math.min(d, width - 1 - x);
+			for (int dx=dxMin; dx<=dxMax; dx++) {
+				int dy = d - Math.abs(dx);
+				WorldObject found = firstIn(x + dx, y - dy, test);
+				if (found == null && dy != 0) {
+					found = firstIn(x + dx, y + dy, test);
+				}
+				if (found != null) {
+					return found;
+				}
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * The first object in a cell that passes a test.
+	 * @param x - the tile-x.
+	 * @param y - the tile-y.
+	 * @param test - which objects count.
+	 * @return the object, or null (also if (x,y) is off of the grid).
+	 */
+	private WorldObject firstIn(int x, int y, Predicate<? super WorldObject> test) {
+		int cell = cellOf(x, y);
+		if (cell < 0) {
+			return null;
+		}
+		for (WorldObject w = cells[cell]; w != null; w = w.nextInCell) {
+			if (test.test(w)) {
+				return w;
+			}
+		}
+		return null;
+	}
+	
 	/**
 	 * This is used by PlayGame to draw all our items!
 	 * @return the list of items.
@@ -78,22 +478,302 @@ public class World {
 		return Collections.unmodifiableList(items);
 	}
 
+	/**
+	 * Everything of one kind, without looking at anything else (the same objects, in some order, as
+	 * {@link #viewItems()} has of that kind).
+	 * @param kind - which kind.
+	 * @return a read-only list that stays up to date (don't change the world while looping over it outside of a tick).
+	 */
+	public List<WorldObject> viewKind(Kind kind) {
+		return kindViews.get(kind.ordinal());
+	}
+	
+	/**
+	 * Everything of one kind, as the class it really is: {@code viewKind(Kind.FISH, Fish.class)} is a {@code List<Fish>}.
+	 * @param kind - which kind.
+	 * @param type - its class, or one of its superclasses.
+	 * @return a read-only list that stays up to date.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends WorldObject> List<T> viewKind(Kind kind, Class<T> type) {
+		if (!type.isAssignableFrom(kind.type)) {
+			throw new IllegalArgumentException(kind + " objects are not " + type.getSimpleName());
+		}
+		return (List<T>) kindViews.get(kind.ordinal());
+	}
+	
+	/**
+	 * @param kind - which kind.
+	 * @return how many objects of that kind are in the world.
+	 */
+	public int count(Kind kind) {
+		return byKind.get(kind.ordinal()).size();
+	}
+
 	/**
 	 * Add an item to this World.
+	 * During a tick (see {@link #beginTick()}), it takes up its cell right away, but only joins
+	 * {@link #viewItems()} (and is announced to listeners) at the {@link #commit()}.
 	 * @param item - the Fish, Rock, Snail, or other WorldObject.
 	 */
 	public void register(WorldObject item) {
 		// Print out what we've added, for our sanity.
-		items.add(item);
+		if (item.id == 0) {
+			item.id = nextId++;
+		} else if (item.id >= nextId) {
+			// It came with an id (e.g. from another band of the ocean): don't hand that one out again.
+			nextId = item.id + 1;
+		}
+		takeSlot(item);
+		if (item.pending == WorldObject.REMOVING) {
+			// Removed and added back in the same tick: as if nothing happened, except maybe a move.
+			item.pending = WorldObject.SETTLED;
+			link(item);
+			if (item.getX() != item.removedX || item.getY() != item.removedY) {
+				fireMoved(item, item.removedX, item.removedY);
+			}
+			return;
+		}
+		link(item);
+		if (deferring) {
+			item.pending = WorldObject.SPAWNING;
+			spawning.add(item);
+			return;
+		}
+		addToList(item);
+		for (int i=0; i<listeners.size(); i++) {
+			listeners.get(i).objectAdded(item);
+		}
 	}
 	
 	/**
 	 * This is the opposite of register. It removes an item (like a fish) from the World.
+	 * During a tick (see {@link #beginTick()}), it leaves its cell right away, but only leaves
+	 * {@link #viewItems()} (and is announced to listeners) at the {@link #commit()}.
 	 * @param item - the item to remove.
 	 */
 	public void remove(WorldObject item) {
 		// Print out what we've removed, for our sanity.
-		items.remove(item);
+		if (item.cell == WorldObject.NOT_REGISTERED) {
+			// Not here (or already removed this tick).
+			return;
+		}
+		unlink(item);
+		releaseSlot(item);
+		if (item.pending == WorldObject.SPAWNING) {
+			// Added and removed in the same tick: nobody needs to hear about it.
+			item.pending = WorldObject.SETTLED;
+			return;
+		}
+		if (deferring) {
+			item.pending = WorldObject.REMOVING;
+			item.removedX = item.getX();
+			item.removedY = item.getY();
+			removing.add(item);
+			return;
+		}
+		removeFromList(item);
+		for (int i=0; i<listeners.size(); i++) {
+			listeners.get(i).objectRemoved(item);
+		}
+	}
+	
+	/**
+	 * Put a registered item at a particular place in the item list and in the list of its kind (for {@link Rewind},
+	 * which puts the lists back in the order they were, since that's the order things step in).
+	 * Whatever was there is overwritten, so whoever calls this has to put that one somewhere too.
+	 * @param item - the item.
+	 * @param index - where it goes in {@link #viewItems()}.
+	 * @param kindIndex - where it goes in {@link #viewKind(Kind)}.
+	 */
+	void putInLists(WorldObject item, int index, int kindIndex) {
+		items.set(index, item);
+		item.listIndex = index;
+		byKind.get(item.getKind().ordinal()).set(kindIndex, item);
+		item.kindIndex = kindIndex;
+	}
+
+	/**
+	 * @return the id that the next new object will get.
+	 */
+	int getNextId() {
+		return nextId;
+	}
+
+	/**
+	 * Hand out ids from here on (for {@link Rewind}: nobody may still be using them).
+	 * @param nextId - the id that the next new object gets.
+	 */
+	void setNextId(int nextId) {
+		this.nextId = nextId;
+	}
+
+	/**
+	 * Make room for lots of objects that are about to be registered (e.g. by {@link Level#load}), so the lists
+	 * and the handle table grow once instead of doubling over and over.
+	 * @param perKind - how many more objects of each kind, by ordinal.
+	 */
+	void reserve(int[] perKind) {
+		int total = 0;
+		for (int k=0; k<perKind.length; k++) {
+			byKind.get(k).ensureCapacity(byKind.get(k).size() + perKind[k]);
+			total += perKind[k];
+		}
+		items.ensureCapacity(items.size() + total);
+		if (numSlots + total > slots.length) {
+			slots = Arrays.copyOf(slots, numSlots + total);
+			generations = Arrays.copyOf(generations, numSlots + total);
+		}
+	}
+	
+	/**
+	 * Put an item at the end of the item list.
+	 * @param item - an item that isn't in the list.
+	 */
+	private void addToList(WorldObject item) {
+		item.listIndex = items.size();
+		items.add(item);
+		ArrayList<WorldObject> sameKind = byKind.get(item.getKind().ordinal());
+		item.kindIndex = sameKind.size();
+		sameKind.add(item);
+	}
+	
+	/**
+	 * Take an item out of the item list by moving the last item into its place.
+	 * The order changes, but the same game always changes it the same way.
+	 * @param item - an item in the list.
+	 */
+	private void removeFromList(WorldObject item) {
+		int last = items.size() - 1;
+		WorldObject moved = items.remove(last);
+		if (moved != item) {
+			items.set(item.listIndex, moved);
+			moved.listIndex = item.listIndex;
+		}
+		item.listIndex = -1;
+		
+		// And the same again in the list of its kind.
+		ArrayList<WorldObject> sameKind = byKind.get(item.getKind().ordinal());
+		moved = sameKind.remove(sameKind.size() - 1);
+		if (moved != item) {
+			sameKind.set(item.kindIndex, moved);
+			moved.kindIndex = item.kindIndex;
+		}
+		item.kindIndex = -1;
+	}
+	
+	/**
+	 * Give a newly registered item a slot in the handle table.
+	 * @param item - the item.
+	 */
+	private void takeSlot(WorldObject item) {
+		int slot;
+		if (numFree > 0) {
+			slot = freeSlots[--numFree];
+		} else {
+			if (numSlots == slots.length) {
+				slots = Arrays.copyOf(slots, numSlots * 2);
+				generations = Arrays.copyOf(generations, numSlots * 2);
+			}
+			slot = numSlots++;
+		}
+		slots[slot] = item;
+		item.slot = slot;
+	}
+	
+	/**
+	 * Give a removed item's slot back; handles to it stop working.
+	 * @param item - the item.
+	 */
+	private void releaseSlot(WorldObject item) {
+		int slot = item.slot;
+		slots[slot] = null;
+		if (++generations[slot] == -1) {
+			// Used again, it would hand out handles from 4 billion removes ago; and slot 0 would hand out 0.
+			item.slot = -1;
+			return;
+		}
+		if (numFree == freeSlots.length) {
+			freeSlots = Arrays.copyOf(freeSlots, numFree * 2);
+		}
+		freeSlots[numFree++] = slot;
+		item.slot = -1;
+	}
+	
+	/**
+	 * A handle is a way to refer to an object that can tell when the object is gone,
+	 * without keeping it alive or mixing it up with whatever is registered after it.
+	 * @param item - a registered item.
+	 * @return its handle, or 0 if it isn't registered here.
+	 */
+	public long handleOf(WorldObject item) {
+		if (item.slot < 0 || slots[item.slot] != item) {
+			return 0;
+		}
+		// The generation is stored one higher, so that no real handle is 0.
+		return ((long) (generations[item.slot] + 1) << 32) | item.slot;
+	}
+	
+	/**
+	 * Follow a handle from {@link #handleOf}.
+	 * @param handle - the handle.
+	 * @return the object, or null if it has been removed since (or the handle is 0).
+	 */
+	public WorldObject lookup(long handle) {
+		int slot = (int) handle;
+		int generation = (int) (handle >>> 32) - 1;
+		if (slot < 0 || slot >= numSlots || generations[slot] != generation) {
+			return null;
+		}
+		return slots[slot];
+	}
+	
+	/**
+	 * Start a tick: from now until {@link #commit()}, register and remove only change the grid right away, and the
+	 * item list and the listeners catch up all at once at the commit. So it's safe to register or remove while
+	 * looping over the items (like in {@link #stepAll()}).
+	 *
+	 * Moves still happen right away, since {@link #canSwim} has to see where everybody is now.
+	 */
+	public void beginTick() {
+		deferring = true;
+	}
+	
+	/**
+	 * End a tick: apply every register and remove since {@link #beginTick()}, then tell the listeners.
+	 */
+	public void commit() {
+		deferring = false;
+		for (int r=0; r<removing.size(); r++) {
+			WorldObject it = removing.get(r);
+			if (it.pending == WorldObject.REMOVING) {
+				it.pending = WorldObject.SETTLED;
+				removeFromList(it);
+				for (int i=0; i<listeners.size(); i++) {
+					listeners.get(i).objectRemoved(it);
+				}
+			}
+		}
+		removing.clear();
+		for (int s=0; s<spawning.size(); s++) {
+			WorldObject it = spawning.get(s);
+			if (it.pending == WorldObject.SPAWNING) {
+				it.pending = WorldObject.SETTLED;
+				addToList(it);
+				for (int i=0; i<listeners.size(); i++) {
+					listeners.get(i).objectAdded(it);
+				}
+			}
+		}
+		spawning.clear();
+	}
+	
+	/**
+	 * Where everything in this world gets randomness.
+	 * @return the world's Random.
+	 */
+	public Random getRandom() {
+		return rand;
 	}
 	
 	/**
@@ -111,33 +791,64 @@ public class World {
 		return height;
 	}
 	
+	/**
+	 * Is there anywhere left to put a new object?
+	 * @return true if at least one cell is empty.
+	 */
+	public boolean hasUnusedSpace() {
+		return usedCells < width * height;
+	}
+	
+	/**
+	 * How many random cells to try before we give up on luck and count the empty ones.
+	 */
+	static final int MAX_RANDOM_TRIES = 32;
+	
 	/**
 	 * Try to find an unused part of the World for a new object!
 	 * @return a point (x,y) that has nothing else in the grid.
 	 */
 	public IntPoint pickUnusedSpace() {
-		// Build a set of all available spaces:
-		Set<IntPoint> available = new HashSet<>();
-		for (int x=0; x<getWidth(); x++) {
-			for (int y=0; y<getHeight(); y++) {
-				available.add(new IntPoint(x, y));
-			}
-		}
-		// Remove any spaces that are in use:
-		for (WorldObject item : this.items) {
-			available.remove(item.getPosition());
-		}
-
+		int cell = pickUnusedCell();
+		return new IntPoint(cell % width, cell / width);
+	}
+	
+	/**
+	 * Like {@link #pickUnusedSpace()}, but gives back a cell number (see {@link #cellOf}) so no IntPoint is made.
+	 * @return the number of a cell that has nothing in it.
+	 */
+	int pickUnusedCell() {
 		// If we get here, we have too much stuff.
 		// Let's crash our Java program!
-		if (available.size() == 0) {
+		if (!hasUnusedSpace()) {
 			throw new IllegalStateException("The world is too small! Trying to pick an unused space but there's nothing left.");
 		}
-
-		// Return an unused space at random: Need to copy to a list since sets do not have orders.
-		List<IntPoint> unused = new ArrayList<>(available);
-		int which = rand.nextInt(unused.size());
-		return unused.get(which);
+		
+		// Usually most of the grid is empty, so a few random guesses find a spot right away.
+		int size = width * height;
+		for (int tries=0; tries<MAX_RANDOM_TRIES; tries++) {
+			int cell = rand.nextInt(size);
+			if (cells[cell] == null) {
+				return cell;
+			}
+		}
+		
+		// The grid is nearly full: pick one of the empty cells, all equally likely, by counting them
+		// (whole rows at a time, until we get to the row it's in).
+		int which = rand.nextInt(size - usedCells);
+		for (int y=0; y<height; y++) {
+			int free = width - usedInRow[y];
+			if (which >= free) {
+				which -= free;
+				continue;
+			}
+			for (int x=0; x<width; x++) {
+				if (cells[y * width + x] == null && which-- == 0) {
+					return y * width + x;
+				}
+			}
+		}
+		throw new AssertionError("usedCells is wrong!");
 	}
 	
 	/**
@@ -145,11 +856,144 @@ public class World {
 	 * @param item - the rock, fish, snail or other WorldObject.
 	 */
 	public void insertRandomly(WorldObject item) {
-		item.setPosition(pickUnusedSpace());
+		int cell = pickUnusedCell();
+		item.setPosition(cell % width, cell / width);
 		this.register(item);
 		item.checkFindMyself();
 	}
 	
+	/**
+	 * About how many cells each band of rows covers when placing lots of objects at once.
+	 */
+	private static final int BAND_CELLS = 1 << 16;
+	
+	/**
+	 * Put lots of objects into different empty cells at once, every empty cell equally likely for each of them.
+	 *
+	 * The grid is cut into bands of rows, and each band gets its share of the objects (in proportion to how empty
+	 * it is). Then each band picks its cells by shuffling just the start of a virtual list of its cells, so a band
+	 * costs about as much as the objects it gets, not as much as its size. Big grids do their bands in parallel.
+	 * Finally, all the objects are registered together.
+	 *
+	 * @param newItems - objects that aren't in any world yet.
+	 * @throws IllegalStateException if there aren't enough empty cells.
+	 */
+	public void insertAllRandomly(List<? extends WorldObject> newItems) {
+		int n = newItems.size();
+		int free = width * height - usedCells;
+		if (n > free) {
+			throw new IllegalStateException("The world is too small! Trying to place " + n + " objects in " + free + " empty cells.");
+		}
+		if (n == 0) {
+			return;
+		}
+		
+		// Cut the grid into bands of whole rows, and count the empty cells in each.
+		int bandRows = Math.max(1, BAND_CELLS / width);
+		int bands = (height + bandRows - 1) / bandRows;
+		int[] bandFree = new int[bands];
+		for (int y=0; y<height; y++) {
+			bandFree[y / bandRows] += width - usedInRow[y];
+		}
+		
+		// Share the objects out: each band gets its expected share, rounded up or down at random so that
+		// every empty cell is still equally likely.
+		int[] bandCount = new int[bands];
+		double offset = rand.nextDouble();
+		double expected = 0;
+		for (int b=0; b<bands; b++) {
+			double before = expected;
+			expected += (double) n * bandFree[b] / free;
+			bandCount[b] = Math.min(bandFree[b], (int) Math.floor(expected + offset) - (int) Math.floor(before + offset));
+		}
+		// Floating point might leave us one short somewhere; give it to any band with room.
+		int placed = 0;
+		for (int b=0; b<bands; b++) {
+			placed += bandCount[b];
+		}
+		for (int b=0; placed < n; b = (b + 1) % bands) {
+			if (bandCount[b] < bandFree[b]) {
+				bandCount[b]++;
+				placed++;
+			}
+		}
+		
+		// Each band picks its own cells, with its own randomness (so bands can run at the same time).
+		int[] start = new int[bands + 1];
+		long[] seeds = new long[bands];
+		for (int b=0; b<bands; b++) {
+			start[b + 1] = start[b] + bandCount[b];
+			seeds[b] = rand.nextLong();
+		}
+		int[] picked = new int[n];
+		IntStream range = IntStream.range(0, bands);
+		if (bands > 1 && n > BAND_CELLS) {
+			range = range.parallel();
+		}
+		range.forEach(b -> {
+			if (bandCount[b] > 0) {
+				int first = b * bandRows * width;
+				int last = Math.min(height, (b + 1) * bandRows) * width;
+				pickEmptyCells(first, last - first, bandCount[b], new Random(seeds[b]), picked, start[b]);
+			}
+		});
+		
+		// The bands came out in order; shuffle so which object lands in which band is random too.
+		for (int i=n - 1; i>0; i--) {
+			int j = rand.nextInt(i + 1);
+			int tmp = picked[i];
+			picked[i] = picked[j];
+			picked[j] = tmp;
+		}
+		
+		items.ensureCapacity(items.size() + n);
+		for (int i=0; i<n; i++) {
+			WorldObject item = newItems.get(i);
+			item.setPosition(picked[i] % width, picked[i] / width);
+			register(item);
+		}
+	}
+	
+	/**
+	 * Pick some different empty cells out of a run of cells, by shuffling the start of a virtual list of them.
+	 * Only the swaps are remembered, so this costs about as much as the number of cells we look at.
+	 * @param first - the first cell of the run.
+	 * @param length - how many cells are in the run.
+	 * @param count - how many empty cells to pick (there must be at least that many).
+	 * @param rand - where to get randomness.
+	 * @param out - where to write the picked cells.
+	 * @param at - where in out to start writing.
+	 */
+	private void pickEmptyCells(int first, int length, int count, Random rand, int[] out, int at) {
+		// If we'll look at a good part of the run anyway, a real array is cheaper than remembering swaps.
+		int[] dense = null;
+		Map<Integer, Integer> swaps = null;
+		if (count * 8L > length) {
+			dense = new int[length];
+			for (int i=0; i<length; i++) {
+				dense[i] = i;
+			}
+		} else {
+			swaps = new HashMap<>();
+		}
+		int got = 0;
+		for (int i=0; got < count; i++) {
+			int j = i + rand.nextInt(length - i);
+			int pick;
+			if (dense != null) {
+				pick = dense[j];
+				dense[j] = dense[i];
+			} else {
+				pick = swaps.getOrDefault(j, j);
+				swaps.put(j, swaps.getOrDefault(i, i));
+			}
+			// Full cells are part of the virtual list too; we just skip them.
+			if (cells[first + pick] == null) {
+				out[at + got++] = first + pick;
+			}
+		}
+	}
+	
 	/**
 	 * Insert a new Rock into the world at random.
 	 * @return the Rock.
@@ -206,7 +1050,8 @@ public class World {
 	}
 	
 	/**
-	 * Determine if a WorldObject can swim to a particular point.
+	 * Determine if a WorldObject can swim to a particular point. Rocks and snails block everyone, fish block everyone
+	 * but the player, and homes, bubbles and hearts block everything that isn't a fish; whatever else is in the spot.
 	 * 
 	 * @param whoIsAsking - the object (not just the player!)
 	 * @param x - the x-tile.
@@ -221,10 +1066,8 @@ public class World {
 		// This will be important.
 		boolean isPlayer = whoIsAsking.isPlayer();
 		
-		// We will need to look at who all is in the spot to determine if we can move there.
-		List<WorldObject> inSpot = this.find(x, y);
-		
-		for (WorldObject it : inSpot) {
+		// Everybody in the spot gets a say, and any one of them can block it (so the order they're in doesn't matter).
+		for (WorldObject it = cells[y * width + x]; it != null; it = it.nextInCell) {
 			if (it instanceof Snail) {
 				// This if-statement doesn't let anyone step on the Snail.
 				return false;
@@ -233,51 +1076,57 @@ public class World {
 				// This if-statement doesn't let anyone step on the Rock.
 				return false;
 			}
-			if (it instanceof Fish) {
-				if (isPlayer) {
-					return true;
-				}
-				else {
-					return false;
-				}
-			}
-			if (it instanceof FishHome) {
-				if (isPlayer || whoIsAsking instanceof Fish) {
-					return true;
-				}
-				else {
-					return false;
-				}
+			if (it instanceof Fish && !isPlayer) {
+				// Only the player swims in with other fish.
+				return false;
 			}
-			if (it instanceof Bubble) {
-				if (isPlayer || whoIsAsking instanceof Fish) {
-					return true;
-				}
-				else {
-					return false;
-				}
+			if ((it instanceof FishHome || it instanceof Bubble || it instanceof Heart) && !(whoIsAsking instanceof Fish)) {
+				// Homes, bubbles and hearts are for fish.
+				return false;
 			}
-			if (it instanceof Heart) {
-				if (isPlayer || whoIsAsking instanceof Fish) {
-					return true;
-				}
-				else {
-					return false;
-				}
+		}
+		// If we didn't see an obstacle, we can move there!
+		return true;
+	}
+	
+	/**
+	 * Which of the neighbors of a WorldObject could it swim to right now?
+	 * 
+	 * @param whoIsAsking - the object that wants to move.
+	 * @param directions - {@link Moves#CARDINAL} for up/down/left/right, or {@link Moves#ALL} to include diagonals.
+	 * @return a bit-mask with bit d set if direction d (see {@link Moves}) is open.
+	 */
+	public int validMoves(WorldObject whoIsAsking, int directions) {
+		int x = whoIsAsking.getX();
+		int y = whoIsAsking.getY();
+		int mask = 0;
+		for (int d=0; d<directions; d++) {
+			if (canSwim(whoIsAsking, x + Moves.DX[d], y + Moves.DY[d])) {
+				mask |= 1 << d;
 			}
-			
-		}			
-			// If we didn't see an obstacle, we can move there!
-			return true;
 		}
+		return mask;
+	}
 	
 	
 	/**
-	 * This is how objects may move. Only Snails do right now.
+	 * This is how objects may move. Only Snails and FallingRocks do right now, so only they are looked at
+	 * (see {@link Kind#stepsItself}).
 	 */
 	public void stepAll() {
-		for (WorldObject it : this.items) {
-			it.step();
+		// (Counting instead of an Iterator, so a step doesn't make garbage.)
+		for (int k=0; k<Kind.ALL.length; k++) {
+			if (!Kind.ALL[k].stepsItself) {
+				continue;
+			}
+			ArrayList<WorldObject> movers = byKind.get(k);
+			for (int i=0; i<movers.size(); i++) {
+				WorldObject it = movers.get(i);
+				// Things removed earlier this tick are only still in the list until the commit.
+				if (it.pending != WorldObject.REMOVING) {
+					it.step();
+				}
+			}
 		}
 	}
 	
@@ -289,7 +1138,7 @@ public class World {
 	 */
 	public static void objectsFollow(WorldObject target, List<? extends WorldObject> followers) {
 		// Q1. What is recentPositions?
-		// The recentPosition is a Deque keep up to NUM_RECENT_POSITIONS locations for every fish.
+		// The recentPosition is a ring that keeps up to NUM_RECENT_POSITIONS locations for every fish.
 		// Q2. What is followers?
 		// Followers is a set of objects to follow the leader, to be specific those fishes that the player collected.
 		// Q3. What is target?
@@ -298,7 +1147,7 @@ public class World {
 		// Because if we use i to index the List putWhere, we get where the player is now,
 		// However, in order to let the followers follow the target, we need to know where it was the previous step,
 		// which is index (i+1)
-		List<IntPoint> putWhere = new ArrayList<>(target.recentPositions);
+		PositionHistory putWhere = target.recentPositions;
 		for (int i=0; i < followers.size() && i+1 < putWhere.size(); i++) {
 			// Q5. What is the deal with the two conditions in this for-loop?
 			// Conditions are in the "while" part of this loop.
@@ -307,8 +1156,7 @@ public class World {
 			// However, we cannot index out of the size of the list, there for i < followers.size()
 			// Then, we also use i+1 to index into the List putWhere to get where the target or the player was,
 			// indexing out of that list will cause error too.
-			IntPoint past = putWhere.get(i+1);
-			followers.get(i).setPosition(past.x, past.y);
+			followers.get(i).setPosition(putWhere.getX(i+1), putWhere.getY(i+1));
 		}
 	}
 }
@@ -0,0 +1,44 @@
+/* 
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+/**
+ * Something that wants to hear about every change to a World, so it can keep its own data up to date
+ * without re-scanning the whole world.
+ * 
+ * Add one with {@link World#addListener}.
+ */
+public interface WorldListener {
+	/**
+	 * An object was registered.
+	 * @param item - the new object (already at its position).
+	 */
+	default void objectAdded(WorldObject item) {
+	}
+	
+	/**
+	 * An object was removed.
+	 * @param item - the old object (still at its last position).
+	 */
+	default void objectRemoved(WorldObject item) {
+	}
+	
+	/**
+	 * An object changed position.
+	 * @param item - the object (already at its new position).
+	 * @param fromX - where it was (x).
+	 * @param fromY - where it was (y).
+	 */
+	default void objectMoved(WorldObject item, int fromX, int fromY) {
+	}
+	
+	/**
+	 * Something about an object other than its position changed (like a {@link Snail} turning around).
+	 * @param item - the object.
+	 */
+	default void objectChanged(WorldObject item) {
+	}
+}
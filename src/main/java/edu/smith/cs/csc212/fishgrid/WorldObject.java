@@ -6,8 +6,6 @@
 package edu.smith.cs.csc212.fishgrid;
 
 import java.awt.Graphics2D;
-import java.util.Deque;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ThreadLocalRandom;
@@ -24,9 +22,9 @@ import me.jjfoley.gfx.IntPoint;
  */
 public abstract class WorldObject {
 	/**
-	 * Random in case you want random numbers!
+	 * Random in case you want random numbers! (It's our world's, so a seeded world replays exactly.)
 	 */
-	Random rand = ThreadLocalRandom.current();
+	Random rand;
 	/**
 	 * Where am I? x-tile in the grid.
 	 */
@@ -44,14 +42,71 @@ public abstract class WorldObject {
 	 */
 	public static int NUM_RECENT_POSITIONS = 64;
 	/**
-	 * Here, we use a list that makes it easy to both:
+	 * Here, we use a ring that makes it easy to both:
 	 *  - add to the front and
-	 *  - remove from the back.
+	 *  - forget the back.
 	 * Because we want keep up to NUM_RECENT_POSITIONS locations for every fish.
-	 *
-	 * https://docs.oracle.com/javase/7/docs/api/java/util/Deque.htmlP
+	 * (It used to be a Deque of IntPoints, but that made garbage on every move.)
 	 */
-	public Deque<IntPoint> recentPositions;
+	public PositionHistory recentPositions;
+	/**
+	 * {@link #cell} value for an object that its world does not know about yet.
+	 */
+	static final int NOT_REGISTERED = -1;
+	/**
+	 * {@link #cell} value for a registered object that is somewhere off of the grid.
+	 */
+	static final int OFF_GRID = -2;
+	/**
+	 * Which cell of the world's grid this object is linked into (managed by World).
+	 */
+	int cell = NOT_REGISTERED;
+	/**
+	 * The next object in the same cell as me (managed by World).
+	 */
+	WorldObject nextInCell;
+	/**
+	 * A number for this object that no other object in its world shares (0 until it is registered).
+	 */
+	int id;
+	/**
+	 * Where I am in my world's item list, or -1 if I'm not in it (managed by World).
+	 */
+	int listIndex = -1;
+	/**
+	 * Where I am in my world's list of objects of my kind, or -1 if I'm not in it (managed by World).
+	 */
+	int kindIndex = -1;
+	/**
+	 * The region stepping me right now, if a {@link RegionStepper} is; changes that more than one region could
+	 * touch (the world's counts, and listener events) are kept there instead (managed by RegionStepper).
+	 */
+	RegionStepper.Region steppingIn;
+	/**
+	 * My slot in my world's handle table, or -1 if I'm not registered (managed by World; see {@link World#handleOf}).
+	 */
+	int slot = -1;
+	/**
+	 * {@link #pending} value for an object whose world is up to date about it.
+	 */
+	static final int SETTLED = 0;
+	/**
+	 * {@link #pending} value for an object registered during a tick (it joins the item list at the commit).
+	 */
+	static final int SPAWNING = 1;
+	/**
+	 * {@link #pending} value for an object removed during a tick (it leaves the item list at the commit).
+	 */
+	static final int REMOVING = 2;
+	/**
+	 * Whether this object is waiting for its world's end-of-tick commit (managed by World).
+	 */
+	int pending = SETTLED;
+	/**
+	 * Where I was when I was removed during a tick, so if I'm added back before the commit and have moved since,
+	 * listeners can hear about the move (managed by World).
+	 */
+	int removedX, removedY;
 
 	/**
 	 * Create a new WorldObject -- this is the call to super(world) in Fish.
@@ -60,7 +115,8 @@ public abstract class WorldObject {
 	 */
 	public WorldObject(World world) {
 		this.world = world;
-		this.recentPositions = new LinkedList<>();
+		this.rand = world != null ? world.getRandom() : ThreadLocalRandom.current();
+		this.recentPositions = new PositionHistory();
 	}
 	
 	/**
@@ -78,9 +134,7 @@ public abstract class WorldObject {
 	 * @param y the y-coordinate.
 	 */
 	public void setPosition(int x, int y) {
-		this.x = x;
-		this.y = y;
-		this.updatePosition();
+		this.moveTo(x, y);
 	}
 
 	/**
@@ -92,17 +146,30 @@ public abstract class WorldObject {
 		this.setPosition(pt.x, pt.y);
 	}
 
+	/**
+	 * Private method that every kind of movement goes through, so our world can keep track of us.
+	 * 
+	 * @param x the new x-coordinate.
+	 * @param y the new y-coordinate.
+	 */
+	private void moveTo(int x, int y) {
+		int fromX = this.x;
+		int fromY = this.y;
+		this.x = x;
+		this.y = y;
+		if (this.world != null) {
+			this.world.moved(this, fromX, fromY);
+		}
+		this.updatePosition();
+	}
+
 	/**
 	 * Private method to keep track of this object's position history. Used to make
 	 * Fish follow the Player.
 	 */
 	private void updatePosition() {
-		// Add to front.
-		this.recentPositions.offerFirst(new IntPoint(this.x, this.y));
-		if (this.recentPositions.size() > NUM_RECENT_POSITIONS) {
-			// Remove from back.
-			this.recentPositions.pollLast();
-		}
+		// Add to front (the back falls off by itself once it's full).
+		this.recentPositions.add(this.x, this.y);
 
 	}
 
@@ -112,12 +179,7 @@ public abstract class WorldObject {
 	 * @return true if it moved!
 	 */
 	public boolean moveUp() {
-		if (world.canSwim(this, x, y - 1)) {
-			this.y -= 1;
-			updatePosition();
-			return true;
-		}
-		return false;
+		return move(Moves.UP);
 	}
 
 	/**
@@ -144,12 +206,7 @@ public abstract class WorldObject {
 	 * @return true if it moved!
 	 */
 	public boolean moveDown() {
-		if (world.canSwim(this, x, y + 1)) {
-			this.y += 1;
-			updatePosition();
-			return true;
-		}
-		return false;
+		return move(Moves.DOWN);
 	}
 
 	/**
@@ -158,12 +215,7 @@ public abstract class WorldObject {
 	 * @return true if it moved!
 	 */
 	public boolean moveLeft() {
-		if (world.canSwim(this, x - 1, y)) {
-			this.x -= 1;
-			updatePosition();
-			return true;
-		}
-		return false;
+		return move(Moves.LEFT);
 	}
 
 	/**
@@ -172,9 +224,20 @@ public abstract class WorldObject {
 	 * @return true if it moved!
 	 */
 	public boolean moveRight() {
-		if (world.canSwim(this, x + 1, y)) {
-			this.x += 1;
-			updatePosition();
+		return move(Moves.RIGHT);
+	}
+
+	/**
+	 * Move one step in a direction if possible.
+	 * 
+	 * @param direction one of the directions in {@link Moves}, e.g. {@link Moves#UP}.
+	 * @return true if it moved!
+	 */
+	public boolean move(int direction) {
+		int nx = x + Moves.DX[direction];
+		int ny = y + Moves.DY[direction];
+		if (world.canSwim(this, nx, ny)) {
+			moveTo(nx, ny);
 			return true;
 		}
 		return false;
@@ -184,43 +247,46 @@ public abstract class WorldObject {
 	 * Move randomly! 
 	 */
 	public void moveRandomly() {
-		// Can we move right, left, down, or up?
-		boolean canMove = 
-				world.canSwim(this, x+1, y) ||
-				world.canSwim(this, x-1, y) ||
-				world.canSwim(this, x, y+1) ||
-				world.canSwim(this, x, y-1);
-		
-		// If not, don't try to pick one.
-		if (!canMove) {
+		moveRandomly(Moves.CARDINAL);
+	}
+
+	/**
+	 * Move randomly, picking evenly from every direction that works.
+	 * 
+	 * @param directions {@link Moves#CARDINAL} or {@link Moves#ALL} (to allow diagonal steps).
+	 * @return true if it moved, false if "this" is stuck.
+	 */
+	public boolean moveRandomly(int directions) {
+		// Ask our world about all of our neighbors at once.
+		int open = world.validMoves(this, directions);
+		return moveWithin(open, Moves.pickUniform(open, rand));
+	}
+
+	/**
+	 * Move randomly, but prefer some directions over others.
+	 * 
+	 * @param weights how much we like each direction in {@link Moves}; 4 weights for up/down/right/left, or 8 to allow diagonals.
+	 * @return true if it moved, false if "this" is stuck (or only likes directions that are blocked).
+	 */
+	public boolean moveRandomly(double[] weights) {
+		int open = world.validMoves(this, weights.length);
+		return moveWithin(open, Moves.pickWeighted(open, weights, rand));
+	}
+
+	/**
+	 * Take a step that {@link World#validMoves} already said was open.
+	 * 
+	 * @param open the mask of open directions.
+	 * @param direction the chosen direction, or -1 for none.
+	 * @return true if it moved!
+	 */
+	private boolean moveWithin(int open, int direction) {
+		if (direction < 0 || (open & (1 << direction)) == 0) {
 			// "this" is stuck, and can't go anywhere!
-			return;
-		}
-		
-		// Pick one at random (that works):
-		while (true) {
-			
-			// Choose a direction at random.
-			int direction = ThreadLocalRandom.current().nextInt(4);
-			
-			boolean success = false;
-			if (direction == 0) {
-				success = moveUp();
-			} else if (direction == 1) {
-				success = moveDown();
-			} else if (direction == 2) {
-				success = moveRight();
-			} else {
-				success = moveLeft();
-			}
-			
-			// Did the direction we picked work?
-			if (success) {
-				// If so, exit this method now.
-				break;
-			}
-			// Otherwise go pick another.
+			return false;
 		}
+		moveTo(x + Moves.DX[direction], y + Moves.DY[direction]);
+		return true;
 	}
 
 	/**
@@ -242,6 +308,15 @@ public abstract class WorldObject {
 	}
 
 
+	/**
+	 * Which object am I? Given out by World the first time I'm registered.
+	 * 
+	 * @return my id (or 0 if I was never registered).
+	 */
+	public int getId() {
+		return this.id;
+	}
+
 	public IntPoint getPosition() {
 		return new IntPoint(this.x, this.y);
 	}
@@ -250,9 +325,14 @@ public abstract class WorldObject {
 	 * I'm a world object! I exist in the world somewhere! This method tests that!
 	 */
 	public void checkFindMyself() {
-		if (!findSameCell().contains(this)) {
-			throw new AssertionError("Couldn't find myself! Check World.register still works!");
+		// Walk my cell by hand instead of asking for a list, so this doesn't make garbage.
+		int cell = world.cellOf(this.x, this.y);
+		for (WorldObject it = cell >= 0 ? world.firstInCell(cell) : null; it != null; it = it.nextInCell) {
+			if (it == this) {
+				return;
+			}
 		}
+		throw new AssertionError("Couldn't find myself! Check World.register still works!");
 	}
 
 	/**
@@ -291,6 +371,15 @@ public abstract class WorldObject {
 	 */
 	public abstract void draw(Graphics2D g);
 
+	/**
+	 * What sort of WorldObject is this?
+	 * 
+	 * Abstract so that every subclass says which {@link Kind} it is.
+	 * 
+	 * @return the kind.
+	 */
+	public abstract Kind getKind();
+
 	/**
 	 * Step this WorldObject!
 	 * 
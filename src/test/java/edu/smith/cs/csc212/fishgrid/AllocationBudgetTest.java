@@ -0,0 +1,68 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Keeps the steady-state tick from making garbage: plays {@link HeadlessDriver#ALLOC_TICKS} headless ticks (after a
+ * warm-up) and counts the bytes this thread allocates with {@link com.sun.management.ThreadMXBean}.
+ */
+public class AllocationBudgetTest {
+	/**
+	 * What a game with no new hearts or bubbles may allocate in all those ticks (a few lists finishing growing).
+	 */
+	static final long NO_SPAWN_BUDGET = 4096;
+	/**
+	 * What a default game may allocate per tick, on average (new hearts and bubbles, and new games' lists growing).
+	 */
+	static final double DEFAULT_BUDGET_PER_TICK = 8;
+
+	/**
+	 * Skip (rather than fail) on a JVM that can't count allocations.
+	 */
+	@Before
+	public void needAllocationCounts() {
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+	}
+
+	/**
+	 * With nothing new appearing, a tick allocates nothing at all.
+	 */
+	@Test
+	public void tickWithoutSpawnsAllocatesNothing() {
+		Scenario scenario = Scenario.parse(new String[] {"--seed=1", "--heartChance=0", "--bubbleChance=0"});
+		Random rand = scenario.newRandom();
+		long allocated = HeadlessDriver.measureAllocations(scenario, new GreedyBot(rand), rand,
+				HeadlessDriver.ALLOC_TICKS);
+		assertTrue(allocated + " bytes in " + HeadlessDriver.ALLOC_TICKS + " ticks", allocated <= NO_SPAWN_BUDGET);
+	}
+
+	/**
+	 * A default game, with hearts and bubbles coming and going, stays under its budget with every bot.
+	 */
+	@Test
+	public void defaultTickStaysInBudget() {
+		Scenario scenario = Scenario.parse(new String[] {"--seed=1"});
+		for (String name : new String[] {"random", "greedy", "home"}) {
+			Random rand = scenario.newRandom();
+			long allocated = HeadlessDriver.measureAllocations(scenario, HeadlessDriver.bot(name, rand), rand,
+					HeadlessDriver.ALLOC_TICKS);
+			double perTick = (double) allocated / HeadlessDriver.ALLOC_TICKS;
+			assertTrue(name + ": " + perTick + " bytes per tick", perTick <= DEFAULT_BUDGET_PER_TICK);
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Runs a small ocean in a few {@link BandServer} processes and checks it ends up where one process puts it.
+ */
+public class BandCoordinatorTest {
+	/**
+	 * A small, crowded ocean: lots of things cross the band edges.
+	 */
+	static final List<String> FLAGS = Arrays.asList("--size=40", "--snails=250", "--rocks=150",
+			"--fallingRockRatio=0.5", "--seed=7");
+
+	/**
+	 * Step an ocean in bands, checking against one process every so often.
+	 * @param numBands - how many band processes.
+	 * @param regionSize - how big the regions are.
+	 */
+	static void matchesOneProcess(int numBands, int regionSize) throws IOException {
+		Scenario scenario = Scenario.parse(FLAGS.toArray(new String[0]));
+		try (BandCoordinator coordinator = new BandCoordinator(scenario, FLAGS, numBands, regionSize, 1)) {
+			int ticks = 0;
+			for (int check : new int[] {1, 10, 40}) {
+				for (; ticks<check; ticks++) {
+					coordinator.step();
+				}
+				String where = numBands + " bands of " + regionSize + ", tick " + ticks;
+				assertEquals(where, BandCoordinator.runInOneProcess(scenario, ticks, regionSize), coordinator.hash());
+			}
+		}
+	}
+
+	/**
+	 * Two bands.
+	 */
+	@Test
+	public void twoBands() throws IOException {
+		matchesOneProcess(2, 8);
+	}
+
+	/**
+	 * Three bands, each only a region tall (the last one less).
+	 */
+	@Test
+	public void threeBands() throws IOException {
+		matchesOneProcess(3, 16);
+	}
+
+	/**
+	 * A band that quits before calling back is noticed right away, rather than after the timeout.
+	 */
+	@Test
+	public void bandThatQuitsIsNoticed() {
+		Scenario scenario = Scenario.parse(FLAGS.toArray(new String[0]));
+		List<String> flags = new ArrayList<>(FLAGS);
+		// The bands don't understand this, so they quit.
+		flags.add("--nonsense=1");
+		long start = System.currentTimeMillis();
+		try {
+			new BandCoordinator(scenario, flags, 2, 8, 1).close();
+			fail("the bands should have quit");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("quit"));
+		}
+		assertTrue(System.currentTimeMillis() - start < BandCoordinator.TIMEOUT / 2);
+	}
+}
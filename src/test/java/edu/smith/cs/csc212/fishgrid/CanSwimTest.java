@@ -0,0 +1,124 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.function.Function;
+
+import org.junit.Test;
+
+/**
+ * Checks {@link World#canSwim}: what blocks whom, and that the order things arrived in a cell doesn't matter.
+ */
+public class CanSwimTest {
+	/**
+	 * Everything that can be in a cell (the first one is the player).
+	 */
+	static final String[] THINGS = {"player", "fish", "home", "bubble", "heart", "rock", "falling rock", "snail"};
+
+	/**
+	 * Make one of {@link #THINGS}.
+	 */
+	static WorldObject make(String thing, World world) {
+		switch (thing) {
+		case "player":
+			Fish player = new Fish(0, world);
+			player.markAsPlayer();
+			return player;
+		case "fish":
+			return new Fish(1, world);
+		case "home":
+			return new FishHome(world);
+		case "bubble":
+			return new Bubble(world);
+		case "heart":
+			return new Heart(world);
+		case "rock":
+			return new Rock(world);
+		case "falling rock":
+			return new FallingRock(world);
+		default:
+			return new Snail(world);
+		}
+	}
+
+	/**
+	 * Put things in cell (1, 1) of a new world, in order, and ask whether something can swim there.
+	 * @param asker - who's asking (one of {@link #THINGS}, put at (0, 1)).
+	 * @param inCell - what's in the cell, first to arrive first.
+	 * @return the answer.
+	 */
+	static boolean canSwim(String asker, String... inCell) {
+		World world = new World(3, 3);
+		for (String thing : inCell) {
+			WorldObject it = make(thing, world);
+			it.setPosition(1, 1);
+			world.register(it);
+		}
+		WorldObject who = make(asker, world);
+		who.setPosition(0, 1);
+		world.register(who);
+		return world.canSwim(who, 1, 1);
+	}
+
+	/**
+	 * While the player is on the home, a missing fish can't swim in, whichever of them got there first (fish don't
+	 * share cells; it goes home once the player moves on). The player can always go home.
+	 */
+	@Test
+	public void playerOnHome() {
+		assertFalse(canSwim("fish", "home", "player"));
+		assertFalse(canSwim("fish", "player", "home"));
+		assertTrue(canSwim("fish", "home"));
+		assertTrue(canSwim("player", "home", "fish"));
+		assertTrue(canSwim("player", "fish", "home"));
+	}
+
+	/**
+	 * Rocks and snails block everyone, even in a cell with something the asker could otherwise swim into.
+	 */
+	@Test
+	public void rocksAndSnailsBlockEveryone() {
+		for (String asker : new String[] {"player", "fish", "snail", "falling rock"}) {
+			assertFalse(canSwim(asker, "fish", "snail"));
+			assertFalse(canSwim(asker, "heart", "rock"));
+			assertFalse(canSwim(asker, "falling rock"));
+		}
+	}
+
+	/**
+	 * For every asker and every two things in a cell, the answer is the same in either order.
+	 */
+	@Test
+	public void orderDoesNotMatter() {
+		for (String asker : THINGS) {
+			for (String a : THINGS) {
+				for (String b : THINGS) {
+					assertEquals(asker + " into " + a + " and " + b, canSwim(asker, a, b), canSwim(asker, b, a));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Whoever asks, one thing at a time: the player only minds rocks and snails, fish also mind fish, and anything
+	 * else only goes where nothing is.
+	 */
+	@Test
+	public void oneThingAtATime() {
+		Function<String, Boolean> blocksEveryone = thing -> thing.endsWith("rock") || thing.equals("snail");
+		for (String thing : THINGS) {
+			assertEquals(thing, !blocksEveryone.apply(thing), canSwim("player", thing));
+			assertEquals(thing, !blocksEveryone.apply(thing) && !thing.equals("player") && !thing.equals("fish"),
+					canSwim("fish", thing));
+			assertFalse(thing, canSwim("snail", thing));
+		}
+		assertTrue(canSwim("snail"));
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Adds, removes, moves and drops rocks at random under a {@link FlowField}, and checks every cell's distance against a
+ * breadth-first search from scratch after each change.
+ */
+public class FlowFieldTest {
+	/**
+	 * Steps from every cell to the goal, the slow way: a breadth-first search around every cell with a rock in it.
+	 * @param world - the world.
+	 * @param goalX - the goal (x).
+	 * @param goalY - the goal (y).
+	 * @return each cell's distance, or {@link FlowField#UNREACHABLE}.
+	 */
+	static int[] bfs(World world, int goalX, int goalY) {
+		int width = world.getWidth();
+		int height = world.getHeight();
+		boolean[] rock = new boolean[width * height];
+		List<WorldObject> here = new ArrayList<>();
+		for (int cell=0; cell<rock.length; cell++) {
+			world.cellInto(cell, here);
+			for (WorldObject it : here) {
+				rock[cell] |= it instanceof Rock;
+			}
+		}
+		int[] dist = new int[width * height];
+		Arrays.fill(dist, FlowField.UNREACHABLE);
+		int goal = goalY * width + goalX;
+		if (rock[goal]) {
+			return dist;
+		}
+		dist[goal] = 0;
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		queue.add(goal);
+		while (!queue.isEmpty()) {
+			int cell = queue.poll();
+			for (int d=0; d<Moves.CARDINAL; d++) {
+				int x = cell % width + Moves.DX[d];
+				int y = cell / width + Moves.DY[d];
+				if (x < 0 || y < 0 || x >= width || y >= height) {
+					continue;
+				}
+				int next = y * width + x;
+				if (!rock[next] && dist[next] == FlowField.UNREACHABLE) {
+					dist[next] = dist[cell] + 1;
+					queue.add(next);
+				}
+			}
+		}
+		return dist;
+	}
+
+	/**
+	 * Make sure the field has the same distance as the slow way everywhere.
+	 */
+	static void check(FlowField field, World world, int goalX, int goalY, String where) {
+		int[] expected = bfs(world, goalX, goalY);
+		for (int cell=0; cell<expected.length; cell++) {
+			int x = cell % world.getWidth();
+			int y = cell / world.getWidth();
+			assertEquals(where + " at " + x + "," + y, expected[cell], field.distance(x, y));
+		}
+	}
+
+	/**
+	 * Lots of small worlds (so walls often cut the goal off, and rocks pile up in one cell), each changed a few hundred
+	 * times: rocks come and go, move, and fall, sometimes several at once in a tick. Now and then the goal itself gets a
+	 * rock.
+	 */
+	@Test
+	public void matchesBreadthFirstSearch() {
+		Random rand = new Random(27);
+		for (int round=0; round<100; round++) {
+			int width = 3 + rand.nextInt(12);
+			int height = 3 + rand.nextInt(10);
+			World world = new World(width, height, rand);
+			List<Rock> rocks = new ArrayList<>();
+			for (int i=rand.nextInt(width * height / 3); i>0; i--) {
+				Rock rock = rand.nextBoolean() ? new Rock(world) : new FallingRock(world);
+				rock.setPosition(rand.nextInt(width), rand.nextInt(height));
+				world.register(rock);
+				rocks.add(rock);
+			}
+			int goalX = rand.nextInt(width);
+			int goalY = rand.nextInt(height);
+			FlowField field = new FlowField(world, goalX, goalY);
+			world.addListener(field);
+			check(field, world, goalX, goalY, "round " + round + ", start");
+
+			for (int change=0; change<300; change++) {
+				boolean tick = rand.nextInt(4) == 0;
+				if (tick) {
+					world.beginTick();
+				}
+				for (int i=tick ? 1 + rand.nextInt(4) : 1; i>0; i--) {
+					int op = rocks.isEmpty() ? 0 : rand.nextInt(4);
+					if (op == 0) {
+						Rock rock = rand.nextBoolean() ? new Rock(world) : new FallingRock(world);
+						if (rand.nextInt(10) == 0) {
+							rock.setPosition(goalX, goalY);
+						} else {
+							rock.setPosition(rand.nextInt(width), rand.nextInt(height));
+						}
+						world.register(rock);
+						rocks.add(rock);
+					} else if (op == 1) {
+						world.remove(rocks.remove(rand.nextInt(rocks.size())));
+					} else if (op == 2) {
+						rocks.get(rand.nextInt(rocks.size())).setPosition(rand.nextInt(width), rand.nextInt(height));
+					} else {
+						// Falls, if it's a falling rock with room below.
+						for (Rock rock : rocks) {
+							if (rock instanceof FallingRock) {
+								rock.step();
+							}
+						}
+					}
+				}
+				if (tick) {
+					world.commit();
+				}
+				check(field, world, goalX, goalY, "round " + round + ", change " + change);
+			}
+		}
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Plays games and {@link GameFork}s of them side by side, move for move, and checks that they stay the same: score,
+ * steps, dice, the player, the fish lists, snails, falling rocks, and what's in every cell. GameFork keeps its own copy
+ * of the rules, so this is what notices when the two drift apart.
+ */
+public class GameForkParityTest {
+	/**
+	 * A game, in the same words as {@link #of(GameFork)}.
+	 */
+	static String of(FishGame game) {
+		StringBuilder out = new StringBuilder();
+		out.append(game.score).append('/').append(game.stepsTaken).append(" dice=").append(((GameRandom) game.rand).save());
+		out.append(" player=").append(game.player.getX()).append(',').append(game.player.getY());
+		out.append(" missing=");
+		for (Fish f : game.missing) {
+			out.append(f.getId()).append('@').append(f.getX()).append(',').append(f.getY()).append(';');
+		}
+		out.append(" found=");
+		for (Fish f : game.found) {
+			out.append(f.getId()).append('@').append(f.getX()).append(',').append(f.getY()).append(';');
+		}
+		out.append(" home=");
+		for (Fish f : game.fishhome) {
+			out.append(f.getId()).append(',');
+		}
+		out.append(" snails=");
+		for (Snail s : game.world.viewKind(Kind.SNAIL, Snail.class)) {
+			out.append(s.getX()).append(',').append(s.getY()).append(',')
+					.append((s.movingLeft ? 1 : 0) | (s.eyesOpen ? 2 : 0)).append(';');
+		}
+		out.append(" falling=");
+		for (WorldObject it : game.world.viewKind(Kind.FALLING_ROCK)) {
+			out.append(it.getX()).append(',').append(it.getY()).append(';');
+		}
+		out.append(" cells=");
+		List<WorldObject> here = new ArrayList<>();
+		for (int cell=0; cell<game.world.getWidth() * game.world.getHeight(); cell++) {
+			game.world.cellInto(cell, here);
+			int bits = 0;
+			for (WorldObject it : here) {
+				switch (it.getKind()) {
+				case FISH:
+					bits++;
+					break;
+				case HOME:
+					bits |= GameFork.HOME;
+					break;
+				case HEART:
+					bits |= GameFork.HEART;
+					break;
+				case BUBBLE:
+					bits |= GameFork.BUBBLE;
+					break;
+				case SNAIL:
+					bits |= GameFork.SNAIL;
+					break;
+				default:
+					bits |= GameFork.ROCK;
+				}
+			}
+			if (bits != 0) {
+				out.append(cell).append(':').append(bits).append(';');
+			}
+		}
+		return out.toString();
+	}
+
+	/**
+	 * A fork, in the same words as {@link #of(FishGame)}.
+	 */
+	static String of(GameFork fork) {
+		StringBuilder out = new StringBuilder();
+		out.append(fork.getScore()).append('/').append(fork.getStepsTaken()).append(" dice=").append(fork.dice().save());
+		out.append(" player=").append(fork.getPlayerX()).append(',').append(fork.getPlayerY());
+		out.append(" missing=");
+		for (int i=0; i<fork.missingCount(); i++) {
+			int f = fork.missing(i);
+			out.append(fork.fish(f).getId()).append('@').append(fork.fishX(f)).append(',').append(fork.fishY(f)).append(';');
+		}
+		out.append(" found=");
+		for (int i=0; i<fork.foundCount(); i++) {
+			int f = fork.found(i);
+			out.append(fork.fish(f).getId()).append('@').append(fork.fishX(f)).append(',').append(fork.fishY(f)).append(';');
+		}
+		out.append(" home=");
+		for (int i=0; i<fork.homeCount(); i++) {
+			out.append(fork.fish(fork.home(i)).getId()).append(',');
+		}
+		out.append(" snails=");
+		for (int s=0; s<fork.snailCount(); s++) {
+			int[] snail = fork.snail(s);
+			out.append(snail[0]).append(',').append(snail[1]).append(',').append(snail[2]).append(';');
+		}
+		out.append(" falling=");
+		for (int r=0; r<fork.fallingRockCount(); r++) {
+			int[] rock = fork.fallingRock(r);
+			out.append(rock[0]).append(',').append(rock[1]).append(';');
+		}
+		out.append(" cells=");
+		for (int cell=0; cell<fork.getWidth() * fork.getHeight(); cell++) {
+			int bits = fork.cell(cell % fork.getWidth(), cell / fork.getWidth());
+			if (bits != 0) {
+				out.append(cell).append(':').append(bits).append(';');
+			}
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Play a game and a fork of it side by side, with a greedy bot that sometimes does something else. Now and then,
+	 * a side fork plays on its own (and the one we're following mustn't notice), and sometimes we carry on with a fresh
+	 * fork of the fork.
+	 * @param scenario - the game.
+	 * @param rand - where the moves and side trips come from.
+	 * @param ticks - how many moves at most.
+	 */
+	static void playSideBySide(Scenario scenario, Random rand, int ticks) {
+		FishGame game = new FishGame(scenario);
+		PlayerController bot = new GreedyBot(new Random(scenario.seed));
+		GameFork fork = GameFork.of(game);
+		assertEquals(of(game), of(fork));
+		for (int t=0; t<ticks && !game.gameOver(); t++) {
+			int action = rand.nextInt(4) == 0 ? rand.nextInt(5) - 1 : bot.decide(game);
+			if (rand.nextInt(50) == 0) {
+				GameFork side = fork.fork(rand.nextLong());
+				for (int u=0; u<60; u++) {
+					side.play(rand.nextInt(5) - 1);
+				}
+				if (rand.nextBoolean()) {
+					fork = fork.fork();
+				}
+			}
+			String where = "seed " + scenario.seed + ", step " + t;
+			assertEquals(where, game.play(action), fork.play(action));
+			assertEquals(where, of(game), of(fork));
+			assertEquals(where, game.gameOver(), fork.gameOver());
+		}
+	}
+
+	/**
+	 * All sorts of games: sizes, fish, rocks (some falling), snails, hearts and bubbles.
+	 */
+	@Test
+	public void forkPlaysLikeTheGame() {
+		Random rand = new Random(1);
+		for (int seed=1; seed<=40; seed++) {
+			playSideBySide(Scenario.parse(new String[] {"--size=" + (10 + seed % 15), "--seed=" + seed,
+					"--fish=" + (5 + seed % 20), "--rocks=" + (seed * 3 % 50), "--snails=" + (seed % 12),
+					"--fallingRockRatio=0.3", "--heartChance=" + (seed % 4 * 0.03),
+					"--bubbleChance=" + (seed % 3 * 0.04)}), rand, 800);
+		}
+	}
+
+	/**
+	 * Hearts and bubbles everywhere, so fish are always swimming into them (and home) at the same time.
+	 */
+	@Test
+	public void crowdedCellsMatch() {
+		Random rand = new Random(2);
+		for (int seed=1; seed<=20; seed++) {
+			playSideBySide(Scenario.parse(new String[] {"--size=8", "--seed=" + seed, "--fish=14", "--rocks=4",
+					"--snails=2", "--heartChance=0.4", "--bubbleChance=0.4"}), rand, 600);
+		}
+	}
+}
@@ -0,0 +1,243 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the rules in {@link FishGame#RULES}, and how {@link Interactions} goes through a crowded cell.
+ */
+public class InteractionsTest {
+	/**
+	 * A 6x6 world with home in the corner (0, 0) and the player in the middle (3, 3).
+	 */
+	World world;
+	/**
+	 * The player.
+	 */
+	Fish player;
+
+	/**
+	 * Build the world (every test adds what it needs).
+	 */
+	@Before
+	public void setUp() {
+		world = new World(6, 6, new Random(43));
+		put(new FishHome(world), 0, 0);
+		player = new Fish(0, world);
+		player.markAsPlayer();
+		put(player, 3, 3);
+	}
+
+	/**
+	 * @return a game around the world, where no new hearts or bubbles show up.
+	 */
+	FishGame start() {
+		Scenario scenario = new Scenario(world.getWidth(), world.getHeight());
+		scenario.heartChance = 0;
+		scenario.bubbleChance = 0;
+		return new FishGame(scenario, world);
+	}
+
+	/**
+	 * Put something in the world.
+	 * @param it - the object.
+	 * @param x - where (x).
+	 * @param y - where (y).
+	 * @return it.
+	 */
+	<T extends WorldObject> T put(T it, int x, int y) {
+		it.setPosition(x, y);
+		world.register(it);
+		return it;
+	}
+
+	/**
+	 * Put a fish in the world.
+	 * @param missing - true for a missing fish, false for one following the player.
+	 * @param x - where (x).
+	 * @param y - where (y).
+	 * @return the fish (color 1, not fastScare).
+	 */
+	Fish fish(boolean missing, int x, int y) {
+		Fish f = new Fish(1, world);
+		f.fastScare = false;
+		f.missing = missing;
+		return put(f, x, y);
+	}
+
+	/**
+	 * Sort out one cell with the game's rules.
+	 */
+	void resolve(FishGame game, int x, int y) {
+		FishGame.RULES.resolve(game, world.find(x, y));
+	}
+
+	/**
+	 * @return true if it's still in the world.
+	 */
+	static boolean inWorld(WorldObject it) {
+		return it.cell != WorldObject.NOT_REGISTERED;
+	}
+
+	/**
+	 * The player gets 520 points for a heart, and pops bubbles.
+	 */
+	@Test
+	public void playerTakesHeartsAndBubbles() {
+		Heart heart = put(new Heart(world), 3, 3);
+		Bubble bubble = put(new Bubble(world), 3, 3);
+		FishGame game = start();
+		resolve(game, 3, 3);
+		assertEquals(520, game.score);
+		assertFalse(inWorld(heart));
+		assertFalse(inWorld(bubble));
+	}
+
+	/**
+	 * The player finds a missing fish, for its points, and it follows them from then on.
+	 */
+	@Test
+	public void playerFindsMissingFish() {
+		Fish black = fish(true, 3, 3);
+		black.color = 6;
+		FishGame game = start();
+		resolve(game, 3, 3);
+		assertEquals(FishGame.pointsFor(black), game.score);
+		assertEquals(110, game.score);
+		assertFalse(black.missing);
+		assertTrue(game.found.contains(black));
+		assertEquals(1, game.fishFound);
+	}
+
+	/**
+	 * At home, everybody following the player goes home.
+	 */
+	@Test
+	public void playerBringsFollowersHome() {
+		Fish follower = fish(false, 3, 4);
+		FishGame game = start();
+		assertTrue(game.found.contains(follower));
+		player.setPosition(0, 0);
+		resolve(game, 0, 0);
+		assertTrue(game.found.isEmpty());
+		assertTrue(game.fishhome.contains(follower));
+		assertFalse(inWorld(follower));
+	}
+
+	/**
+	 * A missing fish eats hearts and bubbles (for no points); a fish following the player leaves them alone.
+	 */
+	@Test
+	public void onlyMissingFishEat() {
+		fish(true, 1, 4);
+		Heart eaten = put(new Heart(world), 1, 4);
+		Bubble popped = put(new Bubble(world), 1, 4);
+		fish(false, 5, 5);
+		Heart left = put(new Heart(world), 5, 5);
+		FishGame game = start();
+		resolve(game, 1, 4);
+		resolve(game, 5, 5);
+		assertFalse(inWorld(eaten));
+		assertFalse(inWorld(popped));
+		assertTrue(inWorld(left));
+		assertEquals(0, game.score);
+	}
+
+	/**
+	 * A missing fish at home is home.
+	 */
+	@Test
+	public void missingFishGoesHome() {
+		Fish lost = fish(true, 0, 0);
+		FishGame game = start();
+		resolve(game, 0, 0);
+		assertFalse(lost.missing);
+		assertTrue(game.fishhome.contains(lost));
+		assertFalse(inWorld(lost));
+	}
+
+	/**
+	 * Clicking removes rocks and bubbles, and nothing else.
+	 */
+	@Test
+	public void clicks() {
+		Rock rock = put(new Rock(world), 1, 1);
+		FallingRock falling = put(new FallingRock(world), 2, 1);
+		Bubble bubble = put(new Bubble(world), 4, 1);
+		Heart heart = put(new Heart(world), 4, 1);
+		Fish lost = fish(true, 5, 1);
+		FishGame game = start();
+		game.click(1, 1);
+		game.click(2, 1);
+		game.click(4, 1);
+		game.click(5, 1);
+		assertFalse(inWorld(rock));
+		assertFalse(inWorld(falling));
+		assertFalse(inWorld(bubble));
+		assertTrue(inWorld(heart));
+		assertTrue(inWorld(lost));
+	}
+
+	/**
+	 * The player acts first, whatever order the cell is in, and whatever's removed is out of it from then on.
+	 */
+	@Test
+	public void playerGoesFirst() {
+		List<String> log = new ArrayList<>();
+		Interactions rules = new Interactions()
+				.onPlayerMeets(Kind.FISH, (game, actor, other) -> {
+					log.add("player finds fish");
+					world.remove(other);
+				})
+				.onMeet(Kind.FISH, Kind.HEART, (game, actor, other) -> log.add("fish eats heart"))
+				.onMeet(Kind.HEART, Kind.BUBBLE, (game, actor, other) -> log.add("heart meets bubble"));
+		put(new Bubble(world), 3, 3);
+		put(new Heart(world), 3, 3);
+		fish(true, 3, 3);
+		List<WorldObject> here = world.find(3, 3);
+		// The newest arrival is first in a cell, so the player starts out last.
+		assertEquals(player, here.get(here.size() - 1));
+		rules.resolve(null, here);
+		assertEquals(2, log.size());
+		assertEquals("player finds fish", log.get(0));
+		assertEquals("heart meets bubble", log.get(1));
+	}
+
+	/**
+	 * Whatever a missing fish swims into is sorted out in the same step: after every step, no missing fish is at home or
+	 * has a heart or bubble in its cell (so a game is over, and scored, the step its last fish gets home).
+	 */
+	@Test
+	public void overlapsAreResolvedInTheStepTheyHappen() {
+		for (int seed=0; seed<20; seed++) {
+			Scenario scenario = Scenario.parse(new String[] {"--seed=" + seed, "--size=8", "--fish=12", "--rocks=4",
+					"--heartChance=0.3", "--bubbleChance=0.3"});
+			FishGame game = new FishGame(scenario);
+			PlayerController bot = new RandomBot(new Random(seed));
+			for (int t=0; t<2000 && !game.gameOver(); t++) {
+				game.play(bot.decide(game));
+				for (Fish f : game.missing) {
+					assertTrue(f.missing);
+					for (WorldObject it : game.world.find(f.getX(), f.getY())) {
+						Kind kind = it.getKind();
+						assertFalse("seed " + seed + ", step " + game.stepsTaken + ": a missing fish is on a " + kind,
+								kind == Kind.HOME || kind == Kind.HEART || kind == Kind.BUBBLE);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,270 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Plays journaled games, and checks that {@link Journal#recover} brings back the same game: after closing, from a copy
+ * of the files taken mid-game (as if it crashed), and with a torn record at the end.
+ */
+public class JournalRecoveryTest {
+	/**
+	 * A game with snails (which turn around) and rocks to click on.
+	 */
+	static final Scenario SCENARIO = Scenario.parse(new String[] {"--size=30", "--seed=5", "--fish=20", "--rocks=60",
+			"--snails=5"});
+
+	/**
+	 * Where the journals go (deleted after each test).
+	 */
+	Path temp;
+
+	/**
+	 * Make a fresh directory.
+	 */
+	@Before
+	public void setUp() throws IOException {
+		temp = Files.createTempDirectory("journal-test");
+	}
+
+	/**
+	 * Throw it away.
+	 */
+	@After
+	public void tearDown() throws IOException {
+		delete(temp);
+	}
+
+	/**
+	 * Delete a directory and everything in it.
+	 */
+	static void delete(Path dir) throws IOException {
+		if (!Files.exists(dir)) {
+			return;
+		}
+		for (Path p : list(dir)) {
+			if (Files.isDirectory(p)) {
+				delete(p);
+			} else {
+				Files.delete(p);
+			}
+		}
+		Files.delete(dir);
+	}
+
+	/**
+	 * @return what's in a directory.
+	 */
+	static List<Path> list(Path dir) throws IOException {
+		List<Path> found = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+			for (Path p : files) {
+				found.add(p);
+			}
+		}
+		found.sort(null);
+		return found;
+	}
+
+	/**
+	 * Everything about a game that recovery should bring back, as a string: score, steps, every object (with which
+	 * way snails are going), the fish lists in order, and the player.
+	 * @param game - the game.
+	 * @return its state.
+	 */
+	static String state(FishGame game) {
+		long hash = 0;
+		for (WorldObject it : game.world.viewItems()) {
+			hash += StateEncoder.hash(it.getId(), it.getKind().ordinal(), Level.attrsOf(it), it.getX(), it.getY());
+		}
+		StringBuilder out = new StringBuilder();
+		out.append(game.score).append('/').append(game.stepsTaken);
+		out.append(" items=").append(game.world.viewItems().size()).append(" hash=").append(hash);
+		out.append(" snails=");
+		for (Snail s : game.world.viewKind(Kind.SNAIL, Snail.class)) {
+			out.append(s.getId()).append(s.movingLeft ? 'L' : 'R').append(',');
+		}
+		out.append(" missing=");
+		for (Fish f : game.missing) {
+			out.append(f.getId()).append(',');
+		}
+		out.append(" found=");
+		for (Fish f : game.found) {
+			out.append(f.getId()).append(',');
+		}
+		out.append(" home=");
+		for (Fish f : game.fishhome) {
+			out.append(f.getId()).append(':').append(f.color).append(',');
+		}
+		out.append(" total=").append(game.totalFish);
+		out.append(" player=").append(game.player.getX()).append(',').append(game.player.getY());
+		return out.toString();
+	}
+
+	/**
+	 * Play a turn, and every so often click somewhere.
+	 */
+	static void play(FishGame game, PlayerController bot, int t) {
+		game.play(bot.decide(game));
+		if (t % 97 == 0) {
+			game.click(t % 30, (t * 7) % 30);
+		}
+	}
+
+	/**
+	 * Recovering a closed journal, with lots of checkpoints along the way, gives back the game.
+	 */
+	@Test
+	public void recoverMatchesTheGame() throws IOException {
+		Path dir = temp.resolve("journal");
+		FishGame game = new FishGame(SCENARIO);
+		game.journalTo(dir, 37);
+		PlayerController bot = new GreedyBot(new Random(3));
+		for (int t=0; t<1500 && !game.gameOver(); t++) {
+			play(game, bot, t);
+		}
+		game.journal.close();
+		assertEquals(state(game), state(Journal.recover(dir)));
+	}
+
+	/**
+	 * Going back in time is written down too, snails turned back around included.
+	 */
+	@Test
+	public void rewindsAreJournaled() throws IOException {
+		Path dir = temp.resolve("journal");
+		FishGame game = new FishGame(SCENARIO);
+		game.journalTo(dir, 37);
+		game.keepRewind(100);
+		PlayerController bot = new GreedyBot(new Random(3));
+		Random rand = new Random(4);
+		for (int t=0; t<1500 && !game.gameOver(); t++) {
+			play(game, bot, t);
+			if (rand.nextInt(30) == 0) {
+				game.rewind(1 + rand.nextInt(60));
+			}
+		}
+		// Last of all, so nothing afterwards covers up a rewind the journal missed.
+		game.rewind(40);
+		game.journal.close();
+		assertEquals(state(game), state(Journal.recover(dir)));
+	}
+
+	/**
+	 * A copy of the files taken mid-game (as if it crashed then) gives back the game as it was.
+	 */
+	@Test
+	public void crashCopyRecovers() throws IOException {
+		Path dir = temp.resolve("journal");
+		Path crash = temp.resolve("crash");
+		FishGame game = new FishGame(SCENARIO);
+		// Only the first checkpoint, so the writer is only adding to the journal while we copy it.
+		game.journalTo(dir, 100000);
+		PlayerController bot = new GreedyBot(new Random(3));
+		String mid = null;
+		for (int t=0; t<800 && !game.gameOver(); t++) {
+			play(game, bot, t);
+			if (t == 0) {
+				game.journal.sync();
+			} else if (t == 700) {
+				game.journal.sync();
+				mid = state(game);
+				Files.createDirectories(crash);
+				for (Path p : list(dir)) {
+					Files.copy(p, crash.resolve(p.getFileName()));
+				}
+			}
+		}
+		game.journal.close();
+		assertEquals(mid, state(Journal.recover(crash)));
+	}
+
+	/**
+	 * A record torn off at the end is left out; everything before it comes back, and the game plays on.
+	 */
+	@Test
+	public void tornTailIsLeftOut() throws IOException {
+		Path dir = temp.resolve("journal");
+		FishGame game = new FishGame(SCENARIO);
+		game.journalTo(dir, 100000);
+		PlayerController bot = new GreedyBot(new Random(3));
+		for (int t=0; t<150; t++) {
+			game.play(bot.decide(game));
+			// The first checkpoint may take everything so far; the rest goes in the journal after it.
+			if (t == 0) {
+				game.journal.sync();
+			}
+		}
+		game.journal.close();
+		assertEquals(state(game), state(Journal.recover(dir)));
+
+		Path segment = null;
+		for (Path p : list(dir)) {
+			if (p.getFileName().toString().startsWith("journal-")) {
+				segment = p;
+			}
+		}
+		long size = Files.size(segment);
+		try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			ch.truncate(size - 3);
+			ch.position(size - 3);
+			ch.write(ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5, 6, 7}));
+		}
+		FishGame torn = Journal.recover(dir);
+		assertEquals(game.stepsTaken - 1, torn.stepsTaken);
+		for (int t=0; t<200 && !torn.gameOver(); t++) {
+			torn.play(bot.decide(torn));
+		}
+		assertTrue(torn.stepsTaken > game.stepsTaken);
+	}
+
+	/**
+	 * Once the writer fails, the game finds out on a following tick, stops journaling, and plays on without it.
+	 */
+	@Test
+	public void writerFailureStopsTheJournal() throws IOException, InterruptedException {
+		Path dir = temp.resolve("journal");
+		FishGame game = new FishGame(SCENARIO);
+		// A checkpoint after every record, so the writer soon needs the directory we're about to take away.
+		game.journalTo(dir, 1);
+		game.journal.sync();
+		delete(dir);
+		PlayerController bot = new GreedyBot(new Random(3));
+		long giveUp = System.currentTimeMillis() + 10000;
+		try {
+			while (System.currentTimeMillis() < giveUp) {
+				game.play(bot.decide(game));
+				Thread.sleep(1);
+			}
+			fail("The journal never said it stopped.");
+		} catch (IllegalStateException expected) {
+			assertTrue(expected.getCause() instanceof IOException);
+		}
+		assertNull(game.journal);
+		long steps = game.stepsTaken;
+		game.play(bot.decide(game));
+		assertEquals(steps + 1, game.stepsTaken);
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks {@link Leaderboard}'s answers against working them out the slow way from a plain list of every game, while
+ * adding games and across closing and opening the file again.
+ */
+public class LeaderboardTest {
+	/**
+	 * Where the leaderboard files go (deleted after each test).
+	 */
+	Path temp;
+	/**
+	 * Every game added, in order.
+	 */
+	List<Leaderboard.Entry> all = new ArrayList<>();
+	/**
+	 * Where the made-up games and questions come from.
+	 */
+	Random rand = new Random(5);
+
+	/**
+	 * Make a fresh directory.
+	 */
+	@Before
+	public void setUp() throws IOException {
+		temp = Files.createTempDirectory("leaderboard-test");
+	}
+
+	/**
+	 * Throw it away.
+	 */
+	@After
+	public void tearDown() throws IOException {
+		JournalRecoveryTest.delete(temp);
+	}
+
+	/**
+	 * @return a made-up game (scores can be negative, and plenty of them tie).
+	 */
+	Leaderboard.Entry madeUp() {
+		return new Leaderboard.Entry(rand.nextLong(), rand.nextBoolean(), rand.nextLong(), rand.nextInt(100000),
+				rand.nextInt(300) - 20, rand.nextInt(1000), rand.nextInt(30), rand.nextInt(10), rand.nextInt(20), 20,
+				rand.nextBoolean());
+	}
+
+	/**
+	 * Add some made-up games, checking every so often.
+	 */
+	void addGames(Leaderboard board, int count) {
+		for (int i=0; i<count; i++) {
+			Leaderboard.Entry e = madeUp();
+			board.add(e);
+			all.add(e);
+			if (i % 97 == 0) {
+				check(board);
+			}
+		}
+	}
+
+	/**
+	 * Ask the leaderboard about the games, and check every answer against {@link #all}.
+	 */
+	void check(Leaderboard board) {
+		assertEquals(all.size(), board.size());
+		// Best first; of equal scores, the older game first.
+		List<Integer> order = new ArrayList<>();
+		for (int i=0; i<all.size(); i++) {
+			order.add(i);
+		}
+		order.sort((a, b) -> all.get(a).score != all.get(b).score ? Integer.compare(all.get(b).score, all.get(a).score)
+				: Integer.compare(a, b));
+		int k = 1 + rand.nextInt(50);
+		List<Leaderboard.Entry> top = board.top(k);
+		assertEquals(Math.min(k, all.size()), top.size());
+		for (int i=0; i<top.size(); i++) {
+			same(all.get(order.get(i)), top.get(i));
+		}
+
+		int[] sorted = new int[all.size()];
+		for (int i=0; i<sorted.length; i++) {
+			sorted[i] = all.get(i).score;
+		}
+		Arrays.sort(sorted);
+		for (double percent : new double[] {0, 1, 10, 33.3, 50, 90, 99, 100}) {
+			int rank = Math.max(1, (int) Math.ceil(percent / 100 * sorted.length));
+			assertEquals("percentile " + percent, sorted[rank - 1], board.scoreAtPercentile(percent));
+		}
+		for (int score : new int[] {-30, 0, 5, 100, 279, 400}) {
+			int below = 0;
+			for (int s : sorted) {
+				if (s < score) {
+					below++;
+				}
+			}
+			assertEquals("below " + score, 100.0 * below / sorted.length, board.percentBelow(score), 1e-9);
+		}
+		int record = rand.nextInt(all.size());
+		same(all.get(record), board.get(record));
+	}
+
+	/**
+	 * Make sure two entries say the same thing.
+	 */
+	static void same(Leaderboard.Entry expected, Leaderboard.Entry actual) {
+		assertEquals(expected.toString(), actual.toString());
+		assertEquals(expected.started, actual.started);
+	}
+
+	/**
+	 * Add games, close, open again and add more: every answer matches the slow way.
+	 */
+	@Test
+	public void matchesBruteForce() throws IOException {
+		Path path = temp.resolve("games.scores");
+		for (int round=0; round<3; round++) {
+			try (Leaderboard board = new Leaderboard(path)) {
+				assertEquals(all.size(), board.size());
+				addGames(board, 1000);
+				check(board);
+				board.sync();
+			}
+		}
+		assertEquals(Leaderboard.HEADER + all.size() * Leaderboard.RECORD, Files.size(path));
+	}
+
+	/**
+	 * Half a record at the end (from a crash) is cut off when the file is opened.
+	 */
+	@Test
+	public void tornTailIsCutOff() throws IOException {
+		Path path = temp.resolve("games.scores");
+		try (Leaderboard board = new Leaderboard(path)) {
+			addGames(board, 300);
+		}
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+			ch.write(ByteBuffer.wrap(new byte[Leaderboard.RECORD / 2]));
+		}
+		try (Leaderboard board = new Leaderboard(path)) {
+			check(board);
+		}
+		assertEquals(Leaderboard.HEADER + all.size() * Leaderboard.RECORD, Files.size(path));
+	}
+
+	/**
+	 * A file that isn't a leaderboard isn't opened as one.
+	 */
+	@Test(expected = IOException.class)
+	public void garbageIsRejected() throws IOException {
+		Path path = temp.resolve("garbage.scores");
+		Files.write(path, new byte[64]);
+		new Leaderboard(path).close();
+	}
+
+	/**
+	 * A closed leaderboard takes no more games.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void closedTakesNoMore() throws IOException {
+		Leaderboard board = new Leaderboard(temp.resolve("games.scores"));
+		board.close();
+		board.add(madeUp());
+	}
+
+	/**
+	 * Going back takes back fish found and lost too, so a game's entry counts only what happened in the end.
+	 */
+	@Test
+	public void rewindTakesBackCounters() {
+		FishGame game = new FishGame(Scenario.parse(new String[] {"--seed=8", "--fish=15"}));
+		game.keepRewind(100);
+		PlayerController bot = new GreedyBot(new Random(1));
+		List<int[]> counts = new ArrayList<>();
+		for (int t=0; t<400 && !game.gameOver(); t++) {
+			counts.add(new int[] {game.fishFound, game.fishLost});
+			game.play(bot.decide(game));
+		}
+		counts.add(new int[] {game.fishFound, game.fishLost});
+		int went = game.rewind(60);
+		assertEquals(60, went);
+		assertArrayEquals(counts.get(counts.size() - 1 - went), new int[] {game.fishFound, game.fishLost});
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Saves worlds as {@link Level}s and loads them back: everything comes back where it was, a game made from a level
+ * plays, and broken files are turned away.
+ */
+public class LevelRoundTripTest {
+	/**
+	 * Where the level files go (deleted after each test).
+	 */
+	Path temp;
+
+	/**
+	 * Make a fresh directory.
+	 */
+	@Before
+	public void setUp() throws IOException {
+		temp = Files.createTempDirectory("level-test");
+	}
+
+	/**
+	 * Throw it away.
+	 */
+	@After
+	public void tearDown() throws IOException {
+		JournalRecoveryTest.delete(temp);
+	}
+
+	/**
+	 * @return every object in a world, as "kind:attrs@x,y", sorted.
+	 */
+	static List<String> items(World world) {
+		List<String> out = new ArrayList<>();
+		for (WorldObject it : world.viewItems()) {
+			out.add(it.getKind() + ":" + Level.attrsOf(it) + "@" + it.getX() + "," + it.getY());
+		}
+		Collections.sort(out);
+		return out;
+	}
+
+	/**
+	 * A small level: a home, a missing fish and a snail going left (and no player).
+	 */
+	Path smallLevel() throws IOException {
+		Path path = temp.resolve("small.level");
+		try (Level.Writer out = new Level.Writer(path, 5, 5)) {
+			out.add(Kind.HOME, 0, 2, 2);
+			out.add(Kind.FISH, 4, 0, 0);
+			out.add(Kind.SNAIL, 1, 4, 4);
+		}
+		return path;
+	}
+
+	/**
+	 * A whole game's world comes back the same, and a game made from it can be won.
+	 */
+	@Test
+	public void roundTrip() throws IOException {
+		Scenario scenario = Scenario.parse(new String[] {"--size=40", "--seed=5", "--fish=20", "--rocks=80",
+				"--snails=9", "--fallingRockRatio=0.3"});
+		FishGame game = new FishGame(scenario);
+		Path path = temp.resolve("game.level");
+		Level.save(game.world, path);
+		World back = Level.load(path, new Random(1));
+		assertEquals(40, back.getWidth());
+		assertEquals(40, back.getHeight());
+		assertEquals(items(game.world), items(back));
+
+		FishGame fromLevel = new FishGame(back);
+		assertEquals(20, fromLevel.missing.size());
+		assertEquals(20, fromLevel.totalFish);
+		assertEquals(80, fromLevel.NUM_ROCKS);
+		PlayerController bot = new GreedyBot(new Random(3));
+		for (int t=0; t<5000 && !fromLevel.gameOver(); t++) {
+			fromLevel.play(bot.decide(fromLevel));
+		}
+		assertTrue(fromLevel.gameOver());
+	}
+
+	/**
+	 * Two games from the same level and seed play out the same.
+	 */
+	@Test
+	public void levelScenarioIsRepeatable() throws IOException {
+		Path path = temp.resolve("game.level");
+		Level.save(new FishGame(Scenario.parse(new String[] {"--seed=5", "--snails=4"})).world, path);
+		Scenario scenario = Scenario.parse(new String[] {"--level=" + path, "--seed=9"});
+		FishGame a = new FishGame(scenario);
+		FishGame b = new FishGame(scenario);
+		PlayerController botA = new GreedyBot(new Random(3));
+		PlayerController botB = new GreedyBot(new Random(3));
+		for (int t=0; t<300 && !a.gameOver(); t++) {
+			a.play(botA.decide(a));
+			b.play(botB.decide(b));
+			assertEquals(items(a.world), items(b.world));
+			assertEquals(a.score, b.score);
+		}
+	}
+
+	/**
+	 * Without a player in the file, the player starts at home; fish start out missing, and snails go the way they were
+	 * saved going.
+	 */
+	@Test
+	public void playerStartsAtHome() throws IOException {
+		FishGame game = new FishGame(Level.load(smallLevel(), new Random(1)));
+		assertEquals(2, game.player.getX());
+		assertEquals(2, game.player.getY());
+		assertEquals(1, game.missing.size());
+		assertTrue(game.world.viewKind(Kind.SNAIL, Snail.class).get(0).movingLeft);
+	}
+
+	/**
+	 * A file cut short is turned away.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void truncatedIsRejected() throws IOException {
+		byte[] bytes = Files.readAllBytes(smallLevel());
+		Path cut = temp.resolve("cut.level");
+		Files.write(cut, Arrays.copyOf(bytes, bytes.length - 3));
+		Level.read(cut.toString(), new Random());
+	}
+
+	/**
+	 * A record outside the world is turned away.
+	 */
+	@Test
+	public void badCellIsRejected() throws IOException {
+		byte[] bytes = Files.readAllBytes(smallLevel());
+		bytes[Level.HEADER] = 99;
+		bytes[Level.HEADER + 1] = 0;
+		bytes[Level.HEADER + 2] = 0;
+		bytes[Level.HEADER + 3] = 0x7f;
+		Path bad = temp.resolve("bad.level");
+		Files.write(bad, bytes);
+		try {
+			Level.load(bad, new Random());
+			fail("A bad record was loaded.");
+		} catch (IOException expected) {
+			assertTrue(expected.getMessage(), expected.getMessage().contains("bad record"));
+		}
+	}
+
+	/**
+	 * A level without a home can't be played.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void noHomeIsRejected() throws IOException {
+		Path path = temp.resolve("homeless.level");
+		try (Level.Writer out = new Level.Writer(path, 5, 5)) {
+			out.add(Kind.ROCK, 0, 1, 1);
+		}
+		new FishGame(Level.load(path, new Random()));
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Follows {@link PathPlanner}'s steps while snails and rocks move around, and checks each one against a
+ * breadth-first search from scratch: every step it picks has to be on a shortest path to the goal, and it has to find
+ * a step whenever there is a way there.
+ */
+public class PathPlannerTest {
+	/**
+	 * Steps from every cell to a goal for someone, the slow way: a breadth-first search back from the goal, where a
+	 * step into a cell can only be taken if {@link World#canSwim} says so.
+	 * @param world - the world.
+	 * @param who - who is swimming.
+	 * @param goal - the goal cell.
+	 * @return each cell's distance, or -1 if there's no way from it.
+	 */
+	static int[] bfs(World world, WorldObject who, int goal) {
+		int width = world.getWidth();
+		int[] dist = new int[width * world.getHeight()];
+		Arrays.fill(dist, -1);
+		if (!world.canSwim(who, goal % width, goal / width)) {
+			dist[goal] = 0;
+			return dist;
+		}
+		int[] queue = new int[dist.length];
+		int head = 0;
+		int tail = 0;
+		dist[goal] = 0;
+		queue[tail++] = goal;
+		while (head < tail) {
+			int cell = queue[head++];
+			if (!world.canSwim(who, cell % width, cell / width)) {
+				// Nobody gets here, so nobody gets anywhere from here.
+				continue;
+			}
+			for (int d=0; d<Moves.CARDINAL; d++) {
+				int next = world.cellOf(cell % width + Moves.DX[d], cell / width + Moves.DY[d]);
+				if (next >= 0 && dist[next] < 0) {
+					dist[next] = dist[cell] + 1;
+					queue[tail++] = next;
+				}
+			}
+		}
+		return dist;
+	}
+
+	/**
+	 * Put something somewhere in the world.
+	 */
+	static <T extends WorldObject> T place(T it, World world, Random rand) {
+		it.setPosition(rand.nextInt(world.getWidth()), rand.nextInt(world.getHeight()));
+		world.register(it);
+		return it;
+	}
+
+	/**
+	 * Lots of small worlds. Every turn the snails move, rocks now and then come, go, move or fall, and the player
+	 * usually takes the planner's step, but sometimes goes somewhere else (so the planner has to catch up with a
+	 * traveler that wandered off its path), and sometimes gets a new goal. The goal is often walled off and opened
+	 * up again.
+	 */
+	@Test
+	public void stepsAreShortest() {
+		Random rand = new Random(28);
+		int steps = 0;
+		int stuck = 0;
+		for (int round=0; round<150; round++) {
+			int width = 4 + rand.nextInt(14);
+			int height = 4 + rand.nextInt(10);
+			World world = new World(width, height, rand);
+			List<Snail> snails = new ArrayList<>();
+			List<Rock> rocks = new ArrayList<>();
+			for (int i=rand.nextInt(width * height / 6 + 1); i>0; i--) {
+				snails.add(place(new Snail(world), world, rand));
+			}
+			for (int i=rand.nextInt(width * height / 3 + 1); i>0; i--) {
+				rocks.add(place(rand.nextInt(4) == 0 ? new FallingRock(world) : new Rock(world), world, rand));
+			}
+			Fish player = new Fish(0, world);
+			player.markAsPlayer();
+			place(player, world, rand);
+			PathPlanner planner = new PathPlanner(world, player);
+			world.addListener(planner);
+			int goal = rand.nextInt(width * height);
+			planner.setGoal(goal % width, goal / width);
+
+			for (int turn=0; turn<200; turn++) {
+				world.beginTick();
+				for (Snail snail : snails) {
+					snail.step();
+				}
+				int changes = rand.nextInt(3);
+				for (int i=0; i<changes; i++) {
+					int op = rocks.isEmpty() ? 0 : rand.nextInt(4);
+					if (op == 0) {
+						rocks.add(place(new Rock(world), world, rand));
+					} else if (op == 1) {
+						world.remove(rocks.remove(rand.nextInt(rocks.size())));
+					} else if (op == 2) {
+						rocks.get(rand.nextInt(rocks.size())).setPosition(rand.nextInt(width), rand.nextInt(height));
+					} else {
+						for (Rock rock : rocks) {
+							if (rock instanceof FallingRock) {
+								rock.step();
+							}
+						}
+					}
+				}
+				world.commit();
+				if (rand.nextInt(40) == 0) {
+					goal = rand.nextInt(width * height);
+					planner.setGoal(goal % width, goal / width);
+				}
+
+				String where = "round " + round + ", turn " + turn;
+				int[] dist = bfs(world, player, goal);
+				int here = world.cellOf(player.getX(), player.getY());
+				int d = planner.nextStep();
+				assertEquals(where, here == goal, planner.arrived());
+				if (d < 0) {
+					assertTrue(where + ": missed a way of " + dist[here], dist[here] <= 0);
+					stuck++;
+				} else {
+					int next = world.cellOf(player.getX() + Moves.DX[d], player.getY() + Moves.DY[d]);
+					assertTrue(where, next >= 0 && world.canSwim(player, player.getX() + Moves.DX[d],
+							player.getY() + Moves.DY[d]));
+					assertEquals(where + ": not a shortest step", dist[here] - 1, dist[next]);
+					steps++;
+				}
+				if (rand.nextInt(5) == 0) {
+					// Wander off the path.
+					player.move(rand.nextInt(Moves.CARDINAL));
+				} else if (d >= 0) {
+					player.move(d);
+				}
+			}
+		}
+		// Make sure both kinds of answer came up plenty.
+		assertTrue(steps > 5000);
+		assertTrue(stuck > 1000);
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Steps the same seeded worlds with {@link RegionStepper} on one thread and on several, with regions of all sizes,
+ * and checks that they end up exactly the same.
+ */
+public class RegionStepperTest {
+	/**
+	 * Everything about a world that stepping can change, as a string: every object in list order (id, kind, place
+	 * and attributes), who is in each cell, and the world's count of crowded cells.
+	 */
+	static String state(World world) {
+		StringBuilder out = new StringBuilder();
+		for (WorldObject it : world.viewItems()) {
+			out.append(it.getId()).append(':').append(it.getKind()).append('@').append(it.getX()).append(',')
+					.append(it.getY()).append('/').append(BandServer.attrsOf(it)).append(';');
+		}
+		out.append(" cells=");
+		List<WorldObject> here = new ArrayList<>();
+		List<Integer> ids = new ArrayList<>();
+		for (int cell=0; cell<world.getWidth() * world.getHeight(); cell++) {
+			world.cellInto(cell, here);
+			if (here.isEmpty()) {
+				continue;
+			}
+			ids.clear();
+			for (WorldObject it : here) {
+				ids.add(it.getId());
+			}
+			Collections.sort(ids);
+			out.append(cell).append(ids);
+		}
+		out.append(" crowded=").append(world.broadPhase());
+		return out.toString();
+	}
+
+	/**
+	 * Fill a world with rocks (some falling) and snails from a seed, and step it in regions.
+	 * @param seed - the world.
+	 * @param regionSize - how big the regions are.
+	 * @param threads - how many threads.
+	 * @param ticks - how many ticks.
+	 * @return its state after each tick.
+	 */
+	static List<String> run(int seed, int regionSize, int threads, int ticks) {
+		Random rand = new Random(seed);
+		World world = new World(37, 29, rand);
+		List<WorldObject> everything = new ArrayList<>();
+		for (int i=0; i<300; i++) {
+			everything.add(rand.nextBoolean() ? new FallingRock(world) : new Rock(world));
+		}
+		for (int i=0; i<350; i++) {
+			everything.add(new Snail(world));
+		}
+		world.insertAllRandomly(everything);
+		RegionStepper stepper = new RegionStepper(world, regionSize, threads);
+		List<String> states = new ArrayList<>();
+		try {
+			for (int t=0; t<ticks; t++) {
+				stepper.stepAll();
+				states.add(state(world));
+			}
+		} finally {
+			stepper.close();
+		}
+		WorldKindsTest.checkKinds(world);
+		return states;
+	}
+
+	/**
+	 * Region sizes from the smallest allowed to bigger than the world, which doesn't divide evenly into any of them.
+	 */
+	@Test
+	public void sameOnAnyThreadCount() {
+		for (int regionSize : new int[] {2, 3, 5, 8, 16, 64}) {
+			for (int seed=1; seed<=3; seed++) {
+				List<String> one = run(seed, regionSize, 1, 60);
+				assertNotEquals(one.get(0), one.get(one.size() - 1));
+				for (int threads : new int[] {2, 4}) {
+					List<String> many = run(seed, regionSize, threads, 60);
+					for (int t=0; t<one.size(); t++) {
+						assertEquals("seed " + seed + ", regions of " + regionSize + ", " + threads + " threads, tick " + t,
+								one.get(t), many.get(t));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * A whole game stepped in regions (with its listeners, fish and player) plays the same on 1 and 4 threads.
+	 */
+	@Test
+	public void gameSameOnAnyThreadCount() {
+		for (int regionSize : new int[] {2, 7, 16}) {
+			List<String> one = playGame(regionSize, 1);
+			List<String> four = playGame(regionSize, 4);
+			assertEquals(one.size(), four.size());
+			for (int t=0; t<one.size(); t++) {
+				assertEquals("regions of " + regionSize + ", tick " + t, one.get(t), four.get(t));
+			}
+		}
+	}
+
+	/**
+	 * Play a seeded game stepped in regions, with a random bot.
+	 * @return the game's state (see {@link RewindTest#state}) after each tick.
+	 */
+	static List<String> playGame(int regionSize, int threads) {
+		FishGame game = new FishGame(Scenario.parse(new String[] {"--size=30", "--seed=9", "--fish=20", "--rocks=150",
+				"--snails=150", "--fallingRockRatio=0.6"}));
+		game.stepInRegions(regionSize, threads);
+		PlayerController bot = new RandomBot(new Random(4));
+		List<String> states = new ArrayList<>();
+		try {
+			for (int t=0; t<300 && !game.gameOver(); t++) {
+				game.play(bot.decide(game));
+				states.add(RewindTest.state(game));
+			}
+		} finally {
+			game.regions.close();
+		}
+		return states;
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Plays a game with steps and clicks, writing down the whole state after every tick; then goes back at random, and
+ * checks the game is exactly as it was written down, and that playing the same ticks again gives the same states.
+ */
+public class RewindTest {
+	/**
+	 * How many ticks the game can go back.
+	 */
+	static final int KEEP = 64;
+	/**
+	 * How many ticks to play.
+	 */
+	static final int TICKS = 1500;
+
+	/**
+	 * Everything {@link Rewind} should bring back, as a string: score, steps, the next id and the dice; every object in
+	 * list order (with its flags), each kind's list, the fish lists, the heart and bubble, the player's trail, and who
+	 * is in each cell (sorted, since the order within a cell isn't kept).
+	 * @param game - the game.
+	 * @return its state.
+	 */
+	static String state(FishGame game) {
+		World world = game.world;
+		StringBuilder out = new StringBuilder();
+		out.append(game.score).append('/').append(game.stepsTaken).append(" next=").append(world.getNextId());
+		out.append(" dice=").append(((GameRandom) game.rand).save());
+		out.append(" items=");
+		for (WorldObject it : world.viewItems()) {
+			assertSame(it, world.viewItems().get(it.listIndex));
+			assertSame(it, world.viewKind(it.getKind()).get(it.kindIndex));
+			out.append(it.getId()).append(':').append(it.getX()).append(',').append(it.getY()).append(':')
+					.append(Rewind.flagsOf(it)).append(';');
+		}
+		for (Kind kind : Kind.ALL) {
+			out.append(' ').append(kind).append('=');
+			for (WorldObject it : world.viewKind(kind)) {
+				out.append(it.getId()).append(',');
+			}
+		}
+		out.append(" missing=");
+		for (Fish f : game.missing) {
+			out.append(f.getId()).append(',');
+		}
+		out.append(" found=");
+		for (Fish f : game.found) {
+			out.append(f.getId()).append(',');
+		}
+		out.append(" home=");
+		for (Fish f : game.fishhome) {
+			out.append(f.getId()).append(',');
+		}
+		out.append(" heart=").append(game.heart == null ? -1 : game.heart.getId());
+		out.append(" bubble=").append(game.bubble == null ? -1 : game.bubble.getId());
+		PositionHistory trail = game.player.recentPositions;
+		out.append(" trail=");
+		for (int i=0; i<trail.size(); i++) {
+			out.append(trail.getX(i)).append(',').append(trail.getY(i)).append(';');
+		}
+		out.append(" cells=");
+		List<WorldObject> here = new ArrayList<>();
+		List<Integer> ids = new ArrayList<>();
+		for (int cell=0; cell<world.getWidth() * world.getHeight(); cell++) {
+			world.cellInto(cell, here);
+			if (here.isEmpty()) {
+				continue;
+			}
+			ids.clear();
+			for (WorldObject it : here) {
+				ids.add(it.getId());
+			}
+			Collections.sort(ids);
+			out.append(cell).append(ids);
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Play tick t: a click if there is one, otherwise a move.
+	 */
+	static void tick(FishGame game, int[] actions, int[][] clicks, int t) {
+		if (clicks[t] != null) {
+			game.click(clicks[t][0], clicks[t][1]);
+		} else {
+			game.play(actions[t]);
+		}
+	}
+
+	/**
+	 * Go back, check, play the same ticks again, check each, then go back part of the way and play on differently.
+	 */
+	@Test
+	public void rewindMatchesRecordedState() {
+		Random rand = new Random(11);
+		Scenario scenario = Scenario.parse(new String[] {"--size=25", "--seed=5", "--fish=25", "--rocks=60",
+				"--snails=25", "--fallingRockRatio=0.3", "--heartChance=0.05", "--bubbleChance=0.05"});
+		FishGame game = new FishGame(scenario);
+		PlayerController bot = new GreedyBot(new Random(3));
+		int[] actions = new int[TICKS];
+		int[][] clicks = new int[TICKS][];
+		String[] states = new String[TICKS + 1];
+		game.keepRewind(KEEP);
+		states[0] = state(game);
+		int rewinds = 0;
+		int t = 0;
+		while (t < TICKS && !game.gameOver()) {
+			if (rand.nextInt(10) == 0) {
+				clicks[t] = new int[] {rand.nextInt(25), rand.nextInt(25)};
+			} else {
+				clicks[t] = null;
+				actions[t] = rand.nextInt(4) == 0 ? rand.nextInt(5) - 1 : bot.decide(game);
+			}
+			tick(game, actions, clicks, t);
+			t++;
+			states[t] = state(game);
+			if (rand.nextInt(25) != 0) {
+				continue;
+			}
+			int ticks = 1 + rand.nextInt(80);
+			int available = game.rewind.available();
+			int went = game.rewind(ticks);
+			rewinds++;
+			assertEquals(Math.min(ticks, available), went);
+			assertTrue(went <= KEEP);
+			int back = t - went;
+			assertEquals("back " + went + " from " + t, states[back], state(game));
+			for (int u=back; u<t; u++) {
+				tick(game, actions, clicks, u);
+				assertEquals("replaying " + (u + 1) + " after going back from " + t, states[u + 1], state(game));
+			}
+			t -= game.rewind(rand.nextInt(went + 1));
+			assertEquals(states[t], state(game));
+		}
+		assertTrue(rewinds > 20);
+	}
+
+	/**
+	 * Without {@link FishGame#keepRewind}, a game can't go back.
+	 */
+	@Test
+	public void noRewindWithoutKeeping() {
+		FishGame game = new FishGame(Scenario.parse(new String[] {"--seed=5"}));
+		game.play(PlayerController.SKIP);
+		String before = state(game);
+		assertEquals(0, game.rewind(1));
+		assertEquals(before, state(game));
+	}
+}
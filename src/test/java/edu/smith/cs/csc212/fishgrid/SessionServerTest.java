@@ -0,0 +1,143 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Talks to a {@link SessionServer} over its socket: sessions belong to the client that made them, and go away with it.
+ */
+public class SessionServerTest {
+	/**
+	 * The server (stopped after each test).
+	 */
+	SessionServer server;
+
+	/**
+	 * A client: a socket, and its lines in and out.
+	 */
+	class Client implements AutoCloseable {
+		final Socket socket;
+		final BufferedReader in;
+		final OutputStream out;
+
+		Client() throws IOException {
+			socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+			socket.setSoTimeout(5000);
+			in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			out = socket.getOutputStream();
+		}
+
+		/**
+		 * Send a command and read the answer.
+		 */
+		String ask(String line) throws IOException {
+			out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+			out.flush();
+			return in.readLine();
+		}
+
+		/**
+		 * @return the id of a new session.
+		 */
+		int newSession() throws IOException {
+			String answer = ask("NEW");
+			assertTrue(answer, answer.startsWith("NEW "));
+			return Integer.parseInt(answer.substring("NEW ".length()));
+		}
+
+		@Override
+		public void close() throws IOException {
+			socket.close();
+		}
+	}
+
+	/**
+	 * Start a server on a free port, ticking quickly.
+	 */
+	@Before
+	public void setUp() throws IOException {
+		server = new SessionServer(0, 2, 5);
+		server.start();
+	}
+
+	/**
+	 * Stop it.
+	 */
+	@After
+	public void tearDown() {
+		server.stop();
+	}
+
+	/**
+	 * Wait (a little) for the server to have some number of sessions.
+	 */
+	void waitForSessions(int count) throws InterruptedException {
+		long giveUp = System.currentTimeMillis() + 5000;
+		while (server.sessionCount() != count && System.currentTimeMillis() < giveUp) {
+			Thread.sleep(5);
+		}
+		assertEquals(count, server.sessionCount());
+	}
+
+	/**
+	 * A move is played as a turn of the game, and answered after its tick.
+	 */
+	@Test
+	public void moveIsPlayed() throws IOException {
+		try (Client client = new Client()) {
+			int id = client.newSession();
+			String answer = client.ask("MOVE " + id + " SKIP");
+			assertTrue(answer, answer.startsWith("TICK " + id + " 1 "));
+			answer = client.ask("CLICK " + id + " 0 0");
+			assertTrue(answer, answer.startsWith("TICK " + id + " 2 "));
+		}
+	}
+
+	/**
+	 * A client that goes away without closing its sessions doesn't leave them behind.
+	 */
+	@Test
+	public void droppedClientClosesItsSessions() throws IOException, InterruptedException {
+		try (Client stays = new Client()) {
+			stays.newSession();
+			try (Client leaves = new Client()) {
+				leaves.newSession();
+				leaves.newSession();
+				assertEquals(3, server.sessionCount());
+			}
+			waitForSessions(1);
+		}
+		waitForSessions(0);
+	}
+
+	/**
+	 * Only the client that made a session can close it.
+	 */
+	@Test
+	public void onlyTheOwnerCloses() throws IOException {
+		try (Client owner = new Client(); Client other = new Client()) {
+			int id = owner.newSession();
+			assertEquals("ERR not your session " + id, other.ask("CLOSE " + id));
+			assertEquals(1, server.sessionCount());
+			assertEquals("CLOSED " + id, owner.ask("CLOSE " + id));
+			assertEquals(0, server.sessionCount());
+		}
+	}
+}
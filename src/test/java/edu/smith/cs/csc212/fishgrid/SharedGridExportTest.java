@@ -0,0 +1,221 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Writes a game into a {@link SharedGridExport} and reads it back with a {@link SharedGridExport.Reader}, both one
+ * frame at a time and with the reader on another thread racing the writer, where every frame it gets has to be
+ * exactly one frame the writer wrote.
+ */
+public class SharedGridExportTest {
+	/**
+	 * The file (deleted after each test).
+	 */
+	Path path;
+
+	/**
+	 * Make a file name.
+	 */
+	@Before
+	public void setUp() throws IOException {
+		path = Files.createTempFile("fishgrid", ".map");
+	}
+
+	/**
+	 * Throw it away.
+	 */
+	@After
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(path);
+	}
+
+	/**
+	 * What a frame of a game should say, as a string: every cell, the player, steps, score and every fish.
+	 */
+	static String of(FishGame game) {
+		World world = game.world;
+		byte[] grid = new byte[world.getWidth() * world.getHeight()];
+		for (int cell=0; cell<grid.length; cell++) {
+			grid[cell] = (byte) VectorEnv.cellBits(world, cell);
+		}
+		StringBuilder out = new StringBuilder(Arrays.toString(grid));
+		out.append(" player=").append(game.player.getX()).append(',').append(game.player.getY());
+		out.append(" steps=").append(game.stepsTaken).append(" score=").append(game.score).append(" fish=");
+		List<List<Fish>> lists = Arrays.asList(game.missing, game.found, game.fishhome);
+		for (int status=0; status<lists.size(); status++) {
+			for (Fish f : lists.get(status)) {
+				out.append(f.getId()).append('@').append(f.getX()).append(',').append(f.getY()).append('/')
+						.append(status).append('/').append(f.color).append('/').append(f.fastScare).append(';');
+			}
+		}
+		return out.toString();
+	}
+
+	/**
+	 * What a reader got, in the same words as {@link #of(FishGame)}.
+	 */
+	static String of(SharedGridExport.Reader reader, byte[] grid) {
+		StringBuilder out = new StringBuilder(Arrays.toString(grid));
+		out.append(" player=").append(reader.playerX).append(',').append(reader.playerY);
+		out.append(" steps=").append(reader.steps).append(" score=").append(reader.score).append(" fish=");
+		for (int i=0; i<reader.fishCount; i++) {
+			out.append(reader.fishId[i]).append('@').append(reader.fishX[i]).append(',').append(reader.fishY[i])
+					.append('/').append(reader.fishStatus[i]).append('/').append(reader.fishColor[i]).append('/')
+					.append(reader.fishFastScare[i]).append(';');
+		}
+		return out.toString();
+	}
+
+	/**
+	 * A game that lasts: big, with lots of fish (so each frame has plenty to write, and a reader racing it has plenty
+	 * of chances to land in the middle), and a player that mostly wanders.
+	 */
+	static FishGame longGame(int seed) {
+		return new FishGame(Scenario.parse(new String[] {"--size=30", "--seed=" + seed, "--fish=200", "--rocks=60",
+				"--snails=20", "--fallingRockRatio=0.3"}));
+	}
+
+	/**
+	 * Play a tick: a click now and then, otherwise a random move.
+	 */
+	static void tick(FishGame game, Random rand) {
+		if (rand.nextInt(8) == 0) {
+			game.click(rand.nextInt(game.world.getWidth()), rand.nextInt(game.world.getHeight()));
+		} else {
+			game.play(rand.nextInt(5) - 1);
+		}
+	}
+
+	/**
+	 * Write a frame, read it: it says what the game says.
+	 */
+	@Test
+	public void readsWhatWasWritten() throws IOException {
+		FishGame game = longGame(1);
+		Random rand = new Random(1);
+		SharedGridExport export = new SharedGridExport(game, path.toString());
+		SharedGridExport.Reader reader = new SharedGridExport.Reader(path.toString());
+		byte[] grid = new byte[reader.width * reader.height];
+		for (int t=0; t<500 && !game.gameOver(); t++) {
+			tick(game, rand);
+			export.publish();
+			assertEquals(export.generation, reader.read(grid));
+			assertEquals("tick " + t, of(game), of(reader, grid));
+		}
+		export.close();
+	}
+
+	/**
+	 * A reader on another thread reads as fast as it can while the game plays and publishes: every frame it gets is
+	 * one the writer wrote, whole (the writer notes down each frame before publishing it).
+	 */
+	@Test
+	public void readerNeverSeesHalfAFrame() throws IOException, InterruptedException {
+		FishGame game = longGame(2);
+		Random rand = new Random(2);
+		Map<Long, String> written = new ConcurrentHashMap<>();
+		// The first frame is written when the export is made.
+		written.put(2L, of(game));
+		SharedGridExport export = new SharedGridExport(game, path.toString());
+		assertEquals(2, export.generation);
+
+		SharedGridExport.Reader reader = new SharedGridExport.Reader(path.toString());
+		AtomicBoolean done = new AtomicBoolean();
+		long[] framesRead = new long[1];
+		Throwable[] failed = new Throwable[1];
+		Thread readerThread = new Thread(() -> {
+			byte[] grid = new byte[reader.width * reader.height];
+			long last = -1;
+			try {
+				while (!done.get()) {
+					long generation = reader.read(grid);
+					if (generation == last) {
+						continue;
+					}
+					last = generation;
+					String expected = written.get(generation);
+					assertEquals("frame " + generation, expected, of(reader, grid));
+					framesRead[0]++;
+				}
+			} catch (Throwable e) {
+				failed[0] = e;
+			}
+		});
+		readerThread.start();
+		try {
+			for (int t=0; t<20000 && !game.gameOver() && failed[0] == null; t++) {
+				tick(game, rand);
+				written.put(export.generation + 2, of(game));
+				export.publish();
+			}
+		} finally {
+			done.set(true);
+			readerThread.join();
+			export.close();
+		}
+		if (failed[0] != null) {
+			throw new AssertionError(failed[0]);
+		}
+		assertTrue("only read " + framesRead[0] + " frames", framesRead[0] > 100);
+	}
+
+	/**
+	 * A reader that finds a frame half written (an odd generation, and a cell with junk in it) waits until it's done,
+	 * then gets the finished frame.
+	 */
+	@Test
+	public void readerWaitsOutAFrameBeingWritten() throws IOException, InterruptedException {
+		FishGame game = longGame(3);
+		SharedGridExport export = new SharedGridExport(game, path.toString());
+		SharedGridExport.Reader reader = new SharedGridExport.Reader(path.toString());
+		byte[] grid = new byte[reader.width * reader.height];
+		long[] got = new long[1];
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			// Play the writer by hand, stopped in the middle of a frame.
+			MappedByteBuffer raw = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+			raw.order(ByteOrder.LITTLE_ENDIAN);
+			byte cell = raw.get(SharedGridExport.GRID);
+			raw.putLong(SharedGridExport.GENERATION, export.generation + 1);
+			raw.put(SharedGridExport.GRID, (byte) 0x55);
+
+			Thread readerThread = new Thread(() -> got[0] = reader.read(grid));
+			readerThread.start();
+			readerThread.join(200);
+			assertTrue(readerThread.isAlive());
+
+			raw.put(SharedGridExport.GRID, cell);
+			SharedGridExport.storeFence();
+			raw.putLong(SharedGridExport.GENERATION, export.generation + 2);
+			readerThread.join(5000);
+			assertFalse(readerThread.isAlive());
+		}
+		assertEquals(export.generation + 2, got[0]);
+		assertEquals(of(game), of(reader, grid));
+		export.close();
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+/**
+ * Plays seeded games through a {@link StateEncoder} and a {@link StateDecoder}, and checks after every frame that the
+ * decoder sees exactly what is in the world, that keyframes come when they should, and that the checksum in each frame
+ * is the checksum of the world.
+ */
+public class StateRoundTripTest {
+	/**
+	 * Everything a viewer should know about a world, as a string: each object's id, kind, attributes and position, in
+	 * id order.
+	 */
+	static String of(World world) {
+		TreeMap<Integer, String> byId = new TreeMap<>();
+		for (WorldObject it : world.viewItems()) {
+			byId.put(it.getId(), it.getKind() + "/" + StateEncoder.attrsOf(it) + "@" + it.getX() + "," + it.getY());
+		}
+		return byId.toString();
+	}
+
+	/**
+	 * What a decoder knows, in the same words as {@link #of(World)}.
+	 */
+	static String of(StateDecoder viewer) {
+		TreeMap<Integer, String> byId = new TreeMap<>();
+		for (StateEncoder.Entity e : viewer.view()) {
+			byId.put(e.id, e.kind + "/" + e.attrs + "@" + e.x + "," + e.y);
+		}
+		return byId.toString();
+	}
+
+	/**
+	 * The checksum of a whole world, the slow way.
+	 */
+	static long checksum(World world) {
+		long sum = 0;
+		for (WorldObject it : world.viewItems()) {
+			sum += StateEncoder.hash(it.getId(), it.getKind().ordinal(), StateEncoder.attrsOf(it), it.getX(), it.getY());
+		}
+		return sum;
+	}
+
+	/**
+	 * Make sure a viewer is in step with the game.
+	 */
+	static void check(String where, FishGame game, StateDecoder viewer) {
+		assertTrue(where, viewer.inSync());
+		assertEquals(where, of(game.world), of(viewer));
+		assertEquals(where, game.score, viewer.getScore());
+		assertEquals(where, game.stepsTaken, viewer.getSteps());
+	}
+
+	/**
+	 * Play one tick: a click now and then, otherwise a move (mostly the greedy bot's).
+	 */
+	static void tick(FishGame game, PlayerController bot, Random rand) {
+		if (rand.nextInt(10) == 0) {
+			game.click(rand.nextInt(game.world.getWidth()), rand.nextInt(game.world.getHeight()));
+		} else {
+			game.play(rand.nextInt(4) == 0 ? rand.nextInt(5) - 1 : bot.decide(game));
+		}
+	}
+
+	/**
+	 * Play a game for some ticks, decoding every frame. Partway through a second viewer joins from a keyframe made
+	 * on the spot, and a third one misses a frame, has to say so, and is back in step at the next keyframe.
+	 * @param seed - the game.
+	 * @param keyframeInterval - how often the encoder sends everything.
+	 * @param ticks - how many ticks to play.
+	 */
+	static void roundTrip(int seed, int keyframeInterval, int ticks) {
+		FishGame game = new FishGame(Scenario.parse(new String[] {"--size=20", "--seed=" + seed, "--fish=20",
+				"--rocks=40", "--snails=12", "--fallingRockRatio=0.3", "--heartChance=0.05", "--bubbleChance=0.05"}));
+		PlayerController bot = new GreedyBot(new Random(seed));
+		Random rand = new Random(seed);
+		StateEncoder encoder = new StateEncoder(game, keyframeInterval);
+		StateDecoder viewer = new StateDecoder();
+		StateDecoder late = null;
+		StateDecoder dropped = new StateDecoder();
+		int join = ticks / 3;
+		int drop = ticks / 2;
+		boolean droppedCaughtUp = false;
+
+		for (int t=0; t<ticks && !game.gameOver(); t++) {
+			String where = "seed " + seed + ", every " + keyframeInterval + ", tick " + t;
+			if (t > 0) {
+				tick(game, bot, rand);
+			}
+			if (t == join) {
+				late = new StateDecoder();
+				late.apply(encoder.encodeKeyframe());
+			}
+			ByteBuffer frame = encoder.encodeFrame();
+			assertEquals(where, t + 1, encoder.getFrame());
+			int type = frame.get(0);
+			assertEquals(where, t % keyframeInterval == 0 ? StateEncoder.KEYFRAME : StateEncoder.DELTA, type);
+			ByteBuffer sum = frame.duplicate();
+			sum.position(frame.limit() - 8);
+			assertEquals(where, checksum(game.world), WireBuffer.getLong(sum));
+
+			viewer.apply(frame.duplicate());
+			check(where, game, viewer);
+			if (late != null) {
+				late.apply(frame.duplicate());
+				check(where + " (joined late)", game, late);
+			}
+			if (t == drop) {
+				continue;
+			}
+			try {
+				dropped.apply(frame.duplicate());
+				droppedCaughtUp |= t > drop;
+			} catch (IllegalStateException e) {
+				// Only the frames after the missed one, until the next keyframe.
+				assertTrue(where, t > drop && type == StateEncoder.DELTA);
+				assertFalse(where, droppedCaughtUp);
+				continue;
+			}
+			check(where + " (dropped a frame)", game, dropped);
+		}
+		assertTrue(late != null && droppedCaughtUp);
+	}
+
+	/**
+	 * A keyframe every frame.
+	 */
+	@Test
+	public void onlyKeyframes() {
+		roundTrip(1, 1, 150);
+	}
+
+	/**
+	 * Keyframes now and then, so most frames are deltas.
+	 */
+	@Test
+	public void deltas() {
+		for (int seed=2; seed<=6; seed++) {
+			roundTrip(seed, 7, 400);
+		}
+	}
+
+	/**
+	 * Keyframes as often as {@link SessionServer} sends them.
+	 */
+	@Test
+	public void serverInterval() {
+		roundTrip(7, SessionServer.KEYFRAME_INTERVAL, 3 * SessionServer.KEYFRAME_INTERVAL);
+	}
+
+	/**
+	 * A frame that doesn't follow the last one is turned away, and leaves the viewer as it was.
+	 */
+	@Test
+	public void framesOutOfOrderAreRejected() {
+		FishGame game = new FishGame(Scenario.parse(new String[] {"--seed=8"}));
+		StateEncoder encoder = new StateEncoder(game, 50);
+		StateDecoder viewer = new StateDecoder();
+		viewer.apply(encoder.encodeFrame());
+		game.play(PlayerController.SKIP);
+		ByteBuffer second = encoder.encodeFrame();
+		// Frames share the encoder's buffer, so keep a copy of this one.
+		ByteBuffer again = ByteBuffer.allocate(second.remaining()).put(second.duplicate());
+		again.flip();
+		viewer.apply(second);
+		try {
+			viewer.apply(again);
+			fail("applied frame 2 twice");
+		} catch (IllegalStateException e) {
+			assertEquals(2, viewer.getFrame());
+			check("after frame 2 again", game, viewer);
+		}
+	}
+}
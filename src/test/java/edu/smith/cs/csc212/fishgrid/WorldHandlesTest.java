@@ -0,0 +1,178 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Checks the handle table ({@link World#handleOf}, {@link World#lookup}) and the order {@link World#viewItems()} is
+ * left in by removing things.
+ */
+public class WorldHandlesTest {
+	/**
+	 * Make a rock and put it in the world.
+	 */
+	static Rock rock(World world) {
+		Rock rock = new Rock(world);
+		rock.setPosition(0, 0);
+		world.register(rock);
+		return rock;
+	}
+
+	/**
+	 * A removed object's slot goes to the next one registered, and the old handle doesn't find the new object.
+	 */
+	@Test
+	public void staleHandleAfterSlotReuse() {
+		World world = new World(5, 5);
+		Rock first = rock(world);
+		long handle = world.handleOf(first);
+		assertNotEquals(0, handle);
+		assertSame(first, world.lookup(handle));
+		world.remove(first);
+		assertNull(world.lookup(handle));
+		assertEquals(0, world.handleOf(first));
+
+		Rock second = rock(world);
+		assertEquals(-1, first.slot);
+		assertEquals((int) handle, second.slot);
+		assertNull(world.lookup(handle));
+		assertSame(second, world.lookup(world.handleOf(second)));
+		assertNull(world.lookup(0));
+	}
+
+	/**
+	 * Lots of objects come and go, in and out of ticks: every handle finds its object while it's here, and nothing
+	 * after it's gone.
+	 */
+	@Test
+	public void handlesMatchWhatIsHere() {
+		Random rand = new Random(7);
+		World world = new World(20, 20, rand);
+		List<WorldObject> here = new ArrayList<>();
+		Map<Long, WorldObject> handles = new HashMap<>();
+		for (int round=0; round<2000; round++) {
+			boolean tick = rand.nextBoolean();
+			if (tick) {
+				world.beginTick();
+			}
+			for (int i=0; i<5; i++) {
+				if (here.isEmpty() || rand.nextInt(3) > 0 && here.size() < 200) {
+					WorldObject it = rock(world);
+					here.add(it);
+					assertNull(handles.put(world.handleOf(it), it));
+				} else {
+					world.remove(here.remove(rand.nextInt(here.size())));
+				}
+			}
+			if (tick) {
+				world.commit();
+			}
+		}
+		Set<WorldObject> stillHere = new HashSet<>(here);
+		for (Map.Entry<Long, WorldObject> e : handles.entrySet()) {
+			assertSame(stillHere.contains(e.getValue()) ? e.getValue() : null, world.lookup(e.getKey()));
+		}
+	}
+
+	/**
+	 * Handles keep working as a slot's generation goes past Integer.MAX_VALUE, and a slot that has used up every
+	 * generation is never used again (slot 0 would otherwise hand out handle 0).
+	 */
+	@Test
+	public void generationWrap() {
+		World world = new World(5, 5);
+		List<Long> old = new ArrayList<>();
+		world.generations[0] = Integer.MAX_VALUE - 2;
+		for (int i=0; i<5; i++) {
+			Rock it = rock(world);
+			assertEquals(0, it.slot);
+			long handle = world.handleOf(it);
+			assertNotEquals(0, handle);
+			assertFalse(old.contains(handle));
+			assertSame(it, world.lookup(handle));
+			for (long h : old) {
+				assertNull(world.lookup(h));
+			}
+			old.add(handle);
+			world.remove(it);
+		}
+
+		world.generations[0] = -3;
+		for (int i=0; i<2; i++) {
+			Rock it = rock(world);
+			assertEquals(0, it.slot);
+			assertNotEquals(0, world.handleOf(it));
+			world.remove(it);
+		}
+		// Slot 0 is now on generation -1: retired.
+		assertEquals(-1, world.generations[0]);
+		Rock next = rock(world);
+		assertEquals(1, next.slot);
+		assertSame(next, world.lookup(world.handleOf(next)));
+		assertNull(world.lookup(0));
+		world.remove(next);
+		assertEquals(1, rock(world).slot);
+	}
+
+	/**
+	 * Removing moves the last item into the gap; during a tick, removes happen at the commit in the order they were
+	 * asked for, and then new things go on the end in the order they came. Every item knows where it is.
+	 */
+	@Test
+	public void swapRemoveOrder() {
+		World world = new World(5, 5);
+		Rock[] rocks = new Rock[6];
+		for (int i=0; i<rocks.length; i++) {
+			rocks[i] = rock(world);
+		}
+		int a = rocks[0].getId();
+		world.remove(rocks[1]);
+		assertEquals(Arrays.asList(a, a + 5, a + 2, a + 3, a + 4), idsOf(world.viewItems()));
+
+		world.beginTick();
+		world.remove(rocks[2]);
+		Rock added = rock(world);
+		world.remove(rocks[0]);
+		assertEquals(Arrays.asList(a, a + 5, a + 2, a + 3, a + 4), idsOf(world.viewItems()));
+		world.commit();
+		// rocks[2] swaps with a+4, then rocks[0] with a+3; then the new one goes on the end.
+		assertEquals(Arrays.asList(a + 3, a + 5, a + 4, added.getId()), idsOf(world.viewItems()));
+
+		for (int i=0; i<world.viewItems().size(); i++) {
+			WorldObject it = world.viewItems().get(i);
+			assertEquals(i, it.listIndex);
+			assertSame(it, world.viewKind(Kind.ROCK).get(it.kindIndex));
+		}
+		assertEquals(idsOf(world.viewItems()), idsOf(world.viewKind(Kind.ROCK)));
+	}
+
+	/**
+	 * @return the ids of some objects, in order.
+	 */
+	static List<Integer> idsOf(List<WorldObject> list) {
+		List<Integer> ids = new ArrayList<>();
+		for (WorldObject it : list) {
+			ids.add(it.getId());
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Code in this package are build from existed code.
+ * https://github.com/jjfiv/CSC212FishGrid.git
+ */
+
+package edu.smith.cs.csc212.fishgrid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks {@link World#viewKind} and {@link World#count} against filtering {@link World#viewItems()} by hand.
+ */
+public class WorldKindsTest {
+	/**
+	 * Make sure every kind's view has exactly the objects of that kind.
+	 * @param world - the world (between ticks).
+	 */
+	static void checkKinds(World world) {
+		for (Kind kind : Kind.ALL) {
+			HashSet<WorldObject> expected = new HashSet<>();
+			for (WorldObject it : world.viewItems()) {
+				if (it.getKind() == kind) {
+					expected.add(it);
+				}
+			}
+			List<WorldObject> view = world.viewKind(kind);
+			assertEquals(kind.toString(), expected.size(), view.size());
+			assertEquals(kind.toString(), expected.size(), world.count(kind));
+			assertEquals(kind.toString(), expected, new HashSet<>(view));
+		}
+	}
+
+	/**
+	 * Register and remove lots of things at random, in and out of ticks, and check the views after each change.
+	 */
+	@Test
+	public void viewsMatchTheItemList() {
+		Random rand = new Random(41);
+		World world = new World(12, 12, rand);
+		List<WorldObject> inWorld = new ArrayList<>();
+		for (int round=0; round<300; round++) {
+			boolean tick = rand.nextBoolean();
+			if (tick) {
+				world.beginTick();
+			}
+			for (int i=0; i<1 + rand.nextInt(6); i++) {
+				if (inWorld.isEmpty() || rand.nextInt(3) > 0) {
+					WorldObject it = StateEncoder.create(world, Kind.ALL[rand.nextInt(Kind.ALL.length)], 0);
+					it.setPosition(rand.nextInt(12), rand.nextInt(12));
+					world.register(it);
+					inWorld.add(it);
+				} else {
+					world.remove(inWorld.remove(rand.nextInt(inWorld.size())));
+				}
+			}
+			if (tick) {
+				world.commit();
+			}
+			checkKinds(world);
+		}
+	}
+
+	/**
+	 * A view keeps up with the world, and has the right type.
+	 */
+	@Test
+	public void viewsAreLive() {
+		World world = new World(5, 5);
+		List<Rock> rocks = world.viewKind(Kind.ROCK, Rock.class);
+		assertTrue(rocks.isEmpty());
+		Rock rock = world.insertRockRandomly();
+		assertEquals(1, rocks.size());
+		assertSame(rock, rocks.get(0));
+		world.remove(rock);
+		assertTrue(rocks.isEmpty());
+	}
+
+	/**
+	 * Nobody can change the world through a view.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void viewsAreReadOnly() {
+		World world = new World(5, 5);
+		world.viewKind(Kind.FISH).add(new Fish(1, world));
+	}
+
+	/**
+	 * Asking for a kind as a class it isn't is a mistake.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void viewKindChecksTheClass() {
+		new World(5, 5).viewKind(Kind.ROCK, Fish.class);
+	}
+}